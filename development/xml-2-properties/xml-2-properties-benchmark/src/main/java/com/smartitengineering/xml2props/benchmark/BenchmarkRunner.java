@@ -0,0 +1,60 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which adds the allocation rate
+ * per second and per operation to the throughput. All the JMH command line
+ * options are supported, e.g.
+ * <code>java -jar target/benchmarks.jar ParseBenchmark -p keyCount=100000</code>
+ * runs only the parse benchmark with 100000 keys.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+    super();
+  }
+
+  public static void main(final String[] pArgs)
+      throws RunnerException, CommandLineOptionException {
+    final CommandLineOptions eCommandLineOptions =
+        new CommandLineOptions(pArgs);
+    final OptionsBuilder eOptionsBuilder = new OptionsBuilder();
+    eOptionsBuilder.parent(eCommandLineOptions);
+    if (eCommandLineOptions.getIncludes().isEmpty()) {
+      eOptionsBuilder.include(BenchmarkRunner.class.getPackage().getName()
+          + ".*Benchmark");
+    }
+    final Options eOptions = eOptionsBuilder.addProfiler(GCProfiler.class)
+        .build();
+    new Runner(eOptions).run();
+  }
+
+}
@@ -0,0 +1,178 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.benchmark;
+
+import com.smartitengineering.xml2props.xml.parser.ChunkedInputParser;
+import com.smartitengineering.xml2props.xml.parser.InputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlScannerInputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlStaxInputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlXomInputParser;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Helpers shared by the benchmarks.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class BenchmarkSupport {
+
+  private BenchmarkSupport() {
+    super();
+  }
+
+  /**
+   * @param pRoleHint The role-hint of the parser in the components.xml
+   *
+   * @return a new parser with a mojo that does not log
+   */
+  public static InputParser newInputParser(final String pRoleHint) {
+    final InputParser eInputParser;
+    if ("input-parser".equals(pRoleHint)) {
+      eInputParser = new XmlXomInputParser();
+    }
+    else if ("stax-input-parser".equals(pRoleHint)) {
+      eInputParser = new XmlStaxInputParser();
+    }
+    else if ("chunked-input-parser".equals(pRoleHint)) {
+      eInputParser = new ChunkedInputParser();
+    }
+    else if ("scanner-input-parser".equals(pRoleHint)) {
+      eInputParser = new XmlScannerInputParser();
+    }
+    else {
+      throw new IllegalArgumentException("Unknown input parser: "
+          + pRoleHint);
+    }
+    eInputParser.setMojo(newQuietMojo());
+    return eInputParser;
+  }
+
+  /**
+   * The plugin logs through the Log of its mojo and falls back to
+   * System.out without one, which would dominate the measurements.
+   *
+   * @return a mojo whose Log discards everything
+   */
+  public static AbstractMojo newQuietMojo() {
+    final AbstractMojo eMojo = new AbstractMojo() {
+      public void execute() {
+      }
+    };
+    eMojo.setLog(new QuietLog());
+    return eMojo;
+  }
+
+  /**
+   * @param pPrefix The prefix of the directory name
+   *
+   * @return a new empty temporary directory
+   *
+   * @throws IOException if the directory could not be created
+   */
+  public static File createTempDirectory(final String pPrefix)
+      throws IOException {
+    final File eDirectory = File.createTempFile(pPrefix, "");
+    if (!eDirectory.delete() || !eDirectory.mkdirs()) {
+      throw new IOException("Could not create directory: " + eDirectory);
+    }
+    return eDirectory;
+  }
+
+  /**
+   * Deletes the files of the directory, and the directory itself if
+   * requested.
+   */
+  public static void deleteFiles(
+      final File pDirectory,
+      final boolean pDeleteDirectory) {
+    final File[] eFiles = pDirectory.listFiles();
+    if (eFiles != null) {
+      for (int i = 0; i < eFiles.length; i++) {
+        eFiles[i].delete();
+      }
+    }
+    if (pDeleteDirectory) {
+      pDirectory.delete();
+    }
+  }
+
+  /**
+   * A Log with every level disabled.
+   */
+  private static final class QuietLog implements Log {
+
+    public boolean isDebugEnabled() {
+      return false;
+    }
+
+    public void debug(final CharSequence pContent) {
+    }
+
+    public void debug(final CharSequence pContent, final Throwable pError) {
+    }
+
+    public void debug(final Throwable pError) {
+    }
+
+    public boolean isInfoEnabled() {
+      return false;
+    }
+
+    public void info(final CharSequence pContent) {
+    }
+
+    public void info(final CharSequence pContent, final Throwable pError) {
+    }
+
+    public void info(final Throwable pError) {
+    }
+
+    public boolean isWarnEnabled() {
+      return false;
+    }
+
+    public void warn(final CharSequence pContent) {
+    }
+
+    public void warn(final CharSequence pContent, final Throwable pError) {
+    }
+
+    public void warn(final Throwable pError) {
+    }
+
+    public boolean isErrorEnabled() {
+      return false;
+    }
+
+    public void error(final CharSequence pContent) {
+    }
+
+    public void error(final CharSequence pContent, final Throwable pError) {
+    }
+
+    public void error(final Throwable pError) {
+    }
+  }
+
+}
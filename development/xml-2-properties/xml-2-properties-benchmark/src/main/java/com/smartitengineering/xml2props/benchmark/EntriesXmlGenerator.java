@@ -0,0 +1,198 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates a synthetic input xml with a given number of keys, Locales and
+ * value length. Every key has a value for every Locale. The keys and values
+ * alternate between the attribute and the child element forms, and the values
+ * mix ASCII, characters that need escaping and non ASCII characters, so that
+ * all the code paths of the parsers and the writers are exercised. The same
+ * arguments always generate the same file.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class EntriesXmlGenerator {
+
+  /** The lang and country of the Locales, the first is the default bundle */
+  private static final String[][] LOCALES = {
+      {null, null}, {"bn", null}, {"bn", "BD"}, {"no", null},
+      {"en", null}, {"en", "US"}, {"fr", null}, {"fr", "FR"},
+      {"de", null}, {"de", "DE"}, {"es", null}, {"ja", null}};
+
+  private static final String VALUE_CHARACTERS =
+      "abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789"
+          + " .,:=#!&<>\"' \u00e6\u00f8\u00e5\u00e9\u00fc"
+          + " \u099f\u09be\u0987\u099f\u09c7\u09b2";
+
+  private final int mKeyCount;
+
+  private final int mLocaleCount;
+
+  private final int mValueLength;
+
+  /**
+   * @param pKeyCount    The number of keys
+   * @param pLocaleCount The number of Locales, including the default bundle
+   * @param pValueLength The number of characters of every value
+   */
+  public EntriesXmlGenerator(
+      final int pKeyCount,
+      final int pLocaleCount,
+      final int pValueLength) {
+    if (pKeyCount < 1 || pLocaleCount < 1 || pValueLength < 0) {
+      throw new IllegalArgumentException("Expected at least one key and "
+          + "Locale and a non-negative value length");
+    }
+    mKeyCount = pKeyCount;
+    mLocaleCount = pLocaleCount;
+    mValueLength = pValueLength;
+  }
+
+  /**
+   * @param pArgs the output file, the key count, the Locale count and the
+   *              value length
+   *
+   * @throws IOException if the file could not be written
+   */
+  public static void main(final String[] pArgs)
+      throws IOException {
+    if (pArgs.length != 4) {
+      System.err.println("Usage: EntriesXmlGenerator <output file>"
+          + " <key count> <locale count> <value length>");
+      System.exit(1);
+    }
+    new EntriesXmlGenerator(Integer.parseInt(pArgs[1]),
+        Integer.parseInt(pArgs[2]), Integer.parseInt(pArgs[3]))
+        .generate(new File(pArgs[0]));
+  }
+
+  /**
+   * @param pOutputFile The file to write the input xml to
+   *
+   * @throws IOException if the file could not be written
+   */
+  public void generate(final File pOutputFile)
+      throws IOException {
+    final Random eRandom = new Random(31L * mKeyCount + mLocaleCount);
+    final Writer eWriter = new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(pOutputFile), "UTF-8"), 65536);
+    try {
+      eWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+      eWriter.write("<entries>\n");
+      for (int i = 0; i < mKeyCount; i++) {
+        writeEntry(eWriter, eRandom, i);
+      }
+      eWriter.write("</entries>\n");
+    }
+    finally {
+      eWriter.close();
+    }
+  }
+
+  /**
+   * @return the lang of the Locale at the index, null for the default
+   */
+  public static String getLang(final int pLocaleIndex) {
+    return pLocaleIndex < LOCALES.length
+        ? LOCALES[pLocaleIndex][0] : "x" + pLocaleIndex;
+  }
+
+  /**
+   * @return the country of the Locale at the index, null if none
+   */
+  public static String getCountry(final int pLocaleIndex) {
+    return pLocaleIndex < LOCALES.length ? LOCALES[pLocaleIndex][1] : null;
+  }
+
+  private void writeEntry(
+      final Writer pWriter,
+      final Random pRandom,
+      final int pKeyIndex)
+      throws IOException {
+    final String eKey = "generated.key." + pKeyIndex;
+    pWriter.write("  <entry>\n");
+    if (pKeyIndex % 2 == 0) {
+      pWriter.write("    <key>" + eKey + "</key>\n");
+    }
+    else {
+      pWriter.write("    <key value=\"" + eKey + "\" />\n");
+    }
+    for (int i = 0; i < mLocaleCount; i++) {
+      pWriter.write("    <value");
+      if (getLang(i) != null) {
+        pWriter.write(" lang=\"" + getLang(i) + "\"");
+      }
+      if (getCountry(i) != null) {
+        pWriter.write(" country=\"" + getCountry(i) + "\"");
+      }
+      final String eValue = escape(randomValue(pRandom));
+      if ((pKeyIndex + i) % 3 == 0) {
+        pWriter.write(" value=\"" + eValue + "\" />\n");
+      }
+      else {
+        pWriter.write(">" + eValue + "</value>\n");
+      }
+    }
+    pWriter.write("  </entry>\n");
+  }
+
+  private String randomValue(final Random pRandom) {
+    final StringBuilder eValue = new StringBuilder(mValueLength);
+    for (int i = 0; i < mValueLength; i++) {
+      eValue.append(VALUE_CHARACTERS.charAt(pRandom.nextInt(
+          VALUE_CHARACTERS.length())));
+    }
+    return eValue.toString();
+  }
+
+  private static String escape(final String pValue) {
+    final StringBuilder eEscaped = new StringBuilder(pValue.length() + 16);
+    for (int i = 0; i < pValue.length(); i++) {
+      final char c = pValue.charAt(i);
+      switch (c) {
+        case '&':
+          eEscaped.append("&amp;");
+          break;
+        case '<':
+          eEscaped.append("&lt;");
+          break;
+        case '>':
+          eEscaped.append("&gt;");
+          break;
+        case '"':
+          eEscaped.append("&quot;");
+          break;
+        default:
+          eEscaped.append(c);
+      }
+    }
+    return eEscaped.toString();
+  }
+
+}
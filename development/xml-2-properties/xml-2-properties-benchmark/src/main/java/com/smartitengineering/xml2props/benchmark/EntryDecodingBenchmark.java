@@ -0,0 +1,138 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.benchmark;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.util.LocaleUtil;
+import com.smartitengineering.xml2props.util.XmlXomUtil;
+import com.smartitengineering.xml2props.xml.parser.XmlXomInputParser;
+import nu.xom.Builder;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Node;
+import nu.xom.ParsingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes the entries of an already built XOM document into the Locale
+ * bundles, so that only the decoding of the entries is measured and not the
+ * building of the document. 'singlePass' is the decoding of
+ * {@link XmlXomInputParser}, which walks the children of every entry once.
+ * 'childScans' is the former decoding, kept here as the baseline, which
+ * looks up the key and the lang and country of every value through
+ * {@link XmlXomUtil}, scanning the children again for each of them.
+ * <p/>
+ * The default parameters generate entries with 100 and 200 values each.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EntryDecodingBenchmark {
+
+  @Param({"1000"})
+  public int keyCount;
+
+  @Param({"100", "200"})
+  public int localeCount;
+
+  @Param({"20"})
+  public int valueLength;
+
+  private Document mDocument;
+
+  private XmlXomInputParser mInputParser;
+
+  @Setup(Level.Trial)
+  public void setUp()
+      throws IOException, ParsingException {
+    final File eInputFile = File.createTempFile("xml2props-decode", ".xml");
+    try {
+      new EntriesXmlGenerator(keyCount, localeCount, valueLength)
+          .generate(eInputFile);
+      mDocument = new Builder().build(eInputFile);
+    }
+    finally {
+      eInputFile.delete();
+    }
+    mInputParser = (XmlXomInputParser) BenchmarkSupport.newInputParser(
+        "input-parser");
+  }
+
+  @Benchmark
+  public LocaleBundleTable singlePass()
+      throws IOException {
+    return mInputParser.parseBundles(mDocument);
+  }
+
+  @Benchmark
+  public LocaleBundleTable childScans() {
+    final Element eRootElement = mDocument.getRootElement();
+    final LocaleBundleTable eBundles = new LocaleBundleTable();
+    for (int i = 0; i < eRootElement.getChildCount(); i++) {
+      final Node eChildNode = eRootElement.getChild(i);
+      if (eChildNode instanceof Element
+          && XmlXomUtil.isNodeName((Element) eChildNode, "entry")) {
+        decodeWithChildScans((Element) eChildNode, eBundles);
+      }
+    }
+    return eBundles;
+  }
+
+  private static void decodeWithChildScans(
+      final Element pEntryElement,
+      final LocaleBundleTable pBundles) {
+    final String eKeyValue = XmlXomUtil.getValueFromAttributeOrChildNode(
+        pEntryElement, "key");
+    for (int i = 0; i < pEntryElement.getChildCount(); i++) {
+      final Node eChildNode = pEntryElement.getChild(i);
+      if (eChildNode instanceof Element
+          && XmlXomUtil.isNodeName((Element) eChildNode, "value")) {
+        final Element eValueElement = (Element) eChildNode;
+        pBundles.put(eKeyValue, LocaleUtil.getLocale(
+            XmlXomUtil.getValueFromAttributeOrChildNode(eValueElement,
+                "lang"),
+            XmlXomUtil.getValueFromAttributeOrChildNode(eValueElement,
+                "country")),
+            XmlXomUtil.getValueFromAttributeOrElement(eValueElement));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.benchmark;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.util.WriterUtil;
+import com.smartitengineering.xml2props.writer.MappedPropertiesMerger;
+import com.smartitengineering.xml2props.writer.PropertiesWriter;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+import com.smartitengineering.xml2props.writer.PropertiesWriterImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges the properties of the default Locale into an existing file holding
+ * the properties of a larger bundle. Every tenth key of the new properties
+ * replaces an existing one, the others are added.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MergeBenchmark {
+
+  @Param({"100000"})
+  public int existingKeyCount;
+
+  @Param({"10000"})
+  public int keyCount;
+
+  @Param({"40"})
+  public int valueLength;
+
+  @Param({"PROPERTIES", "XML"})
+  public String outputMode;
+
+  private Properties mNewProperties;
+
+  private PropertiesWriter mPropertiesWriter;
+
+  private PropertiesMode mMode;
+
+  private File mOutputDirectory;
+
+  private File mExistingFile;
+
+  @Setup(Level.Trial)
+  public void setUp()
+      throws IOException {
+    mMode = new PropertiesMode(outputMode);
+    mPropertiesWriter = new PropertiesWriterImpl();
+    mPropertiesWriter.setMojo(BenchmarkSupport.newQuietMojo());
+    mPropertiesWriter.setSortedOutput(true);
+    mOutputDirectory = BenchmarkSupport.createTempDirectory(
+        "xml2props-merge");
+    mExistingFile = new File(mOutputDirectory, WriterUtil
+        .getLocalizedFileName(null, "Benchmark", mMode));
+
+    final LocaleBundleTable eExistingBundles = parse(existingKeyCount);
+    final LocaleBundleTable eNewBundles = parse(keyCount);
+    mNewProperties = new Properties();
+    for (int i = 0; i < eNewBundles.getKeyCount(); i++) {
+      final String eKey = eNewBundles.getKey(i);
+      mNewProperties.put(i % 10 == 0 ? eKey : eKey + ".new",
+          eNewBundles.getValue(i, null));
+    }
+    writeExistingFile(eExistingBundles);
+  }
+
+  private LocaleBundleTable parse(final int pKeyCount)
+      throws IOException {
+    final File eInputFile = File.createTempFile("xml2props-merge", ".xml");
+    try {
+      new EntriesXmlGenerator(pKeyCount, 1, valueLength)
+          .generate(eInputFile);
+      return BenchmarkSupport.newInputParser("stax-input-parser")
+          .parseBundles(eInputFile);
+    }
+    finally {
+      eInputFile.delete();
+    }
+  }
+
+  private void writeExistingFile(final LocaleBundleTable pBundles)
+      throws IOException {
+    BenchmarkSupport.deleteFiles(mOutputDirectory, false);
+    mPropertiesWriter.writeBundleToFile(null, pBundles, mMode,
+        mOutputDirectory, "Benchmark");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkSupport.deleteFiles(mOutputDirectory, true);
+  }
+
+  /**
+   * Only reads the existing file and merges the new properties in.
+   */
+  @Benchmark
+  public Properties merge()
+      throws IOException {
+    return new MappedPropertiesMerger(mExistingFile, mMode)
+        .merge(mNewProperties);
+  }
+
+  /**
+   * Merges and writes the result back. After the first invocation the
+   * existing file already holds the result, so every invocation does the
+   * same work.
+   */
+  @Benchmark
+  public boolean mergeAndWrite()
+      throws IOException {
+    return mPropertiesWriter.writePropertiesToFile(null, mNewProperties,
+        mMode, mOutputDirectory, "Benchmark");
+  }
+
+}
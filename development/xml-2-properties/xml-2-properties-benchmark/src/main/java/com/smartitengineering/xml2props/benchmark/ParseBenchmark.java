@@ -0,0 +1,98 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.benchmark;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.xml.parser.InputParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a generated input xml into the Locale bundles.
+ * <p/>
+ * The fields annotated with Param are named after the JMH parameters, set
+ * them with e.g. <code>-p keyCount=100000</code>. The chunked-input-parser
+ * only splits files of at least twice its smallest chunk of 4 MB, smaller
+ * files are parsed sequentially: measure it with a keyCount of 100000 or
+ * more.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParseBenchmark {
+
+  @Param({"10000"})
+  public int keyCount;
+
+  @Param({"5"})
+  public int localeCount;
+
+  @Param({"40"})
+  public int valueLength;
+
+  @Param({"input-parser", "stax-input-parser", "chunked-input-parser",
+      "scanner-input-parser"})
+  public String inputParser;
+
+  private File mInputFile;
+
+  private InputParser mInputParser;
+
+  @Setup(Level.Trial)
+  public void setUp()
+      throws IOException {
+    mInputFile = File.createTempFile("xml2props-parse", ".xml");
+    new EntriesXmlGenerator(keyCount, localeCount, valueLength)
+        .generate(mInputFile);
+    mInputParser = BenchmarkSupport.newInputParser(inputParser);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    mInputFile.delete();
+  }
+
+  @Benchmark
+  public LocaleBundleTable parse()
+      throws IOException {
+    return mInputParser.parseBundles(mInputFile);
+  }
+
+}
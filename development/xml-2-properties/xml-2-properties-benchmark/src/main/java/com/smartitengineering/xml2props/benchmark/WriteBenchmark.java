@@ -0,0 +1,128 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.benchmark;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.writer.PropertiesWriter;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+import com.smartitengineering.xml2props.writer.PropertiesWriterImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the parsed bundles of all the Locales into new files, that is
+ * without merging with existing files.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WriteBenchmark {
+
+  @Param({"10000"})
+  public int keyCount;
+
+  @Param({"5"})
+  public int localeCount;
+
+  @Param({"40"})
+  public int valueLength;
+
+  @Param({"PROPERTIES", "XML"})
+  public String outputMode;
+
+  @Param({"true", "false"})
+  public boolean sortedOutput;
+
+  private LocaleBundleTable mBundles;
+
+  private PropertiesWriter mPropertiesWriter;
+
+  private PropertiesMode mMode;
+
+  private File mOutputDirectory;
+
+  @Setup(Level.Trial)
+  public void setUp()
+      throws IOException {
+    final File eInputFile = File.createTempFile("xml2props-write", ".xml");
+    try {
+      new EntriesXmlGenerator(keyCount, localeCount, valueLength)
+          .generate(eInputFile);
+      mBundles = BenchmarkSupport.newInputParser("stax-input-parser")
+          .parseBundles(eInputFile);
+    }
+    finally {
+      eInputFile.delete();
+    }
+    mPropertiesWriter = new PropertiesWriterImpl();
+    mPropertiesWriter.setMojo(BenchmarkSupport.newQuietMojo());
+    mPropertiesWriter.setSortedOutput(sortedOutput);
+    mMode = new PropertiesMode(outputMode);
+    mOutputDirectory = BenchmarkSupport.createTempDirectory(
+        "xml2props-write");
+  }
+
+  /**
+   * The files of the previous invocation would otherwise be merged with.
+   * Writing all the Locales takes milliseconds, so the overhead of an
+   * invocation level fixture does not distort the results.
+   */
+  @Setup(Level.Invocation)
+  public void deleteOutputFiles() {
+    BenchmarkSupport.deleteFiles(mOutputDirectory, false);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkSupport.deleteFiles(mOutputDirectory, true);
+  }
+
+  @Benchmark
+  public void write()
+      throws IOException {
+    for (Iterator<Locale> i = mBundles.getLocales().iterator(); i.hasNext();) {
+      mPropertiesWriter.writeBundleToFile(i.next(), mBundles, mMode,
+          mOutputDirectory, "Benchmark");
+    }
+  }
+
+}
@@ -0,0 +1,4 @@
+package com.smartitengineering.xml2props.benchmark.generated;
+public class EntryDecodingBenchmark_jmhType extends EntryDecodingBenchmark_jmhType_B3 {
+}
+
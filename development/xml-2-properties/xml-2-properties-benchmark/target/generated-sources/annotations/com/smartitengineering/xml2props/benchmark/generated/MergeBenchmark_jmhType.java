@@ -0,0 +1,4 @@
+package com.smartitengineering.xml2props.benchmark.generated;
+public class MergeBenchmark_jmhType extends MergeBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.smartitengineering.xml2props.benchmark.generated;
+public class ParseBenchmark_jmhType extends ParseBenchmark_jmhType_B3 {
+}
+
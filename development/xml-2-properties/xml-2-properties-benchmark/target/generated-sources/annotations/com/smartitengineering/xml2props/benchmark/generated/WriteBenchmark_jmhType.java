@@ -0,0 +1,4 @@
+package com.smartitengineering.xml2props.benchmark.generated;
+public class WriteBenchmark_jmhType extends WriteBenchmark_jmhType_B3 {
+}
+
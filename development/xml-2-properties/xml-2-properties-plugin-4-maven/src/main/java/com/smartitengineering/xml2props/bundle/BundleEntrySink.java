@@ -0,0 +1,47 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.bundle;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Receives the entries of the bundles one at a time, as they are read from
+ * the input, so that they need not all be held in memory before being
+ * written.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public interface BundleEntrySink {
+
+  /**
+   * Receives the value of a key for a Locale. A later value of the same key
+   * and Locale replaces the earlier one.
+   *
+   * @param pKey    The key
+   * @param pLocale The Locale, null for the default bundle
+   * @param pValue  The value
+   *
+   * @throws IOException if the entry could not be taken
+   */
+  public void put(String pKey, Locale pLocale, String pValue)
+      throws IOException;
+
+}
@@ -0,0 +1,343 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.bundle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Compact in-memory model of all the resource bundles parsed from the input.
+ * Every key is stored once for all the Locales, each Locale is a column of a
+ * dense key x Locale table and equal values share a single String instance.
+ * Compared to a Map of Properties per Locale this avoids duplicating the keys
+ * for every Locale and the locking of Hashtable.
+ * <p/>
+ * Keys are kept in the order they were first added. The table is not
+ * synchronized; it may be read concurrently once it is completely built. As
+ * a {@link BundleEntrySink} it collects the entries pushed by a parser.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class LocaleBundleTable implements BundleEntrySink {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final Map<String, Integer> mKeyIndexes;
+
+  private final List<String> mKeys;
+
+  private final Map<Locale, Integer> mLocaleIndexes;
+
+  private final List<Locale> mLocales;
+
+  private final Map<String, String> mValuePool;
+
+  /** The values as [Locale index][key index] */
+  private String[][] mColumns;
+
+  private int[] mColumnSizes;
+
+  /**
+   * The key indexes in the order of the sorted keys, null until asked for
+   * after a key was added. Computing it twice on concurrent reads is
+   * harmless.
+   */
+  private volatile int[] mSortedKeyIndexes;
+
+  public LocaleBundleTable() {
+    mKeyIndexes = new HashMap<String, Integer>();
+    mKeys = new ArrayList<String>();
+    mLocaleIndexes = new HashMap<Locale, Integer>();
+    mLocales = new ArrayList<Locale>();
+    mValuePool = new HashMap<String, String>();
+    mColumns = new String[0][];
+    mColumnSizes = new int[0];
+  }
+
+  /**
+   * @param pLocaleProperties The Locale-Properties Map to copy
+   *
+   * @return a table holding all the properties of the Map
+   */
+  public static LocaleBundleTable fromLocaleProperties(
+      final Map<Locale, Properties> pLocaleProperties) {
+    final LocaleBundleTable eTable = new LocaleBundleTable();
+    for (Iterator<Map.Entry<Locale, Properties>> i = pLocaleProperties
+        .entrySet().iterator(); i.hasNext();) {
+      final Map.Entry<Locale, Properties> eLoopEntry = i.next();
+      final Locale eLocale = eLoopEntry.getKey();
+      eTable.addLocale(eLocale);
+      for (Iterator<Map.Entry<Object, Object>> j = eLoopEntry.getValue()
+          .entrySet().iterator(); j.hasNext();) {
+        final Map.Entry<Object, Object> eLoopProperty = j.next();
+        eTable.put((String) eLoopProperty.getKey(), eLocale,
+            (String) eLoopProperty.getValue());
+      }
+    }
+    return eTable;
+  }
+
+  /**
+   * Sets the value of a key for a Locale, replacing any previous value.
+   *
+   * @param pKey    The key
+   * @param pLocale The Locale, null for the default bundle
+   * @param pValue  The value
+   */
+  public void put(final String pKey, final Locale pLocale, final String pValue) {
+    if (pKey == null) {
+      throw new IllegalArgumentException(
+          "Key was null, expected non-null value");
+    }
+    if (pValue == null) {
+      throw new IllegalArgumentException("Value of key '" + pKey
+          + "' was null, expected non-null value");
+    }
+    final int eKeyIndex = addKey(pKey);
+    final int eLocaleIndex = addLocale(pLocale);
+
+    String[] eColumn = mColumns[eLocaleIndex];
+    if (eColumn.length <= eKeyIndex) {
+      eColumn = grow(eColumn, eKeyIndex + 1);
+      mColumns[eLocaleIndex] = eColumn;
+    }
+    if (eColumn[eKeyIndex] == null) {
+      mColumnSizes[eLocaleIndex]++;
+    }
+    eColumn[eKeyIndex] = shareValue(pValue);
+  }
+
+  /**
+   * Copies all the values of another table into this one, replacing the
+   * previous values of the keys. The keys and Locales new to this table are
+   * added in the order of the other table.
+   *
+   * @param pLater The table whose values take precedence
+   */
+  public void putAll(final LocaleBundleTable pLater) {
+    for (Iterator<Locale> i = pLater.mLocales.iterator(); i.hasNext();) {
+      addLocale(i.next());
+    }
+    final int eKeyCount = pLater.mKeys.size();
+    for (int i = 0; i < eKeyCount; i++) {
+      final String eKey = pLater.mKeys.get(i);
+      for (int j = 0; j < pLater.mLocales.size(); j++) {
+        final String[] eLaterColumn = pLater.mColumns[j];
+        if (i < eLaterColumn.length && eLaterColumn[i] != null) {
+          put(eKey, pLater.mLocales.get(j), eLaterColumn[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param pLocale The Locale to add
+   *
+   * @return the column index of the Locale
+   */
+  public int addLocale(final Locale pLocale) {
+    final Integer eExistingIndex = mLocaleIndexes.get(pLocale);
+    if (eExistingIndex != null) {
+      return eExistingIndex.intValue();
+    }
+    final int eLocaleIndex = mLocales.size();
+    mLocales.add(pLocale);
+    mLocaleIndexes.put(pLocale, Integer.valueOf(eLocaleIndex));
+
+    final String[][] eColumns = new String[eLocaleIndex + 1][];
+    System.arraycopy(mColumns, 0, eColumns, 0, eLocaleIndex);
+    eColumns[eLocaleIndex] = new String[Math.max(INITIAL_CAPACITY,
+        mKeys.size())];
+    mColumns = eColumns;
+    final int[] eColumnSizes = new int[eLocaleIndex + 1];
+    System.arraycopy(mColumnSizes, 0, eColumnSizes, 0, eLocaleIndex);
+    mColumnSizes = eColumnSizes;
+    return eLocaleIndex;
+  }
+
+  private int addKey(final String pKey) {
+    final Integer eExistingIndex = mKeyIndexes.get(pKey);
+    if (eExistingIndex != null) {
+      return eExistingIndex.intValue();
+    }
+    final int eKeyIndex = mKeys.size();
+    mKeys.add(pKey);
+    mKeyIndexes.put(pKey, Integer.valueOf(eKeyIndex));
+    mSortedKeyIndexes = null;
+    return eKeyIndex;
+  }
+
+  private String shareValue(final String pValue) {
+    final String eSharedValue = mValuePool.get(pValue);
+    if (eSharedValue != null) {
+      return eSharedValue;
+    }
+    mValuePool.put(pValue, pValue);
+    return pValue;
+  }
+
+  private static String[] grow(final String[] pColumn, final int pMinLength) {
+    final String[] eColumn = new String[Math.max(pMinLength,
+        pColumn.length * 2)];
+    System.arraycopy(pColumn, 0, eColumn, 0, pColumn.length);
+    return eColumn;
+  }
+
+  /** @return the number of distinct keys of all the Locales */
+  public int getKeyCount() {
+    return mKeys.size();
+  }
+
+  /**
+   * @param pKeyIndex The index of the key
+   *
+   * @return the key
+   */
+  public String getKey(final int pKeyIndex) {
+    return mKeys.get(pKeyIndex);
+  }
+
+  /**
+   * @param pKey The key
+   *
+   * @return the index of the key or -1 if not found
+   */
+  public int getKeyIndex(final String pKey) {
+    final Integer eKeyIndex = mKeyIndexes.get(pKey);
+    return eKeyIndex == null ? -1 : eKeyIndex.intValue();
+  }
+
+  /** @return the keys of all the Locales in the order they were added */
+  public List<String> getKeys() {
+    return Collections.unmodifiableList(mKeys);
+  }
+
+  /**
+   * The keys are sorted once for all the Locales, e.g. to write each Locale
+   * in sorted order.
+   *
+   * @return the indexes of the keys of all the Locales in the order of the
+   *         sorted keys
+   */
+  public int[] getSortedKeyIndexes() {
+    int[] eSortedKeyIndexes = mSortedKeyIndexes;
+    if (eSortedKeyIndexes == null) {
+      final String[] eKeys = mKeys.toArray(new String[mKeys.size()]);
+      Arrays.sort(eKeys);
+      eSortedKeyIndexes = new int[eKeys.length];
+      for (int i = 0; i < eKeys.length; i++) {
+        eSortedKeyIndexes[i] = mKeyIndexes.get(eKeys[i]).intValue();
+      }
+      mSortedKeyIndexes = eSortedKeyIndexes;
+    }
+    return eSortedKeyIndexes.clone();
+  }
+
+  /** @return the Locales in the order they were added */
+  public List<Locale> getLocales() {
+    return Collections.unmodifiableList(mLocales);
+  }
+
+  /**
+   * @param pLocale The Locale
+   *
+   * @return whether the table has a column for the Locale
+   */
+  public boolean containsLocale(final Locale pLocale) {
+    return mLocaleIndexes.containsKey(pLocale);
+  }
+
+  /**
+   * @param pLocale The Locale
+   *
+   * @return the number of keys that have a value for the Locale
+   */
+  public int getEntryCount(final Locale pLocale) {
+    final Integer eLocaleIndex = mLocaleIndexes.get(pLocale);
+    return eLocaleIndex == null ? 0 : mColumnSizes[eLocaleIndex.intValue()];
+  }
+
+  /**
+   * @param pKeyIndex The index of the key
+   * @param pLocale   The Locale
+   *
+   * @return the value of the key for the Locale or null if it has none
+   */
+  public String getValue(final int pKeyIndex, final Locale pLocale) {
+    final Integer eLocaleIndex = mLocaleIndexes.get(pLocale);
+    if (eLocaleIndex == null) {
+      return null;
+    }
+    final String[] eColumn = mColumns[eLocaleIndex.intValue()];
+    return pKeyIndex < eColumn.length ? eColumn[pKeyIndex] : null;
+  }
+
+  /**
+   * @param pKey    The key
+   * @param pLocale The Locale
+   *
+   * @return the value of the key for the Locale or null if it has none
+   */
+  public String getValue(final String pKey, final Locale pLocale) {
+    final int eKeyIndex = getKeyIndex(pKey);
+    return eKeyIndex < 0 ? null : getValue(eKeyIndex, pLocale);
+  }
+
+  /**
+   * @param pLocale The Locale
+   *
+   * @return a new Properties with the values of the Locale
+   */
+  public Properties toProperties(final Locale pLocale) {
+    final Properties eProperties = new Properties();
+    final Integer eLocaleIndex = mLocaleIndexes.get(pLocale);
+    if (eLocaleIndex != null) {
+      final String[] eColumn = mColumns[eLocaleIndex.intValue()];
+      final int eLength = Math.min(eColumn.length, mKeys.size());
+      for (int i = 0; i < eLength; i++) {
+        if (eColumn[i] != null) {
+          eProperties.put(mKeys.get(i), eColumn[i]);
+        }
+      }
+    }
+    return eProperties;
+  }
+
+  /**
+   * @return a new Locale-Properties Map with all the values of the table
+   */
+  public Map<Locale, Properties> toLocalePropertiesMap() {
+    final Map<Locale, Properties> eLocaleProperties =
+        new HashMap<Locale, Properties>();
+    for (Iterator<Locale> i = mLocales.iterator(); i.hasNext();) {
+      final Locale eLoopLocale = i.next();
+      eLocaleProperties.put(eLoopLocale, toProperties(eLoopLocale));
+    }
+    return eLocaleProperties;
+  }
+
+}
@@ -0,0 +1,241 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.bundle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Resolves the parent Locale chain of {@link java.util.ResourceBundle} at
+ * build time, e.g. bn_BD, bn and then the default bundle. Flattening copies
+ * every value a Locale inherits into its own bundle, so that a lookup is
+ * answered by the first bundle of the chain. Minimizing is the inverse and
+ * drops every value a Locale would inherit anyway, to shrink the bundles;
+ * the values are dropped from the bundles only, the mojo hence replaces the
+ * existing files instead of merging into them.
+ * Parents without a bundle of their own are skipped, like at runtime.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class LocaleFallbackResolver {
+
+  /**
+   * Class to hold all the allowable fallback modes
+   *
+   * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+   */
+  public static final class FallbackMode {
+
+    private static final String STRING_NONE = "NONE";
+    private static final String STRING_FLATTEN = "FLATTEN";
+    private static final String STRING_MINIMAL = "MINIMAL";
+
+    /** The bundles are written as parsed */
+    public static final FallbackMode NONE = new FallbackMode(STRING_NONE);
+
+    /** Every bundle holds the values inherited from its parents */
+    public static final FallbackMode FLATTEN =
+        new FallbackMode(STRING_FLATTEN);
+
+    /** No bundle holds a value equal to the one inherited from its parents */
+    public static final FallbackMode MINIMAL =
+        new FallbackMode(STRING_MINIMAL);
+
+    private final String mRepresentation;
+
+    public FallbackMode(final String pRepresentation) {
+      if (pRepresentation == null) {
+        throw new IllegalArgumentException(
+            "representation string may not be null");
+      }
+      if (!pRepresentation.equalsIgnoreCase(STRING_NONE)
+          && !pRepresentation.equalsIgnoreCase(STRING_FLATTEN)
+          && !pRepresentation.equalsIgnoreCase(STRING_MINIMAL)) {
+        throw new IllegalArgumentException(
+            "representation string must be one of " + STRING_NONE + ", "
+                + STRING_FLATTEN + " or " + STRING_MINIMAL + ", but found: "
+                + pRepresentation);
+      }
+      mRepresentation = pRepresentation;
+    }
+
+    /** @see java.lang.Object#toString() */
+    public String toString() {
+      return mRepresentation;
+    }
+
+    /** @see java.lang.Object#hashCode() */
+    public int hashCode() {
+      return mRepresentation.toUpperCase(Locale.ENGLISH).hashCode();
+    }
+
+    /** @see java.lang.Object#equals(java.lang.Object) */
+    public boolean equals(final Object pOther) {
+      if (pOther instanceof FallbackMode) {
+        return mRepresentation
+            .equalsIgnoreCase(((FallbackMode) pOther).mRepresentation);
+      }
+      return false;
+    }
+  }
+
+  private LocaleFallbackResolver() {
+    super();
+  }
+
+  /**
+   * @param pBundles The parsed bundles
+   * @param pMode    The fallback mode
+   *
+   * @return the bundles resolved according to the mode, the parsed bundles
+   *         themselves in NONE mode
+   */
+  public static LocaleBundleTable resolve(
+      final LocaleBundleTable pBundles,
+      final FallbackMode pMode) {
+    if (pMode == null) {
+      throw new IllegalArgumentException(
+          "Fallback Mode was null, expected non-null value");
+    }
+    if (FallbackMode.FLATTEN.equals(pMode)) {
+      return flatten(pBundles);
+    }
+    if (FallbackMode.MINIMAL.equals(pMode)) {
+      return minimize(pBundles);
+    }
+    return pBundles;
+  }
+
+  /**
+   * @param pBundles The parsed bundles
+   *
+   * @return new bundles where every Locale holds all the values it would
+   *         find through its parents at runtime
+   */
+  public static LocaleBundleTable flatten(final LocaleBundleTable pBundles) {
+    final LocaleBundleTable eFlattened = new LocaleBundleTable();
+    final int eKeyCount = pBundles.getKeyCount();
+    for (int i = 0; i < pBundles.getLocales().size(); i++) {
+      final Locale eLocale = pBundles.getLocales().get(i);
+      eFlattened.addLocale(eLocale);
+      final List<Locale> eChain = getFallbackChain(pBundles, eLocale);
+      for (int j = 0; j < eKeyCount; j++) {
+        final String eValue = resolveValue(pBundles, j, eChain, 0);
+        if (eValue != null) {
+          eFlattened.put(pBundles.getKey(j), eLocale, eValue);
+        }
+      }
+    }
+    return eFlattened;
+  }
+
+  /**
+   * @param pBundles The parsed bundles
+   *
+   * @return new bundles without the values equal to the ones the Locale
+   *         would find through its parents at runtime
+   */
+  public static LocaleBundleTable minimize(final LocaleBundleTable pBundles) {
+    final LocaleBundleTable eMinimized = new LocaleBundleTable();
+    final int eKeyCount = pBundles.getKeyCount();
+    for (int i = 0; i < pBundles.getLocales().size(); i++) {
+      final Locale eLocale = pBundles.getLocales().get(i);
+      eMinimized.addLocale(eLocale);
+      final List<Locale> eChain = getFallbackChain(pBundles, eLocale);
+      for (int j = 0; j < eKeyCount; j++) {
+        final String eValue = pBundles.getValue(j, eLocale);
+        // the inherited values do not change as a parent only drops the
+        // values it inherits itself
+        if (eValue != null
+            && !eValue.equals(resolveValue(pBundles, j, eChain, 1))) {
+          eMinimized.put(pBundles.getKey(j), eLocale, eValue);
+        }
+      }
+    }
+    return eMinimized;
+  }
+
+  private static String resolveValue(
+      final LocaleBundleTable pBundles,
+      final int pKeyIndex,
+      final List<Locale> pChain,
+      final int pFrom) {
+    for (int i = pFrom; i < pChain.size(); i++) {
+      final String eValue = pBundles.getValue(pKeyIndex, pChain.get(i));
+      if (eValue != null) {
+        return eValue;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the Locale followed by its parents that have a bundle
+   */
+  private static List<Locale> getFallbackChain(
+      final LocaleBundleTable pBundles,
+      final Locale pLocale) {
+    final List<Locale> eChain = new ArrayList<Locale>(4);
+    eChain.add(pLocale);
+    Locale eParent = getParentLocale(pLocale);
+    while (eParent != null) {
+      if (pBundles.containsLocale(eParent)) {
+        eChain.add(eParent);
+      }
+      eParent = getParentLocale(eParent);
+    }
+    if (pLocale != null && pBundles.containsLocale(null)) {
+      eChain.add(null);
+    }
+    return eChain;
+  }
+
+  /**
+   * @param pLocale The Locale, null for the default bundle
+   *
+   * @return the next Locale of the runtime fallback, dropping the variant,
+   *         the country and the language in turn, or null for the default
+   *         bundle
+   */
+  public static Locale getParentLocale(final Locale pLocale) {
+    if (pLocale == null) {
+      return null;
+    }
+    if (pLocale.getVariant().length() > 0) {
+      return toLocale(pLocale.getLanguage(), pLocale.getCountry());
+    }
+    if (pLocale.getCountry().length() > 0
+        && pLocale.getLanguage().length() > 0) {
+      return new Locale(pLocale.getLanguage());
+    }
+    return null;
+  }
+
+  private static Locale toLocale(
+      final String pLanguage,
+      final String pCountry) {
+    if (pLanguage.length() == 0 && pCountry.length() == 0) {
+      return null;
+    }
+    return new Locale(pLanguage, pCountry);
+  }
+
+}
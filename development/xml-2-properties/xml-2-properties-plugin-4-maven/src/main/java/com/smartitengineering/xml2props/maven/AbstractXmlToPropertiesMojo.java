@@ -21,8 +21,10 @@ package com.smartitengineering.xml2props.maven;
 import com.smartitengineering.xml2props.writer.PropertiesWriter;
 import com.smartitengineering.xml2props.xml.parser.InputParser;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.project.MavenProject;
 
 import java.io.File;
+import java.util.Map;
 
 /**
  * Abstract mojo class to hold the configurations that can be passed to this
@@ -36,7 +38,10 @@ import java.io.File;
 public abstract class AbstractXmlToPropertiesMojo extends AbstractMojo {
 
   /**
-   * Location of the output properties files.
+   * Location of the output properties files. In JAVA mode the output
+   * directory is added to the compile source roots; left at the build
+   * directory, the sources are written to
+   * ${project.build.directory}/generated-sources/xml2props instead.
    *
    * @parameter property="outputDirectory"
    *            expression="${project.build.directory}"
@@ -45,13 +50,48 @@ public abstract class AbstractXmlToPropertiesMojo extends AbstractMojo {
   protected File mOutputDirectory;
 
   /**
-   * Location of the input xml file.
+   * The build directory of the project, never a compile source root
+   *
+   * @parameter expression="${project.build.directory}"
+   * @readonly
+   */
+  protected File mBuildDirectory;
+
+  /**
+   * Location of the input xml file. Either this or the input directory must be
+   * specified.
    *
    * @parameter property="inputFile"
-   * @required
    */
   protected File mInputXmlFile;
 
+  /**
+   * Directory whose input xml files are all parsed and merged into a single
+   * resource bundle. Either this or the input file must be specified.
+   *
+   * @parameter property="inputDirectory"
+   */
+  protected File mInputDirectory;
+
+  /**
+   * Suffix of the files to parse in the input directory and its
+   * sub-directories
+   *
+   * @parameter property="inputFileSuffix"
+   *            expression=".xml"
+   */
+  protected String mInputFileSuffix;
+
+  /**
+   * Whether to fail when a key of a Locale has different values in two files
+   * of the input directory, otherwise the file that comes later in path order
+   * wins and the conflict is logged as a warning
+   *
+   * @parameter property="failOnConflict"
+   *            expression="false"
+   */
+  protected boolean mFailOnConflict;
+
   /**
    * Name of the output resource bundle
    *
@@ -60,7 +100,12 @@ public abstract class AbstractXmlToPropertiesMojo extends AbstractMojo {
   private String mBundleName;
 
   /**
-   * Name of the output resource bundle
+   * Output mode of the resource bundle, one of 'PROPERTIES', 'XML', 'JAVA' or
+   * 'BINARY'. The JAVA mode generates the sources of ListResourceBundle
+   * classes, the bundle name may then be qualified with their package and the
+   * output directory is added to the compile source roots. The BINARY mode
+   * writes hash-indexed bundles to load with the BinaryBundleControl of the
+   * xml-2-properties-runtime library.
    *
    * @parameter property="outputMode"
    *            expression="PROPERTIES"
@@ -69,12 +114,170 @@ public abstract class AbstractXmlToPropertiesMojo extends AbstractMojo {
   protected PropertiesWriter.PropertiesMode mOutputPropertiesMode;
 
   /**
-   * The Input Xml parser
+   * The project, to add the output directory of generated sources to
    *
-   * @component
+   * @parameter expression="${project}"
+   * @readonly
+   */
+  protected MavenProject mProject;
+
+  /**
+   * The version of this plugin, a new version may generate other output
+   *
+   * @parameter expression="${plugin.version}"
+   * @readonly
+   */
+  protected String mPluginVersion;
+
+  /**
+   * Whether to skip parsing and writing when neither the input xml nor the
+   * configuration changed since the last run
+   *
+   * @parameter property="incremental"
+   *            expression="true"
+   */
+  protected boolean mIncremental;
+
+  /**
+   * Number of threads used to merge and write the properties of the Locales,
+   * the Locales are written one after the other when less than 2. It is
+   * also the parallelism of the fork-join parsing of an input directory and
+   * of the 'chunked-input-parser', which use one thread per available
+   * processor when less than 2
+   *
+   * @parameter property="threads"
+   *            expression="1"
+   */
+  protected int mThreads;
+
+  /**
+   * Whether a properties file whose content would not change is left
+   * untouched, keeping its timestamp for the later incremental build steps
+   *
+   * @parameter property="writeIfChanged"
+   *            expression="true"
+   */
+  protected boolean mWriteIfChanged;
+
+  /**
+   * Whether the properties are written with the keys sorted and without a
+   * timestamp, so that the same input always gives the same files
+   *
+   * @parameter property="sortedOutput"
+   *            expression="true"
+   */
+  protected boolean mSortedOutput;
+
+  /**
+   * Whether an existing PROPERTIES file is merged with in a single streaming
+   * pass, replacing the changed entries in place and appending the new keys,
+   * instead of loading it and writing all the properties again. The file
+   * keeps its comments and the order of its entries.
+   *
+   * @parameter property="streamingMerge"
+   *            expression="false"
+   */
+  protected boolean mStreamingMerge;
+
+  /**
+   * Whether PROPERTIES files are written in UTF-8, escaping only what the
+   * format requires, instead of ISO 8859-1 with a \\uXXXX escape for every
+   * other character. Non-Latin values become much smaller and are read
+   * directly by PropertyResourceBundle on Java 9 and later; older runtimes
+   * have to load them with an InputStreamReader for UTF-8.
+   *
+   * @parameter property="utf8Properties"
+   *            expression="false"
+   */
+  protected boolean mUtf8Properties;
+
+  /**
+   * The most entries held in memory when streaming, 0 to parse all the
+   * bundles into memory before writing them. When positive the parser pushes
+   * every entry straight to a writer that spills the sorted entries of each
+   * Locale to temporary files once the buffer is full, so the memory used no
+   * longer grows with the input. Needs the 'stax-input-parser' or the
+   * 'scanner-input-parser', PROPERTIES or XML output and no Locale fallback;
+   * the files are always written sorted, existing files are replaced instead
+   * of merged with and conflicts between input files are not reported. The
+   * files are replaced atomically and, with 'writeIfChanged', only when their
+   * content changed.
+   *
+   * @parameter property="streamingBufferSize"
+   *            expression="0"
+   */
+  protected int mStreamingBufferSize;
+
+  /**
+   * Whether the JAVA mode generates a class of int fields for the keys,
+   * named after the bundle with the suffix 'Keys', and bundles extending the
+   * IndexedResourceBundle of the xml-2-properties-runtime library that hold
+   * their values in an array. IndexedResourceBundle.getString(int) with a
+   * field then looks a value up without hashing the key, and a misspelled
+   * key is a compile error.
+   *
+   * @parameter property="indexedBundles"
+   *            expression="false"
+   */
+  protected boolean mIndexedBundles;
+
+  /**
+   * Whether every value is also compiled as a MessageFormat pattern into the
+   * tokens of the PrecompiledMessageFormat of the xml-2-properties-runtime
+   * library. The tokens are written as a second bundle in the same output
+   * mode, named after the bundle with the suffix 'Formats', so that the
+   * values are formatted without parsing their pattern at runtime.
+   *
+   * @parameter property="precompiledFormats"
+   *            expression="false"
+   */
+  protected boolean mPrecompiledFormats;
+
+  /**
+   * How the parent Locale chain of the bundles is resolved at build time, one
+   * of 'NONE', 'FLATTEN' or 'MINIMAL'. FLATTEN copies the values a Locale
+   * inherits from its parents into its own bundle, so that no lookup falls
+   * back to a parent bundle at runtime. MINIMAL drops the values equal to the
+   * inherited ones to shrink the bundles.
+   *
+   * @parameter property="localeFallback"
+   *            expression="NONE"
+   */
+  protected String mLocaleFallback;
+
+  /**
+   * Directory to write the JSON report of the build metrics of every run to,
+   * none is written when empty
+   *
+   * @parameter property="metricsDirectory"
+   *            expression="${project.build.directory}/xml2props-metrics"
+   */
+  protected File mMetricsDirectory;
+
+  /**
+   * The Input Xml parser
    */
   protected InputParser mInputParser;
 
+  /**
+   * All the registered Input Xml parsers mapped by their role-hint
+   *
+   * @component role="com.smartitengineering.xml2props.xml.parser.InputParser"
+   */
+  protected Map<String, InputParser> mInputParsers;
+
+  /**
+   * Role-hint of the Input Xml parser to use, one of 'input-parser',
+   * 'stax-input-parser', 'scanner-input-parser' or 'chunked-input-parser'.
+   * The scanner parser reads the memory-mapped file without a general xml
+   * library. The chunked parser splits a large input file at its entries and
+   * parses the parts in parallel
+   *
+   * @parameter property="inputParserHint"
+   *            expression="input-parser"
+   */
+  protected String mInputParserHint;
+
   /**
    * The Properties File Writer
    *
@@ -115,6 +318,48 @@ public abstract class AbstractXmlToPropertiesMojo extends AbstractMojo {
     mInputXmlFile = pInputXmlFile;
   }
 
+  /**
+   * @return the inputDirectory
+   */
+  public File getInputDirectory() {
+    return mInputDirectory;
+  }
+
+  /**
+   * @param pInputDirectory the inputDirectory to set
+   */
+  public void setInputDirectory(File pInputDirectory) {
+    mInputDirectory = pInputDirectory;
+  }
+
+  /**
+   * @return the inputFileSuffix
+   */
+  public String getInputFileSuffix() {
+    return mInputFileSuffix;
+  }
+
+  /**
+   * @param pInputFileSuffix the inputFileSuffix to set
+   */
+  public void setInputFileSuffix(String pInputFileSuffix) {
+    mInputFileSuffix = pInputFileSuffix;
+  }
+
+  /**
+   * @return the failOnConflict
+   */
+  public boolean isFailOnConflict() {
+    return mFailOnConflict;
+  }
+
+  /**
+   * @param pFailOnConflict the failOnConflict to set
+   */
+  public void setFailOnConflict(boolean pFailOnConflict) {
+    mFailOnConflict = pFailOnConflict;
+  }
+
   /**
    * @return the bundleName
    */
@@ -143,6 +388,202 @@ public abstract class AbstractXmlToPropertiesMojo extends AbstractMojo {
     mOutputMode = pOutputMode;
   }
 
+  /**
+   * @return the incremental
+   */
+  public boolean isIncremental() {
+    return mIncremental;
+  }
+
+  /**
+   * @param pIncremental the incremental to set
+   */
+  public void setIncremental(boolean pIncremental) {
+    mIncremental = pIncremental;
+  }
+
+  /**
+   * @return the writeIfChanged
+   */
+  public boolean isWriteIfChanged() {
+    return mWriteIfChanged;
+  }
+
+  /**
+   * @param pWriteIfChanged the writeIfChanged to set
+   */
+  public void setWriteIfChanged(boolean pWriteIfChanged) {
+    mWriteIfChanged = pWriteIfChanged;
+  }
+
+  /**
+   * @return the sortedOutput
+   */
+  public boolean isSortedOutput() {
+    return mSortedOutput;
+  }
+
+  /**
+   * @param pSortedOutput the sortedOutput to set
+   */
+  public void setSortedOutput(boolean pSortedOutput) {
+    mSortedOutput = pSortedOutput;
+  }
+
+  /**
+   * @return the streamingMerge
+   */
+  public boolean isStreamingMerge() {
+    return mStreamingMerge;
+  }
+
+  /**
+   * @param pStreamingMerge the streamingMerge to set
+   */
+  public void setStreamingMerge(boolean pStreamingMerge) {
+    mStreamingMerge = pStreamingMerge;
+  }
+
+  /**
+   * @return the utf8Properties
+   */
+  public boolean isUtf8Properties() {
+    return mUtf8Properties;
+  }
+
+  /**
+   * @param pUtf8Properties the utf8Properties to set
+   */
+  public void setUtf8Properties(boolean pUtf8Properties) {
+    mUtf8Properties = pUtf8Properties;
+  }
+
+  /**
+   * @return the streamingBufferSize
+   */
+  public int getStreamingBufferSize() {
+    return mStreamingBufferSize;
+  }
+
+  /**
+   * @param pStreamingBufferSize the streamingBufferSize to set
+   */
+  public void setStreamingBufferSize(int pStreamingBufferSize) {
+    mStreamingBufferSize = pStreamingBufferSize;
+  }
+
+  /**
+   * @return the indexedBundles
+   */
+  public boolean isIndexedBundles() {
+    return mIndexedBundles;
+  }
+
+  /**
+   * @param pIndexedBundles the indexedBundles to set
+   */
+  public void setIndexedBundles(boolean pIndexedBundles) {
+    mIndexedBundles = pIndexedBundles;
+  }
+
+  /**
+   * @return the precompiledFormats
+   */
+  public boolean isPrecompiledFormats() {
+    return mPrecompiledFormats;
+  }
+
+  /**
+   * @param pPrecompiledFormats the precompiledFormats to set
+   */
+  public void setPrecompiledFormats(boolean pPrecompiledFormats) {
+    mPrecompiledFormats = pPrecompiledFormats;
+  }
+
+  /**
+   * @return the localeFallback
+   */
+  public String getLocaleFallback() {
+    return mLocaleFallback;
+  }
+
+  /**
+   * @param pLocaleFallback the localeFallback to set
+   */
+  public void setLocaleFallback(String pLocaleFallback) {
+    mLocaleFallback = pLocaleFallback;
+  }
+
+  /**
+   * @return the metricsDirectory
+   */
+  public File getMetricsDirectory() {
+    return mMetricsDirectory;
+  }
+
+  /**
+   * @param pMetricsDirectory the metricsDirectory to set
+   */
+  public void setMetricsDirectory(File pMetricsDirectory) {
+    mMetricsDirectory = pMetricsDirectory;
+  }
+
+  /**
+   * @return the buildDirectory
+   */
+  public File getBuildDirectory() {
+    return mBuildDirectory;
+  }
+
+  /**
+   * @param pBuildDirectory the buildDirectory to set
+   */
+  public void setBuildDirectory(File pBuildDirectory) {
+    mBuildDirectory = pBuildDirectory;
+  }
+
+  /**
+   * @return the project
+   */
+  public MavenProject getProject() {
+    return mProject;
+  }
+
+  /**
+   * @param pProject the project to set
+   */
+  public void setProject(MavenProject pProject) {
+    mProject = pProject;
+  }
+
+  /**
+   * @return the pluginVersion
+   */
+  public String getPluginVersion() {
+    return mPluginVersion;
+  }
+
+  /**
+   * @param pPluginVersion the pluginVersion to set
+   */
+  public void setPluginVersion(String pPluginVersion) {
+    mPluginVersion = pPluginVersion;
+  }
+
+  /**
+   * @return the threads
+   */
+  public int getThreads() {
+    return mThreads;
+  }
+
+  /**
+   * @param pThreads the threads to set
+   */
+  public void setThreads(int pThreads) {
+    mThreads = pThreads;
+  }
+
   /**
    * @return the inputParser
    */
@@ -157,6 +598,20 @@ public abstract class AbstractXmlToPropertiesMojo extends AbstractMojo {
     mInputParser = pInputParser;
   }
 
+  /**
+   * @return the inputParserHint
+   */
+  public String getInputParserHint() {
+    return mInputParserHint;
+  }
+
+  /**
+   * @param pInputParserHint the inputParserHint to set
+   */
+  public void setInputParserHint(String pInputParserHint) {
+    mInputParserHint = pInputParserHint;
+  }
+
   /**
    * @return the propertiesWriter
    */
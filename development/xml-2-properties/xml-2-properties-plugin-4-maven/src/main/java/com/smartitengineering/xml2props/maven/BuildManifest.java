@@ -0,0 +1,388 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.maven;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Small manifest kept in the output directory that records the hash of the
+ * input xml files, the hash of the plugin configuration and the names of the
+ * generated files of the last successful run. It allows the mojo to skip
+ * parsing and writing when nothing has changed since.
+ * <p/>
+ * It also records a fingerprint of the properties of every Locale, the sum
+ * of the hashes of all its entries. When only the input changed the mojo
+ * compares them to write only the files of the Locales that changed.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class BuildManifest {
+
+  private static final String MANIFEST_EXTENSION = ".xml2props";
+
+  private static final String MANIFEST_COMMENT =
+      "Build manifest of maven-xml-to-properties plugin, do not edit";
+
+  private static final String KEY_INPUT_HASH = "input.hash";
+
+  private static final String KEY_CONFIGURATION_HASH = "configuration.hash";
+
+  private static final String KEY_GENERATED_FILES = "generated.files";
+
+  private static final String KEY_PREFIX_FINGERPRINT = "fingerprint.";
+
+  private static final String DEFAULT_LOCALE_NAME = "default";
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private static final String FILE_SEPARATOR = ",";
+
+  private static final String DIGEST_ALGORITHM = "SHA-1";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File mOutputDirectory;
+
+  private final File mManifestFile;
+
+  private final Properties mManifestProperties;
+
+  /**
+   * @param pOutputDirectory The directory of the generated files
+   * @param pManifestName    The name of the manifest, unique in the output
+   *                         directory
+   */
+  public BuildManifest(
+      final File pOutputDirectory,
+      final String pManifestName) {
+    mOutputDirectory = pOutputDirectory;
+    mManifestFile = new File(pOutputDirectory,
+        "." + pManifestName + MANIFEST_EXTENSION);
+    mManifestProperties = new Properties();
+  }
+
+  /** @return the manifest file */
+  public File getManifestFile() {
+    return mManifestFile;
+  }
+
+  /**
+   * Loads the manifest of the previous run, if any.
+   *
+   * @throws IOException if the manifest exists but could not be read
+   */
+  public void load() throws IOException {
+    mManifestProperties.clear();
+    if (!mManifestFile.isFile()) {
+      return;
+    }
+    final InputStream eInputStream = new FileInputStream(mManifestFile);
+    try {
+      mManifestProperties.load(eInputStream);
+    }
+    finally {
+      eInputStream.close();
+    }
+  }
+
+  /**
+   * @param pInputHash         The hash of the current input
+   * @param pConfigurationHash The hash of the current configuration
+   *
+   * @return whether the loaded manifest has the same hashes and all the files
+   *         it lists still exist in the output directory
+   */
+  public boolean isUpToDate(
+      final String pInputHash,
+      final String pConfigurationHash) {
+    if (!pInputHash.equals(mManifestProperties.getProperty(KEY_INPUT_HASH))
+        || !pConfigurationHash.equals(mManifestProperties
+            .getProperty(KEY_CONFIGURATION_HASH))) {
+      return false;
+    }
+    for (Iterator<String> i = getGeneratedFileNames().iterator();
+         i.hasNext();) {
+      if (!new File(mOutputDirectory, i.next()).isFile()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param pConfigurationHash The hash of the current configuration
+   *
+   * @return whether the loaded manifest was stored with the same
+   *         configuration, its fingerprints are comparable then
+   */
+  public boolean isConfigurationUnchanged(final String pConfigurationHash) {
+    return pConfigurationHash.equals(mManifestProperties
+        .getProperty(KEY_CONFIGURATION_HASH));
+  }
+
+  /**
+   * @return the fingerprints recorded in the loaded manifest, mapped by the
+   *         name of their Locale, see {@link #getLocaleName(Locale)}
+   */
+  public Map<String, String> getLocaleFingerprints() {
+    final Map<String, String> eFingerprints = new HashMap<String, String>();
+    for (Iterator<String> i = mManifestProperties.stringPropertyNames()
+        .iterator(); i.hasNext();) {
+      final String eKey = i.next();
+      if (eKey.startsWith(KEY_PREFIX_FINGERPRINT)) {
+        eFingerprints.put(eKey.substring(KEY_PREFIX_FINGERPRINT.length()),
+            mManifestProperties.getProperty(eKey));
+      }
+    }
+    return eFingerprints;
+  }
+
+  /**
+   * @return the names of the generated files recorded in the loaded manifest
+   */
+  public List<String> getGeneratedFileNames() {
+    final List<String> eFileNames = new ArrayList<String>();
+    final String eGeneratedFiles = mManifestProperties
+        .getProperty(KEY_GENERATED_FILES);
+    if (eGeneratedFiles != null && eGeneratedFiles.length() > 0) {
+      final String[] eSplitFileNames = eGeneratedFiles.split(FILE_SEPARATOR);
+      for (int i = 0; i < eSplitFileNames.length; i++) {
+        eFileNames.add(eSplitFileNames[i]);
+      }
+    }
+    return eFileNames;
+  }
+
+  /**
+   * Records the result of a successful run.
+   *
+   * @param pInputHash          The hash of the input
+   * @param pConfigurationHash  The hash of the configuration
+   * @param pGeneratedFileNames The names of the generated files
+   *
+   * @throws IOException if the manifest could not be written
+   */
+  public void store(
+      final String pInputHash,
+      final String pConfigurationHash,
+      final Collection<String> pGeneratedFileNames)
+      throws IOException {
+    store(pInputHash, pConfigurationHash, pGeneratedFileNames,
+        Collections.<String, String>emptyMap());
+  }
+
+  /**
+   * Records the result of a successful run.
+   *
+   * @param pInputHash          The hash of the input
+   * @param pConfigurationHash  The hash of the configuration
+   * @param pGeneratedFileNames The names of the generated files
+   * @param pFingerprints       The fingerprints mapped by the name of their
+   *                            Locale
+   *
+   * @throws IOException if the manifest could not be written
+   */
+  public void store(
+      final String pInputHash,
+      final String pConfigurationHash,
+      final Collection<String> pGeneratedFileNames,
+      final Map<String, String> pFingerprints)
+      throws IOException {
+    final StringBuilder eGeneratedFiles = new StringBuilder();
+    for (Iterator<String> i = pGeneratedFileNames.iterator(); i.hasNext();) {
+      eGeneratedFiles.append(i.next());
+      if (i.hasNext()) {
+        eGeneratedFiles.append(FILE_SEPARATOR);
+      }
+    }
+    mManifestProperties.setProperty(KEY_INPUT_HASH, pInputHash);
+    mManifestProperties.setProperty(KEY_CONFIGURATION_HASH,
+        pConfigurationHash);
+    mManifestProperties.setProperty(KEY_GENERATED_FILES,
+        eGeneratedFiles.toString());
+    for (Iterator<Map.Entry<String, String>> i = pFingerprints.entrySet()
+        .iterator(); i.hasNext();) {
+      final Map.Entry<String, String> eLoopEntry = i.next();
+      mManifestProperties.setProperty(KEY_PREFIX_FINGERPRINT
+          + eLoopEntry.getKey(), eLoopEntry.getValue());
+    }
+
+    final OutputStream eOutputStream = new FileOutputStream(mManifestFile);
+    try {
+      mManifestProperties.store(eOutputStream, MANIFEST_COMMENT);
+    }
+    finally {
+      eOutputStream.close();
+    }
+  }
+
+  /**
+   * Removes the manifest so that the next run does not skip.
+   */
+  public void invalidate() {
+    mManifestProperties.clear();
+    if (mManifestFile.exists() && !mManifestFile.delete()) {
+      mManifestFile.deleteOnExit();
+    }
+  }
+
+  /**
+   * @param pFiles The files to hash, in a stable order
+   *
+   * @return the hex encoded hash of the paths and contents of all the files
+   *
+   * @throws IOException if a file could not be read
+   */
+  public static String hashFiles(final List<File> pFiles) throws IOException {
+    final MessageDigest eDigest = createDigest();
+    final byte[] eBuffer = new byte[BUFFER_SIZE];
+    for (Iterator<File> i = pFiles.iterator(); i.hasNext();) {
+      final File eLoopFile = i.next();
+      eDigest.update(eLoopFile.getPath().getBytes("UTF-8"));
+      eDigest.update((byte) 0);
+      final InputStream eInputStream = new FileInputStream(eLoopFile);
+      try {
+        int eReadCount = eInputStream.read(eBuffer);
+        while (eReadCount != -1) {
+          eDigest.update(eBuffer, 0, eReadCount);
+          eReadCount = eInputStream.read(eBuffer);
+        }
+      }
+      finally {
+        eInputStream.close();
+      }
+    }
+    return toHexString(eDigest.digest());
+  }
+
+  /**
+   * @param pValues The configuration values to hash, may contain null
+   *
+   * @return the hex encoded hash of all the values
+   */
+  public static String hashValues(final List<?> pValues) {
+    final MessageDigest eDigest = createDigest();
+    for (Iterator<?> i = pValues.iterator(); i.hasNext();) {
+      final Object eLoopValue = i.next();
+      final String eLoopString = String.valueOf(eLoopValue);
+      try {
+        eDigest.update(eLoopString.getBytes("UTF-8"));
+      }
+      catch (UnsupportedEncodingException ex) {
+        throw new IllegalStateException(ex);
+      }
+      // separate the values so that ("ab", "c") differs from ("a", "bc")
+      eDigest.update((byte) 0);
+    }
+    return toHexString(eDigest.digest());
+  }
+
+  /**
+   * @param pLocale The Locale, null for the default bundle
+   *
+   * @return the name of the Locale in the manifest
+   */
+  public static String getLocaleName(final Locale pLocale) {
+    return pLocale == null ? DEFAULT_LOCALE_NAME : pLocale.toString();
+  }
+
+  /**
+   * @param pBundles The bundles
+   * @param pLocale  The Locale to fingerprint
+   *
+   * @return the fingerprint of the properties of the Locale, independent of
+   *         the order of the keys
+   */
+  public static String fingerprintLocale(
+      final LocaleBundleTable pBundles,
+      final Locale pLocale) {
+    long eSum = 0;
+    for (int i = 0; i < pBundles.getKeyCount(); i++) {
+      final String eValue = pBundles.getValue(i, pLocale);
+      if (eValue != null) {
+        eSum += fingerprintEntry(pBundles.getKey(i), eValue);
+      }
+    }
+    return pBundles.getEntryCount(pLocale) + ":" + Long.toHexString(eSum);
+  }
+
+  /**
+   * FNV-1a over the characters of the key and the value, mixed so that the
+   * sum of the hashes of the entries stays well distributed.
+   */
+  private static long fingerprintEntry(
+      final String pKey,
+      final String pValue) {
+    long eHash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < pKey.length(); i++) {
+      eHash = (eHash ^ pKey.charAt(i)) * FNV_PRIME;
+    }
+    // a separator that is not a char, so that ("ab", "c") != ("a", "bc")
+    eHash = (eHash ^ 0x10000) * FNV_PRIME;
+    for (int i = 0; i < pValue.length(); i++) {
+      eHash = (eHash ^ pValue.charAt(i)) * FNV_PRIME;
+    }
+    eHash ^= eHash >>> 33;
+    eHash *= 0xff51afd7ed558ccdL;
+    eHash ^= eHash >>> 33;
+    eHash *= 0xc4ceb9fe1a85ec53L;
+    return eHash ^ (eHash >>> 33);
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    }
+    catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static String toHexString(final byte[] pBytes) {
+    final StringBuilder eBuilder = new StringBuilder(pBytes.length * 2);
+    for (int i = 0; i < pBytes.length; i++) {
+      eBuilder.append(Character.forDigit((pBytes[i] >> 4) & 0xF, 16));
+      eBuilder.append(Character.forDigit(pBytes[i] & 0xF, 16));
+    }
+    return eBuilder.toString();
+  }
+
+}
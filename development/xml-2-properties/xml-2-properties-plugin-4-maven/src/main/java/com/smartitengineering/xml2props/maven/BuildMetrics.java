@@ -0,0 +1,355 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.maven;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.writer.BundleWriteListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instrumentation of a run of the mojo: the wall time of the validate, parse,
+ * merge and write phases, the size of the parsed bundles and the bytes read
+ * and written per Locale. It is reported as a JSON document so that builds
+ * can be compared, and summarized in a line of the log.
+ * <p/>
+ * The Locales are written in parallel, the recording is thread-safe. The
+ * merge time is the sum over all the merged files, so it may be longer than
+ * the wall time of the write phase that includes it.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class BuildMetrics implements BundleWriteListener {
+
+  public static final String PHASE_VALIDATE = "validate";
+
+  public static final String PHASE_PARSE = "parse";
+
+  public static final String PHASE_MERGE = "merge";
+
+  public static final String PHASE_WRITE = "write";
+
+  private static final String[] PHASES = {PHASE_VALIDATE, PHASE_PARSE,
+      PHASE_MERGE, PHASE_WRITE};
+
+  private static final long NANOS_PER_MILLI = 1000000L;
+
+  private final Map<String, AtomicLong> mPhaseNanos;
+
+  /** Sorted by Locale name for a stable report */
+  private final ConcurrentMap<String, LocaleMetrics> mLocaleMetrics;
+
+  private final AtomicLong mMergedFileCount = new AtomicLong();
+
+  private final AtomicLong mWrittenFileCount = new AtomicLong();
+
+  private final AtomicLong mSkippedFileCount = new AtomicLong();
+
+  /** The bytes written to the files of no Locale */
+  private final AtomicLong mOtherBytesWritten = new AtomicLong();
+
+  private volatile boolean mUpToDate;
+
+  private volatile int mInputFileCount;
+
+  private volatile long mInputBytesRead;
+
+  private volatile int mPeakKeyCount;
+
+  private volatile int mPeakLocaleCount;
+
+  private volatile long mPeakEntryCount;
+
+  private volatile int mPeakLocaleEntryCount;
+
+  public BuildMetrics() {
+    mPhaseNanos = new ConcurrentHashMap<String, AtomicLong>();
+    for (int i = 0; i < PHASES.length; i++) {
+      mPhaseNanos.put(PHASES[i], new AtomicLong());
+    }
+    mLocaleMetrics = new ConcurrentSkipListMap<String, LocaleMetrics>();
+  }
+
+  /**
+   * @param pPhase The phase, one of the PHASE constants
+   * @param pNanos The nanoseconds spent in the phase
+   */
+  public void addPhaseTime(final String pPhase, final long pNanos) {
+    final AtomicLong ePhaseNanos = mPhaseNanos.get(pPhase);
+    if (ePhaseNanos == null) {
+      throw new IllegalArgumentException("Unknown phase: " + pPhase);
+    }
+    ePhaseNanos.addAndGet(pNanos);
+  }
+
+  /**
+   * @param pPhase The phase, one of the PHASE constants
+   *
+   * @return the milliseconds spent in the phase
+   */
+  public long getPhaseMillis(final String pPhase) {
+    return mPhaseNanos.get(pPhase).get() / NANOS_PER_MILLI;
+  }
+
+  /** @param pUpToDate whether the run was skipped as up to date */
+  public void setUpToDate(final boolean pUpToDate) {
+    mUpToDate = pUpToDate;
+  }
+
+  /**
+   * @param pInputFiles The parsed input files
+   */
+  public void recordInputFiles(final Iterable<File> pInputFiles) {
+    int eCount = 0;
+    long eBytes = 0;
+    for (Iterator<File> i = pInputFiles.iterator(); i.hasNext();) {
+      eBytes += i.next().length();
+      eCount++;
+    }
+    mInputFileCount = eCount;
+    mInputBytesRead = eBytes;
+  }
+
+  /**
+   * Records the sizes of the bundles, keeping the largest ones seen.
+   *
+   * @param pBundles The parsed or resolved bundles
+   */
+  public void recordBundles(final LocaleBundleTable pBundles) {
+    long eEntryCount = 0;
+    int eLocaleEntryCount = 0;
+    for (Iterator<Locale> i = pBundles.getLocales().iterator(); i.hasNext();) {
+      final int eCount = pBundles.getEntryCount(i.next());
+      eEntryCount += eCount;
+      eLocaleEntryCount = Math.max(eLocaleEntryCount, eCount);
+    }
+    mPeakKeyCount = Math.max(mPeakKeyCount, pBundles.getKeyCount());
+    mPeakLocaleCount = Math.max(mPeakLocaleCount,
+        pBundles.getLocales().size());
+    mPeakEntryCount = Math.max(mPeakEntryCount, eEntryCount);
+    mPeakLocaleEntryCount = Math.max(mPeakLocaleEntryCount,
+        eLocaleEntryCount);
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.BundleWriteListener#recordMerge(java.util.Locale, long, long)
+   */
+  public void recordMerge(
+      final Locale pLocale,
+      final long pBytesRead,
+      final long pNanos) {
+    getLocaleMetrics(pLocale).mBytesRead.addAndGet(pBytesRead);
+    mMergedFileCount.incrementAndGet();
+    addPhaseTime(PHASE_MERGE, pNanos);
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.BundleWriteListener#recordWrite(java.util.Locale, long, boolean)
+   */
+  public void recordWrite(
+      final Locale pLocale,
+      final long pBytesWritten,
+      final boolean pWritten) {
+    final LocaleMetrics eLocaleMetrics = getLocaleMetrics(pLocale);
+    if (pWritten) {
+      eLocaleMetrics.mBytesWritten.addAndGet(pBytesWritten);
+      mWrittenFileCount.incrementAndGet();
+    }
+    else {
+      eLocaleMetrics.mSkipped = true;
+      mSkippedFileCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.BundleWriteListener#recordWrite(long, boolean)
+   */
+  public void recordWrite(
+      final long pBytesWritten,
+      final boolean pWritten) {
+    if (pWritten) {
+      mOtherBytesWritten.addAndGet(pBytesWritten);
+      mWrittenFileCount.incrementAndGet();
+    }
+    else {
+      mSkippedFileCount.incrementAndGet();
+    }
+  }
+
+  /** @return the number of files left untouched as they were unchanged */
+  public long getSkippedFileCount() {
+    return mSkippedFileCount.get();
+  }
+
+  private LocaleMetrics getLocaleMetrics(final Locale pLocale) {
+    final String eLocaleName = BuildManifest.getLocaleName(pLocale);
+    LocaleMetrics eLocaleMetrics = mLocaleMetrics.get(eLocaleName);
+    if (eLocaleMetrics == null) {
+      eLocaleMetrics = new LocaleMetrics();
+      final LocaleMetrics eExisting = mLocaleMetrics.putIfAbsent(eLocaleName,
+          eLocaleMetrics);
+      if (eExisting != null) {
+        eLocaleMetrics = eExisting;
+      }
+    }
+    return eLocaleMetrics;
+  }
+
+  /** @return the number of parsed entries per second */
+  public long getEntriesPerSecond() {
+    final long eParseNanos = mPhaseNanos.get(PHASE_PARSE).get();
+    return eParseNanos == 0
+        ? 0 : mPeakEntryCount * 1000 * NANOS_PER_MILLI / eParseNanos;
+  }
+
+  /** @return a single line summary for the log */
+  public String getSummary() {
+    if (mUpToDate) {
+      return "Validated in " + getPhaseMillis(PHASE_VALIDATE)
+          + " ms, input and configuration unchanged";
+    }
+    return "Validated in " + getPhaseMillis(PHASE_VALIDATE) + " ms, parsed "
+        + mPeakEntryCount + " entries of " + mPeakKeyCount + " keys in "
+        + mPeakLocaleCount + " Locales in " + getPhaseMillis(PHASE_PARSE)
+        + " ms (" + getEntriesPerSecond() + " entries/s), merged "
+        + mMergedFileCount.get() + " files in " + getPhaseMillis(PHASE_MERGE)
+        + " ms, wrote " + mWrittenFileCount.get() + " files ("
+        + getBytesWritten() + " bytes) and skipped "
+        + mSkippedFileCount.get() + " in " + getPhaseMillis(PHASE_WRITE)
+        + " ms";
+  }
+
+  private long getBytesWritten() {
+    long eBytes = mOtherBytesWritten.get();
+    for (Iterator<LocaleMetrics> i = mLocaleMetrics.values().iterator();
+         i.hasNext();) {
+      eBytes += i.next().mBytesWritten.get();
+    }
+    return eBytes;
+  }
+
+  /** @return the metrics as a JSON document */
+  public String toJson() {
+    final StringBuilder eJson = new StringBuilder(512);
+    eJson.append("{\n  \"upToDate\": ").append(mUpToDate);
+    eJson.append(",\n  \"phases\": {");
+    for (int i = 0; i < PHASES.length; i++) {
+      eJson.append(i == 0 ? "\n" : ",\n").append("    ");
+      appendString(eJson, PHASES[i]);
+      eJson.append(": {\"wallTimeMillis\": ")
+          .append(getPhaseMillis(PHASES[i])).append('}');
+    }
+    eJson.append("\n  },\n  \"entriesPerSecond\": ")
+        .append(getEntriesPerSecond());
+    eJson.append(",\n  \"inputFiles\": ").append(mInputFileCount);
+    eJson.append(",\n  \"inputBytesRead\": ").append(mInputBytesRead);
+    eJson.append(",\n  \"peakKeys\": ").append(mPeakKeyCount);
+    eJson.append(",\n  \"peakLocales\": ").append(mPeakLocaleCount);
+    eJson.append(",\n  \"peakEntries\": ").append(mPeakEntryCount);
+    eJson.append(",\n  \"peakLocaleEntries\": ")
+        .append(mPeakLocaleEntryCount);
+    eJson.append(",\n  \"mergedFiles\": ").append(mMergedFileCount.get());
+    eJson.append(",\n  \"rewrittenFiles\": ")
+        .append(mWrittenFileCount.get());
+    eJson.append(",\n  \"skippedFiles\": ").append(mSkippedFileCount.get());
+    eJson.append(",\n  \"locales\": {");
+    boolean eFirst = true;
+    for (Iterator<Map.Entry<String, LocaleMetrics>> i = mLocaleMetrics
+        .entrySet().iterator(); i.hasNext();) {
+      final Map.Entry<String, LocaleMetrics> eLoopEntry = i.next();
+      final LocaleMetrics eLocaleMetrics = eLoopEntry.getValue();
+      eJson.append(eFirst ? "\n" : ",\n").append("    ");
+      appendString(eJson, eLoopEntry.getKey());
+      eJson.append(": {\"bytesRead\": ")
+          .append(eLocaleMetrics.mBytesRead.get())
+          .append(", \"bytesWritten\": ")
+          .append(eLocaleMetrics.mBytesWritten.get())
+          .append(", \"skipped\": ").append(eLocaleMetrics.mSkipped)
+          .append('}');
+      eFirst = false;
+    }
+    eJson.append(eFirst ? "}\n}\n" : "\n  }\n}\n");
+    return eJson.toString();
+  }
+
+  private static void appendString(
+      final StringBuilder pJson,
+      final String pString) {
+    pJson.append('"');
+    for (int i = 0; i < pString.length(); i++) {
+      final char eChar = pString.charAt(i);
+      if (eChar == '"' || eChar == '\\') {
+        pJson.append('\\').append(eChar);
+      }
+      else if (eChar < 0x20) {
+        pJson.append("\\u00").append(Character.forDigit(eChar >> 4, 16))
+            .append(Character.forDigit(eChar & 0xF, 16));
+      }
+      else {
+        pJson.append(eChar);
+      }
+    }
+    pJson.append('"');
+  }
+
+  /**
+   * @param pReportFile The file to write the JSON document to
+   *
+   * @throws IOException if the file could not be written
+   */
+  public void writeJson(final File pReportFile) throws IOException {
+    final File eParentDirectory = pReportFile.getParentFile();
+    if (eParentDirectory != null) {
+      eParentDirectory.mkdirs();
+    }
+    final Writer eWriter = new OutputStreamWriter(
+        new FileOutputStream(pReportFile), "UTF-8");
+    try {
+      eWriter.write(toJson());
+    }
+    finally {
+      eWriter.close();
+    }
+  }
+
+  /**
+   * The bytes read and written for a Locale.
+   */
+  private static final class LocaleMetrics {
+
+    private final AtomicLong mBytesRead = new AtomicLong();
+
+    private final AtomicLong mBytesWritten = new AtomicLong();
+
+    private volatile boolean mSkipped;
+  }
+
+}
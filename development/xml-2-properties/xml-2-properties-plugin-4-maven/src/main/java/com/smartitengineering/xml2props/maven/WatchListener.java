@@ -0,0 +1,51 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.maven;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Told about the progress of the watch goal, e.g. to wait for a regeneration
+ * in a test. Called on the watching thread.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public interface WatchListener {
+
+  /**
+   * Called once the first run wrote the bundles and the input is watched.
+   */
+  public void watching();
+
+  /**
+   * Called after a change of the input was processed. Not called when the
+   * input xml failed to parse or the properties failed to be written.
+   *
+   * @param pChangedLocales The Locales whose properties were written again,
+   *                        empty if no properties changed
+   * @param pRemovedLocales The Locales no longer in the input, whose files
+   *                        were deleted
+   */
+  public void regenerated(
+      List<Locale> pChangedLocales,
+      List<Locale> pRemovedLocales);
+
+}
@@ -0,0 +1,390 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.maven;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.exception.ServiceException;
+import com.smartitengineering.xml2props.util.WriterUtil;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Goal processing the input xml like the xml2property goal and then watching
+ * the input for changes until interrupted. The JVM stays warm, so the
+ * properties are regenerated within milliseconds of saving an input xml; only
+ * the files of the Locales whose properties changed are written again, and
+ * the files of the Locales no longer in the input are deleted. An input xml
+ * that fails to parse, e.g. while half saved, is reported and the goal waits
+ * for the next change.
+ * <p>
+ * The goal owns its output: unlike the xml2property goal it does not merge
+ * into existing files but replaces them, from the first run on, so that
+ * keys and Locales removed from the input are removed from the output as
+ * well. Content of the files that is not in the input is lost.
+ *
+ * @goal watch
+ * @requiresDirectInvocation true
+ */
+public class WatchMojo extends XmlToPropertiesMojo {
+
+  /**
+   * Milliseconds to wait for further changes after a change of the input
+   * before regenerating, so that the several events of a single save only
+   * regenerate once
+   *
+   * @parameter property="watchDelay"
+   *            expression="100"
+   */
+  private long mWatchDelay;
+
+  private WatchListener mWatchListener;
+
+  public void execute() throws MojoExecutionException {
+    getLog().info("Executing WatchMojo");
+    try {
+      validateConfigurationParameters();
+
+      prepareParameters();
+
+      LocaleBundleTable eBundles = parseBundles();
+      writeBundles(eBundles, eBundles.getLocales());
+
+      final WatchService eWatchService = FileSystems.getDefault()
+          .newWatchService();
+      try {
+        registerInput(eWatchService);
+        getLog().info("Watching the input xml for changes, interrupt to stop");
+        if (mWatchListener != null) {
+          mWatchListener.watching();
+        }
+        while (awaitChange(eWatchService)) {
+          eBundles = regenerate(eBundles);
+        }
+      }
+      finally {
+        eWatchService.close();
+      }
+      getLog().info("Stopped watching the input xml");
+    }
+    catch (ServiceException ex) {
+      throw new MojoExecutionException(ex.getMessage(), ex);
+    }
+    catch (IOException ex) {
+      throw new MojoExecutionException(ex.getMessage(), ex);
+    }
+  }
+
+  private void registerInput(final WatchService pWatchService)
+      throws IOException {
+    if (getInputDirectory() == null) {
+      register(pWatchService, getInputFile().getAbsoluteFile()
+          .getParentFile());
+    }
+    else {
+      registerDirectories(pWatchService, getInputDirectory());
+    }
+  }
+
+  private void registerDirectories(
+      final WatchService pWatchService,
+      final File pDirectory)
+      throws IOException {
+    register(pWatchService, pDirectory);
+    final File[] eFiles = pDirectory.listFiles();
+    if (eFiles == null) {
+      return;
+    }
+    for (int i = 0; i < eFiles.length; i++) {
+      if (eFiles[i].isDirectory()) {
+        registerDirectories(pWatchService, eFiles[i]);
+      }
+    }
+  }
+
+  private void register(
+      final WatchService pWatchService,
+      final File pDirectory)
+      throws IOException {
+    getLog().debug("Watching directory: " + pDirectory);
+    pDirectory.toPath().register(pWatchService,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY,
+        StandardWatchEventKinds.ENTRY_DELETE);
+  }
+
+  /**
+   * Waits for a change of an input file, and then for the further changes
+   * following it within the watch delay.
+   *
+   * @return false if the thread was interrupted
+   */
+  private boolean awaitChange(final WatchService pWatchService)
+      throws IOException {
+    try {
+      boolean eChanged = false;
+      while (!eChanged) {
+        WatchKey eKey = pWatchService.take();
+        while (eKey != null) {
+          eChanged |= processEvents(pWatchService, eKey);
+          eKey = pWatchService.poll(mWatchDelay, TimeUnit.MILLISECONDS);
+        }
+      }
+      return true;
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    catch (ClosedWatchServiceException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * @return whether an input file changed
+   */
+  private boolean processEvents(
+      final WatchService pWatchService,
+      final WatchKey pKey)
+      throws IOException {
+    final Path eDirectory = (Path) pKey.watchable();
+    boolean eChanged = false;
+    for (Iterator<WatchEvent<?>> i = pKey.pollEvents().iterator();
+         i.hasNext();) {
+      final WatchEvent<?> eEvent = i.next();
+      if (eEvent.kind() == StandardWatchEventKinds.OVERFLOW) {
+        eChanged = true;
+        continue;
+      }
+      final File eFile = eDirectory.resolve((Path) eEvent.context())
+          .toFile();
+      if (getInputDirectory() != null && eFile.isDirectory()) {
+        if (eEvent.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+          registerDirectories(pWatchService, eFile);
+          eChanged = true;
+        }
+      }
+      else if (isInputFile(eFile)) {
+        getLog().debug("Input changed: " + eFile);
+        eChanged = true;
+      }
+    }
+    pKey.reset();
+    return eChanged;
+  }
+
+  private boolean isInputFile(final File pFile) {
+    if (getInputDirectory() == null) {
+      return pFile.getAbsoluteFile().equals(getInputFile().getAbsoluteFile());
+    }
+    return getInputFileSuffix() == null
+        || pFile.getName().endsWith(getInputFileSuffix());
+  }
+
+  /**
+   * @param pPrevious The bundles written last
+   *
+   * @return the bundles written now
+   */
+  private LocaleBundleTable regenerate(final LocaleBundleTable pPrevious) {
+    final long eStart = System.currentTimeMillis();
+    final LocaleBundleTable eBundles;
+    try {
+      refreshInputFiles();
+      eBundles = parseBundles();
+    }
+    catch (ServiceException ex) {
+      getLog().error("Failed parsing the input xml: " + ex.getMessage());
+      return pPrevious;
+    }
+    catch (IOException ex) {
+      getLog().error("Failed parsing the input xml: " + ex.getMessage());
+      return pPrevious;
+    }
+
+    final List<Locale> eChangedLocales = getChangedLocales(pPrevious,
+        eBundles);
+    final List<Locale> eRemovedLocales = getRemovedLocales(pPrevious,
+        eBundles);
+    if (eChangedLocales.isEmpty() && eRemovedLocales.isEmpty()) {
+      getLog().info("No properties changed");
+      notifyRegenerated(eChangedLocales, eRemovedLocales);
+      return eBundles;
+    }
+    if (!eChangedLocales.isEmpty()) {
+      try {
+        writeBundles(eBundles, eChangedLocales);
+      }
+      catch (IOException ex) {
+        getLog().error("Failed writing the properties: " + ex.getMessage());
+        // compared with the last written bundles again on the next change
+        return pPrevious;
+      }
+    }
+    deleteBundles(eRemovedLocales);
+    getLog().info("Regenerated " + eChangedLocales.size() + " Locales and "
+        + "removed " + eRemovedLocales.size() + " Locales in "
+        + (System.currentTimeMillis() - eStart) + " ms");
+    notifyRegenerated(eChangedLocales, eRemovedLocales);
+    return eBundles;
+  }
+
+  private void notifyRegenerated(
+      final List<Locale> pChangedLocales,
+      final List<Locale> pRemovedLocales) {
+    if (mWatchListener != null) {
+      mWatchListener.regenerated(
+          Collections.unmodifiableList(pChangedLocales),
+          Collections.unmodifiableList(pRemovedLocales));
+    }
+  }
+
+  /**
+   * Deletes the files written for the Locales, a file failing to be deleted
+   * is reported and left in place.
+   */
+  private void deleteBundles(final List<Locale> pLocales) {
+    for (Iterator<Locale> i = pLocales.iterator(); i.hasNext();) {
+      final Locale eLocale = i.next();
+      getLog().info("Deleting the properties of the removed Locale: "
+          + eLocale);
+      deleteBundle(eLocale, getBundleName());
+      if (isPrecompiledFormats()) {
+        deleteBundle(eLocale, WriterUtil.getFormatsBundleName(
+            getBundleName()));
+      }
+    }
+  }
+
+  private void deleteBundle(
+      final Locale pLocale,
+      final String pBundleName) {
+    final File eFile = new File(getOutputDirectory(),
+        WriterUtil.getLocalizedFileName(pLocale, pBundleName,
+            mOutputPropertiesMode));
+    if (eFile.exists() && !eFile.delete()) {
+      getLog().warn("Failed deleting the stale file: " + eFile);
+    }
+  }
+
+  /**
+   * @return the Locales whose properties differ in the bundles
+   */
+  private static List<Locale> getChangedLocales(
+      final LocaleBundleTable pPrevious,
+      final LocaleBundleTable pCurrent) {
+    final List<Locale> eChangedLocales = new ArrayList<Locale>();
+    for (Iterator<Locale> i = pCurrent.getLocales().iterator(); i.hasNext();) {
+      final Locale eLocale = i.next();
+      if (!isLocaleEqual(pPrevious, pCurrent, eLocale)) {
+        eChangedLocales.add(eLocale);
+      }
+    }
+    return eChangedLocales;
+  }
+
+  /**
+   * @return the Locales of the previous bundles missing in the current ones
+   */
+  private static List<Locale> getRemovedLocales(
+      final LocaleBundleTable pPrevious,
+      final LocaleBundleTable pCurrent) {
+    final List<Locale> eRemovedLocales = new ArrayList<Locale>();
+    for (Iterator<Locale> i = pPrevious.getLocales().iterator();
+         i.hasNext();) {
+      final Locale eLocale = i.next();
+      if (!pCurrent.containsLocale(eLocale)) {
+        eRemovedLocales.add(eLocale);
+      }
+    }
+    return eRemovedLocales;
+  }
+
+  private static boolean isLocaleEqual(
+      final LocaleBundleTable pPrevious,
+      final LocaleBundleTable pCurrent,
+      final Locale pLocale) {
+    if (!pPrevious.containsLocale(pLocale)
+        || pPrevious.getEntryCount(pLocale)
+        != pCurrent.getEntryCount(pLocale)) {
+      return false;
+    }
+    for (int i = 0; i < pCurrent.getKeyCount(); i++) {
+      final String eValue = pCurrent.getValue(i, pLocale);
+      if (eValue != null && !eValue.equals(
+          pPrevious.getValue(pCurrent.getKey(i), pLocale))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The output is replaced, so that removed keys do not linger.
+   *
+   * @see com.smartitengineering.xml2props.maven.XmlToPropertiesMojo#isMergeExisting()
+   */
+  protected boolean isMergeExisting() {
+    return false;
+  }
+
+  /**
+   * @return the watchDelay
+   */
+  public long getWatchDelay() {
+    return mWatchDelay;
+  }
+
+  /**
+   * @param pWatchDelay the watchDelay to set
+   */
+  public void setWatchDelay(long pWatchDelay) {
+    mWatchDelay = pWatchDelay;
+  }
+
+  /**
+   * @return the watchListener
+   */
+  public WatchListener getWatchListener() {
+    return mWatchListener;
+  }
+
+  /**
+   * @param pWatchListener the watchListener to set
+   */
+  public void setWatchListener(WatchListener pWatchListener) {
+    mWatchListener = pWatchListener;
+  }
+
+}
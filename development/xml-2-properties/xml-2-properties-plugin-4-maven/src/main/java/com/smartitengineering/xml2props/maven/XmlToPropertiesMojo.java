@@ -18,32 +18,93 @@
  */
 package com.smartitengineering.xml2props.maven;
 
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.bundle.LocaleFallbackResolver;
+import com.smartitengineering.xml2props.bundle.LocaleFallbackResolver.FallbackMode;
 import com.smartitengineering.xml2props.exception.ServiceException;
 import com.smartitengineering.xml2props.exception.ServiceValidator;
+import com.smartitengineering.xml2props.util.WriterUtil;
+import com.smartitengineering.xml2props.writer.MessageFormatCompiler;
 import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+import com.smartitengineering.xml2props.writer.SpillingBundleWriter;
+import com.smartitengineering.xml2props.xml.parser.ForkJoinInputParser;
+import com.smartitengineering.xml2props.xml.parser.InputParser;
+import com.smartitengineering.xml2props.xml.parser.MergedLocaleProperties;
+import com.smartitengineering.xml2props.xml.parser.StreamingInputParser;
 import org.apache.maven.plugin.MojoExecutionException;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
- * Goal processes an input xml file to produce a properties file.
+ * Goal processes an input xml file, or all the input xml files of a directory,
+ * to produce a properties file.
  *
  * @goal xml2property
  * @phase process-sources
  */
 public class XmlToPropertiesMojo extends AbstractXmlToPropertiesMojo {
+
+  /**
+   * The directory of the JAVA sources under the build directory, when the
+   * output directory is left at the build directory
+   */
+  private static final String GENERATED_SOURCES_DIRECTORY =
+      "generated-sources/xml2props";
+
+  private BuildManifest mBuildManifest;
+
+  private String mInputHash;
+
+  private String mConfigurationHash;
+
+  private List<File> mInputFiles;
+
+  private FallbackMode mFallbackMode;
+
+  /** The fingerprints of the last run with the same configuration, if any */
+  private Map<String, String> mPreviousFingerprints;
+
+  private Map<String, String> mFingerprints;
+
+  private BuildMetrics mBuildMetrics = new BuildMetrics();
+
   public void execute() throws MojoExecutionException {
     getLog().info("Executing XmlToPropertiesMojo");
     try {
+      mBuildMetrics = new BuildMetrics();
+      final long eValidateStart = System.nanoTime();
       validateConfigurationParameters();
 
       prepareParameters();
 
-      executeRequest();
+      final boolean eUpToDate = isUpToDate();
+      mBuildMetrics.addPhaseTime(BuildMetrics.PHASE_VALIDATE,
+          System.nanoTime() - eValidateStart);
+      if (eUpToDate) {
+        getLog().info("Input and configuration unchanged, skipping");
+        mBuildMetrics.setUpToDate(true);
+        reportMetrics();
+        return;
+      }
+
+      final List<String> eGeneratedFileNames = executeRequest();
+
+      storeManifest(eGeneratedFileNames);
+      reportMetrics();
     }
     catch (ServiceException ex) {
       throw new MojoExecutionException(ex.getMessage(), ex);
@@ -54,9 +115,17 @@ public class XmlToPropertiesMojo extends AbstractXmlToPropertiesMojo {
   }
 
   /** @throws ServiceException  */
-  private void validateConfigurationParameters() throws ServiceException {
-    ServiceValidator.validateNotNull(mInputXmlFile,
-        "The input xml must be specified");
+  protected void validateConfigurationParameters() throws ServiceException {
+    ServiceValidator.validateTrue(mInputXmlFile != null
+        || mInputDirectory != null,
+        "The input xml or the input directory must be specified");
+    ServiceValidator.validateTrue(mInputXmlFile == null
+        || mInputDirectory == null,
+        "Only one of the input xml and the input directory may be specified");
+    if (mInputDirectory != null) {
+      ServiceValidator.validateTrue(mInputDirectory.isDirectory(),
+          "The input directory does not exist: " + mInputDirectory);
+    }
     ServiceValidator.validateNotNull(mOutputDirectory,
         "The output directory must be specified");
     if (!mOutputDirectory.exists()) {
@@ -66,14 +135,29 @@ public class XmlToPropertiesMojo extends AbstractXmlToPropertiesMojo {
         "The output mode for properties must be specified");
   }
 
-  private void prepareParameters() {
+  protected void prepareParameters() throws ServiceException {
+    prepareInputParser();
     getInputParser().setMojo(this);
     getPropertiesWriter().setMojo(this);
+    getPropertiesWriter().setWriteIfChanged(isWriteIfChanged());
+    getPropertiesWriter().setSortedOutput(isSortedOutput());
+    getPropertiesWriter().setStreamingMerge(isStreamingMerge());
+    getPropertiesWriter().setUtf8Properties(isUtf8Properties());
+    getPropertiesWriter().setIndexedBundles(isIndexedBundles());
+    getPropertiesWriter().setWriteListener(mBuildMetrics);
     mOutputPropertiesMode = new PropertiesMode(mOutputMode);
+    mFallbackMode = getLocaleFallback() == null
+        ? FallbackMode.NONE : new FallbackMode(getLocaleFallback());
+    getPropertiesWriter().setMergeExisting(isMergeExisting());
+    refreshInputFiles();
+    if (getStreamingBufferSize() > 0) {
+      validateStreaming();
+    }
 
     if (getBundleName() == null || getBundleName().length() == 0) {
       getLog().debug("Output Bundle Name is empty");
-      String eInputXmlFileName = getInputFile().getName();
+      String eInputXmlFileName = getInputFile() != null
+          ? getInputFile().getName() : getInputDirectory().getName();
       final int eLastIndexOfDot = eInputXmlFileName.lastIndexOf('.');
       if (eLastIndexOfDot > 0) {
         eInputXmlFileName = eInputXmlFileName.substring(0,
@@ -84,24 +168,566 @@ public class XmlToPropertiesMojo extends AbstractXmlToPropertiesMojo {
               + eInputXmlFileName);
       setBundleName(eInputXmlFileName);
     }
+
+    ServiceValidator.validateTrue(!isIndexedBundles()
+        || PropertiesMode.JAVA.equals(mOutputPropertiesMode),
+        "Indexed bundles are only generated in JAVA mode");
+    if (PropertiesMode.JAVA.equals(mOutputPropertiesMode)) {
+      ServiceValidator.validateTrue(isQualifiedClassName(getBundleName()),
+          "The bundle name must be a valid class name in JAVA mode: "
+              + getBundleName());
+      if (getBuildDirectory() != null && getOutputDirectory()
+          .getAbsoluteFile().equals(getBuildDirectory().getAbsoluteFile())) {
+        // the build directory holds the classes and the output of the other
+        // plugins, which must not be compiled as sources
+        setOutputDirectory(new File(getBuildDirectory(),
+            GENERATED_SOURCES_DIRECTORY));
+        getLog().info("Writing the JAVA sources to: " + getOutputDirectory());
+        getOutputDirectory().mkdirs();
+      }
+      if (getProject() != null) {
+        getLog().debug("Adding compile source root: " + getOutputDirectory());
+        getProject().addCompileSourceRoot(
+            getOutputDirectory().getAbsolutePath());
+      }
+    }
   }
 
-  private void executeRequest() throws IOException {
-    getLog().info("Parsing input xml file");
-    final Map<Locale, Properties> eParsedLocaleProperties = getInputParser()
-        .parseInput(getInputFile());
-    getLog().debug("Writing parsed properties");
-    for (Iterator i = eParsedLocaleProperties.keySet().iterator(); i
-        .hasNext();) {
-      final Locale eLoopLocale = (Locale) i.next();
+  /**
+   * @return whether the bundles are merged into the existing files, the
+   *         writer being shared by the goals of a build. Minimized bundles
+   *         replace the files, merging would keep the dropped values.
+   */
+  protected boolean isMergeExisting() {
+    return !FallbackMode.MINIMAL.equals(mFallbackMode);
+  }
 
-      Properties eLocaleProperties = (Properties) eParsedLocaleProperties
-          .get(eLoopLocale);
-      getLog().info(
-          "Writing parsed properties for Locale: " + eLoopLocale);
-      getPropertiesWriter().writePropertiesToFile(eLoopLocale,
-          eLocaleProperties, mOutputPropertiesMode,
-          getOutputDirectory(), getBundleName());
+  private void validateStreaming() throws ServiceException {
+    ServiceValidator.validateTrue(
+        getInputParser() instanceof StreamingInputParser,
+        "The input parser can not stream the entries: " + getInputParser());
+    ServiceValidator.validateTrue(
+        PropertiesMode.PROPERTIES.equals(mOutputPropertiesMode)
+            || PropertiesMode.XML.equals(mOutputPropertiesMode),
+        "Only PROPERTIES and XML output can be streamed, found: "
+            + mOutputPropertiesMode);
+    ServiceValidator.validateTrue(FallbackMode.NONE.equals(mFallbackMode),
+        "The Locale fallback can not be resolved when streaming");
+    ServiceValidator.validateTrue(!isFailOnConflict(),
+        "Conflicts between input files are not detected when streaming");
+    ServiceValidator.validateTrue(!isPrecompiledFormats(),
+        "The formats can not be precompiled when streaming");
+  }
+
+  private static boolean isQualifiedClassName(final String pName) {
+    final String[] eIdentifiers = pName.split("\\.", -1);
+    for (int i = 0; i < eIdentifiers.length; i++) {
+      final String eIdentifier = eIdentifiers[i];
+      if (eIdentifier.length() == 0
+          || !Character.isJavaIdentifierStart(eIdentifier.charAt(0))) {
+        return false;
+      }
+      for (int j = 1; j < eIdentifier.length(); j++) {
+        if (!Character.isJavaIdentifierPart(eIdentifier.charAt(j))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private void prepareInputParser() throws ServiceException {
+    if (mInputParsers != null && mInputParserHint != null) {
+      final InputParser eInputParser = mInputParsers.get(mInputParserHint);
+      ServiceValidator.validateNotNull(eInputParser,
+          "No input parser registered with role-hint: " + mInputParserHint);
+      setInputParser(eInputParser);
+    }
+    ServiceValidator.validateNotNull(getInputParser(),
+        "The input parser must be specified");
+    getLog().debug("Using input parser: " + getInputParser());
+  }
+
+  private boolean isUpToDate() throws IOException {
+    if (!isIncremental()) {
+      return false;
+    }
+    mBuildManifest = new BuildManifest(getOutputDirectory(),
+        getBundleName() + "-" + mOutputPropertiesMode.toString().toLowerCase());
+    mBuildManifest.load();
+    mInputHash = BuildManifest.hashFiles(mInputFiles);
+    mConfigurationHash = BuildManifest.hashValues(getConfigurationValues());
+    final boolean eUpToDate = mBuildManifest.isUpToDate(mInputHash,
+        mConfigurationHash);
+    mPreviousFingerprints = null;
+    if (!eUpToDate && mBuildManifest.isConfigurationUnchanged(
+        mConfigurationHash)) {
+      mPreviousFingerprints = mBuildManifest.getLocaleFingerprints();
+    }
+    if (!eUpToDate) {
+      // a failed run must not leave a manifest of the previous run behind
+      mBuildManifest.invalidate();
+    }
+    return eUpToDate;
+  }
+
+  /**
+   * @return the configuration values that change the generated output
+   */
+  protected List<Object> getConfigurationValues() {
+    final List<Object> eValues = new ArrayList<Object>();
+    eValues.add(getPluginVersion());
+    eValues.add(getInputFile() == null
+        ? null : getInputFile().getAbsolutePath());
+    eValues.add(getInputDirectory() == null
+        ? null : getInputDirectory().getAbsolutePath());
+    eValues.add(getInputFileSuffix());
+    eValues.add(Boolean.valueOf(isFailOnConflict()));
+    eValues.add(getBundleName());
+    eValues.add(mOutputPropertiesMode);
+    eValues.add(mInputParserHint);
+    eValues.add(Boolean.valueOf(isSortedOutput()));
+    eValues.add(Boolean.valueOf(isStreamingMerge()));
+    eValues.add(Boolean.valueOf(isUtf8Properties()));
+    eValues.add(Integer.valueOf(getStreamingBufferSize()));
+    eValues.add(Boolean.valueOf(isIndexedBundles()));
+    eValues.add(Boolean.valueOf(isPrecompiledFormats()));
+    eValues.add(mFallbackMode);
+    return eValues;
+  }
+
+  private void storeManifest(final List<String> pGeneratedFileNames)
+      throws IOException {
+    if (mBuildManifest != null) {
+      getLog().debug("Writing build manifest: "
+          + mBuildManifest.getManifestFile());
+      mBuildManifest.store(mInputHash, mConfigurationHash,
+          pGeneratedFileNames, mFingerprints);
+    }
+  }
+
+  /**
+   * Collects the input files again, the files of the input directory may
+   * have been added or removed since.
+   *
+   * @throws ServiceException if the input directory holds no input file
+   */
+  protected void refreshInputFiles() throws ServiceException {
+    mInputFiles = collectInputFiles();
+  }
+
+  /**
+   * Logs the summary of the metrics of the run and writes their report. A
+   * report that could not be written does not fail the build.
+   */
+  private void reportMetrics() {
+    getLog().info(mBuildMetrics.getSummary());
+    if (getMetricsDirectory() == null) {
+      return;
+    }
+    final File eReportFile = new File(getMetricsDirectory(), getBundleName()
+        + "-" + mOutputPropertiesMode.toString().toLowerCase() + ".json");
+    try {
+      mBuildMetrics.writeJson(eReportFile);
+      getLog().debug("Wrote build metrics: " + eReportFile);
+    }
+    catch (IOException ex) {
+      getLog().warn("Failed writing build metrics " + eReportFile + ": "
+          + ex.getMessage());
+    }
+  }
+
+  private List<File> collectInputFiles() throws ServiceException {
+    final List<File> eInputFiles = new ArrayList<File>();
+    if (getInputDirectory() == null) {
+      eInputFiles.add(getInputFile());
+    }
+    else {
+      collectInputFiles(getInputDirectory(), eInputFiles);
+      ServiceValidator.validateTrue(!eInputFiles.isEmpty(),
+          "No input xml found in: " + getInputDirectory());
+      getLog().info("Found " + eInputFiles.size() + " input xml files in: "
+          + getInputDirectory());
+    }
+    return eInputFiles;
+  }
+
+  /**
+   * Adds the matching files in path order so that the merge order does not
+   * depend on the file system.
+   */
+  private void collectInputFiles(
+      final File pDirectory,
+      final List<File> pInputFiles) {
+    final File[] eFiles = pDirectory.listFiles();
+    if (eFiles == null) {
+      return;
+    }
+    Arrays.sort(eFiles);
+    for (int i = 0; i < eFiles.length; i++) {
+      if (eFiles[i].isDirectory()) {
+        collectInputFiles(eFiles[i], pInputFiles);
+      }
+      else if (mInputFileSuffix == null
+          || eFiles[i].getName().endsWith(mInputFileSuffix)) {
+        pInputFiles.add(eFiles[i]);
+      }
+    }
+  }
+
+  private LocaleBundleTable parseInputs() throws IOException {
+    if (getInputDirectory() == null) {
+      getLog().info("Parsing input xml file");
+      return getInputParser().parseBundles(getInputFile());
+    }
+
+    getLog().info("Parsing input xml files");
+    final int eParallelism = getThreads() > 1
+        ? getThreads() : Runtime.getRuntime().availableProcessors();
+    final MergedLocaleProperties eMergedProperties = new ForkJoinInputParser(
+        getInputParser(), eParallelism).parseInputs(mInputFiles);
+
+    final List<String> eConflicts = eMergedProperties.getConflicts();
+    for (Iterator<String> i = eConflicts.iterator(); i.hasNext();) {
+      getLog().warn(i.next());
+    }
+    if (isFailOnConflict() && !eConflicts.isEmpty()) {
+      throw new IOException("Found " + eConflicts.size()
+          + " conflicting keys in the input xml files");
+    }
+    return LocaleBundleTable.fromLocaleProperties(
+        eMergedProperties.getLocaleProperties());
+  }
+
+  private List<String> executeRequest() throws IOException {
+    if (getStreamingBufferSize() > 0) {
+      return streamRequest();
+    }
+    final LocaleBundleTable eParsedBundles = parseBundles();
+    if (!isIncremental()) {
+      return writeBundles(eParsedBundles, eParsedBundles.getLocales());
+    }
+
+    mFingerprints = new HashMap<String, String>();
+    final List<Locale> eChangedLocales = new ArrayList<Locale>();
+    final List<String> eGeneratedFileNames = new ArrayList<String>();
+    for (Iterator<Locale> i = eParsedBundles.getLocales().iterator();
+         i.hasNext();) {
+      final Locale eLoopLocale = i.next();
+      final String eLocaleName = BuildManifest.getLocaleName(eLoopLocale);
+      final String eFingerprint = BuildManifest.fingerprintLocale(
+          eParsedBundles, eLoopLocale);
+      mFingerprints.put(eLocaleName, eFingerprint);
+      final List<String> eFileNames = new ArrayList<String>();
+      eFileNames.add(WriterUtil.getLocalizedFileName(eLoopLocale,
+          getBundleName(), mOutputPropertiesMode));
+      if (isPrecompiledFormats()) {
+        eFileNames.add(WriterUtil.getLocalizedFileName(eLoopLocale,
+            WriterUtil.getFormatsBundleName(getBundleName()),
+            mOutputPropertiesMode));
+      }
+      if (mPreviousFingerprints != null
+          && eFingerprint.equals(mPreviousFingerprints.get(eLocaleName))
+          && isGenerated(eFileNames)) {
+        eGeneratedFileNames.addAll(eFileNames);
+      }
+      else {
+        eChangedLocales.add(eLoopLocale);
+      }
+    }
+    if (eChangedLocales.size() < eParsedBundles.getLocales().size()) {
+      getLog().info((eParsedBundles.getLocales().size()
+          - eChangedLocales.size()) + " Locales unchanged since the last run, "
+          + "writing " + eChangedLocales.size() + " Locales");
+    }
+    eGeneratedFileNames.addAll(writeBundles(eParsedBundles, eChangedLocales));
+    return eGeneratedFileNames;
+  }
+
+  /**
+   * @return whether all the files are in the output directory
+   */
+  private boolean isGenerated(final List<String> pFileNames) {
+    for (Iterator<String> i = pFileNames.iterator(); i.hasNext();) {
+      if (!new File(getOutputDirectory(), i.next()).isFile()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Pushes the entries of the input files, in the order of the files, to a
+   * {@link SpillingBundleWriter} without building the bundles in memory.
+   *
+   * @return the names of the written files
+   */
+  private List<String> streamRequest() throws IOException {
+    final StreamingInputParser eInputParser =
+        (StreamingInputParser) getInputParser();
+    final SpillingBundleWriter eWriter = getPropertiesWriter()
+        .newSpillingWriter(mOutputPropertiesMode, getOutputDirectory(),
+            getBundleName(), getStreamingBufferSize());
+    try {
+      final long eSkippedBefore = mBuildMetrics.getSkippedFileCount();
+      final long eParseStart = System.nanoTime();
+      for (Iterator<File> i = mInputFiles.iterator(); i.hasNext();) {
+        eInputParser.parseEntries(i.next(), eWriter);
+      }
+      mBuildMetrics.recordInputFiles(mInputFiles);
+      mBuildMetrics.addPhaseTime(BuildMetrics.PHASE_PARSE,
+          System.nanoTime() - eParseStart);
+      getLog().info("Streamed " + eWriter.getEntryCount()
+          + " entries, spilled " + eWriter.getSpillCount() + " times");
+
+      final long eWriteStart = System.nanoTime();
+      final List<String> eGeneratedFileNames = eWriter.finish();
+      mBuildMetrics.addPhaseTime(BuildMetrics.PHASE_WRITE,
+          System.nanoTime() - eWriteStart);
+      logWrittenFiles(eGeneratedFileNames.size(),
+          mBuildMetrics.getSkippedFileCount() - eSkippedBefore);
+      // the Locales are not fingerprinted, the next run writes them all
+      mFingerprints = new HashMap<String, String>();
+      return eGeneratedFileNames;
+    }
+    finally {
+      eWriter.close();
+    }
+  }
+
+  /**
+   * @return the bundles of the input files, with the Locale fallback
+   *         resolved
+   *
+   * @throws IOException if there is an error in processing an input file
+   */
+  protected LocaleBundleTable parseBundles() throws IOException {
+    final long eStart = System.nanoTime();
+    final LocaleBundleTable eParsedBundles = parseInputs();
+    mBuildMetrics.recordInputFiles(mInputFiles);
+    mBuildMetrics.recordBundles(eParsedBundles);
+    final LocaleBundleTable eResolvedBundles = resolveFallback(
+        eParsedBundles);
+    mBuildMetrics.recordBundles(eResolvedBundles);
+    mBuildMetrics.addPhaseTime(BuildMetrics.PHASE_PARSE,
+        System.nanoTime() - eStart);
+    return eResolvedBundles;
+  }
+
+  /**
+   * @param pBundles The bundles to write
+   * @param pLocales The Locales of the bundles to write
+   *
+   * @return the names of the written files, including the unchanged ones
+   *
+   * @throws IOException if a file could not be written
+   */
+  protected List<String> writeBundles(
+      final LocaleBundleTable pBundles,
+      final List<Locale> pLocales)
+      throws IOException {
+    getLog().debug("Writing " + pBundles.getKeyCount()
+        + " parsed keys for " + pLocales.size() + " Locales");
+    final long eSkippedBefore = mBuildMetrics.getSkippedFileCount();
+    final long eStart = System.nanoTime();
+    final List<String> eGeneratedFileNames = writeBundles(pBundles, pLocales,
+        getBundleName());
+    if (isPrecompiledFormats()) {
+      eGeneratedFileNames.addAll(writeBundles(compileFormats(pBundles),
+          pLocales, WriterUtil.getFormatsBundleName(getBundleName())));
+    }
+    mBuildMetrics.addPhaseTime(BuildMetrics.PHASE_WRITE,
+        System.nanoTime() - eStart);
+    logWrittenFiles(eGeneratedFileNames.size(),
+        mBuildMetrics.getSkippedFileCount() - eSkippedBefore);
+    return eGeneratedFileNames;
+  }
+
+  private void logWrittenFiles(final int pFileCount, final long pSkippedCount) {
+    getLog().info("Wrote " + (pFileCount - pSkippedCount)
+        + " files, skipped " + pSkippedCount + " unchanged files");
+  }
+
+  private List<String> writeBundles(
+      final LocaleBundleTable pBundles,
+      final List<Locale> pLocales,
+      final String pBundleName)
+      throws IOException {
+    final List<String> eGeneratedFileNames;
+    try {
+      if (getThreads() > 1 && pLocales.size() > 1) {
+        eGeneratedFileNames = writeLocalePropertiesInParallel(pBundles,
+            pLocales, pBundleName);
+      }
+      else {
+        eGeneratedFileNames = new ArrayList<String>();
+        for (Iterator<Locale> i = pLocales.iterator(); i.hasNext();) {
+          eGeneratedFileNames.add(writeLocaleProperties(i.next(), pBundles,
+              pBundleName));
+        }
+      }
+    }
+    finally {
+      // the threads of the pool end with their serializers, this one may
+      // watch for changes or run the next build
+      getPropertiesWriter().clearSerializers();
+    }
+    if (isIndexedBundles()) {
+      eGeneratedFileNames.add(writeKeys(pBundles, pBundleName));
+    }
+    return eGeneratedFileNames;
+  }
+
+  /**
+   * @return the precompiled formats of the values of the bundles
+   */
+  private LocaleBundleTable compileFormats(final LocaleBundleTable pBundles) {
+    final LocaleBundleTable eFormats = new MessageFormatCompiler().compile(
+        pBundles);
+    int eFallbackCount = 0;
+    final List<Locale> eLocales = eFormats.getLocales();
+    for (int i = 0; i < eFormats.getKeyCount(); i++) {
+      for (Iterator<Locale> j = eLocales.iterator(); j.hasNext();) {
+        final String eTokens = eFormats.getValue(i, j.next());
+        if (eTokens != null && !MessageFormatCompiler.isPrecompiled(eTokens)) {
+          eFallbackCount++;
+        }
+      }
+    }
+    if (eFallbackCount > 0) {
+      getLog().info(eFallbackCount + " values have a subformat that is not "
+          + "precompiled, they are formatted by a MessageFormat");
+    }
+    return eFormats;
+  }
+
+  private LocaleBundleTable resolveFallback(final LocaleBundleTable pBundles) {
+    if (FallbackMode.NONE.equals(mFallbackMode)) {
+      return pBundles;
+    }
+    getLog().info("Resolving Locale fallback in mode: " + mFallbackMode);
+    return LocaleFallbackResolver.resolve(pBundles, mFallbackMode);
+  }
+
+  /**
+   * Fans the read-merge-write of each Locale out over a bounded pool of
+   * threads. All the Locales are attempted, the failures are reported
+   * together once every Locale is done.
+   */
+  private List<String> writeLocalePropertiesInParallel(
+      final LocaleBundleTable pBundles,
+      final List<Locale> pLocales,
+      final String pBundleName)
+      throws IOException {
+    final int eThreadCount = Math.min(getThreads(), pLocales.size());
+    getLog().debug("Writing parsed properties using threads: "
+        + eThreadCount);
+    final ExecutorService eExecutor = Executors.newFixedThreadPool(
+        eThreadCount);
+    try {
+      final Map<Locale, Future<String>> eFutures =
+          new LinkedHashMap<Locale, Future<String>>();
+      for (Iterator<Locale> i = pLocales.iterator(); i.hasNext();) {
+        final Locale eLoopLocale = i.next();
+        eFutures.put(eLoopLocale, eExecutor.submit(
+            new LocaleWriteTask(eLoopLocale, pBundles, pBundleName)));
+      }
+
+      final List<String> eGeneratedFileNames = new ArrayList<String>();
+      final StringBuilder eFailures = new StringBuilder();
+      Throwable eFirstFailure = null;
+      int eFailureCount = 0;
+      for (Iterator<Map.Entry<Locale, Future<String>>> i = eFutures
+          .entrySet().iterator(); i.hasNext();) {
+        final Map.Entry<Locale, Future<String>> eLoopEntry = i.next();
+        try {
+          eGeneratedFileNames.add(eLoopEntry.getValue().get());
+        }
+        catch (ExecutionException ex) {
+          final Throwable eCause = ex.getCause();
+          getLog().error("Failed writing properties for Locale: "
+              + eLoopEntry.getKey(), eCause);
+          if (eFirstFailure == null) {
+            eFirstFailure = eCause;
+          }
+          eFailureCount++;
+          eFailures.append("\n  ").append(eLoopEntry.getKey()).append(": ")
+              .append(eCause.getMessage());
+        }
+      }
+      if (eFailureCount > 0) {
+        throw new IOException("Failed writing properties for "
+            + eFailureCount + " of " + eFutures.size() + " Locales:"
+            + eFailures, eFirstFailure);
+      }
+      return eGeneratedFileNames;
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing properties", ex);
+    }
+    finally {
+      eExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Writes the key table of the indexed bundles. The bundles of the Locales
+   * find the indexes of their keys when they are loaded, so a bundle left
+   * unchanged stays valid when keys are added to the others.
+   *
+   * @return the name of the written file
+   */
+  private String writeKeys(
+      final LocaleBundleTable pBundles,
+      final String pBundleName)
+      throws IOException {
+    getLog().info("Writing the key table of " + pBundles.getKeyCount()
+        + " keys");
+    getPropertiesWriter().writeKeysToFile(pBundles.getKeys(),
+        getOutputDirectory(), pBundleName);
+    return WriterUtil.getLocalizedFileName(null,
+        WriterUtil.getKeysClassName(pBundleName), mOutputPropertiesMode);
+  }
+
+  /**
+   * @return the name of the written file
+   */
+  private String writeLocaleProperties(
+      final Locale pLocale,
+      final LocaleBundleTable pBundles,
+      final String pBundleName)
+      throws IOException {
+    getLog().info("Writing " + pBundleName + " properties for Locale: "
+        + pLocale);
+    getPropertiesWriter().writeBundleToFile(pLocale, pBundles,
+        mOutputPropertiesMode, getOutputDirectory(), pBundleName);
+    return WriterUtil.getLocalizedFileName(pLocale, pBundleName,
+        mOutputPropertiesMode);
+  }
+
+  /**
+   * Writes the properties of a single Locale.
+   */
+  private final class LocaleWriteTask implements Callable<String> {
+
+    private final Locale mLocale;
+
+    private final LocaleBundleTable mBundles;
+
+    private final String mBundleName;
+
+    LocaleWriteTask(
+        final Locale pLocale,
+        final LocaleBundleTable pBundles,
+        final String pBundleName) {
+      mLocale = pLocale;
+      mBundles = pBundles;
+      mBundleName = pBundleName;
+    }
+
+    public String call() throws IOException {
+      return writeLocaleProperties(mLocale, mBundles, mBundleName);
     }
   }
 }
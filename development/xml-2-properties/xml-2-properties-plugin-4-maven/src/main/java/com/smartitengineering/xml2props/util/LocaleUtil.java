@@ -0,0 +1,85 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.util;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Helpers shared by the InputParser implementations to build the
+ * Locale-Properties Map.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+public final class LocaleUtil {
+
+  private LocaleUtil() {
+    super();
+  }
+
+  /**
+   * @param pLangValue    The language, may be null
+   * @param pCountryValue The country, may be null
+   *
+   * @return the Locale for the language and country, or null if both of them
+   *         are null
+   */
+  public static Locale getLocale(
+      final String pLangValue,
+      final String pCountryValue) {
+    final Locale eLangLocale;
+    if (pLangValue == null) {
+      if (pCountryValue == null) {
+        eLangLocale = null;
+      }
+      else {
+        eLangLocale = new Locale("", pCountryValue.trim());
+      }
+    }
+    else {
+      if (pCountryValue == null) {
+        eLangLocale = new Locale(pLangValue.trim());
+      }
+      else {
+        eLangLocale = new Locale(pLangValue.trim(), pCountryValue.trim());
+      }
+    }
+    return eLangLocale;
+  }
+
+  /**
+   * @param pLocaleProperties The Locale-Properties Map
+   * @param pLocale           The Locale whose Properties to return
+   *
+   * @return the Properties of the Locale in the Map, a new Properties is
+   *         added to the Map if none exists yet
+   */
+  public static Properties getNonNullPropertiesForLocaleFromMap(
+      final Map<Locale, Properties> pLocaleProperties,
+      final Locale pLocale) {
+    Properties eProperties = pLocaleProperties.get(pLocale);
+    if (eProperties == null) {
+      eProperties = new Properties();
+      pLocaleProperties.put(pLocale, eProperties);
+    }
+    return eProperties;
+  }
+
+}
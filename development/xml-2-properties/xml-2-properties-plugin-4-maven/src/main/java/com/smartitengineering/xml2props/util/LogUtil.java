@@ -19,55 +19,175 @@
 package com.smartitengineering.xml2props.util;
 
 import com.smartitengineering.xml2props.maven.MojoReferenceHolder;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
 
 /**
+ * Logs through the Log of the mojo of a MojoReferenceHolder. Without a mojo
+ * the messages go to a SystemStreamLog, like they do for a mojo without a
+ * Log, which has the debug level disabled.
+ * <p/>
+ * The messages of a disabled level are never built: a message made of a
+ * prefix and an argument is only concatenated, and a LogMessageSupplier only
+ * asked for its message, when the level is enabled. Messages needing more
+ * work are guarded with the is...Enabled checks.
+ *
  * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
  * @created Apr 5, 2008 10:15:33 AM
  */
 
 public final class LogUtil {
+
+  private static final Log FALLBACK_LOG = new SystemStreamLog();
+
   private LogUtil() {
     super();
   }
 
-  public static void debug(final MojoReferenceHolder pReferenceHolder,
-                           final String pDebugMessage) {
+  /**
+   * Builds a log message only when it is logged.
+   */
+  public static interface LogMessageSupplier {
+
+    /** @return the message to log */
+    String getMessage();
+  }
+
+  /**
+   * @param pReferenceHolder The holder of the mojo to log through, may be null
+   *
+   * @return the Log of the mojo or the fallback Log without one
+   */
+  public static Log getLog(final MojoReferenceHolder pReferenceHolder) {
     if (pReferenceHolder == null || pReferenceHolder.getMojo() == null
         || pReferenceHolder.getMojo().getLog() == null) {
-      System.out.println(" [debug]: " + pDebugMessage);
-      return;
+      return FALLBACK_LOG;
+    }
+    return pReferenceHolder.getMojo().getLog();
+  }
+
+  public static boolean isDebugEnabled(
+      final MojoReferenceHolder pReferenceHolder) {
+    return getLog(pReferenceHolder).isDebugEnabled();
+  }
+
+  public static boolean isInfoEnabled(
+      final MojoReferenceHolder pReferenceHolder) {
+    return getLog(pReferenceHolder).isInfoEnabled();
+  }
+
+  public static boolean isWarnEnabled(
+      final MojoReferenceHolder pReferenceHolder) {
+    return getLog(pReferenceHolder).isWarnEnabled();
+  }
+
+  public static boolean isErrorEnabled(
+      final MojoReferenceHolder pReferenceHolder) {
+    return getLog(pReferenceHolder).isErrorEnabled();
+  }
+
+  public static void debug(final MojoReferenceHolder pReferenceHolder,
+                           final String pDebugMessage) {
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isDebugEnabled()) {
+      eLog.debug(pDebugMessage);
+    }
+  }
+
+  /**
+   * Logs the prefix followed by the argument, concatenated only if the debug
+   * level is enabled.
+   */
+  public static void debug(final MojoReferenceHolder pReferenceHolder,
+                           final String pDebugMessage,
+                           final Object pArgument) {
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isDebugEnabled()) {
+      eLog.debug(pDebugMessage + pArgument);
+    }
+  }
+
+  public static void debug(final MojoReferenceHolder pReferenceHolder,
+                           final LogMessageSupplier pDebugMessage) {
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isDebugEnabled()) {
+      eLog.debug(pDebugMessage.getMessage());
     }
-    pReferenceHolder.getMojo().getLog().debug(pDebugMessage);
   }
 
   public static void info(final MojoReferenceHolder pReferenceHolder,
                           final String pInfoMessage) {
-    if (pReferenceHolder == null || pReferenceHolder.getMojo() == null
-        || pReferenceHolder.getMojo().getLog() == null) {
-      System.out.println("  [info]: " + pInfoMessage);
-      return;
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isInfoEnabled()) {
+      eLog.info(pInfoMessage);
+    }
+  }
+
+  public static void info(final MojoReferenceHolder pReferenceHolder,
+                          final String pInfoMessage,
+                          final Object pArgument) {
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isInfoEnabled()) {
+      eLog.info(pInfoMessage + pArgument);
+    }
+  }
+
+  public static void info(final MojoReferenceHolder pReferenceHolder,
+                          final LogMessageSupplier pInfoMessage) {
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isInfoEnabled()) {
+      eLog.info(pInfoMessage.getMessage());
     }
-    pReferenceHolder.getMojo().getLog().info(pInfoMessage);
   }
 
   public static void warn(final MojoReferenceHolder pReferenceHolder,
                           final String pWarnMessage) {
-    if (pReferenceHolder == null || pReferenceHolder.getMojo() == null
-        || pReferenceHolder.getMojo().getLog() == null) {
-      System.out.println("  [warn]: " + pWarnMessage);
-      return;
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isWarnEnabled()) {
+      eLog.warn(pWarnMessage);
+    }
+  }
+
+  public static void warn(final MojoReferenceHolder pReferenceHolder,
+                          final String pWarnMessage,
+                          final Object pArgument) {
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isWarnEnabled()) {
+      eLog.warn(pWarnMessage + pArgument);
+    }
+  }
+
+  public static void warn(final MojoReferenceHolder pReferenceHolder,
+                          final LogMessageSupplier pWarnMessage) {
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isWarnEnabled()) {
+      eLog.warn(pWarnMessage.getMessage());
     }
-    pReferenceHolder.getMojo().getLog().warn(pWarnMessage);
   }
 
   public static void error(final MojoReferenceHolder pReferenceHolder,
                            final String pErrorMessage) {
-    if (pReferenceHolder == null || pReferenceHolder.getMojo() == null
-        || pReferenceHolder.getMojo().getLog() == null) {
-      System.out.println(" [error]: " + pErrorMessage);
-      return;
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isErrorEnabled()) {
+      eLog.error(pErrorMessage);
+    }
+  }
+
+  public static void error(final MojoReferenceHolder pReferenceHolder,
+                           final String pErrorMessage,
+                           final Object pArgument) {
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isErrorEnabled()) {
+      eLog.error(pErrorMessage + pArgument);
+    }
+  }
+
+  public static void error(final MojoReferenceHolder pReferenceHolder,
+                           final LogMessageSupplier pErrorMessage) {
+    final Log eLog = getLog(pReferenceHolder);
+    if (eLog.isErrorEnabled()) {
+      eLog.error(pErrorMessage.getMessage());
     }
-    pReferenceHolder.getMojo().getLog().error(pErrorMessage);
   }
 
 }
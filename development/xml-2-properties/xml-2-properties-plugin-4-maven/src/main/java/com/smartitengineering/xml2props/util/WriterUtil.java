@@ -20,6 +20,15 @@ package com.smartitengineering.xml2props.util;
 
 import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Locale;
 
 /**
@@ -39,6 +48,33 @@ public final class WriterUtil {
       final Locale pLocale,
       final String pFileName,
       final PropertiesMode pMode) {
+    // the package of a class is its directory
+    final String eFileName = PropertiesMode.JAVA.equals(pMode)
+        ? pFileName.replace('.', '/') : pFileName;
+    return getLocalizedBundleName(pLocale, eFileName) + "."
+        + pMode.toString().toLowerCase();
+  }
+
+  /**
+   * @return the name of the class of the key table of the indexed bundles
+   */
+  public static String getKeysClassName(final String pBundleName) {
+    return pBundleName + "Keys";
+  }
+
+  /**
+   * @return the name of the bundle of the precompiled formats of the values
+   */
+  public static String getFormatsBundleName(final String pBundleName) {
+    return pBundleName + "Formats";
+  }
+
+  /**
+   * @return the bundle name with the suffix of the Locale
+   */
+  public static String getLocalizedBundleName(
+      final Locale pLocale,
+      final String pBundleName) {
     final String eLocaleString;
     if (pLocale != null) {
       String eLocaleAsString = pLocale.toString();
@@ -51,7 +87,166 @@ public final class WriterUtil {
       eLocaleString = "";
     }
 
-    return pFileName + eLocaleString + "." + pMode.toString().toLowerCase();
+    return pBundleName + eLocaleString;
+  }
+
+  /**
+   * Renames the file over the target in a single step where the file system
+   * supports it, so that a reader never sees a partly written file.
+   */
+  public static void moveAtomically(final File pFile, final File pTarget)
+      throws IOException {
+    try {
+      Files.move(pFile.toPath(), pTarget.toPath(),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (AtomicMoveNotSupportedException ex) {
+      Files.move(pFile.toPath(), pTarget.toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * @return whether both files exist with exactly the same content
+   */
+  public static boolean isContentEqual(
+      final File pFile,
+      final File pOtherFile)
+      throws IOException {
+    if (!pFile.isFile() || !pOtherFile.isFile()
+        || pFile.length() != pOtherFile.length()) {
+      return false;
+    }
+    final InputStream eInputStream = new BufferedInputStream(
+        new FileInputStream(pFile));
+    try {
+      final InputStream eOtherInputStream = new BufferedInputStream(
+          new FileInputStream(pOtherFile));
+      try {
+        int eByte;
+        do {
+          eByte = eInputStream.read();
+          if (eByte != eOtherInputStream.read()) {
+            return false;
+          }
+        }
+        while (eByte >= 0);
+        return true;
+      }
+      finally {
+        eOtherInputStream.close();
+      }
+    }
+    finally {
+      eInputStream.close();
+    }
+  }
+
+  /**
+   * Decodes the UTF-8 sequence of a lead byte. The lead byte of a malformed
+   * sequence is taken as ISO 8859-1, like in a file not written in UTF-8: a
+   * truncated sequence, an overlong encoding, an encoded surrogate or a code
+   * point above U+10FFFF.
+   *
+   * @param pBytes    The bytes
+   * @param pPosition The index of the lead byte, at least 0x80
+   * @param pEnd      The end of the decoded text
+   * @param pBuilder  The builder to append the character to
+   *
+   * @return the index after the sequence
+   */
+  public static int appendUtf8(
+      final byte[] pBytes,
+      final int pPosition,
+      final int pEnd,
+      final StringBuilder pBuilder) {
+    return appendUtf8(pBytes[pPosition] & 0xFF,
+        pPosition + 1 < pEnd ? pBytes[pPosition + 1] & 0xFF : -1,
+        pPosition + 2 < pEnd ? pBytes[pPosition + 2] & 0xFF : -1,
+        pPosition + 3 < pEnd ? pBytes[pPosition + 3] & 0xFF : -1,
+        pPosition, pBuilder);
+  }
+
+  /**
+   * Decodes the UTF-8 sequence of a lead byte, see
+   * {@link #appendUtf8(byte[], int, int, StringBuilder)}.
+   *
+   * @param pBytes    The bytes, read at absolute indexes
+   * @param pPosition The index of the lead byte, at least 0x80
+   * @param pEnd      The end of the decoded text
+   * @param pBuilder  The builder to append the character to
+   *
+   * @return the index after the sequence
+   */
+  public static int appendUtf8(
+      final ByteBuffer pBytes,
+      final int pPosition,
+      final int pEnd,
+      final StringBuilder pBuilder) {
+    return appendUtf8(pBytes.get(pPosition) & 0xFF,
+        pPosition + 1 < pEnd ? pBytes.get(pPosition + 1) & 0xFF : -1,
+        pPosition + 2 < pEnd ? pBytes.get(pPosition + 2) & 0xFF : -1,
+        pPosition + 3 < pEnd ? pBytes.get(pPosition + 3) & 0xFF : -1,
+        pPosition, pBuilder);
+  }
+
+  /**
+   * @param pSecond The byte after the lead byte, -1 past the end, likewise
+   *                pThird and pFourth
+   */
+  private static int appendUtf8(
+      final int pLeadByte,
+      final int pSecond,
+      final int pThird,
+      final int pFourth,
+      final int pPosition,
+      final StringBuilder pBuilder) {
+    final int eLength = pLeadByte >= 0xF8 ? 1 : pLeadByte >= 0xF0 ? 4
+        : pLeadByte >= 0xE0 ? 3 : pLeadByte >= 0xC0 ? 2 : 1;
+    boolean eValid = eLength > 1 && isContinuation(pSecond)
+        && (eLength < 3 || isContinuation(pThird))
+        && (eLength < 4 || isContinuation(pFourth));
+    int eCodePoint = 0;
+    if (eValid) {
+      eCodePoint = ((pLeadByte & (0xFF >> (eLength + 1))) << 6)
+          | (pSecond & 0x3F);
+      if (eLength > 2) {
+        eCodePoint = (eCodePoint << 6) | (pThird & 0x3F);
+      }
+      if (eLength > 3) {
+        eCodePoint = (eCodePoint << 6) | (pFourth & 0x3F);
+      }
+      eValid = isValidUtf8CodePoint(eCodePoint, eLength);
+    }
+    if (!eValid) {
+      pBuilder.append((char) pLeadByte);
+      return pPosition + 1;
+    }
+    pBuilder.appendCodePoint(eCodePoint);
+    return pPosition + eLength;
+  }
+
+  /**
+   * @param pCodePoint The code point decoded from a UTF-8 sequence
+   * @param pLength    The number of bytes of the sequence, 2 to 4
+   *
+   * @return whether the sequence is the shortest encoding of the code point
+   *         and the code point is at most U+10FFFF and not a surrogate
+   */
+  public static boolean isValidUtf8CodePoint(
+      final int pCodePoint,
+      final int pLength) {
+    final int eMinCodePoint = pLength == 2 ? 0x80
+        : pLength == 3 ? 0x800 : 0x10000;
+    return pCodePoint >= eMinCodePoint
+        && pCodePoint <= Character.MAX_CODE_POINT
+        && (pCodePoint < Character.MIN_SURROGATE
+        || pCodePoint > Character.MAX_SURROGATE);
+  }
+
+  private static boolean isContinuation(final int pByte) {
+    return (pByte & 0xC0) == 0x80;
   }
 
 }
@@ -0,0 +1,213 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+import com.smartitengineering.xml2props.runtime.BinaryBundleFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Writes properties as a binary bundle, see {@link BinaryBundleFormat}. The
+ * keys are indexed by a minimal perfect hash built with the hash and
+ * displace method: the keys are hashed into buckets of about four keys and
+ * for the largest bucket first a seed is searched that hashes its keys into
+ * free slots. Equal strings are stored once in the string pool.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class BinaryBundleSerializer {
+
+  private static final int KEYS_PER_BUCKET = 4;
+
+  /** The seeds tried for a bucket before giving up */
+  private static final int MAX_SEED = 1 << 24;
+
+  /**
+   * @param pProperties The properties to write
+   *
+   * @return the binary bundle
+   *
+   * @throws IOException if no perfect hash was found for the keys
+   */
+  public byte[] serialize(final Properties pProperties)
+      throws IOException {
+    final String[] eKeys = new String[pProperties.size()];
+    int eKeyCount = 0;
+    for (Iterator<Object> i = pProperties.keySet().iterator(); i.hasNext();) {
+      eKeys[eKeyCount++] = (String) i.next();
+    }
+    Arrays.sort(eKeys, 0, eKeyCount);
+
+    final int eBucketCount = Math.max(1,
+        (eKeyCount + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET);
+    final int[] eSeeds = new int[eBucketCount];
+    final int[] eSlotKeys = findPerfectHash(eKeys, eKeyCount, eSeeds);
+
+    // the string pool, in slot order so that the output is stable
+    final ByteArrayOutputStream ePool = new ByteArrayOutputStream();
+    final Map<String, int[]> ePoolEntries = new HashMap<String, int[]>();
+    final int[] eSlots = new int[4 * eKeyCount];
+    for (int i = 0; i < eKeyCount; i++) {
+      final String eKey = eKeys[eSlotKeys[i]];
+      final int[] eKeyEntry = addToPool(ePool, ePoolEntries, eKey);
+      final int[] eValueEntry = addToPool(ePool, ePoolEntries,
+          (String) pProperties.get(eKey));
+      eSlots[4 * i] = eKeyEntry[0];
+      eSlots[4 * i + 1] = eKeyEntry[1];
+      eSlots[4 * i + 2] = eValueEntry[0];
+      eSlots[4 * i + 3] = eValueEntry[1];
+    }
+
+    final ByteArrayOutputStream eContent = new ByteArrayOutputStream(
+        BinaryBundleFormat.HEADER_LENGTH + 4 * eBucketCount
+            + BinaryBundleFormat.SLOT_LENGTH * eKeyCount + ePool.size());
+    final DataOutputStream eOutput = new DataOutputStream(eContent);
+    eOutput.writeInt(BinaryBundleFormat.MAGIC);
+    eOutput.writeInt(BinaryBundleFormat.VERSION);
+    eOutput.writeInt(eKeyCount);
+    eOutput.writeInt(eBucketCount);
+    for (int i = 0; i < eBucketCount; i++) {
+      eOutput.writeInt(eSeeds[i]);
+    }
+    for (int i = 0; i < eSlots.length; i++) {
+      eOutput.writeInt(eSlots[i]);
+    }
+    ePool.writeTo(eOutput);
+    eOutput.flush();
+    return eContent.toByteArray();
+  }
+
+  /**
+   * @param pSeeds receives the seed of every bucket
+   *
+   * @return the index of the key of every slot
+   */
+  private static int[] findPerfectHash(
+      final String[] pKeys,
+      final int pKeyCount,
+      final int[] pSeeds)
+      throws IOException {
+    final int eBucketCount = pSeeds.length;
+    final List<List<Integer>> eBuckets =
+        new ArrayList<List<Integer>>(eBucketCount);
+    for (int i = 0; i < eBucketCount; i++) {
+      eBuckets.add(new ArrayList<Integer>(KEYS_PER_BUCKET));
+    }
+    for (int i = 0; i < pKeyCount; i++) {
+      eBuckets.get(BinaryBundleFormat.index(BinaryBundleFormat.hash(
+          pKeys[i], 0), eBucketCount)).add(Integer.valueOf(i));
+    }
+    final Integer[] eBucketOrder = new Integer[eBucketCount];
+    for (int i = 0; i < eBucketCount; i++) {
+      eBucketOrder[i] = Integer.valueOf(i);
+    }
+    // largest first, in bucket order otherwise to keep the output stable
+    Arrays.sort(eBucketOrder, new Comparator<Integer>() {
+      public int compare(final Integer pFirst, final Integer pSecond) {
+        final int eSizeDifference = eBuckets.get(pSecond.intValue()).size()
+            - eBuckets.get(pFirst.intValue()).size();
+        return eSizeDifference != 0
+            ? eSizeDifference : pFirst.compareTo(pSecond);
+      }
+    });
+
+    final int[] eSlotKeys = new int[pKeyCount];
+    Arrays.fill(eSlotKeys, -1);
+    final int[] eCandidateSlots = new int[eBucketCount == 0 ? 0
+        : eBuckets.get(eBucketOrder[0].intValue()).size()];
+    for (int i = 0; i < eBucketCount; i++) {
+      final int eBucket = eBucketOrder[i].intValue();
+      final List<Integer> eBucketKeys = eBuckets.get(eBucket);
+      if (eBucketKeys.isEmpty()) {
+        break;
+      }
+      int eSeed = 1;
+      while (!placeBucket(pKeys, eBucketKeys, eSeed, eSlotKeys,
+          eCandidateSlots)) {
+        if (++eSeed > MAX_SEED) {
+          throw new IOException("No perfect hash found for the keys of "
+              + "bucket " + eBucket + ": " + eBucketKeys);
+        }
+      }
+      pSeeds[eBucket] = eSeed;
+    }
+    return eSlotKeys;
+  }
+
+  /**
+   * @return whether all the keys of the bucket hash into free and distinct
+   *         slots with the seed, in which case they are placed in them
+   */
+  private static boolean placeBucket(
+      final String[] pKeys,
+      final List<Integer> pBucketKeys,
+      final int pSeed,
+      final int[] pSlotKeys,
+      final int[] pCandidateSlots) {
+    final int eSize = pBucketKeys.size();
+    for (int i = 0; i < eSize; i++) {
+      final int eSlot = BinaryBundleFormat.index(BinaryBundleFormat.hash(
+          pKeys[pBucketKeys.get(i).intValue()], pSeed), pSlotKeys.length);
+      if (pSlotKeys[eSlot] >= 0) {
+        return false;
+      }
+      for (int j = 0; j < i; j++) {
+        if (pCandidateSlots[j] == eSlot) {
+          return false;
+        }
+      }
+      pCandidateSlots[i] = eSlot;
+    }
+    for (int i = 0; i < eSize; i++) {
+      pSlotKeys[pCandidateSlots[i]] = pBucketKeys.get(i).intValue();
+    }
+    return true;
+  }
+
+  /**
+   * @return the offset and length of the string in the pool
+   */
+  private static int[] addToPool(
+      final ByteArrayOutputStream pPool,
+      final Map<String, int[]> pPoolEntries,
+      final String pString)
+      throws UnsupportedEncodingException {
+    int[] eEntry = pPoolEntries.get(pString);
+    if (eEntry == null) {
+      final byte[] eBytes = pString.getBytes("UTF-8");
+      eEntry = new int[]{pPool.size(), eBytes.length};
+      pPool.write(eBytes, 0, eBytes.length);
+      pPoolEntries.put(pString, eEntry);
+    }
+    return eEntry;
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the Java source of the key table of indexed bundles: a class
+ * with an int field per key, holding the index of the key in the sorted
+ * keys of all the Locales, and the sorted keys themselves for the bundles
+ * generated by {@link ListResourceBundleGenerator#generateIndexed}. The
+ * fields are assigned in a static block so that they are not compile time
+ * constants: the indexes shift when keys are added or removed, and code
+ * compiled against an earlier key table still reads the current ones.
+ * <p>
+ * The static block of a class is limited to 64 KB of bytecode, so the
+ * fields of a large key table are declared in chunks: every chunk but the
+ * last in a package private class of the same source file, which the class
+ * of the key table extends through the chain of the chunks. The fields are
+ * still read through the class of the key table; only reflection needs
+ * {@link java.lang.reflect.Field#setAccessible} for the fields of the other
+ * chunks.
+ * <p>
+ * The fields are named after the keys in upper case, with '_' for the
+ * other characters and between camel case words. The keys sharing a name,
+ * e.g. 'page.title' and 'pageTitle' both give PAGE_TITLE, or taking a
+ * reserved name are all suffixed with the hexadecimal hash code of the key,
+ * so the name of a key does not depend on the other keys: adding a
+ * colliding key removes the unsuffixed name instead of giving it to
+ * another key.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class BundleKeysGenerator {
+
+  /** The names of the members of the generated class */
+  private static final String[] RESERVED_NAMES = {"KEYS", "PACKED"};
+
+  /**
+   * The number of fields assigned in the static block of a class, about 6
+   * bytes of bytecode each
+   */
+  static final int CHUNK_SIZE = 4096;
+
+  /**
+   * @param pClassName The qualified name of the class
+   * @param pKeys      The keys of all the Locales
+   * @param pComment   The comment of the class, may be null
+   *
+   * @return the source of the class in UTF-8
+   */
+  public byte[] generate(
+      final String pClassName,
+      final List<String> pKeys,
+      final String pComment) {
+    final String[] eKeys = pKeys.toArray(new String[pKeys.size()]);
+    Arrays.sort(eKeys);
+
+    final StringBuilder ePacked = new StringBuilder();
+    for (int i = 0; i < eKeys.length; i++) {
+      ListResourceBundleGenerator.appendPacked(ePacked, eKeys[i]);
+    }
+
+    final StringBuilder eSource = new StringBuilder(ePacked.length() * 2
+        + eKeys.length * 48 + 2048);
+    final String eSimpleName = ListResourceBundleGenerator.appendClassStart(
+        eSource, pClassName, pComment);
+    final String[] eNames = toConstantNames(eKeys);
+    final int eLastChunk = eNames.length == 0
+        ? 0 : (eNames.length - 1) / CHUNK_SIZE;
+    if (eLastChunk > 0) {
+      eSource.append("extends ")
+          .append(getChunkClassName(eSimpleName, eLastChunk - 1)).append(' ');
+    }
+    eSource.append("{\n\n");
+    appendFields(eSource, eNames, eLastChunk * CHUNK_SIZE, eNames.length);
+    ListResourceBundleGenerator.appendPackedConstant(eSource, ePacked);
+    eSource.append("  static final String[] KEYS = unpack(")
+        .append(eKeys.length).append(");\n\n");
+    eSource.append("  private ").append(eSimpleName).append("() {\n");
+    eSource.append("  }\n\n");
+    ListResourceBundleGenerator.appendUnpackStrings(eSource);
+    eSource.append("}\n");
+    for (int i = 0; i < eLastChunk; i++) {
+      final String eChunkName = getChunkClassName(eSimpleName, i);
+      eSource.append("\nclass ").append(eChunkName).append(' ');
+      if (i > 0) {
+        eSource.append("extends ")
+            .append(getChunkClassName(eSimpleName, i - 1)).append(' ');
+      }
+      eSource.append("{\n\n");
+      appendFields(eSource, eNames, i * CHUNK_SIZE, (i + 1) * CHUNK_SIZE);
+      eSource.append("  ").append(eChunkName).append("() {\n");
+      eSource.append("  }\n\n");
+      eSource.append("}\n");
+    }
+    return ListResourceBundleGenerator.toBytes(eSource);
+  }
+
+  private static String getChunkClassName(
+      final String pSimpleName,
+      final int pChunk) {
+    return pSimpleName + "Chunk" + pChunk;
+  }
+
+  /**
+   * Appends the fields of the keys from pStart to pEnd, with the static
+   * block assigning their indexes.
+   */
+  private static void appendFields(
+      final StringBuilder pSource,
+      final String[] pNames,
+      final int pStart,
+      final int pEnd) {
+    for (int i = pStart; i < pEnd; i++) {
+      pSource.append("  public static final int ").append(pNames[i])
+          .append(";\n");
+    }
+    pSource.append('\n');
+    pSource.append("  static {\n");
+    for (int i = pStart; i < pEnd; i++) {
+      pSource.append("    ").append(pNames[i]).append(" = ").append(i)
+          .append(";\n");
+    }
+    pSource.append("  }\n");
+    pSource.append('\n');
+  }
+
+  /**
+   * @param pKeys The sorted keys
+   *
+   * @return the names of the constants of the keys, in the same order
+   */
+  static String[] toConstantNames(final String[] pKeys) {
+    final String[] eNames = new String[pKeys.length];
+    final Map<String, Integer> eCounts = new HashMap<String, Integer>();
+    for (int i = 0; i < RESERVED_NAMES.length; i++) {
+      eCounts.put(RESERVED_NAMES[i], Integer.valueOf(1));
+    }
+    for (int i = 0; i < pKeys.length; i++) {
+      eNames[i] = toConstantName(pKeys[i]);
+      final Integer eCount = eCounts.get(eNames[i]);
+      eCounts.put(eNames[i],
+          Integer.valueOf(eCount == null ? 1 : eCount.intValue() + 1));
+    }
+    final Set<String> eTaken = new HashSet<String>(eCounts.keySet());
+    for (int i = 0; i < pKeys.length; i++) {
+      if (eCounts.get(eNames[i]).intValue() > 1) {
+        final String eSuffixedName = eNames[i] + "_"
+            + Integer.toHexString(pKeys[i].hashCode()).toUpperCase();
+        String eName = eSuffixedName;
+        for (int j = 2; eTaken.contains(eName); j++) {
+          eName = eSuffixedName + "_" + j;
+        }
+        eTaken.add(eName);
+        eNames[i] = eName;
+      }
+    }
+    return eNames;
+  }
+
+  /**
+   * @param pKey The key
+   *
+   * @return the name of the constant of the key
+   */
+  static String toConstantName(final String pKey) {
+    final StringBuilder eName = new StringBuilder(pKey.length() + 4);
+    boolean eWordStarted = false;
+    for (int i = 0; i < pKey.length(); i++) {
+      final char c = pKey.charAt(i);
+      if (c < 0x80 && Character.isLetterOrDigit(c)) {
+        if (eWordStarted && Character.isUpperCase(c)) {
+          eName.append('_');
+        }
+        eName.append(Character.toUpperCase(c));
+        eWordStarted = !Character.isUpperCase(c);
+      }
+      else {
+        if (eName.length() > 0 && eName.charAt(eName.length() - 1) != '_') {
+          eName.append('_');
+        }
+        eWordStarted = false;
+      }
+    }
+    if (eName.length() > 0 && eName.charAt(eName.length() - 1) == '_') {
+      eName.setLength(eName.length() - 1);
+    }
+    if (eName.length() == 0 || Character.isDigit(eName.charAt(0))) {
+      eName.insert(0, "KEY_");
+    }
+    return eName.toString();
+  }
+
+}
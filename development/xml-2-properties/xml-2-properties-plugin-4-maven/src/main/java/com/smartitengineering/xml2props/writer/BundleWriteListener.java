@@ -0,0 +1,63 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+import java.util.Locale;
+
+/**
+ * Told about the files merged and written by the writers, e.g. to measure a
+ * build. The Locales are written in parallel, an implementation must be
+ * thread-safe.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public interface BundleWriteListener {
+
+  /**
+   * @param pLocale    The Locale whose existing file was merged with
+   * @param pBytesRead The size of the existing file
+   * @param pNanos     The nanoseconds spent merging
+   */
+  public void recordMerge(
+      Locale pLocale,
+      long pBytesRead,
+      long pNanos);
+
+  /**
+   * @param pLocale        The Locale of the file
+   * @param pBytesWritten  The size of the content of the file
+   * @param pWritten       false if the file was unchanged and skipped
+   */
+  public void recordWrite(
+      Locale pLocale,
+      long pBytesWritten,
+      boolean pWritten);
+
+  /**
+   * Records a file of no Locale, the key table of the indexed bundles.
+   *
+   * @param pBytesWritten  The size of the content of the file
+   * @param pWritten       false if the file was unchanged and skipped
+   */
+  public void recordWrite(
+      long pBytesWritten,
+      boolean pWritten);
+
+}
@@ -0,0 +1,278 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Properties;
+
+/**
+ * Generates the Java source of a {@link java.util.ListResourceBundle}
+ * subclass holding the properties of a Locale, so that loading the bundle at
+ * runtime needs neither I/O nor parsing.
+ * <p/>
+ * A class file can hold at most 65535 constants and a method at most 64KB of
+ * byte code, which a class with a literal per key and value exceeds for
+ * large bundles. The sorted keys and values are therefore packed into string
+ * literals of bounded length, each key and value prefixed by its length as
+ * two chars, and unpacked once when the class is initialized. The source only
+ * holds ASCII characters and is independent of the source encoding.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class ListResourceBundleGenerator {
+
+  /**
+   * The chars of a literal, far enough below the 65535 bytes of a class file
+   * constant even if every char takes 3 bytes in modified UTF-8
+   */
+  private static final int LITERAL_LENGTH = 16000;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * @param pClassName  The qualified name of the class
+   * @param pProperties The properties of the bundle
+   * @param pComment    The comment of the class, may be null
+   *
+   * @return the source of the class in UTF-8
+   */
+  public byte[] generate(
+      final String pClassName,
+      final Properties pProperties,
+      final String pComment) {
+    return generate(pClassName, null, pProperties, pComment);
+  }
+
+  /**
+   * Generates a subclass of
+   * com.smartitengineering.xml2props.runtime.IndexedResourceBundle instead,
+   * indexed by the key table of a class generated by
+   * {@link BundleKeysGenerator}.
+   *
+   * @param pClassName     The qualified name of the class
+   * @param pKeysClassName The qualified name of the class of the key table,
+   *                       in the same package
+   * @param pProperties    The properties of the bundle
+   * @param pComment       The comment of the class, may be null
+   *
+   * @return the source of the class in UTF-8
+   */
+  public byte[] generateIndexed(
+      final String pClassName,
+      final String pKeysClassName,
+      final Properties pProperties,
+      final String pComment) {
+    if (pKeysClassName == null) {
+      throw new IllegalArgumentException(
+          "Keys class name was null, expected non-null value");
+    }
+    return generate(pClassName, pKeysClassName, pProperties, pComment);
+  }
+
+  private byte[] generate(
+      final String pClassName,
+      final String pKeysClassName,
+      final Properties pProperties,
+      final String pComment) {
+    final String[] eKeys = new String[pProperties.size()];
+    int eKeyCount = 0;
+    for (Iterator<Object> i = pProperties.keySet().iterator(); i.hasNext();) {
+      eKeys[eKeyCount++] = (String) i.next();
+    }
+    Arrays.sort(eKeys, 0, eKeyCount);
+
+    final StringBuilder ePacked = new StringBuilder();
+    for (int i = 0; i < eKeyCount; i++) {
+      appendPacked(ePacked, eKeys[i]);
+      appendPacked(ePacked, (String) pProperties.get(eKeys[i]));
+    }
+
+    final StringBuilder eSource = new StringBuilder(ePacked.length() * 2
+        + 2048);
+    final String eSimpleName = appendClassStart(eSource, pClassName,
+        pComment);
+    if (pKeysClassName == null) {
+      eSource.append("extends java.util.ListResourceBundle {\n\n");
+    }
+    else {
+      eSource.append("extends com.smartitengineering.xml2props.runtime")
+          .append(".IndexedResourceBundle {\n\n");
+    }
+    appendPackedConstant(eSource, ePacked);
+    if (pKeysClassName == null) {
+      eSource.append("  private static final Object[][] CONTENTS = unpack(")
+          .append(eKeyCount).append(");\n\n");
+      eSource.append("  private static Object[][] unpack(")
+          .append("final int pCount) {\n");
+      appendJoinPacked(eSource);
+      eSource.append("    final Object[][] eContents = ")
+          .append("new Object[pCount][];\n");
+      eSource.append("    int ePosition = 0;\n");
+      eSource.append("    for (int i = 0; i < pCount; i++) {\n");
+      eSource.append("      eContents[i] = new Object[2];\n");
+      eSource.append("      for (int j = 0; j < 2; j++) {\n");
+      eSource.append("        final int eLength = (ePacked.charAt(ePosition)")
+          .append(" << 16)\n");
+      eSource.append("            | ePacked.charAt(ePosition + 1);\n");
+      eSource.append("        ePosition += 2;\n");
+      eSource.append("        eContents[i][j] = ePacked.substring(ePosition,")
+          .append(" ePosition + eLength);\n");
+      eSource.append("        ePosition += eLength;\n");
+      eSource.append("      }\n");
+      eSource.append("    }\n");
+      eSource.append("    return eContents;\n");
+      eSource.append("  }\n\n");
+      eSource.append("  protected Object[][] getContents() {\n");
+      eSource.append("    return CONTENTS;\n");
+      eSource.append("  }\n\n");
+    }
+    else {
+      eSource.append("  private static final String[] ENTRIES = unpack(")
+          .append(2 * eKeyCount).append(");\n\n");
+      eSource.append("  public ").append(eSimpleName).append("() {\n");
+      eSource.append("    super(").append(pKeysClassName)
+          .append(".KEYS, ENTRIES);\n");
+      eSource.append("  }\n\n");
+      appendUnpackStrings(eSource);
+    }
+    eSource.append("}\n");
+    return toBytes(eSource);
+  }
+
+  /**
+   * Appends the comment, the package and the start of the class declaration
+   * up to its name.
+   *
+   * @return the simple name of the class
+   */
+  static String appendClassStart(
+      final StringBuilder pSource,
+      final String pClassName,
+      final String pComment) {
+    final int eLastDot = pClassName.lastIndexOf('.');
+    final String ePackageName = eLastDot < 0
+        ? null : pClassName.substring(0, eLastDot);
+    final String eSimpleName = pClassName.substring(eLastDot + 1);
+    if (pComment != null) {
+      pSource.append("// ").append(pComment).append('\n');
+    }
+    if (ePackageName != null) {
+      pSource.append("package ").append(ePackageName).append(";\n");
+    }
+    pSource.append('\n');
+    pSource.append("public class ").append(eSimpleName).append(' ');
+    return eSimpleName;
+  }
+
+  /**
+   * Appends the PACKED constant holding the packed strings in literals of
+   * bounded length.
+   */
+  static void appendPackedConstant(
+      final StringBuilder pSource,
+      final CharSequence pPacked) {
+    pSource.append("  private static final String[] PACKED = {");
+    for (int i = 0; i < pPacked.length(); i += LITERAL_LENGTH) {
+      pSource.append(i == 0 ? "\n      \"" : ",\n      \"");
+      appendEscaped(pSource, pPacked, i,
+          Math.min(i + LITERAL_LENGTH, pPacked.length()));
+      pSource.append('"');
+    }
+    pSource.append("};\n\n");
+  }
+
+  /**
+   * Appends the method unpacking the given number of strings of PACKED into
+   * an array.
+   */
+  static void appendUnpackStrings(final StringBuilder pSource) {
+    pSource.append("  private static String[] unpack(final int pCount) {\n");
+    appendJoinPacked(pSource);
+    pSource.append("    final String[] eStrings = new String[pCount];\n");
+    pSource.append("    int ePosition = 0;\n");
+    pSource.append("    for (int i = 0; i < pCount; i++) {\n");
+    pSource.append("      final int eLength = (ePacked.charAt(ePosition)")
+        .append(" << 16)\n");
+    pSource.append("          | ePacked.charAt(ePosition + 1);\n");
+    pSource.append("      ePosition += 2;\n");
+    pSource.append("      eStrings[i] = ePacked.substring(ePosition,")
+        .append(" ePosition + eLength);\n");
+    pSource.append("      ePosition += eLength;\n");
+    pSource.append("    }\n");
+    pSource.append("    return eStrings;\n");
+    pSource.append("  }\n\n");
+  }
+
+  private static void appendJoinPacked(final StringBuilder pSource) {
+    pSource.append("    final StringBuilder ePacked = new StringBuilder();\n");
+    pSource.append("    for (int i = 0; i < PACKED.length; i++) {\n");
+    pSource.append("      ePacked.append(PACKED[i]);\n");
+    pSource.append("    }\n");
+  }
+
+  static byte[] toBytes(final CharSequence pSource) {
+    try {
+      return pSource.toString().getBytes("UTF-8");
+    }
+    catch (UnsupportedEncodingException ex) {
+      throw new IllegalStateException("UTF-8 is always supported", ex);
+    }
+  }
+
+  static void appendPacked(
+      final StringBuilder pPacked,
+      final String pString) {
+    pPacked.append((char) (pString.length() >>> 16))
+        .append((char) (pString.length() & 0xFFFF)).append(pString);
+  }
+
+  private static void appendEscaped(
+      final StringBuilder pSource,
+      final CharSequence pString,
+      final int pFrom,
+      final int pTo) {
+    for (int i = pFrom; i < pTo; i++) {
+      final char c = pString.charAt(i);
+      if (c == '"' || c == '\\') {
+        pSource.append('\\').append(c);
+      }
+      else if (c >= 0x20 && c < 0x7F) {
+        pSource.append(c);
+      }
+      else if (c < 0x20) {
+        // javac translates unicode escapes before lexing, an escaped line
+        // end would end the literal
+        pSource.append('\\').append((char) ('0' + (c >> 6)))
+            .append((char) ('0' + ((c >> 3) & 7)))
+            .append((char) ('0' + (c & 7)));
+      }
+      else {
+        pSource.append('\\').append('u')
+            .append(HEX_DIGITS[(c >> 12) & 0xF])
+            .append(HEX_DIGITS[(c >> 8) & 0xF])
+            .append(HEX_DIGITS[(c >> 4) & 0xF])
+            .append(HEX_DIGITS[c & 0xF]);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,643 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+import com.smartitengineering.xml2props.util.WriterUtil;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.Properties;
+
+/**
+ * Merges new properties into the properties of an existing file without
+ * building the existing properties up front. The file is memory-mapped and
+ * scanned for the byte ranges of the keys and values; a key is only decoded
+ * to look it up in the new properties and the value of an existing key is
+ * only decoded when it is not replaced by a new value.
+ * <p/>
+ * The PROPERTIES mode supports the complete format of
+ * {@link Properties#load(java.io.InputStream)}. The XML mode reads the
+ * &lt;entry&gt; elements of UTF-8 files as written by
+ * {@link Properties#storeToXML(java.io.OutputStream, String)}; files using
+ * other encodings, CDATA sections or comments inside an entry are loaded
+ * through {@link Properties#loadFromXML(java.io.InputStream)} instead.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class MappedPropertiesMerger {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final byte[] ENTRY_START = toBytes("<entry");
+
+  private static final byte[] ENTRY_END = toBytes("</entry>");
+
+  /**
+   * A mapped file can not be overwritten on Windows until the mapping is
+   * garbage collected, the file is read into the heap there instead.
+   */
+  private static final boolean MAPPING_SUPPORTED = !System.getProperty(
+      "os.name", "").startsWith("Windows");
+
+  private final PropertiesMode mMode;
+
+  private final boolean mUtf8;
+
+  private final ByteBuffer mBuffer;
+
+  private final int mLimit;
+
+  private Properties mNewProperties;
+
+  private Properties mResultProperties;
+
+  private int mOverwrittenCount;
+
+  private byte[] mScratch;
+
+  /**
+   * @param pExistingFile The file holding the existing properties
+   * @param pMode         The mode the file was written in
+   *
+   * @throws IOException if the existing file could not be mapped
+   */
+  public MappedPropertiesMerger(
+      final File pExistingFile,
+      final PropertiesMode pMode)
+      throws IOException {
+    this(pExistingFile, pMode, false);
+  }
+
+  /**
+   * @param pExistingFile The file holding the existing properties
+   * @param pMode         The mode the file was written in
+   * @param pUtf8         whether a PROPERTIES file is written in UTF-8
+   *
+   * @throws IOException if the existing file could not be mapped
+   */
+  public MappedPropertiesMerger(
+      final File pExistingFile,
+      final PropertiesMode pMode,
+      final boolean pUtf8)
+      throws IOException {
+    if (pMode == null) {
+      throw new IllegalArgumentException(
+          "Properties Mode was null, expected non-null value");
+    }
+    mMode = pMode;
+    mUtf8 = pUtf8;
+    mBuffer = mapFile(pExistingFile);
+    mLimit = mBuffer.limit();
+    mScratch = new byte[256];
+  }
+
+  /**
+   * @param pNewProperties The properties replacing the existing ones
+   *
+   * @return the existing properties with the new properties merged in
+   *
+   * @throws IOException if the existing file is invalid
+   */
+  public Properties merge(final Properties pNewProperties)
+      throws IOException {
+    mNewProperties = pNewProperties;
+    mResultProperties = new Properties();
+    mOverwrittenCount = 0;
+    try {
+      if (PropertiesMode.PROPERTIES.equals(mMode)) {
+        scanProperties();
+      }
+      else if (PropertiesMode.XML.equals(mMode)) {
+        if (!isUtf8Xml() || !scanXml()) {
+          return mergeLoadedXml();
+        }
+      }
+    }
+    catch (IllegalArgumentException ex) {
+      throw new IOException("Invalid properties file: " + ex.getMessage(),
+          ex);
+    }
+    mResultProperties.putAll(pNewProperties);
+    return mResultProperties;
+  }
+
+  /**
+   * @return the number of existing properties replaced by new ones in the
+   *         last merge
+   */
+  public int getOverwrittenCount() {
+    return mOverwrittenCount;
+  }
+
+  private static ByteBuffer mapFile(final File pFile)
+      throws IOException {
+    final RandomAccessFile eFile = new RandomAccessFile(pFile, "r");
+    try {
+      final FileChannel eChannel = eFile.getChannel();
+      final long eSize = eChannel.size();
+      if (eSize > Integer.MAX_VALUE) {
+        throw new IOException("Properties file too large: " + pFile);
+      }
+      if (MAPPING_SUPPORTED) {
+        return eChannel.map(FileChannel.MapMode.READ_ONLY, 0, eSize);
+      }
+      final ByteBuffer eBuffer = ByteBuffer.allocate((int) eSize);
+      while (eBuffer.hasRemaining() && eChannel.read(eBuffer) >= 0) {
+        // keep reading until the buffer is full
+      }
+      eBuffer.flip();
+      return eBuffer;
+    }
+    finally {
+      eFile.close();
+    }
+  }
+
+  private static byte[] toBytes(final String pAscii) {
+    final byte[] eBytes = new byte[pAscii.length()];
+    for (int i = 0; i < eBytes.length; i++) {
+      eBytes[i] = (byte) pAscii.charAt(i);
+    }
+    return eBytes;
+  }
+
+  private int byteAt(final int pIndex) {
+    return mBuffer.get(pIndex) & 0xFF;
+  }
+
+  /**
+   * Adds an existing property unless a new value replaces it. The value is
+   * only decoded in the first case.
+   */
+  private void addExisting(
+      final String pKey,
+      final int pValueStart,
+      final int pValueEnd,
+      final boolean pXml) {
+    if (mNewProperties.containsKey(pKey)) {
+      mOverwrittenCount++;
+      return;
+    }
+    mResultProperties.put(pKey, pXml
+        ? decodeXml(pValueStart, pValueEnd, false)
+        : decodeProperties(pValueStart, pValueEnd));
+  }
+
+  // ---------------------------------------------------------------------
+  // PROPERTIES mode
+  // ---------------------------------------------------------------------
+
+  private static boolean isWhitespace(final int pByte) {
+    return pByte == ' ' || pByte == '\t' || pByte == '\f';
+  }
+
+  private static boolean isLineEnd(final int pByte) {
+    return pByte == '\n' || pByte == '\r';
+  }
+
+  /** @return the index after the line end at the index */
+  private int skipLineEnd(final int pIndex) {
+    if (byteAt(pIndex) == '\r' && pIndex + 1 < mLimit
+        && byteAt(pIndex + 1) == '\n') {
+      return pIndex + 2;
+    }
+    return pIndex + 1;
+  }
+
+  /** @return the index after the line end and the continuation whitespace */
+  private int skipContinuation(final int pIndex) {
+    int ePosition = skipLineEnd(pIndex);
+    while (ePosition < mLimit && isWhitespace(byteAt(ePosition))) {
+      ePosition++;
+    }
+    return ePosition;
+  }
+
+  private int skipWhitespace(final int pIndex) {
+    int ePosition = pIndex;
+    while (ePosition < mLimit) {
+      final int eByte = byteAt(ePosition);
+      if (isWhitespace(eByte)) {
+        ePosition++;
+      }
+      else if (eByte == '\\' && ePosition + 1 < mLimit
+          && isLineEnd(byteAt(ePosition + 1))) {
+        ePosition = skipContinuation(ePosition + 1);
+      }
+      else {
+        break;
+      }
+    }
+    return ePosition;
+  }
+
+  private void scanProperties() {
+    int ePosition = 0;
+    while (ePosition < mLimit) {
+      ePosition = skipWhitespace(ePosition);
+      if (ePosition >= mLimit) {
+        break;
+      }
+      int eByte = byteAt(ePosition);
+      if (isLineEnd(eByte)) {
+        ePosition = skipLineEnd(ePosition);
+        continue;
+      }
+      if (eByte == '#' || eByte == '!') {
+        while (ePosition < mLimit && !isLineEnd(byteAt(ePosition))) {
+          ePosition++;
+        }
+        continue;
+      }
+
+      final int eKeyStart = ePosition;
+      while (ePosition < mLimit) {
+        eByte = byteAt(ePosition);
+        if (eByte == '\\') {
+          if (ePosition + 1 < mLimit && isLineEnd(byteAt(ePosition + 1))) {
+            ePosition = skipContinuation(ePosition + 1);
+          }
+          else {
+            ePosition += 2;
+          }
+        }
+        else if (eByte == '=' || eByte == ':' || isWhitespace(eByte)
+            || isLineEnd(eByte)) {
+          break;
+        }
+        else {
+          ePosition++;
+        }
+      }
+      final int eKeyEnd = Math.min(ePosition, mLimit);
+
+      ePosition = skipWhitespace(ePosition);
+      if (ePosition < mLimit
+          && (byteAt(ePosition) == '=' || byteAt(ePosition) == ':')) {
+        ePosition = skipWhitespace(ePosition + 1);
+      }
+
+      final int eValueStart = ePosition;
+      while (ePosition < mLimit) {
+        eByte = byteAt(ePosition);
+        if (eByte == '\\') {
+          if (ePosition + 1 < mLimit && isLineEnd(byteAt(ePosition + 1))) {
+            ePosition = skipContinuation(ePosition + 1);
+          }
+          else {
+            ePosition += 2;
+          }
+        }
+        else if (isLineEnd(eByte)) {
+          break;
+        }
+        else {
+          ePosition++;
+        }
+      }
+      final int eValueEnd = Math.min(ePosition, mLimit);
+
+      addExisting(decodeProperties(eKeyStart, eKeyEnd), eValueStart,
+          eValueEnd, false);
+    }
+  }
+
+  /**
+   * Decodes ISO 8859-1, or UTF-8, text with the escapes and line
+   * continuations of the properties format.
+   */
+  private String decodeProperties(final int pStart, final int pEnd) {
+    final StringBuilder eBuilder = new StringBuilder(pEnd - pStart);
+    int ePosition = pStart;
+    while (ePosition < pEnd) {
+      final int eByte = byteAt(ePosition++);
+      if (eByte != '\\') {
+        if (mUtf8 && eByte >= 0x80) {
+          ePosition = WriterUtil.appendUtf8(mBuffer, ePosition - 1, pEnd,
+              eBuilder);
+        }
+        else {
+          eBuilder.append((char) eByte);
+        }
+        continue;
+      }
+      if (ePosition >= pEnd) {
+        break;
+      }
+      final int eEscaped = byteAt(ePosition);
+      if (isLineEnd(eEscaped)) {
+        ePosition = skipContinuation(ePosition);
+        continue;
+      }
+      ePosition++;
+      switch (eEscaped) {
+        case 't':
+          eBuilder.append('\t');
+          break;
+        case 'n':
+          eBuilder.append('\n');
+          break;
+        case 'r':
+          eBuilder.append('\r');
+          break;
+        case 'f':
+          eBuilder.append('\f');
+          break;
+        case 'u':
+          if (ePosition + 4 > pEnd) {
+            throw new IllegalArgumentException(
+                "Malformed \\uxxxx encoding.");
+          }
+          int eChar = 0;
+          for (int i = 0; i < 4; i++) {
+            final int eDigit = Character.digit(byteAt(ePosition++), 16);
+            if (eDigit < 0) {
+              throw new IllegalArgumentException(
+                  "Malformed \\uxxxx encoding.");
+            }
+            eChar = (eChar << 4) | eDigit;
+          }
+          eBuilder.append((char) eChar);
+          break;
+        default:
+          eBuilder.append((char) eEscaped);
+      }
+    }
+    return eBuilder.toString();
+  }
+
+  // ---------------------------------------------------------------------
+  // XML mode
+  // ---------------------------------------------------------------------
+
+  /** @return whether the file declares no encoding or UTF-8 */
+  private boolean isUtf8Xml() {
+    int ePosition = 0;
+    if (mLimit >= 3 && byteAt(0) == 0xEF && byteAt(1) == 0xBB
+        && byteAt(2) == 0xBF) {
+      ePosition = 3;
+    }
+    if (!startsWith(ePosition, toBytes("<?xml"))) {
+      return ePosition < mLimit && byteAt(ePosition) == '<';
+    }
+    final int eDeclarationEnd = indexOf(toBytes("?>"), ePosition);
+    if (eDeclarationEnd < 0) {
+      return false;
+    }
+    final String eDeclaration = decodeXml(ePosition, eDeclarationEnd, false);
+    final int eEncodingIndex = eDeclaration.indexOf("encoding");
+    if (eEncodingIndex < 0) {
+      return true;
+    }
+    final String eEncoding = eDeclaration.substring(eEncodingIndex + 8)
+        .replace('=', ' ').replace('"', ' ').replace('\'', ' ').trim();
+    return eEncoding.regionMatches(true, 0, "UTF-8", 0, 5);
+  }
+
+  private boolean startsWith(final int pIndex, final byte[] pPrefix) {
+    if (pIndex + pPrefix.length > mLimit) {
+      return false;
+    }
+    for (int i = 0; i < pPrefix.length; i++) {
+      if (byteAt(pIndex + i) != pPrefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int indexOf(final byte[] pPattern, final int pFrom) {
+    final int eLast = mLimit - pPattern.length;
+    for (int i = pFrom; i <= eLast; i++) {
+      if (byteAt(i) == pPattern[0] && startsWith(i, pPattern)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return false if the file uses constructs that are not scanned, in which
+   *         case nothing has been merged yet
+   */
+  private boolean scanXml() {
+    int ePosition = indexOf(ENTRY_START, 0);
+    while (ePosition >= 0) {
+      ePosition += ENTRY_START.length;
+      String eKey = null;
+      // the attributes of the entry
+      while (true) {
+        while (ePosition < mLimit && byteAt(ePosition) <= ' ') {
+          ePosition++;
+        }
+        if (ePosition >= mLimit) {
+          return false;
+        }
+        final int eByte = byteAt(ePosition);
+        if (eByte == '>' || eByte == '/') {
+          break;
+        }
+        final int eNameStart = ePosition;
+        while (ePosition < mLimit && byteAt(ePosition) != '='
+            && byteAt(ePosition) > ' ') {
+          ePosition++;
+        }
+        final int eNameEnd = ePosition;
+        while (ePosition < mLimit && byteAt(ePosition) != '\''
+            && byteAt(ePosition) != '"') {
+          ePosition++;
+        }
+        if (ePosition >= mLimit) {
+          return false;
+        }
+        final int eQuote = byteAt(ePosition++);
+        final int eAttributeStart = ePosition;
+        while (ePosition < mLimit && byteAt(ePosition) != eQuote) {
+          ePosition++;
+        }
+        if (ePosition >= mLimit) {
+          return false;
+        }
+        if (eNameEnd - eNameStart == 3 && byteAt(eNameStart) == 'k'
+            && byteAt(eNameStart + 1) == 'e'
+            && byteAt(eNameStart + 2) == 'y') {
+          eKey = decodeXml(eAttributeStart, ePosition, true);
+        }
+        ePosition++;
+      }
+      if (eKey == null) {
+        return false;
+      }
+
+      final int eValueStart;
+      final int eValueEnd;
+      if (byteAt(ePosition) == '/') {
+        eValueStart = ePosition;
+        eValueEnd = ePosition;
+        ePosition += 2;
+      }
+      else {
+        eValueStart = ePosition + 1;
+        eValueEnd = indexOf(ENTRY_END, eValueStart);
+        if (eValueEnd < 0) {
+          return false;
+        }
+        for (int i = eValueStart; i < eValueEnd; i++) {
+          if (byteAt(i) == '<') {
+            // CDATA or comment inside the entry
+            return false;
+          }
+        }
+        ePosition = eValueEnd + ENTRY_END.length;
+      }
+      addExisting(eKey, eValueStart, eValueEnd, true);
+      ePosition = indexOf(ENTRY_START, ePosition);
+    }
+    return true;
+  }
+
+  /**
+   * Decodes UTF-8 text with the predefined and character references and the
+   * line end normalization of XML.
+   *
+   * @param pAttribute whether the text is an attribute value, whose white
+   *                   space characters are normalized to spaces
+   */
+  private String decodeXml(
+      final int pStart,
+      final int pEnd,
+      final boolean pAttribute) {
+    final StringBuilder eBuilder = new StringBuilder(pEnd - pStart);
+    int ePosition = pStart;
+    while (ePosition < pEnd) {
+      final int eByte = byteAt(ePosition);
+      if (eByte >= 0x80) {
+        // decode the run of non ASCII bytes at once
+        final int eRunStart = ePosition;
+        while (ePosition < pEnd && byteAt(ePosition) >= 0x80) {
+          ePosition++;
+        }
+        eBuilder.append(decodeUtf8(eRunStart, ePosition));
+      }
+      else if (eByte == '&') {
+        final int eReferenceEnd = indexOfByte(';', ePosition, pEnd);
+        if (eReferenceEnd < 0) {
+          throw new IllegalArgumentException("Unterminated reference");
+        }
+        appendReference(eBuilder,
+            decodeUtf8(ePosition + 1, eReferenceEnd));
+        ePosition = eReferenceEnd + 1;
+      }
+      else if (eByte == '\r') {
+        ePosition++;
+        if (ePosition < pEnd && byteAt(ePosition) == '\n') {
+          ePosition++;
+        }
+        eBuilder.append(pAttribute ? ' ' : '\n');
+      }
+      else {
+        ePosition++;
+        eBuilder.append(pAttribute && (eByte == '\n' || eByte == '\t')
+            ? ' ' : (char) eByte);
+      }
+    }
+    return eBuilder.toString();
+  }
+
+  private int indexOfByte(final int pByte, final int pFrom, final int pTo) {
+    for (int i = pFrom; i < pTo; i++) {
+      if (byteAt(i) == pByte) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private String decodeUtf8(final int pStart, final int pEnd) {
+    final int eLength = pEnd - pStart;
+    if (mScratch.length < eLength) {
+      mScratch = new byte[Math.max(eLength, mScratch.length * 2)];
+    }
+    for (int i = 0; i < eLength; i++) {
+      mScratch[i] = mBuffer.get(pStart + i);
+    }
+    return new String(mScratch, 0, eLength, UTF_8);
+  }
+
+  private static void appendReference(
+      final StringBuilder pBuilder,
+      final String pReference) {
+    if (pReference.equals("amp")) {
+      pBuilder.append('&');
+    }
+    else if (pReference.equals("lt")) {
+      pBuilder.append('<');
+    }
+    else if (pReference.equals("gt")) {
+      pBuilder.append('>');
+    }
+    else if (pReference.equals("quot")) {
+      pBuilder.append('"');
+    }
+    else if (pReference.equals("apos")) {
+      pBuilder.append('\'');
+    }
+    else if (pReference.startsWith("#x")) {
+      pBuilder.appendCodePoint(Integer.parseInt(pReference.substring(2), 16));
+    }
+    else if (pReference.startsWith("#")) {
+      pBuilder.appendCodePoint(Integer.parseInt(pReference.substring(1)));
+    }
+    else {
+      throw new IllegalArgumentException("Unknown entity: " + pReference);
+    }
+  }
+
+  /**
+   * Falls back to loading the whole file through the XML parser of
+   * Properties.
+   */
+  private Properties mergeLoadedXml()
+      throws IOException {
+    final byte[] eContent = new byte[mLimit];
+    for (int i = 0; i < mLimit; i++) {
+      eContent[i] = mBuffer.get(i);
+    }
+    final Properties eExistingProperties = new Properties();
+    eExistingProperties.loadFromXML(new ByteArrayInputStream(eContent));
+    mOverwrittenCount = 0;
+    for (Iterator<Object> i = mNewProperties.keySet().iterator();
+         i.hasNext();) {
+      if (eExistingProperties.containsKey(i.next())) {
+        mOverwrittenCount++;
+      }
+    }
+    eExistingProperties.putAll(mNewProperties);
+    return eExistingProperties;
+  }
+
+}
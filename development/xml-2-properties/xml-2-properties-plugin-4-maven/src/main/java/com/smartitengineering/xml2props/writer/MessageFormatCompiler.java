@@ -0,0 +1,227 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.runtime.PrecompiledMessageFormat;
+
+import java.text.MessageFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiles the values of the bundles, taken as {@link MessageFormat}
+ * patterns, into the tokens formatted by {@link PrecompiledMessageFormat}.
+ * Quotes are resolved and the arguments are reduced to their index, format
+ * type and style, so the pattern is parsed once at build time instead of on
+ * every MessageFormat created at runtime. A pattern with a choice or a
+ * custom number or date subformat is kept whole behind
+ * {@link PrecompiledMessageFormat#PATTERN}, as is a value that is not a
+ * valid pattern so that it fails at runtime the way MessageFormat does.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class MessageFormatCompiler {
+
+  /**
+   * @param pBundles The bundles to compile
+   *
+   * @return a table with the tokens of every value of the bundles, under
+   *         the same key and Locale
+   */
+  public LocaleBundleTable compile(final LocaleBundleTable pBundles) {
+    final LocaleBundleTable eFormats = new LocaleBundleTable();
+    final List<Locale> eLocales = pBundles.getLocales();
+    for (Iterator<Locale> i = eLocales.iterator(); i.hasNext();) {
+      eFormats.addLocale(i.next());
+    }
+    final int eKeyCount = pBundles.getKeyCount();
+    for (int i = 0; i < eKeyCount; i++) {
+      for (Iterator<Locale> j = eLocales.iterator(); j.hasNext();) {
+        final Locale eLoopLocale = j.next();
+        final String eValue = pBundles.getValue(i, eLoopLocale);
+        if (eValue != null) {
+          eFormats.put(pBundles.getKey(i), eLoopLocale, compile(eValue));
+        }
+      }
+    }
+    return eFormats;
+  }
+
+  /**
+   * @param pPattern The MessageFormat pattern
+   *
+   * @return the tokens of the pattern
+   */
+  public String compile(final String pPattern) {
+    try {
+      new MessageFormat(pPattern, Locale.ROOT);
+    }
+    catch (IllegalArgumentException ex) {
+      return PrecompiledMessageFormat.PATTERN + pPattern;
+    }
+    final StringBuilder eTokens = new StringBuilder(pPattern.length() + 16);
+    final StringBuilder eLiteral = new StringBuilder();
+    boolean eQuoted = false;
+    final int eLength = pPattern.length();
+    for (int i = 0; i < eLength; i++) {
+      final char eChar = pPattern.charAt(i);
+      if (eChar == '\'') {
+        if (i + 1 < eLength && pPattern.charAt(i + 1) == '\'') {
+          eLiteral.append(eChar);
+          i++;
+        }
+        else {
+          eQuoted = !eQuoted;
+        }
+      }
+      else if (eChar == '{' && !eQuoted) {
+        // a valid pattern closes every argument
+        final int eEnd = pPattern.indexOf('}', i);
+        final String eArgument = compileArgument(pPattern.substring(i + 1,
+            eEnd));
+        if (eArgument == null) {
+          return PrecompiledMessageFormat.PATTERN + pPattern;
+        }
+        appendLiteral(eTokens, eLiteral);
+        eTokens.append(eArgument);
+        i = eEnd;
+      }
+      else {
+        eLiteral.append(eChar);
+      }
+    }
+    appendLiteral(eTokens, eLiteral);
+    return eTokens.toString();
+  }
+
+  /**
+   * @param pTokens The tokens of a pattern
+   *
+   * @return whether the tokens are formatted without a MessageFormat
+   */
+  public static boolean isPrecompiled(final String pTokens) {
+    return pTokens.length() == 0
+        || pTokens.charAt(0) != PrecompiledMessageFormat.PATTERN;
+  }
+
+  private static void appendLiteral(
+      final StringBuilder pTokens,
+      final StringBuilder pLiteral) {
+    if (pLiteral.length() > 0) {
+      pTokens.append(PrecompiledMessageFormat.LITERAL)
+          .append(pLiteral.length())
+          .append(PrecompiledMessageFormat.LENGTH_END).append(pLiteral);
+      pLiteral.setLength(0);
+    }
+  }
+
+  /**
+   * @param pArgument The argument between the braces
+   *
+   * @return the token of the argument or null if it has a subformat that
+   *         can not be precompiled
+   */
+  private static String compileArgument(final String pArgument) {
+    if (pArgument.indexOf('{') >= 0 || pArgument.indexOf('\'') >= 0) {
+      return null;
+    }
+    final String[] eSegments = pArgument.split(",", 3);
+    final String eIndex = eSegments[0];
+    if (eIndex.length() == 0) {
+      return null;
+    }
+    for (int i = 0; i < eIndex.length(); i++) {
+      if (eIndex.charAt(i) < '0' || eIndex.charAt(i) > '9') {
+        return null;
+      }
+    }
+    final String eType = eSegments.length > 1
+        ? eSegments[1].trim().toLowerCase(Locale.ROOT) : "";
+    final String eStyle = eSegments.length > 2
+        ? eSegments[2].trim().toLowerCase(Locale.ROOT) : "";
+    final char eTypeCode;
+    final char eStyleCode;
+    if (eType.length() == 0) {
+      return PrecompiledMessageFormat.ARGUMENT_START
+          + String.valueOf(Integer.parseInt(eIndex))
+          + PrecompiledMessageFormat.ARGUMENT_END;
+    }
+    else if ("number".equals(eType)) {
+      eTypeCode = PrecompiledMessageFormat.TYPE_NUMBER;
+      eStyleCode = getNumberStyleCode(eStyle);
+    }
+    else if ("date".equals(eType) || "time".equals(eType)) {
+      eTypeCode = "date".equals(eType) ? PrecompiledMessageFormat.TYPE_DATE
+          : PrecompiledMessageFormat.TYPE_TIME;
+      eStyleCode = getDateStyleCode(eStyle);
+    }
+    else {
+      return null;
+    }
+    if (eStyleCode == 0) {
+      return null;
+    }
+    return new StringBuilder().append(PrecompiledMessageFormat.ARGUMENT_START)
+        .append(Integer.parseInt(eIndex))
+        .append(PrecompiledMessageFormat.TYPE_SEPARATOR).append(eTypeCode)
+        .append(eStyleCode).append(PrecompiledMessageFormat.ARGUMENT_END)
+        .toString();
+  }
+
+  /** @return the style code or 0 for a custom pattern */
+  private static char getNumberStyleCode(final String pStyle) {
+    if (pStyle.length() == 0) {
+      return PrecompiledMessageFormat.STYLE_DEFAULT;
+    }
+    else if ("integer".equals(pStyle)) {
+      return PrecompiledMessageFormat.STYLE_INTEGER;
+    }
+    else if ("currency".equals(pStyle)) {
+      return PrecompiledMessageFormat.STYLE_CURRENCY;
+    }
+    else if ("percent".equals(pStyle)) {
+      return PrecompiledMessageFormat.STYLE_PERCENT;
+    }
+    return 0;
+  }
+
+  /** @return the style code or 0 for a custom pattern */
+  private static char getDateStyleCode(final String pStyle) {
+    if (pStyle.length() == 0) {
+      return PrecompiledMessageFormat.STYLE_DEFAULT;
+    }
+    else if ("short".equals(pStyle)) {
+      return PrecompiledMessageFormat.STYLE_SHORT;
+    }
+    else if ("medium".equals(pStyle)) {
+      return PrecompiledMessageFormat.STYLE_MEDIUM;
+    }
+    else if ("long".equals(pStyle)) {
+      return PrecompiledMessageFormat.STYLE_LONG;
+    }
+    else if ("full".equals(pStyle)) {
+      return PrecompiledMessageFormat.STYLE_FULL;
+    }
+    return 0;
+  }
+
+}
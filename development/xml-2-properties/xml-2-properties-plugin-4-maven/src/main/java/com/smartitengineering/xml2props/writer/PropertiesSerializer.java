@@ -0,0 +1,286 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Serializes properties into a byte-stable form: the keys are written in
+ * sorted order, no timestamp is added and the line separator is always
+ * '\n', so the same properties always give the same bytes. The characters
+ * are escaped through lookup tables and appended to a single buffer that is
+ * reused for every serialization.
+ * <p/>
+ * A serializer is not thread-safe, use one per thread.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public abstract class PropertiesSerializer {
+
+  private static final int INITIAL_CAPACITY = 8192;
+
+  private static final byte[] HEX_DIGITS = {
+      '0', '1', '2', '3', '4', '5', '6', '7',
+      '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+  private byte[] mBuffer;
+
+  private int mLength;
+
+  protected PropertiesSerializer() {
+    mBuffer = new byte[INITIAL_CAPACITY];
+  }
+
+  /**
+   * @param pMode The mode to serialize in
+   *
+   * @return a new serializer for the mode
+   */
+  public static PropertiesSerializer newSerializer(final PropertiesMode pMode) {
+    return newSerializer(pMode, false);
+  }
+
+  /**
+   * @param pMode The mode to serialize in
+   * @param pUtf8 whether PROPERTIES are written in UTF-8, XML always is
+   *
+   * @return a new serializer for the mode
+   */
+  public static PropertiesSerializer newSerializer(
+      final PropertiesMode pMode,
+      final boolean pUtf8) {
+    if (PropertiesMode.PROPERTIES.equals(pMode)) {
+      return new SortedPropertiesSerializer(pUtf8);
+    }
+    else if (PropertiesMode.XML.equals(pMode)) {
+      return new SortedXmlPropertiesSerializer();
+    }
+    throw new IllegalArgumentException("No serializer for mode: " + pMode);
+  }
+
+  /**
+   * @param pProperties The properties to serialize
+   * @param pComment    The comment to write before the entries, may be null
+   *
+   * @return the serialized properties
+   *
+   * @throws IOException if a string cannot be represented in the mode
+   */
+  public byte[] serialize(
+      final Properties pProperties,
+      final String pComment)
+      throws IOException {
+    final String[] eKeys = new String[pProperties.size()];
+    int eKeyCount = 0;
+    for (Iterator<Object> i = pProperties.keySet().iterator(); i.hasNext();) {
+      eKeys[eKeyCount++] = (String) i.next();
+    }
+    Arrays.sort(eKeys, 0, eKeyCount);
+
+    mLength = 0;
+    appendHeader(pComment);
+    for (int i = 0; i < eKeyCount; i++) {
+      appendEntry(eKeys[i], (String) pProperties.get(eKeys[i]));
+    }
+    appendFooter();
+    return Arrays.copyOf(mBuffer, mLength);
+  }
+
+  /**
+   * Serializes the column of a Locale without copying it into a Properties
+   * first, giving the same bytes as {@link #serialize(Properties, String)}.
+   *
+   * @param pBundles The bundles of all the Locales
+   * @param pLocale  The Locale to serialize
+   * @param pComment The comment to write before the entries, may be null
+   *
+   * @return the serialized properties of the Locale
+   *
+   * @throws IOException if a string cannot be represented in the mode
+   */
+  public byte[] serialize(
+      final LocaleBundleTable pBundles,
+      final Locale pLocale,
+      final String pComment)
+      throws IOException {
+    final int[] eKeyIndexes = pBundles.getSortedKeyIndexes();
+    mLength = 0;
+    appendHeader(pComment);
+    for (int i = 0; i < eKeyIndexes.length; i++) {
+      final String eValue = pBundles.getValue(eKeyIndexes[i], pLocale);
+      if (eValue != null) {
+        appendEntry(pBundles.getKey(eKeyIndexes[i]), eValue);
+      }
+    }
+    appendFooter();
+    return Arrays.copyOf(mBuffer, mLength);
+  }
+
+  /**
+   * Writes the header, to be followed by the entries in sorted order and the
+   * footer.
+   *
+   * @param pComment      The comment to write before the entries, may be null
+   * @param pOutputStream The stream to write to
+   *
+   * @throws IOException if the header could not be written
+   */
+  public void writeHeader(
+      final String pComment,
+      final OutputStream pOutputStream)
+      throws IOException {
+    mLength = 0;
+    appendHeader(pComment);
+    pOutputStream.write(mBuffer, 0, mLength);
+  }
+
+  /**
+   * Writes a single entry, without the header and the footer.
+   *
+   * @param pKey          The key
+   * @param pValue        The value
+   * @param pOutputStream The stream to write to
+   *
+   * @throws IOException if the entry could not be written
+   */
+  public void writeEntry(
+      final String pKey,
+      final String pValue,
+      final OutputStream pOutputStream)
+      throws IOException {
+    mLength = 0;
+    appendEntry(pKey, pValue);
+    pOutputStream.write(mBuffer, 0, mLength);
+  }
+
+  /**
+   * Writes the footer following the last entry.
+   *
+   * @param pOutputStream The stream to write to
+   *
+   * @throws IOException if the footer could not be written
+   */
+  public void writeFooter(final OutputStream pOutputStream)
+      throws IOException {
+    mLength = 0;
+    appendFooter();
+    pOutputStream.write(mBuffer, 0, mLength);
+  }
+
+  protected abstract void appendHeader(String pComment)
+      throws IOException;
+
+  protected abstract void appendEntry(
+      String pKey,
+      String pValue)
+      throws IOException;
+
+  protected abstract void appendFooter();
+
+  /**
+   * Builds an escape table for the ASCII characters.
+   *
+   * @param pLiterals The characters that are written as they are
+   *
+   * @return the table, holding the characters not in the literals escaped as
+   *         unicode
+   */
+  protected static byte[][] newEscapeTable(final String pLiterals) {
+    final byte[][] eTable = new byte[128][];
+    for (char c = 0; c < 128; c++) {
+      if (pLiterals.indexOf(c) < 0) {
+        eTable[c] = toUnicodeEscape(c);
+      }
+    }
+    return eTable;
+  }
+
+  /** @return the character as '\\uXXXX' */
+  protected static byte[] toUnicodeEscape(final char pChar) {
+    return new byte[]{'\\', 'u', HEX_DIGITS[(pChar >> 12) & 0xF],
+        HEX_DIGITS[(pChar >> 8) & 0xF], HEX_DIGITS[(pChar >> 4) & 0xF],
+        HEX_DIGITS[pChar & 0xF]};
+  }
+
+  /** @return the ASCII string as bytes */
+  protected static byte[] toBytes(final String pAscii) {
+    final byte[] eBytes = new byte[pAscii.length()];
+    for (int i = 0; i < eBytes.length; i++) {
+      eBytes[i] = (byte) pAscii.charAt(i);
+    }
+    return eBytes;
+  }
+
+  protected final void append(final byte pByte) {
+    ensureCapacity(1);
+    mBuffer[mLength++] = pByte;
+  }
+
+  protected final void append(final byte[] pBytes) {
+    ensureCapacity(pBytes.length);
+    System.arraycopy(pBytes, 0, mBuffer, mLength, pBytes.length);
+    mLength += pBytes.length;
+  }
+
+  /** Appends a character as a '\\uXXXX' escape. */
+  protected final void appendUnicodeEscape(final char pChar) {
+    ensureCapacity(6);
+    mBuffer[mLength++] = '\\';
+    mBuffer[mLength++] = 'u';
+    mBuffer[mLength++] = HEX_DIGITS[(pChar >> 12) & 0xF];
+    mBuffer[mLength++] = HEX_DIGITS[(pChar >> 8) & 0xF];
+    mBuffer[mLength++] = HEX_DIGITS[(pChar >> 4) & 0xF];
+    mBuffer[mLength++] = HEX_DIGITS[pChar & 0xF];
+  }
+
+  /** Appends a non ASCII code point in UTF-8. */
+  protected final void appendUtf8(final int pCodePoint) {
+    ensureCapacity(4);
+    if (pCodePoint < 0x800) {
+      mBuffer[mLength++] = (byte) (0xC0 | (pCodePoint >> 6));
+    }
+    else if (pCodePoint < 0x10000) {
+      mBuffer[mLength++] = (byte) (0xE0 | (pCodePoint >> 12));
+      mBuffer[mLength++] = (byte) (0x80 | ((pCodePoint >> 6) & 0x3F));
+    }
+    else {
+      mBuffer[mLength++] = (byte) (0xF0 | (pCodePoint >> 18));
+      mBuffer[mLength++] = (byte) (0x80 | ((pCodePoint >> 12) & 0x3F));
+      mBuffer[mLength++] = (byte) (0x80 | ((pCodePoint >> 6) & 0x3F));
+    }
+    mBuffer[mLength++] = (byte) (0x80 | (pCodePoint & 0x3F));
+  }
+
+  private void ensureCapacity(final int pExtraLength) {
+    if (mLength + pExtraLength > mBuffer.length) {
+      mBuffer = Arrays.copyOf(mBuffer, Math.max(mLength + pExtraLength,
+          mBuffer.length * 2));
+    }
+  }
+
+}
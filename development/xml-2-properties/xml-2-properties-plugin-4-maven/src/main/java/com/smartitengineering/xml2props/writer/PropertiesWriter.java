@@ -18,10 +18,12 @@
  */
 package com.smartitengineering.xml2props.writer;
 
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
 import com.smartitengineering.xml2props.maven.MojoReferenceHolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 
@@ -41,6 +43,8 @@ public interface PropertiesWriter extends MojoReferenceHolder {
 
     private static final String STRING_PROPERTIES = "PROPERTIES";
     private static final String STRING_XML = "XML";
+    private static final String STRING_JAVA = "JAVA";
+    private static final String STRING_BINARY = "BINARY";
         
     public static final PropertiesMode PROPERTIES =
         new PropertiesMode(STRING_PROPERTIES);
@@ -48,6 +52,20 @@ public interface PropertiesWriter extends MojoReferenceHolder {
     public static final PropertiesMode XML =
         new PropertiesMode(STRING_XML);
 
+    /**
+     * Java sources of {@link java.util.ListResourceBundle} subclasses, the
+     * bundle name may be qualified with the package of the classes
+     */
+    public static final PropertiesMode JAVA =
+        new PropertiesMode(STRING_JAVA);
+
+    /**
+     * Binary bundles indexed by a perfect hash, read at runtime through
+     * com.smartitengineering.xml2props.runtime.BinaryBundleControl
+     */
+    public static final PropertiesMode BINARY =
+        new PropertiesMode(STRING_BINARY);
+
     final String mRepresentation;
 
     public PropertiesMode(final String pRepresentation) {
@@ -56,11 +74,13 @@ public interface PropertiesWriter extends MojoReferenceHolder {
             "representation string may not be null");
       }
       if (!pRepresentation.equalsIgnoreCase(STRING_PROPERTIES)
-          && !pRepresentation.equalsIgnoreCase(STRING_XML)) {
+          && !pRepresentation.equalsIgnoreCase(STRING_XML)
+          && !pRepresentation.equalsIgnoreCase(STRING_JAVA)
+          && !pRepresentation.equalsIgnoreCase(STRING_BINARY)) {
         throw new IllegalArgumentException(
-            "representation string must be one of " + PROPERTIES
-                + " or " + XML + ", but found: "
-                + pRepresentation);
+            "representation string must be one of " + STRING_PROPERTIES
+                + ", " + STRING_XML + ", " + STRING_JAVA + " or "
+                + STRING_BINARY + ", but found: " + pRepresentation);
       }
       mRepresentation = pRepresentation;
     }
@@ -85,7 +105,67 @@ public interface PropertiesWriter extends MojoReferenceHolder {
     }
   }
 
-  public void writePropertiesToFile(
+  /**
+   * @param pWriteIfChanged whether an existing file with the same content as
+   *                        the one to write is left untouched, preserving its
+   *                        timestamp, the key table of the indexed bundles
+   *                        included
+   */
+  public void setWriteIfChanged(boolean pWriteIfChanged);
+
+  /**
+   * @param pMergeExisting whether the properties are merged into an existing
+   *                       PROPERTIES, XML or BINARY file, keeping its other
+   *                       entries, instead of replacing the file; true by
+   *                       default
+   */
+  public void setMergeExisting(boolean pMergeExisting);
+
+  /**
+   * @param pSortedOutput whether the properties are written with the keys
+   *                      sorted and without a timestamp through a
+   *                      {@link PropertiesSerializer}, instead of through
+   *                      {@link Properties#store} or
+   *                      {@link Properties#storeToXML}
+   */
+  public void setSortedOutput(boolean pSortedOutput);
+
+  /**
+   * @param pStreamingMerge whether an existing PROPERTIES file is merged with
+   *                        through a {@link StreamingPropertiesMerger},
+   *                        replacing the changed entries in place and
+   *                        appending the new ones
+   */
+  public void setStreamingMerge(boolean pStreamingMerge);
+
+  /**
+   * @param pUtf8Properties whether PROPERTIES files are written and read in
+   *                        UTF-8, with only the characters special to the
+   *                        format escaped, instead of in ISO 8859-1 with
+   *                        every other character escaped as unicode
+   */
+  public void setUtf8Properties(boolean pUtf8Properties);
+
+  /**
+   * @param pIndexedBundles whether the JAVA mode generates subclasses of
+   *                        com.smartitengineering.xml2props.runtime
+   *                        .IndexedResourceBundle, indexed by the class
+   *                        written by {@link #writeKeysToFile}, instead of
+   *                        ListResourceBundle subclasses
+   */
+  public void setIndexedBundles(boolean pIndexedBundles);
+
+  /**
+   * @param pWriteListener the listener told about the merged and written
+   *                       files, null for none
+   */
+  public void setWriteListener(BundleWriteListener pWriteListener);
+
+  /**
+   * @return true if the file was written, false if it was left untouched as
+   *         it already had the same content
+   */
+  public boolean writePropertiesToFile(
       Locale pLocale,
       Properties pProperties,
       PropertiesMode pMode,
@@ -93,4 +173,71 @@ public interface PropertiesWriter extends MojoReferenceHolder {
       String pFileNameWithoutExtension)
       throws IOException;
 
+  /**
+   * Writes the column of a single Locale of the bundles. With sorted output
+   * a PROPERTIES or XML file that does not exist yet or is not merged into is
+   * serialized straight from the column, the other cases go through a
+   * Properties.
+   *
+   * @param pLocale                   The Locale to write
+   * @param pBundles                  The bundles holding the Locale
+   * @param pMode                     The mode to write in
+   * @param pFileDirectory            The directory to write to
+   * @param pFileNameWithoutExtension The bundle name
+   *
+   * @return true if the file was written, false if it was left untouched as
+   *         it already had the same content
+   *
+   * @throws IOException if the file could not be written
+   */
+  public boolean writeBundleToFile(
+      Locale pLocale,
+      LocaleBundleTable pBundles,
+      PropertiesMode pMode,
+      File pFileDirectory,
+      String pFileNameWithoutExtension)
+      throws IOException;
+
+  /**
+   * Writes the source of the class of the key table of indexed bundles, see
+   * {@link BundleKeysGenerator}.
+   *
+   * @param pKeys                     The keys of all the Locales
+   * @param pFileDirectory            The directory to write to
+   * @param pFileNameWithoutExtension The bundle name, qualified with the
+   *                                  package
+   *
+   * @return true if the file was written, false if it was left untouched as
+   *         it already had the same content
+   *
+   * @throws IOException if the file could not be written
+   */
+  public boolean writeKeysToFile(
+      List<String> pKeys,
+      File pFileDirectory,
+      String pFileNameWithoutExtension)
+      throws IOException;
+
+  /**
+   * @param pMode                     The mode to write in, PROPERTIES or XML
+   * @param pFileDirectory            The directory to write to
+   * @param pFileNameWithoutExtension The bundle name
+   * @param pBufferSize               The most entries held in memory
+   *
+   * @return a new sink writing the entries pushed to it to a file per Locale,
+   *         in the encoding and with the metrics of this writer
+   */
+  public SpillingBundleWriter newSpillingWriter(
+      PropertiesMode pMode,
+      File pFileDirectory,
+      String pFileNameWithoutExtension,
+      int pBufferSize);
+
+  /**
+   * Drops the serializers the calling thread reused for its writes, with
+   * their buffers. A thread that outlives its writes calls it when it is
+   * done, as the writer outlives the build.
+   */
+  public void clearSerializers();
+
 }
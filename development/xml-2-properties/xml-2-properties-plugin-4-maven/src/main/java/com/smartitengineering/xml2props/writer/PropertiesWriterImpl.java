@@ -18,15 +18,20 @@
  */
 package com.smartitengineering.xml2props.writer;
 
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.runtime.BinaryResourceBundle;
 import com.smartitengineering.xml2props.util.LogUtil;
 import com.smartitengineering.xml2props.util.WriterUtil;
 import org.apache.maven.plugin.AbstractMojo;
 
 import java.io.*;
-import java.util.Iterator;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
 
 /**
  * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
@@ -36,6 +41,42 @@ import java.util.Set;
 public class PropertiesWriterImpl implements PropertiesWriter {
   AbstractMojo mMojo;
 
+  private boolean mWriteIfChanged;
+
+  private boolean mMergeExisting = true;
+
+  private boolean mSortedOutput;
+
+  private boolean mStreamingMerge;
+
+  private boolean mUtf8Properties;
+
+  private boolean mIndexedBundles;
+
+  private BundleWriteListener mWriteListener;
+
+  private final ListResourceBundleGenerator mBundleGenerator =
+      new ListResourceBundleGenerator();
+
+  private final BundleKeysGenerator mKeysGenerator =
+      new BundleKeysGenerator();
+
+  /** Holds no state, shared by all the threads */
+  private final BinaryBundleSerializer mBinarySerializer =
+      new BinaryBundleSerializer();
+
+  /**
+   * The serializers of each thread mapped by mode, reusing their buffer
+   * until {@link #clearSerializers()}
+   */
+  private final ThreadLocal<Map<PropertiesMode, PropertiesSerializer>>
+      mSerializers =
+      new ThreadLocal<Map<PropertiesMode, PropertiesSerializer>>() {
+        protected Map<PropertiesMode, PropertiesSerializer> initialValue() {
+          return new HashMap<PropertiesMode, PropertiesSerializer>();
+        }
+      };
+
   /**
    *
    */
@@ -56,10 +97,94 @@ public class PropertiesWriterImpl implements PropertiesWriter {
     mMojo = pMojo;
   }
 
+  /** @return whether unchanged files are left untouched */
+  public boolean isWriteIfChanged() {
+    return mWriteIfChanged;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#setWriteIfChanged(boolean)
+   */
+  public void setWriteIfChanged(boolean pWriteIfChanged) {
+    mWriteIfChanged = pWriteIfChanged;
+  }
+
+  /** @return whether existing files are merged into */
+  public boolean isMergeExisting() {
+    return mMergeExisting;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#setMergeExisting(boolean)
+   */
+  public void setMergeExisting(boolean pMergeExisting) {
+    mMergeExisting = pMergeExisting;
+  }
+
+  /** @return whether the keys are written sorted and without timestamp */
+  public boolean isSortedOutput() {
+    return mSortedOutput;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#setSortedOutput(boolean)
+   */
+  public void setSortedOutput(boolean pSortedOutput) {
+    mSortedOutput = pSortedOutput;
+  }
+
+  /** @return whether existing PROPERTIES files are merged by streaming */
+  public boolean isStreamingMerge() {
+    return mStreamingMerge;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#setStreamingMerge(boolean)
+   */
+  public void setStreamingMerge(boolean pStreamingMerge) {
+    mStreamingMerge = pStreamingMerge;
+  }
+
+  /** @return whether PROPERTIES files are written and read in UTF-8 */
+  public boolean isUtf8Properties() {
+    return mUtf8Properties;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#setUtf8Properties(boolean)
+   */
+  public void setUtf8Properties(boolean pUtf8Properties) {
+    mUtf8Properties = pUtf8Properties;
+  }
+
+  /** @return whether the JAVA mode generates indexed bundles */
+  public boolean isIndexedBundles() {
+    return mIndexedBundles;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#setIndexedBundles(boolean)
+   */
+  public void setIndexedBundles(boolean pIndexedBundles) {
+    mIndexedBundles = pIndexedBundles;
+  }
+
+  /** @return the listener told about the written files, may be null */
+  public BundleWriteListener getWriteListener() {
+    return mWriteListener;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#setWriteListener(BundleWriteListener)
+   */
+  public void setWriteListener(BundleWriteListener pWriteListener) {
+    mWriteListener = pWriteListener;
+  }
+
   /**
    * @see com.smartitengineering.xml2props.writer.PropertiesWriter#writePropertiesToFile(Locale, Properties, com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode,  File,String)
    */
-  public void writePropertiesToFile(
+  public boolean writePropertiesToFile(
       final Locale pLocale,
       final Properties pProperties,
       final PropertiesMode pMode,
@@ -80,35 +205,295 @@ public class PropertiesWriterImpl implements PropertiesWriter {
     final File eFileForLocalizedProperties = new File(pFileDirectory,
         eFileNameForLocalizedProperties);
 
+    final boolean eMerge = mMergeExisting
+        && eFileForLocalizedProperties.exists();
+    if (mStreamingMerge && PropertiesMode.PROPERTIES.equals(pMode)
+        && eMerge) {
+      return mergeStreaming(pLocale, pProperties,
+          eFileForLocalizedProperties);
+    }
+
+    final long eMergeStart = System.nanoTime();
     final Properties eNewProperties;
-    if (eFileForLocalizedProperties.exists()) {
+    if (PropertiesMode.JAVA.equals(pMode)) {
+      // a generated class is not merged with, it is generated again
+      eNewProperties = pProperties;
+      eFileForLocalizedProperties.getParentFile().mkdirs();
+    }
+    else if (eMerge && PropertiesMode.BINARY.equals(pMode)) {
+      eNewProperties = mergeBinaryBundleFile(pProperties,
+          eFileForLocalizedProperties);
+    }
+    else if (eMerge) {
       eNewProperties = mergePropertiesInFile(pProperties, pMode,
           eFileForLocalizedProperties);
     }
     else {
       eNewProperties = pProperties;
     }
+    if (mWriteListener != null && eNewProperties != pProperties) {
+      mWriteListener.recordMerge(pLocale, eFileForLocalizedProperties.length(),
+          System.nanoTime() - eMergeStart);
+    }
+
+    LogUtil.debug(this, "Writing properties: ", eNewProperties);
+    final byte[] eContent;
+    if (PropertiesMode.JAVA.equals(pMode) && mIndexedBundles) {
+      eContent = mBundleGenerator.generateIndexed(WriterUtil
+          .getLocalizedBundleName(pLocale, pFileNameWithoutExtension),
+          WriterUtil.getKeysClassName(pFileNameWithoutExtension),
+          eNewProperties, PROPERTIES_COMMENT);
+    }
+    else if (PropertiesMode.JAVA.equals(pMode)) {
+      eContent = mBundleGenerator.generate(WriterUtil.getLocalizedBundleName(
+          pLocale, pFileNameWithoutExtension), eNewProperties,
+          PROPERTIES_COMMENT);
+    }
+    else if (PropertiesMode.BINARY.equals(pMode)) {
+      eContent = mBinarySerializer.serialize(eNewProperties);
+    }
+    else {
+      eContent = renderProperties(eNewProperties, pMode);
+    }
+    return writeContent(pLocale, eContent, eFileForLocalizedProperties);
+  }
+
+  /**
+   * Writes the content of the file of the Locale, see
+   * {@link #writeContent(byte[], File)}.
+   *
+   * @return true if the file was written
+   */
+  private boolean writeContent(
+      final Locale pLocale,
+      final byte[] pContent,
+      final File pFile)
+      throws IOException {
+    final boolean eWritten = writeContent(pContent, pFile);
+    if (mWriteListener != null) {
+      mWriteListener.recordWrite(pLocale, pContent.length, eWritten);
+    }
+    return eWritten;
+  }
+
+  /**
+   * Writes the content unless 'writeIfChanged' is set and the file already
+   * holds it.
+   *
+   * @return true if the file was written
+   */
+  private boolean writeContent(
+      final byte[] pContent,
+      final File pFile)
+      throws IOException {
+    if (mWriteIfChanged && isContentEqual(pFile, pContent)) {
+      LogUtil.debug(this, "Skipping unchanged file: ", pFile);
+      return false;
+    }
 
     OutputStream eOutputStream = null;
     try {
-      final File eOutputFileForLocalizedProperties = new File(
-          pFileDirectory, eFileNameForLocalizedProperties);
-      eOutputStream = new FileOutputStream(
-          eOutputFileForLocalizedProperties);
-      LogUtil.debug(this, "Writing properties: " + eNewProperties);
-      if (PropertiesMode.PROPERTIES.equals(pMode)) {
-        eNewProperties.store(eOutputStream, PROPERTIES_COMMENT);
-      }
-      else if (PropertiesMode.XML.equals(pMode)) {
-        eNewProperties.storeToXML(eOutputStream, PROPERTIES_COMMENT);
-      }
+      eOutputStream = new FileOutputStream(pFile);
+      eOutputStream.write(pContent);
     }
     finally {
       if (eOutputStream != null) {
         eOutputStream.close();
       }
     }
+    return true;
+  }
 
+  /**
+   * Renders the properties into memory. Without sorted output but with
+   * 'writeIfChanged' the timestamp comment written by
+   * {@link Properties#store(OutputStream, String)} is removed so that
+   * rendering the same properties twice gives the same bytes, as long as the
+   * Hashtable iterates the keys in the same order.
+   */
+  private byte[] renderProperties(
+      final Properties pProperties,
+      final PropertiesMode pMode)
+      throws IOException {
+    if (mSortedOutput) {
+      return getSerializer(pMode).serialize(pProperties, PROPERTIES_COMMENT);
+    }
+    final ByteArrayOutputStream eOutputStream = new ByteArrayOutputStream();
+    if (PropertiesMode.PROPERTIES.equals(pMode)) {
+      if (mUtf8Properties) {
+        // a Writer is written to without escaping the non ASCII characters
+        final Writer eWriter = new OutputStreamWriter(eOutputStream,
+            "UTF-8");
+        pProperties.store(eWriter, PROPERTIES_COMMENT);
+        eWriter.close();
+      }
+      else {
+        pProperties.store(eOutputStream, PROPERTIES_COMMENT);
+      }
+      return mWriteIfChanged
+          ? removeTimestampComment(eOutputStream.toByteArray())
+          : eOutputStream.toByteArray();
+    }
+    else if (PropertiesMode.XML.equals(pMode)) {
+      pProperties.storeToXML(eOutputStream, PROPERTIES_COMMENT);
+    }
+    return eOutputStream.toByteArray();
+  }
+
+  private PropertiesSerializer getSerializer(final PropertiesMode pMode) {
+    final Map<PropertiesMode, PropertiesSerializer> eSerializers =
+        mSerializers.get();
+    PropertiesSerializer eSerializer = eSerializers.get(pMode);
+    if (eSerializer == null
+        || (eSerializer instanceof SortedPropertiesSerializer
+        && ((SortedPropertiesSerializer) eSerializer).isUtf8()
+        != mUtf8Properties)) {
+      eSerializer = PropertiesSerializer.newSerializer(pMode,
+          mUtf8Properties);
+      eSerializers.put(pMode, eSerializer);
+    }
+    return eSerializer;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#clearSerializers()
+   */
+  public void clearSerializers() {
+    mSerializers.remove();
+  }
+
+  /**
+   * Removes the second line, the timestamp following the comment line.
+   */
+  private static byte[] removeTimestampComment(final byte[] pContent) {
+    final int eCommentEnd = indexOfLineEnd(pContent, 0);
+    if (eCommentEnd < 0 || eCommentEnd + 1 >= pContent.length
+        || pContent[eCommentEnd + 1] != '#') {
+      return pContent;
+    }
+    final int eTimestampEnd = indexOfLineEnd(pContent, eCommentEnd + 1);
+    if (eTimestampEnd < 0) {
+      return pContent;
+    }
+    final byte[] eContent =
+        new byte[pContent.length - (eTimestampEnd - eCommentEnd)];
+    System.arraycopy(pContent, 0, eContent, 0, eCommentEnd + 1);
+    System.arraycopy(pContent, eTimestampEnd + 1, eContent, eCommentEnd + 1,
+        pContent.length - eTimestampEnd - 1);
+    return eContent;
+  }
+
+  private static int indexOfLineEnd(final byte[] pContent, final int pFrom) {
+    for (int i = pFrom; i < pContent.length; i++) {
+      if (pContent[i] == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return whether the file exists with exactly the given content
+   */
+  private static boolean isContentEqual(
+      final File pFile,
+      final byte[] pContent)
+      throws IOException {
+    if (!pFile.isFile() || pFile.length() != pContent.length) {
+      return false;
+    }
+    InputStream eInputStream = null;
+    try {
+      eInputStream = new BufferedInputStream(new FileInputStream(pFile));
+      for (int i = 0; i < pContent.length; i++) {
+        if (eInputStream.read() != (pContent[i] & 0xFF)) {
+          return false;
+        }
+      }
+      return eInputStream.read() < 0;
+    }
+    finally {
+      if (eInputStream != null) {
+        eInputStream.close();
+      }
+    }
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#writeBundleToFile(Locale, LocaleBundleTable, com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode, File, String)
+   */
+  public boolean writeBundleToFile(
+      final Locale pLocale,
+      final LocaleBundleTable pBundles,
+      final PropertiesMode pMode,
+      final File pFileDirectory,
+      final String pFileNameWithoutExtension)
+      throws IOException {
+    if (pBundles == null) {
+      throw new IllegalArgumentException(
+          "Bundles was null, expected non-null value");
+    }
+    if (pMode == null) {
+      throw new IllegalArgumentException(
+          "Properties Mode was null, expected non-null value");
+    }
+    final File eFileForLocalizedProperties = new File(pFileDirectory,
+        WriterUtil.getLocalizedFileName(pLocale, pFileNameWithoutExtension,
+            pMode));
+    // only merging with an existing file needs the values as Properties
+    if (mSortedOutput && (!mMergeExisting
+        || !eFileForLocalizedProperties.exists())
+        && (PropertiesMode.PROPERTIES.equals(pMode)
+        || PropertiesMode.XML.equals(pMode))) {
+      LogUtil.debug(this, "Writing properties of Locale: ", pLocale);
+      return writeContent(pLocale, getSerializer(pMode).serialize(pBundles,
+          pLocale, PROPERTIES_COMMENT), eFileForLocalizedProperties);
+    }
+    return writePropertiesToFile(pLocale, pBundles.toProperties(pLocale),
+        pMode, pFileDirectory, pFileNameWithoutExtension);
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#writeKeysToFile(List, File, String)
+   */
+  public boolean writeKeysToFile(
+      final List<String> pKeys,
+      final File pFileDirectory,
+      final String pFileNameWithoutExtension)
+      throws IOException {
+    if (pKeys == null) {
+      throw new IllegalArgumentException(
+          "Keys was null, expected non-null value");
+    }
+    final String eKeysClassName = WriterUtil.getKeysClassName(
+        pFileNameWithoutExtension);
+    final File eKeysFile = new File(pFileDirectory, WriterUtil
+        .getLocalizedFileName(null, eKeysClassName, PropertiesMode.JAVA));
+    final byte[] eContent = mKeysGenerator.generate(eKeysClassName, pKeys,
+        PROPERTIES_COMMENT);
+    eKeysFile.getParentFile().mkdirs();
+    final boolean eWritten = writeContent(eContent, eKeysFile);
+    if (mWriteListener != null) {
+      mWriteListener.recordWrite(eContent.length, eWritten);
+    }
+    return eWritten;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.writer.PropertiesWriter#newSpillingWriter(com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode, File, String, int)
+   */
+  public SpillingBundleWriter newSpillingWriter(
+      final PropertiesMode pMode,
+      final File pFileDirectory,
+      final String pFileNameWithoutExtension,
+      final int pBufferSize) {
+    final SpillingBundleWriter eWriter = new SpillingBundleWriter(
+        pFileDirectory, pFileNameWithoutExtension, pMode,
+        PropertiesSerializer.newSerializer(pMode, mUtf8Properties),
+        PROPERTIES_COMMENT, pBufferSize);
+    eWriter.setWriteListener(mWriteListener);
+    eWriter.setWriteIfChanged(mWriteIfChanged);
+    return eWriter;
   }
 
   /**
@@ -124,54 +509,103 @@ public class PropertiesWriterImpl implements PropertiesWriter {
       final PropertiesMode pMode,
       final File pFileForLocalizedProperties)
       throws IOException {
-    final Properties eResultProperties = new Properties();
-
-    LogUtil.debug(this, "Loading properties from existing file: "
-        + pFileForLocalizedProperties);
-    InputStream eInputStream = null;
+    LogUtil.debug(this, "Merging properties with existing file: ",
+        pFileForLocalizedProperties);
+    final MappedPropertiesMerger eMerger = new MappedPropertiesMerger(
+        pFileForLocalizedProperties, pMode, mUtf8Properties);
+    final Properties eResultProperties;
     try {
-      eInputStream = new FileInputStream(pFileForLocalizedProperties);
-      if (PropertiesMode.PROPERTIES.equals(pMode)) {
-        eResultProperties.load(eInputStream);
-      }
-      else if (PropertiesMode.XML.equals(pMode)) {
-        eResultProperties.loadFromXML(eInputStream);
+      eResultProperties = eMerger.merge(pProperties);
+    }
+    catch (IOException ex) {
+      throw new IOException("Failed merging with existing file "
+          + pFileForLocalizedProperties + ": " + ex.getMessage(), ex);
+    }
+    LogUtil.debug(this, new LogUtil.LogMessageSupplier() {
+      public String getMessage() {
+        return "Done Merging properties files, overwrote "
+            + eMerger.getOverwrittenCount() + " existing properties";
       }
-      LogUtil.debug(this,
-          "Successfully loaded properties from existing file: "
-              + eResultProperties);
-
-      mergeProperties(pProperties, eResultProperties);
+    });
+    return eResultProperties;
+  }
 
-      return eResultProperties;
+  /**
+   * Merges into an existing PROPERTIES file in a single pass, see
+   * {@link StreamingPropertiesMerger}. The file is only replaced when an
+   * entry changed or was added.
+   *
+   * @return true if the file was written
+   */
+  private boolean mergeStreaming(
+      final Locale pLocale,
+      final Properties pProperties,
+      final File pFileForLocalizedProperties)
+      throws IOException {
+    LogUtil.debug(this, "Streaming properties into existing file: ",
+        pFileForLocalizedProperties);
+    final long eStart = System.nanoTime();
+    final long eExistingLength = pFileForLocalizedProperties.length();
+    final StreamingPropertiesMerger eMerger = new StreamingPropertiesMerger(
+        pFileForLocalizedProperties,
+        getSerializer(PropertiesMode.PROPERTIES), mUtf8Properties);
+    final boolean eChanged;
+    try {
+      eChanged = eMerger.merge(pProperties);
     }
-    finally {
-      if (eInputStream != null) {
-        eInputStream.close();
+    catch (IOException ex) {
+      throw new IOException("Failed merging with existing file "
+          + pFileForLocalizedProperties + ": " + ex.getMessage(), ex);
+    }
+    LogUtil.debug(this, new LogUtil.LogMessageSupplier() {
+      public String getMessage() {
+        return "Done streaming properties, replaced "
+            + eMerger.getReplacedCount() + " and appended "
+            + eMerger.getAppendedCount() + " properties";
       }
+    });
+    if (mWriteListener != null) {
+      mWriteListener.recordMerge(pLocale, eExistingLength,
+          System.nanoTime() - eStart);
+      mWriteListener.recordWrite(pLocale,
+          pFileForLocalizedProperties.length(), eChanged);
     }
+    return eChanged;
   }
 
   /**
-   * @param pSourceProperties
-   * @param pDestinationProperties
+   * Reads the entries of an existing binary bundle, the new properties
+   * overwriting them. The file is read into the heap rather than mapped as
+   * it is about to be overwritten.
    */
-  private void mergeProperties(Properties pSourceProperties,
-                               Properties pDestinationProperties) {
-    LogUtil.debug(this, "Merging properties files");
-
-    final Set<Object> ePropertiesKeySet = pSourceProperties.keySet();
-    for (Iterator i = ePropertiesKeySet.iterator(); i.hasNext();) {
-      Object eLoopKey = i.next();
-
-      if (pDestinationProperties.containsKey(eLoopKey)) {
-        LogUtil.debug(this, "Overwriting property with key: "
-            + eLoopKey);
-      }
-      final Object eSourcePropertyValue = pSourceProperties.get(eLoopKey);
-      pDestinationProperties.put(eLoopKey, eSourcePropertyValue);
+  private Properties mergeBinaryBundleFile(
+      final Properties pProperties,
+      final File pFileForLocalizedProperties)
+      throws IOException {
+    LogUtil.debug(this, "Merging properties with existing file: ",
+        pFileForLocalizedProperties);
+    final BinaryResourceBundle eBundle;
+    final RandomAccessFile eFile = new RandomAccessFile(
+        pFileForLocalizedProperties, "r");
+    try {
+      final byte[] eContent = new byte[(int) eFile.length()];
+      eFile.readFully(eContent);
+      eBundle = new BinaryResourceBundle(ByteBuffer.wrap(eContent));
+    }
+    catch (IOException ex) {
+      throw new IOException("Failed merging with existing file "
+          + pFileForLocalizedProperties + ": " + ex.getMessage(), ex);
+    }
+    finally {
+      eFile.close();
+    }
+    final Properties eResultProperties = new Properties();
+    for (Enumeration<String> i = eBundle.getKeys(); i.hasMoreElements();) {
+      final String eKey = i.nextElement();
+      eResultProperties.put(eKey, eBundle.getString(eKey));
     }
-    LogUtil.debug(this, "Done Merging properties files");
+    eResultProperties.putAll(pProperties);
+    return eResultProperties;
   }
 
 }
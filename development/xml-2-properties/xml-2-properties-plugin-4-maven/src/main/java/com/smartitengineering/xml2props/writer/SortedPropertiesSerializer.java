@@ -0,0 +1,141 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+/**
+ * Writes properties in the format read by
+ * {@link java.util.Properties#load(java.io.InputStream)}: ISO 8859-1 with all
+ * the other characters escaped as unicode. In UTF-8 mode the characters
+ * beyond ASCII are written as UTF-8 instead, as read by
+ * {@link java.util.Properties#load(java.io.Reader)} with a UTF-8 Reader and
+ * by {@link java.util.PropertyResourceBundle} since Java 9; only the
+ * characters special to the format are escaped then.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class SortedPropertiesSerializer extends PropertiesSerializer {
+
+  /** The escapes of the ASCII characters, null if written as they are */
+  private static final byte[][] ESCAPES;
+
+  static {
+    final StringBuilder eLiterals = new StringBuilder();
+    for (char c = 0x20; c < 0x7F; c++) {
+      eLiterals.append(c);
+    }
+    ESCAPES = newEscapeTable(eLiterals.toString());
+    ESCAPES['\\'] = toBytes("\\\\");
+    ESCAPES['\t'] = toBytes("\\t");
+    ESCAPES['\n'] = toBytes("\\n");
+    ESCAPES['\r'] = toBytes("\\r");
+    ESCAPES['\f'] = toBytes("\\f");
+    ESCAPES['='] = toBytes("\\=");
+    ESCAPES[':'] = toBytes("\\:");
+    ESCAPES['#'] = toBytes("\\#");
+    ESCAPES['!'] = toBytes("\\!");
+  }
+
+  private static final byte[] ESCAPED_SPACE = toBytes("\\ ");
+
+  private final boolean mUtf8;
+
+  public SortedPropertiesSerializer() {
+    this(false);
+  }
+
+  /**
+   * @param pUtf8 whether the characters beyond ASCII are written as UTF-8
+   *              instead of as unicode escapes
+   */
+  public SortedPropertiesSerializer(final boolean pUtf8) {
+    super();
+    mUtf8 = pUtf8;
+  }
+
+  /** @return whether the characters beyond ASCII are written as UTF-8 */
+  public boolean isUtf8() {
+    return mUtf8;
+  }
+
+  protected void appendHeader(final String pComment) {
+    if (pComment != null) {
+      append((byte) '#');
+      appendEscaped(pComment, false, false);
+      append((byte) '\n');
+    }
+  }
+
+  protected void appendEntry(final String pKey, final String pValue) {
+    appendEscaped(pKey, true, true);
+    append((byte) '=');
+    appendEscaped(pValue, false, true);
+    append((byte) '\n');
+  }
+
+  protected void appendFooter() {
+  }
+
+  /**
+   * @param pEscapeSpaces  whether every space is escaped, otherwise only a
+   *                       leading space is
+   * @param pEscapeSpecial whether the characters special to the format are
+   *                       escaped
+   */
+  private void appendEscaped(
+      final String pString,
+      final boolean pEscapeSpaces,
+      final boolean pEscapeSpecial) {
+    final int eLength = pString.length();
+    for (int i = 0; i < eLength; i++) {
+      final char c = pString.charAt(i);
+      if (c >= 128) {
+        if (!mUtf8) {
+          appendUnicodeEscape(c);
+        }
+        else if (Character.isHighSurrogate(c) && i + 1 < eLength
+            && Character.isLowSurrogate(pString.charAt(i + 1))) {
+          appendUtf8(Character.toCodePoint(c, pString.charAt(++i)));
+        }
+        else if (Character.isSurrogate(c)) {
+          // an unpaired surrogate has no UTF-8 form
+          appendUnicodeEscape(c);
+        }
+        else {
+          appendUtf8(c);
+        }
+      }
+      else if (c == ' ') {
+        if (pEscapeSpecial && (pEscapeSpaces || i == 0)) {
+          append(ESCAPED_SPACE);
+        }
+        else {
+          append((byte) c);
+        }
+      }
+      else if (ESCAPES[c] == null || (!pEscapeSpecial && c >= 0x20)) {
+        append((byte) c);
+      }
+      else {
+        append(ESCAPES[c]);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+import java.io.IOException;
+
+/**
+ * Writes properties in the format read by
+ * {@link java.util.Properties#loadFromXML(java.io.InputStream)}, encoded in
+ * UTF-8. Tab, line feed and carriage return are written as character
+ * references. The characters XML 1.0 does not allow, the other control
+ * characters below 0x20, unpaired surrogates and U+FFFE and U+FFFF, fail the
+ * serialization with an IOException.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class SortedXmlPropertiesSerializer extends PropertiesSerializer {
+
+  private static final byte[] HEADER = toBytes(
+      "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+          + "<!DOCTYPE properties SYSTEM"
+          + " \"http://java.sun.com/dtd/properties.dtd\">\n"
+          + "<properties>\n");
+
+  private static final byte[] COMMENT_START = toBytes("<comment>");
+
+  private static final byte[] COMMENT_END = toBytes("</comment>\n");
+
+  private static final byte[] ENTRY_START = toBytes("<entry key=\"");
+
+  private static final byte[] ENTRY_KEY_END = toBytes("\">");
+
+  private static final byte[] ENTRY_END = toBytes("</entry>\n");
+
+  private static final byte[] FOOTER = toBytes("</properties>\n");
+
+  /**
+   * The escapes of the ASCII characters, null if written as they are or for
+   * the control characters not allowed in XML 1.0
+   */
+  private static final byte[][] ESCAPES = new byte[128][];
+
+  static {
+    ESCAPES['\t'] = toBytes("&#9;");
+    ESCAPES['\n'] = toBytes("&#10;");
+    ESCAPES['\r'] = toBytes("&#13;");
+    ESCAPES['&'] = toBytes("&amp;");
+    ESCAPES['<'] = toBytes("&lt;");
+    ESCAPES['>'] = toBytes("&gt;");
+    ESCAPES['"'] = toBytes("&quot;");
+  }
+
+  protected void appendHeader(final String pComment)
+      throws IOException {
+    append(HEADER);
+    if (pComment != null) {
+      append(COMMENT_START);
+      appendEscaped(pComment, null, false);
+      append(COMMENT_END);
+    }
+  }
+
+  protected void appendEntry(
+      final String pKey,
+      final String pValue)
+      throws IOException {
+    append(ENTRY_START);
+    appendEscaped(pKey, pKey, false);
+    append(ENTRY_KEY_END);
+    appendEscaped(pValue, pKey, true);
+    append(ENTRY_END);
+  }
+
+  protected void appendFooter() {
+    append(FOOTER);
+  }
+
+  /**
+   * @param pKey   The key of the entry, null for the comment
+   * @param pValue whether the string is the value of the entry
+   *
+   * @throws IOException if the string holds a character XML 1.0 does not
+   *                     allow
+   */
+  private void appendEscaped(
+      final String pString,
+      final String pKey,
+      final boolean pValue)
+      throws IOException {
+    final int eLength = pString.length();
+    for (int i = 0; i < eLength; i++) {
+      final char c = pString.charAt(i);
+      if (c < 128) {
+        if (ESCAPES[c] == null) {
+          if (c < 0x20) {
+            throw newInvalidCharacterException(pKey, pValue, c, i);
+          }
+          append((byte) c);
+        }
+        else {
+          append(ESCAPES[c]);
+        }
+      }
+      else {
+        final int eCodePoint = pString.codePointAt(i);
+        if (eCodePoint == 0xFFFE || eCodePoint == 0xFFFF
+            || (eCodePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT
+            && Character.isSurrogate(c))) {
+          throw newInvalidCharacterException(pKey, pValue, eCodePoint, i);
+        }
+        appendUtf8(eCodePoint);
+        i += Character.charCount(eCodePoint) - 1;
+      }
+    }
+  }
+
+  private static IOException newInvalidCharacterException(
+      final String pKey,
+      final boolean pValue,
+      final int pCodePoint,
+      final int pIndex) {
+    final String eDescription;
+    if (pKey == null) {
+      eDescription = "The comment";
+    }
+    else if (pValue) {
+      eDescription = "The value of the key '" + pKey + "'";
+    }
+    else {
+      eDescription = "The key '" + pKey + "'";
+    }
+    return new IOException(eDescription + " contains the character U+"
+        + String.format("%04X", Integer.valueOf(pCodePoint)) + " at index "
+        + pIndex + ", which XML 1.0 does not allow");
+  }
+
+}
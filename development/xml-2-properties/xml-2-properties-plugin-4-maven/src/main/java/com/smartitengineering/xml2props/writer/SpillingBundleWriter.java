@@ -0,0 +1,578 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+import com.smartitengineering.xml2props.bundle.BundleEntrySink;
+import com.smartitengineering.xml2props.util.WriterUtil;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Writer side of a streaming run: a {@link BundleEntrySink} that writes the
+ * entries pushed by a parser to a file per Locale while holding at most a
+ * fixed number of them in memory. The entries are buffered sorted by key per
+ * Locale; once the buffer is full the entries of every Locale are spilled to
+ * a temporary run file. {@link #finish()} merges the runs of each Locale with
+ * its remaining entries into the output file, the value pushed last winning
+ * for a key pushed more than once. At most a fixed number of runs are
+ * merged at once; a Locale with more runs has them merged into fewer runs in
+ * several passes first, so the open files and their buffers stay bounded
+ * however large the input is.
+ * <p/>
+ * The files are written by a {@link PropertiesSerializer}, so the same
+ * entries give the same bytes as when written at once. Existing files are
+ * replaced, not merged with: every file is written to a temporary file that
+ * is renamed over it, unless it is to be written only if changed and has the
+ * same bytes. The writer is not thread-safe.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class SpillingBundleWriter implements BundleEntrySink, Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The default of the most runs merged at once */
+  public static final int DEFAULT_MERGE_FAN_IN = 16;
+
+  /** Orders the cursors by key, the older run first for the same key */
+  private static final Comparator<RunCursor> CURSOR_ORDER =
+      new Comparator<RunCursor>() {
+        public int compare(final RunCursor pFirst, final RunCursor pSecond) {
+          final int eKeyOrder = pFirst.mKey.compareTo(pSecond.mKey);
+          return eKeyOrder != 0 ? eKeyOrder : pFirst.mAge - pSecond.mAge;
+        }
+      };
+
+  private final File mFileDirectory;
+
+  private final String mFileNameWithoutExtension;
+
+  private final PropertiesMode mMode;
+
+  private final PropertiesSerializer mSerializer;
+
+  private final String mComment;
+
+  private final int mBufferSize;
+
+  /** The buffered entries of the Locales, in the order first pushed to */
+  private final Map<Locale, SortedMap<String, String>> mBuffers;
+
+  /** The spilled run files of the Locales, the oldest first */
+  private final Map<Locale, List<File>> mRuns;
+
+  private int mBufferedCount;
+
+  private long mEntryCount;
+
+  private int mSpillCount;
+
+  private int mMergeFanIn;
+
+  private int mPeakOpenRunCount;
+
+  private boolean mWriteIfChanged;
+
+  private BundleWriteListener mWriteListener;
+
+  /**
+   * @param pFileDirectory            The directory to write to
+   * @param pFileNameWithoutExtension The bundle name
+   * @param pMode                     The mode of the files
+   * @param pSerializer               The serializer for the mode
+   * @param pComment                  The comment of the files, may be null
+   * @param pBufferSize               The most entries held in memory
+   */
+  public SpillingBundleWriter(
+      final File pFileDirectory,
+      final String pFileNameWithoutExtension,
+      final PropertiesMode pMode,
+      final PropertiesSerializer pSerializer,
+      final String pComment,
+      final int pBufferSize) {
+    if (pSerializer == null) {
+      throw new IllegalArgumentException(
+          "Serializer was null, expected non-null value");
+    }
+    if (pBufferSize < 1) {
+      throw new IllegalArgumentException(
+          "Buffer size must be positive, found: " + pBufferSize);
+    }
+    mFileDirectory = pFileDirectory;
+    mFileNameWithoutExtension = pFileNameWithoutExtension;
+    mMode = pMode;
+    mSerializer = pSerializer;
+    mComment = pComment;
+    mBufferSize = pBufferSize;
+    mBuffers = new LinkedHashMap<Locale, SortedMap<String, String>>();
+    mRuns = new LinkedHashMap<Locale, List<File>>();
+    mMergeFanIn = DEFAULT_MERGE_FAN_IN;
+  }
+
+  /**
+   * @param pMergeFanIn the most runs merged at once, at least 2
+   */
+  public void setMergeFanIn(final int pMergeFanIn) {
+    if (pMergeFanIn < 2) {
+      throw new IllegalArgumentException(
+          "Merge fan-in must be at least 2, found: " + pMergeFanIn);
+    }
+    mMergeFanIn = pMergeFanIn;
+  }
+
+  /**
+   * @param pWriteListener the listener told about the written files, null
+   *                       for none
+   */
+  public void setWriteListener(final BundleWriteListener pWriteListener) {
+    mWriteListener = pWriteListener;
+  }
+
+  /**
+   * @param pWriteIfChanged whether a file with the same bytes is left
+   *                        untouched
+   */
+  public void setWriteIfChanged(final boolean pWriteIfChanged) {
+    mWriteIfChanged = pWriteIfChanged;
+  }
+
+  /** @return the number of entries pushed */
+  public long getEntryCount() {
+    return mEntryCount;
+  }
+
+  /** @return how many times the buffer was spilled */
+  public int getSpillCount() {
+    return mSpillCount;
+  }
+
+  /** @return the most run files that were open at once */
+  public int getPeakOpenRunCount() {
+    return mPeakOpenRunCount;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.bundle.BundleEntrySink#put(String, Locale, String)
+   */
+  public void put(final String pKey, final Locale pLocale, final String pValue)
+      throws IOException {
+    if (pKey == null) {
+      throw new IllegalArgumentException(
+          "Key was null, expected non-null value");
+    }
+    if (pValue == null) {
+      throw new IllegalArgumentException("Value of key '" + pKey
+          + "' was null, expected non-null value");
+    }
+    SortedMap<String, String> eBuffer = mBuffers.get(pLocale);
+    if (eBuffer == null) {
+      eBuffer = new TreeMap<String, String>();
+      mBuffers.put(pLocale, eBuffer);
+    }
+    if (eBuffer.put(pKey, pValue) == null) {
+      mBufferedCount++;
+    }
+    mEntryCount++;
+    if (mBufferedCount >= mBufferSize) {
+      spill();
+    }
+  }
+
+  /**
+   * Writes the file of every Locale pushed to and removes the run files.
+   *
+   * @return the names of the written files
+   *
+   * @throws IOException if a file could not be written
+   */
+  public List<String> finish() throws IOException {
+    try {
+      final List<String> eFileNames = new ArrayList<String>();
+      for (Iterator<Map.Entry<Locale, SortedMap<String, String>>> i = mBuffers
+          .entrySet().iterator(); i.hasNext();) {
+        final Map.Entry<Locale, SortedMap<String, String>> eLoopEntry =
+            i.next();
+        eFileNames.add(writeLocale(eLoopEntry.getKey(),
+            eLoopEntry.getValue()));
+      }
+      return eFileNames;
+    }
+    finally {
+      close();
+    }
+  }
+
+  /**
+   * Removes the run files, the entries not written yet are discarded.
+   */
+  public void close() {
+    for (Iterator<List<File>> i = mRuns.values().iterator(); i.hasNext();) {
+      for (Iterator<File> j = i.next().iterator(); j.hasNext();) {
+        j.next().delete();
+      }
+    }
+    mRuns.clear();
+    mBuffers.clear();
+    mBufferedCount = 0;
+  }
+
+  private void spill() throws IOException {
+    for (Iterator<Map.Entry<Locale, SortedMap<String, String>>> i = mBuffers
+        .entrySet().iterator(); i.hasNext();) {
+      final Map.Entry<Locale, SortedMap<String, String>> eLoopEntry = i.next();
+      if (!eLoopEntry.getValue().isEmpty()) {
+        List<File> eRuns = mRuns.get(eLoopEntry.getKey());
+        if (eRuns == null) {
+          eRuns = new ArrayList<File>();
+          mRuns.put(eLoopEntry.getKey(), eRuns);
+        }
+        eRuns.add(writeRun(eLoopEntry.getValue()));
+        eLoopEntry.getValue().clear();
+      }
+    }
+    mBufferedCount = 0;
+    mSpillCount++;
+  }
+
+  private static File writeRun(final SortedMap<String, String> pEntries)
+      throws IOException {
+    final File eRunFile = File.createTempFile("xml2props-", ".run");
+    try {
+      final DataOutputStream eOutputStream = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(eRunFile),
+              BUFFER_SIZE));
+      try {
+        for (Iterator<Map.Entry<String, String>> i = pEntries.entrySet()
+            .iterator(); i.hasNext();) {
+          final Map.Entry<String, String> eLoopEntry = i.next();
+          writeRunEntry(eLoopEntry.getKey(), eLoopEntry.getValue(),
+              eOutputStream);
+        }
+        eOutputStream.writeBoolean(false);
+      }
+      finally {
+        eOutputStream.close();
+      }
+    }
+    catch (IOException ex) {
+      eRunFile.delete();
+      throw ex;
+    }
+    return eRunFile;
+  }
+
+  /**
+   * Writes an entry of a run, the entries of a run are followed by false.
+   */
+  private static void writeRunEntry(
+      final String pKey,
+      final String pValue,
+      final DataOutputStream pOutputStream)
+      throws IOException {
+    pOutputStream.writeBoolean(true);
+    writeString(pKey, pOutputStream);
+    writeString(pValue, pOutputStream);
+  }
+
+  /** Writes the chars as they are, unlike UTF-8 that loses lone surrogates */
+  private static void writeString(
+      final String pString,
+      final DataOutputStream pOutputStream)
+      throws IOException {
+    pOutputStream.writeInt(pString.length());
+    pOutputStream.writeChars(pString);
+  }
+
+  private static String readString(final DataInputStream pInputStream)
+      throws IOException {
+    final char[] eChars = new char[pInputStream.readInt()];
+    for (int i = 0; i < eChars.length; i++) {
+      eChars[i] = pInputStream.readChar();
+    }
+    return new String(eChars);
+  }
+
+  /**
+   * @return the name of the written file
+   */
+  private String writeLocale(
+      final Locale pLocale,
+      final SortedMap<String, String> pBuffer)
+      throws IOException {
+    final String eFileName = WriterUtil.getLocalizedFileName(pLocale,
+        mFileNameWithoutExtension, mMode);
+    final File eFile = new File(mFileDirectory, eFileName);
+    final List<File> eRuns = reduceRuns(pLocale);
+    final File eTempFile = File.createTempFile(eFile.getName(), ".tmp",
+        eFile.getAbsoluteFile().getParentFile());
+    try {
+      writeLocale(pBuffer, eRuns, eTempFile);
+      final boolean eChanged = !mWriteIfChanged
+          || !WriterUtil.isContentEqual(eTempFile, eFile);
+      if (eChanged) {
+        WriterUtil.moveAtomically(eTempFile, eFile);
+      }
+      if (mWriteListener != null) {
+        mWriteListener.recordWrite(pLocale, eFile.length(), eChanged);
+      }
+    }
+    finally {
+      if (eTempFile.exists() && !eTempFile.delete()) {
+        eTempFile.deleteOnExit();
+      }
+    }
+    return eFileName;
+  }
+
+  /**
+   * Writes the remaining buffer merged with the runs to the file.
+   */
+  private void writeLocale(
+      final SortedMap<String, String> pBuffer,
+      final List<File> pRuns,
+      final File pFile)
+      throws IOException {
+    final OutputStream eOutputStream = new BufferedOutputStream(
+        new FileOutputStream(pFile), BUFFER_SIZE);
+    try {
+      mSerializer.writeHeader(mComment, eOutputStream);
+      if (pRuns == null) {
+        for (Iterator<Map.Entry<String, String>> i = pBuffer.entrySet()
+            .iterator(); i.hasNext();) {
+          final Map.Entry<String, String> eLoopEntry = i.next();
+          mSerializer.writeEntry(eLoopEntry.getKey(), eLoopEntry.getValue(),
+              eOutputStream);
+        }
+      }
+      else {
+        mergeRuns(pRuns, pBuffer, new EntryWriter() {
+          public void write(final String pKey, final String pValue)
+              throws IOException {
+            mSerializer.writeEntry(pKey, pValue, eOutputStream);
+          }
+        });
+      }
+      mSerializer.writeFooter(eOutputStream);
+    }
+    finally {
+      eOutputStream.close();
+    }
+  }
+
+  /**
+   * Merges the runs of a Locale, in passes of at most the merge fan-in runs
+   * each, until no more than the fan-in are left.
+   *
+   * @return the remaining runs of the Locale, the oldest first
+   */
+  private List<File> reduceRuns(final Locale pLocale) throws IOException {
+    List<File> eRuns = mRuns.get(pLocale);
+    while (eRuns != null && eRuns.size() > mMergeFanIn) {
+      final List<File> eMergedRuns = new ArrayList<File>();
+      for (int i = 0; i < eRuns.size(); i += mMergeFanIn) {
+        final int eEnd = Math.min(i + mMergeFanIn, eRuns.size());
+        final List<File> eGroup = eRuns.subList(i, eEnd);
+        if (eGroup.size() == 1) {
+          eMergedRuns.add(eGroup.get(0));
+          continue;
+        }
+        eMergedRuns.add(mergeToRun(eGroup));
+        for (Iterator<File> j = eGroup.iterator(); j.hasNext();) {
+          j.next().delete();
+        }
+        // the runs left are those close() removes if a later merge fails
+        final List<File> eLeftRuns = new ArrayList<File>(eMergedRuns);
+        eLeftRuns.addAll(eRuns.subList(eEnd, eRuns.size()));
+        mRuns.put(pLocale, eLeftRuns);
+      }
+      eRuns = eMergedRuns;
+    }
+    return eRuns;
+  }
+
+  /**
+   * @return a new run with the merged entries of the runs
+   */
+  private File mergeToRun(final List<File> pRuns) throws IOException {
+    final File eRunFile = File.createTempFile("xml2props-", ".run");
+    try {
+      final DataOutputStream eOutputStream = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(eRunFile),
+              BUFFER_SIZE));
+      try {
+        mergeRuns(pRuns, null, new EntryWriter() {
+          public void write(final String pKey, final String pValue)
+              throws IOException {
+            writeRunEntry(pKey, pValue, eOutputStream);
+          }
+        });
+        eOutputStream.writeBoolean(false);
+      }
+      finally {
+        eOutputStream.close();
+      }
+    }
+    catch (IOException ex) {
+      eRunFile.delete();
+      throw ex;
+    }
+    return eRunFile;
+  }
+
+  /**
+   * Merges the sorted runs and the remaining buffer, which is the newest of
+   * them, holding a single entry of each in memory.
+   *
+   * @param pBuffer The remaining buffer, null to merge the runs only
+   */
+  private void mergeRuns(
+      final List<File> pRuns,
+      final SortedMap<String, String> pBuffer,
+      final EntryWriter pWriter)
+      throws IOException {
+    final PriorityQueue<RunCursor> eCursors = new PriorityQueue<RunCursor>(
+        pRuns.size() + 1, CURSOR_ORDER);
+    final List<DataInputStream> eInputStreams =
+        new ArrayList<DataInputStream>();
+    try {
+      for (int i = 0; i < pRuns.size(); i++) {
+        final DataInputStream eInputStream = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(pRuns.get(i)),
+                BUFFER_SIZE));
+        eInputStreams.add(eInputStream);
+        mPeakOpenRunCount = Math.max(mPeakOpenRunCount,
+            eInputStreams.size());
+        addIfNext(eCursors, new RunCursor(i, eInputStream));
+      }
+      if (pBuffer != null) {
+        addIfNext(eCursors, new RunCursor(pRuns.size(),
+            pBuffer.entrySet().iterator()));
+      }
+
+      while (!eCursors.isEmpty()) {
+        RunCursor eCursor = eCursors.poll();
+        final String eKey = eCursor.mKey;
+        String eValue = eCursor.mValue;
+        addIfNext(eCursors, eCursor);
+        while (!eCursors.isEmpty() && eCursors.peek().mKey.equals(eKey)) {
+          eCursor = eCursors.poll();
+          eValue = eCursor.mValue;
+          addIfNext(eCursors, eCursor);
+        }
+        pWriter.write(eKey, eValue);
+      }
+    }
+    finally {
+      for (Iterator<DataInputStream> i = eInputStreams.iterator();
+           i.hasNext();) {
+        i.next().close();
+      }
+    }
+  }
+
+  private static void addIfNext(
+      final PriorityQueue<RunCursor> pCursors,
+      final RunCursor pCursor)
+      throws IOException {
+    if (pCursor.next()) {
+      pCursors.add(pCursor);
+    }
+  }
+
+  /**
+   * Receives the merged entries in key order.
+   */
+  private interface EntryWriter {
+
+    void write(String pKey, String pValue) throws IOException;
+  }
+
+  /**
+   * Reads the entries of a run file, or of the remaining buffer, in key
+   * order.
+   */
+  private static final class RunCursor {
+
+    private final int mAge;
+
+    private final DataInputStream mInputStream;
+
+    private final Iterator<Map.Entry<String, String>> mIterator;
+
+    private String mKey;
+
+    private String mValue;
+
+    RunCursor(final int pAge, final DataInputStream pInputStream)
+        throws IOException {
+      mAge = pAge;
+      mInputStream = pInputStream;
+      mIterator = null;
+    }
+
+    RunCursor(
+        final int pAge,
+        final Iterator<Map.Entry<String, String>> pIterator) {
+      mAge = pAge;
+      mInputStream = null;
+      mIterator = pIterator;
+    }
+
+    /** @return false once all the entries are read */
+    boolean next() throws IOException {
+      if (mIterator != null) {
+        if (!mIterator.hasNext()) {
+          return false;
+        }
+        final Map.Entry<String, String> eEntry = mIterator.next();
+        mKey = eEntry.getKey();
+        mValue = eEntry.getValue();
+        return true;
+      }
+      if (!mInputStream.readBoolean()) {
+        return false;
+      }
+      mKey = readString(mInputStream);
+      mValue = readString(mInputStream);
+      return true;
+    }
+  }
+
+}
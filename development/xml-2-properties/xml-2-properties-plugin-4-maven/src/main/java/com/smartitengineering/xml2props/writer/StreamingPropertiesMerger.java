@@ -0,0 +1,468 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.writer;
+
+import com.smartitengineering.xml2props.util.WriterUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Merges new properties into an existing PROPERTIES file in a single pass
+ * over the file, without loading the existing properties. Every logical line
+ * of the file is copied to a temporary file as it is, unless it holds a key
+ * whose new value differs; the entry is then written with the new value in
+ * its place. The new keys not found in the file are appended at its end in
+ * sorted order and the temporary file is atomically renamed to the existing
+ * one. Only a single logical line of the file is held in memory.
+ * <p/>
+ * The existing file is left untouched when no value changed and no key was
+ * added. Comments, blank lines and the order of the existing entries are
+ * kept.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class StreamingPropertiesMerger {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File mExistingFile;
+
+  private final boolean mUtf8;
+
+  private final PropertiesSerializer mSerializer;
+
+  private InputStream mInputStream;
+
+  private final byte[] mReadBuffer;
+
+  private int mReadPosition;
+
+  private int mReadLimit;
+
+  /** The current logical line, including its line ends */
+  private byte[] mLine;
+
+  private int mLineLength;
+
+  private int mValueStart;
+
+  private int mReplacedCount;
+
+  private int mAppendedCount;
+
+  /**
+   * @param pExistingFile The existing PROPERTIES file
+   * @param pSerializer   The serializer to write the replaced and appended
+   *                      entries with
+   */
+  public StreamingPropertiesMerger(
+      final File pExistingFile,
+      final PropertiesSerializer pSerializer) {
+    this(pExistingFile, pSerializer, false);
+  }
+
+  /**
+   * @param pExistingFile The existing PROPERTIES file
+   * @param pSerializer   The serializer to write the replaced and appended
+   *                      entries with, in the encoding of the file
+   * @param pUtf8         whether the existing file is written in UTF-8
+   */
+  public StreamingPropertiesMerger(
+      final File pExistingFile,
+      final PropertiesSerializer pSerializer,
+      final boolean pUtf8) {
+    if (pExistingFile == null) {
+      throw new IllegalArgumentException(
+          "Existing file was null, expected non-null value");
+    }
+    if (pSerializer == null) {
+      throw new IllegalArgumentException(
+          "Serializer was null, expected non-null value");
+    }
+    mExistingFile = pExistingFile;
+    mSerializer = pSerializer;
+    mUtf8 = pUtf8;
+    mReadBuffer = new byte[BUFFER_SIZE];
+    mLine = new byte[256];
+  }
+
+  /**
+   * @param pNewProperties The properties replacing the existing ones
+   *
+   * @return true if the file was rewritten, false if it was left untouched
+   *         as no property changed
+   *
+   * @throws IOException if the file could not be read or replaced
+   */
+  public boolean merge(final Properties pNewProperties)
+      throws IOException {
+    mReplacedCount = 0;
+    mAppendedCount = 0;
+    final File eTempFile = File.createTempFile(mExistingFile.getName(),
+        ".tmp", mExistingFile.getAbsoluteFile().getParentFile());
+    boolean eRenamed = false;
+    try {
+      try {
+        copyMerged(pNewProperties, eTempFile);
+      }
+      catch (IllegalArgumentException ex) {
+        throw new IOException("Invalid properties file: " + ex.getMessage(),
+            ex);
+      }
+      if (mReplacedCount == 0 && mAppendedCount == 0) {
+        return false;
+      }
+      WriterUtil.moveAtomically(eTempFile, mExistingFile);
+      eRenamed = true;
+      return true;
+    }
+    finally {
+      if (!eRenamed && !eTempFile.delete()) {
+        eTempFile.deleteOnExit();
+      }
+    }
+  }
+
+  /** @return the number of entries replaced by the last merge */
+  public int getReplacedCount() {
+    return mReplacedCount;
+  }
+
+  /** @return the number of entries appended by the last merge */
+  public int getAppendedCount() {
+    return mAppendedCount;
+  }
+
+  private void copyMerged(
+      final Properties pNewProperties,
+      final File pTempFile)
+      throws IOException {
+    final Set<String> eMergedKeys = new HashSet<String>();
+    final OutputStream eOutputStream = new BufferedOutputStream(
+        new FileOutputStream(pTempFile), BUFFER_SIZE);
+    try {
+      mInputStream = new FileInputStream(mExistingFile);
+      mReadPosition = 0;
+      mReadLimit = 0;
+      try {
+        boolean eEndsWithLineEnd = true;
+        while (readLogicalLine()) {
+          eEndsWithLineEnd = isLineEnd(mLine[mLineLength - 1]);
+          final String eKey = parseKey();
+          if (eKey != null && pNewProperties.containsKey(eKey)) {
+            eMergedKeys.add(eKey);
+            final String eNewValue = (String) pNewProperties.get(eKey);
+            if (!eNewValue.equals(decode(mValueStart, getValueEnd()))) {
+              mSerializer.writeEntry(eKey, eNewValue, eOutputStream);
+              mReplacedCount++;
+              eEndsWithLineEnd = true;
+              continue;
+            }
+          }
+          eOutputStream.write(mLine, 0, mLineLength);
+        }
+
+        final String[] eNewKeys = getNewKeys(pNewProperties, eMergedKeys);
+        if (eNewKeys.length > 0 && !eEndsWithLineEnd) {
+          eOutputStream.write('\n');
+        }
+        for (int i = 0; i < eNewKeys.length; i++) {
+          mSerializer.writeEntry(eNewKeys[i],
+              (String) pNewProperties.get(eNewKeys[i]), eOutputStream);
+          mAppendedCount++;
+        }
+      }
+      finally {
+        mInputStream.close();
+      }
+    }
+    finally {
+      eOutputStream.close();
+    }
+  }
+
+  private static String[] getNewKeys(
+      final Properties pNewProperties,
+      final Set<String> pMergedKeys) {
+    final String[] eNewKeys =
+        new String[pNewProperties.size() - pMergedKeys.size()];
+    int eCount = 0;
+    for (Iterator<Object> i = pNewProperties.keySet().iterator();
+         i.hasNext();) {
+      final String eKey = (String) i.next();
+      if (!pMergedKeys.contains(eKey)) {
+        eNewKeys[eCount++] = eKey;
+      }
+    }
+    Arrays.sort(eNewKeys);
+    return eNewKeys;
+  }
+
+  // ---------------------------------------------------------------------
+  // Reading the logical lines
+  // ---------------------------------------------------------------------
+
+  private static boolean isWhitespace(final int pByte) {
+    return pByte == ' ' || pByte == '\t' || pByte == '\f';
+  }
+
+  private static boolean isLineEnd(final int pByte) {
+    return pByte == '\n' || pByte == '\r';
+  }
+
+  /** @return the next byte of the file or -1 at its end */
+  private int read() throws IOException {
+    if (mReadPosition == mReadLimit) {
+      mReadLimit = mInputStream.read(mReadBuffer);
+      mReadPosition = 0;
+      if (mReadLimit <= 0) {
+        mReadLimit = 0;
+        return -1;
+      }
+    }
+    return mReadBuffer[mReadPosition++] & 0xFF;
+  }
+
+  /** @return the next byte of the file without reading it, or -1 */
+  private int peek() throws IOException {
+    final int eByte = read();
+    if (eByte >= 0) {
+      mReadPosition--;
+    }
+    return eByte;
+  }
+
+  private void appendToLine(final int pByte) {
+    if (mLineLength == mLine.length) {
+      mLine = Arrays.copyOf(mLine, mLine.length * 2);
+    }
+    mLine[mLineLength++] = (byte) pByte;
+  }
+
+  /**
+   * Reads the natural lines up to the end of the logical line, a line ending
+   * in an odd number of backslashes continues on the next one unless it is
+   * a comment.
+   *
+   * @return false at the end of the file
+   */
+  private boolean readLogicalLine() throws IOException {
+    mLineLength = 0;
+    boolean eComment = false;
+    boolean eLeadingWhitespace = true;
+    int eBackslashCount = 0;
+    int eByte = read();
+    if (eByte < 0) {
+      return false;
+    }
+    while (eByte >= 0) {
+      appendToLine(eByte);
+      if (isLineEnd(eByte)) {
+        if (eByte == '\r' && peek() == '\n') {
+          appendToLine(read());
+        }
+        if (eComment || eBackslashCount % 2 == 0) {
+          return true;
+        }
+        // the leading whitespace of a continuation line is skipped
+        eBackslashCount = 0;
+        eByte = read();
+        while (eByte >= 0 && isWhitespace(eByte)) {
+          appendToLine(eByte);
+          eByte = read();
+        }
+        continue;
+      }
+      if (eLeadingWhitespace && !isWhitespace(eByte)) {
+        eLeadingWhitespace = false;
+        eComment = eByte == '#' || eByte == '!';
+      }
+      eBackslashCount = eByte == '\\' ? eBackslashCount + 1 : 0;
+      eByte = read();
+    }
+    return true;
+  }
+
+  // ---------------------------------------------------------------------
+  // Parsing the logical line
+  // ---------------------------------------------------------------------
+
+  private int byteAt(final int pIndex) {
+    return mLine[pIndex] & 0xFF;
+  }
+
+  /** @return the index after the line end and the continuation whitespace */
+  private int skipContinuation(final int pIndex) {
+    int ePosition = pIndex;
+    if (byteAt(ePosition) == '\r' && ePosition + 1 < mLineLength
+        && byteAt(ePosition + 1) == '\n') {
+      ePosition++;
+    }
+    ePosition++;
+    while (ePosition < mLineLength && isWhitespace(byteAt(ePosition))) {
+      ePosition++;
+    }
+    return ePosition;
+  }
+
+  private int skipWhitespace(final int pIndex) {
+    int ePosition = pIndex;
+    while (ePosition < mLineLength) {
+      final int eByte = byteAt(ePosition);
+      if (isWhitespace(eByte)) {
+        ePosition++;
+      }
+      else if (eByte == '\\' && ePosition + 1 < mLineLength
+          && isLineEnd(byteAt(ePosition + 1))) {
+        ePosition = skipContinuation(ePosition + 1);
+      }
+      else {
+        break;
+      }
+    }
+    return ePosition;
+  }
+
+  /**
+   * @return the key of the logical line, null for a blank or comment line;
+   *         the start of the value is kept
+   */
+  private String parseKey() {
+    int ePosition = skipWhitespace(0);
+    if (ePosition >= mLineLength || isLineEnd(byteAt(ePosition))
+        || byteAt(ePosition) == '#' || byteAt(ePosition) == '!') {
+      return null;
+    }
+    final int eKeyStart = ePosition;
+    while (ePosition < mLineLength) {
+      final int eByte = byteAt(ePosition);
+      if (eByte == '\\') {
+        if (ePosition + 1 < mLineLength
+            && isLineEnd(byteAt(ePosition + 1))) {
+          ePosition = skipContinuation(ePosition + 1);
+        }
+        else {
+          ePosition += 2;
+        }
+      }
+      else if (eByte == '=' || eByte == ':' || isWhitespace(eByte)
+          || isLineEnd(eByte)) {
+        break;
+      }
+      else {
+        ePosition++;
+      }
+    }
+    final int eKeyEnd = Math.min(ePosition, mLineLength);
+
+    ePosition = skipWhitespace(ePosition);
+    if (ePosition < mLineLength
+        && (byteAt(ePosition) == '=' || byteAt(ePosition) == ':')) {
+      ePosition = skipWhitespace(ePosition + 1);
+    }
+    mValueStart = ePosition;
+    return decode(eKeyStart, eKeyEnd);
+  }
+
+  /** @return the end of the value, before the line end of the last line */
+  private int getValueEnd() {
+    int eEnd = mLineLength;
+    while (eEnd > mValueStart && isLineEnd(byteAt(eEnd - 1))) {
+      eEnd--;
+    }
+    return eEnd;
+  }
+
+  /**
+   * Decodes ISO 8859-1, or UTF-8, text with the escapes and line
+   * continuations of the properties format.
+   */
+  private String decode(final int pStart, final int pEnd) {
+    final StringBuilder eBuilder = new StringBuilder(pEnd - pStart);
+    int ePosition = pStart;
+    while (ePosition < pEnd) {
+      final int eByte = byteAt(ePosition++);
+      if (eByte != '\\') {
+        if (mUtf8 && eByte >= 0x80) {
+          ePosition = WriterUtil.appendUtf8(mLine, ePosition - 1, pEnd,
+              eBuilder);
+        }
+        else {
+          eBuilder.append((char) eByte);
+        }
+        continue;
+      }
+      if (ePosition >= pEnd) {
+        break;
+      }
+      final int eEscaped = byteAt(ePosition);
+      if (isLineEnd(eEscaped)) {
+        ePosition = skipContinuation(ePosition);
+        continue;
+      }
+      ePosition++;
+      switch (eEscaped) {
+        case 't':
+          eBuilder.append('\t');
+          break;
+        case 'n':
+          eBuilder.append('\n');
+          break;
+        case 'r':
+          eBuilder.append('\r');
+          break;
+        case 'f':
+          eBuilder.append('\f');
+          break;
+        case 'u':
+          if (ePosition + 4 > pEnd) {
+            throw new IllegalArgumentException(
+                "Malformed \\uxxxx encoding.");
+          }
+          int eChar = 0;
+          for (int i = 0; i < 4; i++) {
+            final int eDigit = Character.digit(byteAt(ePosition++), 16);
+            if (eDigit < 0) {
+              throw new IllegalArgumentException(
+                  "Malformed \\uxxxx encoding.");
+            }
+            eChar = (eChar << 4) | eDigit;
+          }
+          eBuilder.append((char) eChar);
+          break;
+        default:
+          eBuilder.append((char) eEscaped);
+      }
+    }
+    return eBuilder.toString();
+  }
+
+}
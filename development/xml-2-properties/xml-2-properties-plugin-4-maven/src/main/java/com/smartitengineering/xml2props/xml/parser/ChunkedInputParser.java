@@ -0,0 +1,574 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.xml.parser;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.maven.AbstractXmlToPropertiesMojo;
+import com.smartitengineering.xml2props.util.LogUtil;
+import org.apache.maven.plugin.AbstractMojo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * InputParser for a single large input file. The elements below the
+ * &lt;entries&gt; root are independent of each other, so the file is scanned
+ * at byte level for the start tags of the top-level elements and split at
+ * them into chunks of about the same size. Every chunk is wrapped into the
+ * prolog and root start tag of the file and parsed as a document of its own
+ * by {@link XmlStaxInputParser} on a fork-join pool. The bundles of the
+ * chunks are merged in file order so that, like in a sequential parse, a
+ * later entry of a key wins and the keys keep the order of the file.
+ * <p/>
+ * The byte scan skips comments, CDATA sections, processing instructions and
+ * quoted attribute values. Files in a UTF-16 encoding, with a DOCTYPE or too
+ * small to be split are parsed sequentially. The number of threads is the
+ * 'threads' parameter of the mojo when greater than 1, the number of
+ * available processors otherwise.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class ChunkedInputParser implements InputParser {
+
+  /** Smallest chunk worth parsing on a thread of its own */
+  private static final int DEFAULT_MIN_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  /** Largest chunk, so that a chunk can be mapped into a single buffer */
+  private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+  /** More chunks than threads even out the differing chunk parse times */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private static final int SCAN_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final XmlStaxInputParser mChunkParser;
+
+  private int mParallelism;
+
+  private int mMinChunkSize;
+
+  AbstractMojo mMojo;
+
+  public ChunkedInputParser() {
+    super();
+    mChunkParser = new XmlStaxInputParser();
+    mMinChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+  }
+
+  /** @return the mojo */
+  public AbstractMojo getMojo() {
+    return mMojo;
+  }
+
+  /** @param pMojo the mojo to set */
+  public void setMojo(AbstractMojo pMojo) {
+    mMojo = pMojo;
+    mChunkParser.setMojo(pMojo);
+  }
+
+  /**
+   * @param pParallelism the number of threads to parse with, 0 to take it
+   *                     from the mojo
+   */
+  public void setParallelism(final int pParallelism) {
+    mParallelism = pParallelism;
+  }
+
+  /** @param pMinChunkSize the smallest size in bytes of a chunk */
+  public void setMinChunkSize(final int pMinChunkSize) {
+    mMinChunkSize = Math.max(1, pMinChunkSize);
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.xml.parser.InputParser#parseInput(java.io.File)
+   */
+  public Map<Locale, Properties> parseInput(final File pInputFile)
+      throws IOException {
+    return parseBundles(pInputFile).toLocalePropertiesMap();
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.xml.parser.InputParser#parseBundles(java.io.File)
+   */
+  public LocaleBundleTable parseBundles(final File pInputFile)
+      throws IOException {
+    final int eParallelism = getParallelism();
+    final long eFileSize = pInputFile.length();
+    final long eChunkCount = Math.max(Math.min(
+        (long) eParallelism * CHUNKS_PER_THREAD, eFileSize / mMinChunkSize),
+        eFileSize / MAX_CHUNK_SIZE + 1);
+    if (eParallelism < 2 || eChunkCount < 2) {
+      return mChunkParser.parseBundles(pInputFile);
+    }
+
+    final RandomAccessFile eFile = new RandomAccessFile(pInputFile, "r");
+    try {
+      final FileChannel eChannel = eFile.getChannel();
+      final ChunkBoundaries eBoundaries = ChunkBoundaries.scan(eChannel,
+          eFileSize / eChunkCount);
+      if (eBoundaries == null || eBoundaries.getChunkCount() < 2) {
+        LogUtil.debug(this, "Parsing file sequentially: ", pInputFile);
+        return mChunkParser.parseBundles(pInputFile);
+      }
+      if (LogUtil.isDebugEnabled(this)) {
+        LogUtil.debug(this, "Parsing file in " + eBoundaries.getChunkCount()
+            + " chunks using threads: " + eParallelism + ": " + pInputFile);
+      }
+      final ForkJoinPool ePool = new ForkJoinPool(eParallelism);
+      try {
+        return ePool.invoke(new ChunkTask(eChannel, eBoundaries, 0,
+            eBoundaries.getChunkCount()));
+      }
+      catch (ParseFailure ex) {
+        throw findIOException(ex, pInputFile);
+      }
+      finally {
+        ePool.shutdown();
+      }
+    }
+    finally {
+      eFile.close();
+    }
+  }
+
+  private int getParallelism() {
+    if (mParallelism > 0) {
+      return mParallelism;
+    }
+    if (mMojo instanceof AbstractXmlToPropertiesMojo
+        && ((AbstractXmlToPropertiesMojo) mMojo).getThreads() > 1) {
+      return ((AbstractXmlToPropertiesMojo) mMojo).getThreads();
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * The fork-join framework may rethrow a copy of the exception thrown in a
+   * worker thread, the original is then found in the causes.
+   */
+  private IOException findIOException(
+      final Throwable pThrowable,
+      final File pInputFile) {
+    Throwable eCause = pThrowable;
+    while (eCause != null) {
+      if (eCause instanceof IOException) {
+        return new IOException("Failed parsing " + pInputFile + ": "
+            + eCause.getMessage(), eCause);
+      }
+      eCause = eCause.getCause();
+    }
+    return new IOException(pThrowable.getMessage(), pThrowable);
+  }
+
+  /**
+   * Carries the IOException of a worker thread out of the fork-join pool.
+   */
+  private static final class ParseFailure extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    ParseFailure(final IOException pCause) {
+      super(pCause.getMessage(), pCause);
+    }
+  }
+
+  private final class ChunkTask extends RecursiveTask<LocaleBundleTable> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final FileChannel mChannel;
+
+    private final ChunkBoundaries mBoundaries;
+
+    private final int mFrom;
+
+    private final int mTo;
+
+    ChunkTask(
+        final FileChannel pChannel,
+        final ChunkBoundaries pBoundaries,
+        final int pFrom,
+        final int pTo) {
+      mChannel = pChannel;
+      mBoundaries = pBoundaries;
+      mFrom = pFrom;
+      mTo = pTo;
+    }
+
+    protected LocaleBundleTable compute() {
+      if (mTo - mFrom == 1) {
+        final long eStart = mBoundaries.getChunkStart(mFrom);
+        try {
+          return parseChunk(eStart, mBoundaries.getChunkEnd(mFrom));
+        }
+        catch (IOException ex) {
+          throw new ParseFailure(new IOException("chunk at byte offset "
+              + eStart + ": " + ex.getMessage(), ex));
+        }
+      }
+      final int eMiddle = (mFrom + mTo) >>> 1;
+      final ChunkTask eLaterTask = new ChunkTask(mChannel, mBoundaries,
+          eMiddle, mTo);
+      eLaterTask.fork();
+      final LocaleBundleTable eResult = new ChunkTask(mChannel, mBoundaries,
+          mFrom, eMiddle).compute();
+      eResult.putAll(eLaterTask.join());
+      return eResult;
+    }
+
+    private LocaleBundleTable parseChunk(final long pStart, final long pEnd)
+        throws IOException {
+      final MappedByteBuffer eChunk = mChannel.map(
+          FileChannel.MapMode.READ_ONLY, pStart, pEnd - pStart);
+      final InputStream eInputStream = new SequenceInputStream(
+          new ByteArrayInputStream(mBoundaries.getPrefix()),
+          new SequenceInputStream(new ByteBufferInputStream(eChunk),
+              new ByteArrayInputStream(mBoundaries.getSuffix())));
+      return mChunkParser.parseBundles(eInputStream);
+    }
+  }
+
+  /**
+   * Reads a chunk of the mapped input file.
+   */
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer mBuffer;
+
+    ByteBufferInputStream(final ByteBuffer pBuffer) {
+      mBuffer = pBuffer;
+    }
+
+    public int read() {
+      return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+    }
+
+    public int read(
+        final byte[] pBytes,
+        final int pOffset,
+        final int pLength) {
+      if (pLength == 0) {
+        return 0;
+      }
+      if (!mBuffer.hasRemaining()) {
+        return -1;
+      }
+      final int eLength = Math.min(pLength, mBuffer.remaining());
+      mBuffer.get(pBytes, pOffset, eLength);
+      return eLength;
+    }
+
+    public int available() {
+      return mBuffer.remaining();
+    }
+  }
+
+  /**
+   * The byte offsets of the chunks of an input file, found by a single pass
+   * over the bytes tracking just enough of the xml syntax to know the depth
+   * of every start tag.
+   */
+  static final class ChunkBoundaries {
+
+    private static final int STATE_TEXT = 0;
+
+    private static final int STATE_TAG_OPEN = 1;
+
+    private static final int STATE_START_TAG = 2;
+
+    private static final int STATE_END_TAG = 3;
+
+    private static final int STATE_MARKUP = 4;
+
+    private static final int STATE_COMMENT_OPEN = 5;
+
+    private static final int STATE_COMMENT = 6;
+
+    private static final int STATE_CDATA = 7;
+
+    private static final int STATE_PROCESSING_INSTRUCTION = 8;
+
+    /** The xml declaration, prolog and root start tag */
+    private final byte[] mPrefix;
+
+    /** The root end tag */
+    private final byte[] mSuffix;
+
+    private final long[] mChunkStarts;
+
+    private final long mRootEnd;
+
+    private ChunkBoundaries(
+        final byte[] pPrefix,
+        final byte[] pSuffix,
+        final long[] pChunkStarts,
+        final long pRootEnd) {
+      mPrefix = pPrefix;
+      mSuffix = pSuffix;
+      mChunkStarts = pChunkStarts;
+      mRootEnd = pRootEnd;
+    }
+
+    /**
+     * @param pChannel   The input file
+     * @param pChunkSize The targeted size of a chunk
+     *
+     * @return the boundaries or null if the file can not be split
+     *
+     * @throws IOException if there is an error in reading the file
+     */
+    static ChunkBoundaries scan(
+        final FileChannel pChannel,
+        final long pChunkSize)
+        throws IOException {
+      final long eFileSize = pChannel.size();
+      final List<Long> eChunkStarts = new ArrayList<Long>();
+      final ByteArrayOutputStream eRootName = new ByteArrayOutputStream();
+      long eNextTarget = 0;
+      long ePrefixEnd = -1;
+      long eTagStart = 0;
+      int eState = STATE_TEXT;
+      int eDepth = 0;
+      int eQuote = 0;
+      int ePrevious = 0;
+      int eRun = 0;
+      boolean eInRootName = false;
+
+      for (long eWindowStart = 0; eWindowStart < eFileSize;
+           eWindowStart += SCAN_WINDOW_SIZE) {
+        final MappedByteBuffer eWindow = pChannel.map(
+            FileChannel.MapMode.READ_ONLY, eWindowStart,
+            Math.min(SCAN_WINDOW_SIZE, eFileSize - eWindowStart));
+        if (eWindowStart == 0 && !isAsciiCompatible(eWindow)) {
+          return null;
+        }
+        final int eLimit = eWindow.limit();
+        for (int i = 0; i < eLimit; i++) {
+          final int eByte = eWindow.get(i);
+          switch (eState) {
+            case STATE_TEXT:
+              if (eByte == '<') {
+                eState = STATE_TAG_OPEN;
+                eTagStart = eWindowStart + i;
+              }
+              break;
+            case STATE_TAG_OPEN:
+              if (eByte == '/') {
+                eState = STATE_END_TAG;
+              }
+              else if (eByte == '!') {
+                eState = STATE_MARKUP;
+              }
+              else if (eByte == '?') {
+                eState = STATE_PROCESSING_INSTRUCTION;
+                ePrevious = 0;
+              }
+              else {
+                eState = STATE_START_TAG;
+                eQuote = 0;
+                ePrevious = eByte;
+                if (eDepth == 0) {
+                  eInRootName = true;
+                  eRootName.write(eByte);
+                }
+                else if (eDepth == 1 && eTagStart >= eNextTarget) {
+                  eChunkStarts.add(Long.valueOf(eTagStart));
+                  eNextTarget = eTagStart + pChunkSize;
+                }
+              }
+              break;
+            case STATE_START_TAG:
+              if (eQuote != 0) {
+                if (eByte == eQuote) {
+                  eQuote = 0;
+                }
+              }
+              else if (eByte == '"' || eByte == '\'') {
+                eQuote = eByte;
+              }
+              else if (eByte == '>') {
+                if (ePrevious != '/') {
+                  eDepth++;
+                  if (eDepth == 1) {
+                    ePrefixEnd = eWindowStart + i + 1;
+                  }
+                }
+                else if (eDepth == 0) {
+                  // an empty root has no entries to split
+                  return null;
+                }
+                eState = STATE_TEXT;
+                eInRootName = false;
+              }
+              else if (eInRootName) {
+                if (isNameEnd(eByte)) {
+                  eInRootName = false;
+                }
+                else {
+                  eRootName.write(eByte);
+                }
+              }
+              ePrevious = eByte;
+              break;
+            case STATE_END_TAG:
+              if (eByte == '>') {
+                eDepth--;
+                eState = STATE_TEXT;
+                if (eDepth == 0) {
+                  return create(pChannel, ePrefixEnd, eRootName.toByteArray(),
+                      eChunkStarts, eTagStart);
+                }
+              }
+              break;
+            case STATE_MARKUP:
+              if (eByte == '-') {
+                eState = STATE_COMMENT_OPEN;
+              }
+              else if (eByte == '[') {
+                eState = STATE_CDATA;
+                eRun = 0;
+              }
+              else {
+                // a DOCTYPE may declare entities used in the chunks
+                return null;
+              }
+              break;
+            case STATE_COMMENT_OPEN:
+              eState = STATE_COMMENT;
+              eRun = 0;
+              break;
+            case STATE_COMMENT:
+              if (eByte == '>' && eRun >= 2) {
+                eState = STATE_TEXT;
+              }
+              eRun = eByte == '-' ? eRun + 1 : 0;
+              break;
+            case STATE_CDATA:
+              if (eByte == '>' && eRun >= 2) {
+                eState = STATE_TEXT;
+              }
+              eRun = eByte == ']' ? eRun + 1 : 0;
+              break;
+            case STATE_PROCESSING_INSTRUCTION:
+              if (eByte == '>' && ePrevious == '?') {
+                eState = STATE_TEXT;
+              }
+              ePrevious = eByte;
+              break;
+            default:
+              throw new IllegalStateException("Unknown scan state: "
+                  + eState);
+          }
+        }
+      }
+      // not well-formed, let the sequential parse report the error
+      return null;
+    }
+
+    private static ChunkBoundaries create(
+        final FileChannel pChannel,
+        final long pPrefixEnd,
+        final byte[] pRootName,
+        final List<Long> pChunkStarts,
+        final long pRootEnd)
+        throws IOException {
+      if (pChunkStarts.isEmpty() || pPrefixEnd > Integer.MAX_VALUE) {
+        return null;
+      }
+      final ByteBuffer ePrefix = ByteBuffer.allocate((int) pPrefixEnd);
+      while (ePrefix.hasRemaining()) {
+        if (pChannel.read(ePrefix, ePrefix.position()) < 0) {
+          throw new IOException("Unexpected end of file at byte offset "
+              + ePrefix.position());
+        }
+      }
+      final ByteArrayOutputStream eSuffix = new ByteArrayOutputStream();
+      eSuffix.write('<');
+      eSuffix.write('/');
+      eSuffix.write(pRootName, 0, pRootName.length);
+      eSuffix.write('>');
+      final long[] eChunkStarts = new long[pChunkStarts.size()];
+      for (int i = 0; i < eChunkStarts.length; i++) {
+        eChunkStarts[i] = pChunkStarts.get(i).longValue();
+      }
+      return new ChunkBoundaries(ePrefix.array(), eSuffix.toByteArray(),
+          eChunkStarts, pRootEnd);
+    }
+
+    /**
+     * The chunks are wrapped into the bytes of the prolog, which only works
+     * for encodings writing the xml markup as ASCII.
+     */
+    private static boolean isAsciiCompatible(final ByteBuffer pStart) {
+      if (pStart.limit() < 2) {
+        return false;
+      }
+      final int eFirst = pStart.get(0) & 0xff;
+      final int eSecond = pStart.get(1) & 0xff;
+      return eFirst != 0 && eSecond != 0
+          && !(eFirst == 0xfe && eSecond == 0xff)
+          && !(eFirst == 0xff && eSecond == 0xfe);
+    }
+
+    private static boolean isNameEnd(final int pByte) {
+      return pByte == ' ' || pByte == '\t' || pByte == '\r' || pByte == '\n'
+          || pByte == '/';
+    }
+
+    /** @return the xml declaration, prolog and root start tag */
+    byte[] getPrefix() {
+      return mPrefix;
+    }
+
+    /** @return the root end tag */
+    byte[] getSuffix() {
+      return mSuffix;
+    }
+
+    int getChunkCount() {
+      return mChunkStarts.length;
+    }
+
+    long getChunkStart(final int pChunk) {
+      return mChunkStarts[pChunk];
+    }
+
+    long getChunkEnd(final int pChunk) {
+      return pChunk + 1 < mChunkStarts.length
+          ? mChunkStarts[pChunk + 1] : mRootEnd;
+    }
+  }
+
+}
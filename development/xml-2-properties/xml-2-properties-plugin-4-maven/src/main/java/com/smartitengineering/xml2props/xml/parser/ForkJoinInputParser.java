@@ -0,0 +1,155 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.xml.parser;
+
+import com.smartitengineering.xml2props.util.LogUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses several input files in parallel using fork-join, each of them
+ * through the configured InputParser, and merges the results into combined
+ * Locale-Properties. The list of files is split in halves until a single file
+ * remains; the halves are merged in list order so that the result and the
+ * reported conflicts do not depend on the scheduling of the threads.
+ * <p/>
+ * The InputParser is shared by all threads and hence has to be thread-safe.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class ForkJoinInputParser {
+
+  private final InputParser mInputParser;
+
+  private final int mParallelism;
+
+  /**
+   * @param pInputParser The parser to parse every input file with
+   * @param pParallelism The number of threads to parse with
+   */
+  public ForkJoinInputParser(
+      final InputParser pInputParser,
+      final int pParallelism) {
+    if (pInputParser == null) {
+      throw new IllegalArgumentException(
+          "Input parser was null, expected non-null value");
+    }
+    mInputParser = pInputParser;
+    mParallelism = Math.max(1, pParallelism);
+  }
+
+  /**
+   * @param pInputFiles The input files, in the order of precedence
+   *
+   * @return the merged Locale-Properties of all the input files
+   *
+   * @throws IOException if there is an error in processing an input file
+   */
+  public MergedLocaleProperties parseInputs(final List<File> pInputFiles)
+      throws IOException {
+    if (pInputFiles.isEmpty()) {
+      return new MergedLocaleProperties();
+    }
+    if (LogUtil.isDebugEnabled(mInputParser)) {
+      LogUtil.debug(mInputParser, "Parsing " + pInputFiles.size()
+          + " files using threads: " + mParallelism);
+    }
+    final ForkJoinPool ePool = new ForkJoinPool(mParallelism);
+    try {
+      return ePool.invoke(new ParseTask(pInputFiles, 0, pInputFiles.size()));
+    }
+    catch (ParseFailure ex) {
+      throw findIOException(ex);
+    }
+    finally {
+      ePool.shutdown();
+    }
+  }
+
+  /**
+   * The fork-join framework may rethrow a copy of the exception thrown in a
+   * worker thread, the original is then found in the causes.
+   */
+  private IOException findIOException(final Throwable pThrowable) {
+    Throwable eCause = pThrowable;
+    while (eCause != null) {
+      if (eCause instanceof IOException) {
+        return (IOException) eCause;
+      }
+      eCause = eCause.getCause();
+    }
+    return new IOException(pThrowable.getMessage(), pThrowable);
+  }
+
+  /**
+   * Carries the IOException of a worker thread out of the fork-join pool.
+   */
+  private static final class ParseFailure extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    ParseFailure(final IOException pCause) {
+      super(pCause.getMessage(), pCause);
+    }
+  }
+
+  private final class ParseTask extends RecursiveTask<MergedLocaleProperties> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<File> mInputFiles;
+
+    private final int mFrom;
+
+    private final int mTo;
+
+    ParseTask(final List<File> pInputFiles, final int pFrom, final int pTo) {
+      mInputFiles = pInputFiles;
+      mFrom = pFrom;
+      mTo = pTo;
+    }
+
+    protected MergedLocaleProperties compute() {
+      if (mTo - mFrom == 1) {
+        final File eInputFile = mInputFiles.get(mFrom);
+        try {
+          return new MergedLocaleProperties(eInputFile,
+              mInputParser.parseInput(eInputFile));
+        }
+        catch (IOException ex) {
+          throw new ParseFailure(new IOException(
+              "Failed parsing " + eInputFile + ": " + ex.getMessage(), ex));
+        }
+      }
+      final int eMiddle = (mFrom + mTo) >>> 1;
+      final ParseTask eLaterTask = new ParseTask(mInputFiles, eMiddle, mTo);
+      eLaterTask.fork();
+      final MergedLocaleProperties eResult = new ParseTask(mInputFiles,
+          mFrom, eMiddle).compute();
+      eResult.merge(eLaterTask.join());
+      return eResult;
+    }
+  }
+
+}
@@ -18,6 +18,7 @@
  */
 package com.smartitengineering.xml2props.xml.parser;
 
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
 import com.smartitengineering.xml2props.maven.MojoReferenceHolder;
 
 import java.io.File;
@@ -32,6 +33,19 @@ import java.util.Properties;
  */
 
 public interface InputParser extends MojoReferenceHolder {
+
+  public static final String XML_NAME_ENTRIES = "entries";
+
+  public static final String XML_NAME_ENTRY = "entry";
+
+  public static final String XML_NAME_KEY = "key";
+
+  public static final String XML_NAME_LANG = "lang";
+
+  public static final String XML_NAME_COUNTRY = "country";
+
+  public static final String XML_NAME_VALUE = "value";
+
   /**
    * @param pInputFile The input File to parse
    *
@@ -43,4 +57,15 @@ public interface InputParser extends MojoReferenceHolder {
   public Map<Locale, Properties> parseInput(File pInputFile)
       throws IOException;
 
+  /**
+   * @param pInputFile The input File to parse
+   *
+   * @return the compact table of all the properties mapped in the input file
+   *         for all the Locale
+   *
+   * @throws IOException if there is an error in processing the input file
+   */
+  public LocaleBundleTable parseBundles(File pInputFile)
+      throws IOException;
+
 }
@@ -0,0 +1,611 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.xml.parser;
+
+import com.smartitengineering.xml2props.util.WriterUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Pull tokenizer for the subset of xml used by the input files, working
+ * directly on the bytes of a UTF-8 encoded file mapped into memory. It does
+ * not create an object per node: an event only exposes the offsets of the
+ * element name, the attributes or the text in the buffer, and the bytes are
+ * decoded into Strings on request only. Names are compared as bytes without
+ * decoding them.
+ * <p/>
+ * Comments, processing instructions and the DOCTYPE are skipped. Apart from
+ * the character references only the five predefined entities are known.
+ * End tags are checked against their start tags.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+final class MappedXmlScanner {
+
+  static final int EVENT_START_ELEMENT = 1;
+
+  static final int EVENT_END_ELEMENT = 2;
+
+  static final int EVENT_TEXT = 3;
+
+  static final int EVENT_END_DOCUMENT = 4;
+
+  private static final int INITIAL_DEPTH = 16;
+
+  private static final int INITIAL_ATTRIBUTES = 8;
+
+  private static final byte[] BYTE_ORDER_MARK =
+      {(byte) 0xef, (byte) 0xbb, (byte) 0xbf};
+
+  private static final byte[] COMMENT_START = bytes("<!--");
+
+  private static final byte[] COMMENT_END = bytes("-->");
+
+  private static final byte[] CDATA_START = bytes("<![CDATA[");
+
+  private static final byte[] CDATA_END = bytes("]]>");
+
+  private static final byte[] DOCTYPE_START = bytes("<!DOCTYPE");
+
+  private static final byte[] PROCESSING_INSTRUCTION_END = bytes("?>");
+
+  private final ByteBuffer mBuffer;
+
+  private final int mLimit;
+
+  private int mPosition;
+
+  /** The name offsets of the open elements, [start, end] per depth */
+  private int[] mOpenElements;
+
+  private int mDepth;
+
+  private boolean mPendingEndElement;
+
+  private int mNameStart;
+
+  private int mNameEnd;
+
+  /**
+   * The offsets of the attributes of the current element, [name start,
+   * name end, value start, value end] per attribute
+   */
+  private int[] mAttributes;
+
+  private int mAttributeCount;
+
+  private int mTextStart;
+
+  private int mTextEnd;
+
+  private boolean mCdata;
+
+  /**
+   * @param pBuffer The UTF-8 encoded xml, from its position to its limit
+   */
+  MappedXmlScanner(final ByteBuffer pBuffer) {
+    mBuffer = pBuffer;
+    mLimit = pBuffer.limit();
+    mPosition = pBuffer.position();
+    if (startsWith(mPosition, BYTE_ORDER_MARK)) {
+      mPosition += BYTE_ORDER_MARK.length;
+    }
+    mOpenElements = new int[INITIAL_DEPTH * 2];
+    mAttributes = new int[INITIAL_ATTRIBUTES * 4];
+  }
+
+  /**
+   * @param pName An ASCII name
+   *
+   * @return the bytes of the name
+   */
+  static byte[] bytes(final String pName) {
+    final byte[] eBytes = new byte[pName.length()];
+    for (int i = 0; i < eBytes.length; i++) {
+      eBytes[i] = (byte) pName.charAt(i);
+    }
+    return eBytes;
+  }
+
+  /**
+   * Moves to the next element start, element end, text or the end of the
+   * document. An empty element gives a start and an end event.
+   *
+   * @return the type of the event
+   *
+   * @throws IOException if the xml is not well-formed
+   */
+  int next() throws IOException {
+    if (mPendingEndElement) {
+      mPendingEndElement = false;
+      mDepth--;
+      return EVENT_END_ELEMENT;
+    }
+    while (mPosition < mLimit) {
+      if (mBuffer.get(mPosition) != '<') {
+        mTextStart = mPosition;
+        mPosition = indexOf('<', mPosition);
+        mTextEnd = mPosition;
+        mCdata = false;
+        return EVENT_TEXT;
+      }
+      final int eMarker = mPosition + 1 < mLimit
+          ? mBuffer.get(mPosition + 1) : -1;
+      if (eMarker == '/') {
+        readEndTag();
+        return EVENT_END_ELEMENT;
+      }
+      else if (eMarker == '?') {
+        mPosition = skipPast(PROCESSING_INSTRUCTION_END, mPosition + 2);
+      }
+      else if (startsWith(mPosition, COMMENT_START)) {
+        mPosition = skipPast(COMMENT_END, mPosition + COMMENT_START.length);
+      }
+      else if (startsWith(mPosition, CDATA_START)) {
+        mTextStart = mPosition + CDATA_START.length;
+        mPosition = skipPast(CDATA_END, mTextStart);
+        mTextEnd = mPosition - CDATA_END.length;
+        mCdata = true;
+        return EVENT_TEXT;
+      }
+      else if (mDepth == 0 && startsWith(mPosition, DOCTYPE_START)) {
+        skipDoctype();
+      }
+      else {
+        readStartTag();
+        return EVENT_START_ELEMENT;
+      }
+    }
+    if (mDepth > 0) {
+      throw error(mLimit, "Unexpected end of file, missing end tag of "
+          + decodeName(mOpenElements[(mDepth - 1) * 2],
+          mOpenElements[(mDepth - 1) * 2 + 1]));
+    }
+    return EVENT_END_DOCUMENT;
+  }
+
+  private void readStartTag() throws IOException {
+    mNameStart = mPosition + 1;
+    mNameEnd = scanName(mNameStart);
+    mPosition = mNameEnd;
+    mAttributeCount = 0;
+    while (true) {
+      mPosition = skipWhitespace(mPosition);
+      final int eByte = byteAt(mPosition);
+      if (eByte == '>') {
+        mPosition++;
+        break;
+      }
+      else if (eByte == '/') {
+        if (byteAt(mPosition + 1) != '>') {
+          throw error(mPosition, "Expected '>' after '/'");
+        }
+        mPosition += 2;
+        mPendingEndElement = true;
+        break;
+      }
+      readAttribute();
+    }
+    pushOpenElement();
+  }
+
+  private void readAttribute() throws IOException {
+    final int eNameStart = mPosition;
+    final int eNameEnd = scanName(eNameStart);
+    mPosition = skipWhitespace(eNameEnd);
+    if (byteAt(mPosition) != '=') {
+      throw error(mPosition, "Expected '=' after attribute name");
+    }
+    mPosition = skipWhitespace(mPosition + 1);
+    final int eQuote = byteAt(mPosition);
+    if (eQuote != '"' && eQuote != '\'') {
+      throw error(mPosition, "Expected quoted attribute value");
+    }
+    final int eValueStart = mPosition + 1;
+    final int eValueEnd = indexOf(eQuote, eValueStart);
+    if (eValueEnd == mLimit) {
+      throw error(eValueStart, "Unterminated attribute value");
+    }
+    mPosition = eValueEnd + 1;
+
+    if (mAttributes.length < (mAttributeCount + 1) * 4) {
+      final int[] eAttributes = new int[mAttributes.length * 2];
+      System.arraycopy(mAttributes, 0, eAttributes, 0, mAttributes.length);
+      mAttributes = eAttributes;
+    }
+    final int eOffset = mAttributeCount * 4;
+    mAttributes[eOffset] = eNameStart;
+    mAttributes[eOffset + 1] = eNameEnd;
+    mAttributes[eOffset + 2] = eValueStart;
+    mAttributes[eOffset + 3] = eValueEnd;
+    mAttributeCount++;
+  }
+
+  private void pushOpenElement() {
+    if (mOpenElements.length < (mDepth + 1) * 2) {
+      final int[] eOpenElements = new int[mOpenElements.length * 2];
+      System.arraycopy(mOpenElements, 0, eOpenElements, 0,
+          mOpenElements.length);
+      mOpenElements = eOpenElements;
+    }
+    mOpenElements[mDepth * 2] = mNameStart;
+    mOpenElements[mDepth * 2 + 1] = mNameEnd;
+    mDepth++;
+  }
+
+  private void readEndTag() throws IOException {
+    final int eNameStart = mPosition + 2;
+    final int eNameEnd = scanName(eNameStart);
+    if (mDepth == 0) {
+      throw error(mPosition, "Unexpected end tag "
+          + decodeName(eNameStart, eNameEnd));
+    }
+    mDepth--;
+    final int eOpenStart = mOpenElements[mDepth * 2];
+    final int eOpenEnd = mOpenElements[mDepth * 2 + 1];
+    if (!regionEquals(eNameStart, eNameEnd, eOpenStart, eOpenEnd)) {
+      throw error(mPosition, "End tag " + decodeName(eNameStart, eNameEnd)
+          + " does not match start tag " + decodeName(eOpenStart, eOpenEnd));
+    }
+    mPosition = skipWhitespace(eNameEnd);
+    if (byteAt(mPosition) != '>') {
+      throw error(mPosition, "Expected '>' in end tag");
+    }
+    mPosition++;
+  }
+
+  /**
+   * Skips the DOCTYPE including its internal subset, which may contain '>'
+   * in its declarations.
+   */
+  private void skipDoctype() throws IOException {
+    int eBrackets = 0;
+    int eQuote = 0;
+    for (int i = mPosition + DOCTYPE_START.length; i < mLimit; i++) {
+      final int eByte = mBuffer.get(i);
+      if (eQuote != 0) {
+        if (eByte == eQuote) {
+          eQuote = 0;
+        }
+      }
+      else if (eByte == '"' || eByte == '\'') {
+        eQuote = eByte;
+      }
+      else if (eByte == '[') {
+        eBrackets++;
+      }
+      else if (eByte == ']') {
+        eBrackets--;
+      }
+      else if (eByte == '>' && eBrackets == 0) {
+        mPosition = i + 1;
+        return;
+      }
+    }
+    throw error(mPosition, "Unterminated DOCTYPE");
+  }
+
+  private int scanName(final int pStart) throws IOException {
+    int i = pStart;
+    while (i < mLimit && !isNameEnd(mBuffer.get(i))) {
+      i++;
+    }
+    if (i == pStart) {
+      throw error(pStart, "Expected a name");
+    }
+    return i;
+  }
+
+  private static boolean isNameEnd(final int pByte) {
+    return isWhitespace(pByte) || pByte == '>' || pByte == '/'
+        || pByte == '=';
+  }
+
+  private static boolean isWhitespace(final int pByte) {
+    return pByte == ' ' || pByte == '\t' || pByte == '\n' || pByte == '\r';
+  }
+
+  private int skipWhitespace(final int pStart) {
+    int i = pStart;
+    while (i < mLimit && isWhitespace(mBuffer.get(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private int byteAt(final int pIndex) throws IOException {
+    if (pIndex >= mLimit) {
+      throw error(pIndex, "Unexpected end of file");
+    }
+    return mBuffer.get(pIndex);
+  }
+
+  private int indexOf(final int pByte, final int pFrom) {
+    int i = pFrom;
+    while (i < mLimit && mBuffer.get(i) != pByte) {
+      i++;
+    }
+    return i;
+  }
+
+  private boolean startsWith(final int pIndex, final byte[] pPrefix) {
+    if (pIndex + pPrefix.length > mLimit) {
+      return false;
+    }
+    for (int i = 0; i < pPrefix.length; i++) {
+      if (mBuffer.get(pIndex + i) != pPrefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return the index after the end marker */
+  private int skipPast(final byte[] pEnd, final int pFrom)
+      throws IOException {
+    for (int i = pFrom; i + pEnd.length <= mLimit; i++) {
+      if (mBuffer.get(i) == pEnd[0] && startsWith(i, pEnd)) {
+        return i + pEnd.length;
+      }
+    }
+    throw error(pFrom, "Unterminated markup, expected "
+        + new String(pEnd, "US-ASCII"));
+  }
+
+  private boolean regionEquals(
+      final int pStart,
+      final int pEnd,
+      final int pOtherStart,
+      final int pOtherEnd) {
+    if (pEnd - pStart != pOtherEnd - pOtherStart) {
+      return false;
+    }
+    for (int i = 0; i < pEnd - pStart; i++) {
+      if (mBuffer.get(pStart + i) != mBuffer.get(pOtherStart + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param pName An ASCII name
+   *
+   * @return whether the local name of the current element is the name
+   */
+  boolean isLocalName(final byte[] pName) {
+    return localNameEquals(mNameStart, mNameEnd, pName);
+  }
+
+  private boolean localNameEquals(
+      final int pStart,
+      final int pEnd,
+      final byte[] pName) {
+    int eStart = pStart;
+    for (int i = pStart; i < pEnd; i++) {
+      if (mBuffer.get(i) == ':') {
+        eStart = i + 1;
+      }
+    }
+    if (pEnd - eStart != pName.length) {
+      return false;
+    }
+    for (int i = 0; i < pName.length; i++) {
+      if (mBuffer.get(eStart + i) != pName[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return the local name of the current element */
+  String getLocalName() throws IOException {
+    int eStart = mNameStart;
+    for (int i = mNameStart; i < mNameEnd; i++) {
+      if (mBuffer.get(i) == ':') {
+        eStart = i + 1;
+      }
+    }
+    return decodeName(eStart, mNameEnd);
+  }
+
+  /**
+   * @param pName The ASCII name of an attribute without a namespace prefix
+   *
+   * @return the value of the attribute of the current element, or null if
+   *         it has none
+   *
+   * @throws IOException if the value is not valid
+   */
+  String getAttributeValue(final byte[] pName) throws IOException {
+    for (int i = 0; i < mAttributeCount; i++) {
+      final int eOffset = i * 4;
+      final int eNameStart = mAttributes[eOffset];
+      final int eNameEnd = mAttributes[eOffset + 1];
+      if (eNameEnd - eNameStart == pName.length
+          && localNameEquals(eNameStart, eNameEnd, pName)) {
+        final StringBuilder eValue = new StringBuilder(
+            mAttributes[eOffset + 3] - mAttributes[eOffset + 2]);
+        decode(mAttributes[eOffset + 2], mAttributes[eOffset + 3], true,
+            eValue);
+        return eValue.toString();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Decodes the current text, resolving the references unless it is a CDATA
+   * section.
+   *
+   * @param pText The builder to append the text to
+   *
+   * @throws IOException if the text is not valid
+   */
+  void appendText(final StringBuilder pText) throws IOException {
+    if (mCdata) {
+      decodeCharacters(mTextStart, mTextEnd, pText);
+    }
+    else {
+      decode(mTextStart, mTextEnd, false, pText);
+    }
+  }
+
+  private void decode(
+      final int pStart,
+      final int pEnd,
+      final boolean pAttribute,
+      final StringBuilder pText)
+      throws IOException {
+    int eRunStart = pStart;
+    for (int i = pStart; i < pEnd; i++) {
+      final int eByte = mBuffer.get(i);
+      if (eByte == '&') {
+        decodeCharacters(eRunStart, i, pText);
+        i = decodeReference(i, pEnd, pText);
+        eRunStart = i + 1;
+      }
+      else if (pAttribute && (eByte == '\t' || eByte == '\n'
+          || eByte == '\r')) {
+        decodeCharacters(eRunStart, i, pText);
+        pText.append(' ');
+        if (eByte == '\r' && i + 1 < pEnd && mBuffer.get(i + 1) == '\n') {
+          i++;
+        }
+        eRunStart = i + 1;
+      }
+    }
+    decodeCharacters(eRunStart, pEnd, pText);
+  }
+
+  /** @return the index of the ';' ending the reference */
+  private int decodeReference(
+      final int pStart,
+      final int pEnd,
+      final StringBuilder pText)
+      throws IOException {
+    final int eEnd = indexOf(';', pStart);
+    if (eEnd >= pEnd) {
+      throw error(pStart, "Unterminated reference");
+    }
+    final String eName = decodeName(pStart + 1, eEnd);
+    if ("lt".equals(eName)) {
+      pText.append('<');
+    }
+    else if ("gt".equals(eName)) {
+      pText.append('>');
+    }
+    else if ("amp".equals(eName)) {
+      pText.append('&');
+    }
+    else if ("quot".equals(eName)) {
+      pText.append('"');
+    }
+    else if ("apos".equals(eName)) {
+      pText.append('\'');
+    }
+    else if (eName.startsWith("#")) {
+      try {
+        pText.appendCodePoint(eName.startsWith("#x")
+            ? Integer.parseInt(eName.substring(2), 16)
+            : Integer.parseInt(eName.substring(1)));
+      }
+      catch (RuntimeException ex) {
+        throw error(pStart, "Invalid character reference &" + eName + ";");
+      }
+    }
+    else {
+      throw error(pStart, "Unknown entity reference &" + eName + ";");
+    }
+    return eEnd;
+  }
+
+  /**
+   * Decodes UTF-8 bytes, normalizing the line ends to '\n'.
+   */
+  private void decodeCharacters(
+      final int pStart,
+      final int pEnd,
+      final StringBuilder pText)
+      throws IOException {
+    int i = pStart;
+    while (i < pEnd) {
+      final int eByte = mBuffer.get(i);
+      if (eByte >= 0) {
+        if (eByte == '\r') {
+          pText.append('\n');
+          if (i + 1 < pEnd && mBuffer.get(i + 1) == '\n') {
+            i++;
+          }
+        }
+        else {
+          pText.append((char) eByte);
+        }
+        i++;
+        continue;
+      }
+      final int eLength;
+      int eCodePoint;
+      if ((eByte & 0xe0) == 0xc0) {
+        eLength = 2;
+        eCodePoint = eByte & 0x1f;
+      }
+      else if ((eByte & 0xf0) == 0xe0) {
+        eLength = 3;
+        eCodePoint = eByte & 0x0f;
+      }
+      else if ((eByte & 0xf8) == 0xf0) {
+        eLength = 4;
+        eCodePoint = eByte & 0x07;
+      }
+      else {
+        throw error(i, "Invalid UTF-8 byte");
+      }
+      if (i + eLength > pEnd) {
+        throw error(i, "Truncated UTF-8 sequence");
+      }
+      for (int j = 1; j < eLength; j++) {
+        final int eContinuation = mBuffer.get(i + j);
+        if ((eContinuation & 0xc0) != 0x80) {
+          throw error(i + j, "Invalid UTF-8 byte");
+        }
+        eCodePoint = (eCodePoint << 6) | (eContinuation & 0x3f);
+      }
+      if (!WriterUtil.isValidUtf8CodePoint(eCodePoint, eLength)) {
+        throw error(i, "Overlong, surrogate or out of range UTF-8 sequence");
+      }
+      pText.appendCodePoint(eCodePoint);
+      i += eLength;
+    }
+  }
+
+  private String decodeName(final int pStart, final int pEnd)
+      throws IOException {
+    final StringBuilder eName = new StringBuilder(pEnd - pStart);
+    decodeCharacters(pStart, pEnd, eName);
+    return eName.toString();
+  }
+
+  private IOException error(final int pIndex, final String pMessage) {
+    return new IOException(pMessage + " at byte offset " + pIndex);
+  }
+
+}
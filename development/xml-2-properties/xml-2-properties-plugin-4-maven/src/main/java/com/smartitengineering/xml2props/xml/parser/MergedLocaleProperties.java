@@ -0,0 +1,206 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.xml.parser;
+
+import com.smartitengineering.xml2props.util.LocaleUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The Locale-Properties Map of several input files merged together. The input
+ * file each property came from is remembered so that a key defined with
+ * different values in more than one input file can be reported as a conflict.
+ * When merging, the properties of the later input file win.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class MergedLocaleProperties {
+
+  private final Map<Locale, Properties> mLocaleProperties;
+
+  /** The input file of every property */
+  private final Map<Locale, Map<Object, File>> mOrigins;
+
+  /** All the input files of the properties defined in more than one file */
+  private final Map<Locale, Map<Object, SortedSet<File>>> mDefinitions;
+
+  /** The keys with different values in the input files */
+  private final Map<Locale, Set<Object>> mConflictingKeys;
+
+  public MergedLocaleProperties() {
+    mLocaleProperties = new HashMap<Locale, Properties>();
+    mOrigins = new HashMap<Locale, Map<Object, File>>();
+    mDefinitions = new HashMap<Locale, Map<Object, SortedSet<File>>>();
+    mConflictingKeys = new HashMap<Locale, Set<Object>>();
+  }
+
+  /**
+   * @param pInputFile        The input file that was parsed
+   * @param pLocaleProperties The Locale-Properties Map parsed from it
+   */
+  public MergedLocaleProperties(
+      final File pInputFile,
+      final Map<Locale, Properties> pLocaleProperties) {
+    this();
+    for (Iterator<Map.Entry<Locale, Properties>> i = pLocaleProperties
+        .entrySet().iterator(); i.hasNext();) {
+      final Map.Entry<Locale, Properties> eLoopEntry = i.next();
+      mLocaleProperties.put(eLoopEntry.getKey(), eLoopEntry.getValue());
+      final Map<Object, File> eLoopOrigins = getNonNullMap(mOrigins,
+          eLoopEntry.getKey());
+      for (Iterator<Object> j = eLoopEntry.getValue().keySet().iterator();
+           j.hasNext();) {
+        eLoopOrigins.put(j.next(), pInputFile);
+      }
+    }
+  }
+
+  /** @return the merged Locale-Properties Map */
+  public Map<Locale, Properties> getLocaleProperties() {
+    return mLocaleProperties;
+  }
+
+  /**
+   * @return a description of every conflicting key, sorted by Locale and key
+   *         so that the report does not depend on the merge order
+   */
+  public List<String> getConflicts() {
+    final List<String> eConflicts = new ArrayList<String>();
+    for (Iterator<Map.Entry<Locale, Set<Object>>> i = mConflictingKeys
+        .entrySet().iterator(); i.hasNext();) {
+      final Map.Entry<Locale, Set<Object>> eLoopEntry = i.next();
+      final Locale eLocale = eLoopEntry.getKey();
+      final String eLocaleName = eLocale == null
+          ? "default" : eLocale.toString();
+      for (Iterator<Object> j = eLoopEntry.getValue().iterator();
+           j.hasNext();) {
+        final Object eKey = j.next();
+        eConflicts.add("Locale '" + eLocaleName + "' key '" + eKey
+            + "' has different values in " + mDefinitions.get(eLocale)
+            .get(eKey) + ", using the value from "
+            + mOrigins.get(eLocale).get(eKey));
+      }
+    }
+    Collections.sort(eConflicts);
+    return eConflicts;
+  }
+
+  /**
+   * Merges the properties of a later input into this one.
+   *
+   * @param pLater The properties whose values take precedence
+   */
+  public void merge(final MergedLocaleProperties pLater) {
+    for (Iterator<Map.Entry<Locale, Properties>> i = pLater.mLocaleProperties
+        .entrySet().iterator(); i.hasNext();) {
+      final Map.Entry<Locale, Properties> eLoopEntry = i.next();
+      final Locale eLocale = eLoopEntry.getKey();
+      final Properties eProperties = LocaleUtil
+          .getNonNullPropertiesForLocaleFromMap(mLocaleProperties, eLocale);
+      final Map<Object, File> eOrigins = getNonNullMap(mOrigins, eLocale);
+      final Map<Object, File> eLaterOrigins = pLater.mOrigins.get(eLocale);
+      final Map<Object, SortedSet<File>> eLaterDefinitions =
+          pLater.mDefinitions.get(eLocale);
+      final Set<Object> eLaterConflictingKeys =
+          pLater.mConflictingKeys.get(eLocale);
+
+      for (Iterator<Map.Entry<Object, Object>> j = eLoopEntry.getValue()
+          .entrySet().iterator(); j.hasNext();) {
+        final Map.Entry<Object, Object> eLoopProperty = j.next();
+        final Object eKey = eLoopProperty.getKey();
+        final Object ePreviousValue = eProperties.put(eKey,
+            eLoopProperty.getValue());
+        final File eLaterOrigin = eLaterOrigins.get(eKey);
+        final File ePreviousOrigin = eOrigins.put(eKey, eLaterOrigin);
+
+        final SortedSet<File> eLaterKeyDefinitions = eLaterDefinitions == null
+            ? null : eLaterDefinitions.get(eKey);
+        if (ePreviousValue != null || eLaterKeyDefinitions != null) {
+          final SortedSet<File> eKeyDefinitions =
+              getKeyDefinitions(eLocale, eKey, ePreviousOrigin);
+          if (eLaterKeyDefinitions == null) {
+            eKeyDefinitions.add(eLaterOrigin);
+          }
+          else {
+            eKeyDefinitions.addAll(eLaterKeyDefinitions);
+          }
+        }
+        if ((ePreviousValue != null
+            && !ePreviousValue.equals(eLoopProperty.getValue()))
+            || (eLaterConflictingKeys != null
+            && eLaterConflictingKeys.contains(eKey))) {
+          getNonNullSet(mConflictingKeys, eLocale).add(eKey);
+        }
+      }
+    }
+  }
+
+  private SortedSet<File> getKeyDefinitions(
+      final Locale pLocale,
+      final Object pKey,
+      final File pPreviousOrigin) {
+    final Map<Object, SortedSet<File>> eDefinitions =
+        getNonNullMap(mDefinitions, pLocale);
+    SortedSet<File> eKeyDefinitions = eDefinitions.get(pKey);
+    if (eKeyDefinitions == null) {
+      eKeyDefinitions = new TreeSet<File>();
+      if (pPreviousOrigin != null) {
+        eKeyDefinitions.add(pPreviousOrigin);
+      }
+      eDefinitions.put(pKey, eKeyDefinitions);
+    }
+    return eKeyDefinitions;
+  }
+
+  private static <V> Map<Object, V> getNonNullMap(
+      final Map<Locale, Map<Object, V>> pLocaleMaps,
+      final Locale pLocale) {
+    Map<Object, V> eMap = pLocaleMaps.get(pLocale);
+    if (eMap == null) {
+      eMap = new HashMap<Object, V>();
+      pLocaleMaps.put(pLocale, eMap);
+    }
+    return eMap;
+  }
+
+  private static Set<Object> getNonNullSet(
+      final Map<Locale, Set<Object>> pLocaleSets,
+      final Locale pLocale) {
+    Set<Object> eSet = pLocaleSets.get(pLocale);
+    if (eSet == null) {
+      eSet = new HashSet<Object>();
+      pLocaleSets.put(pLocale, eSet);
+    }
+    return eSet;
+  }
+
+}
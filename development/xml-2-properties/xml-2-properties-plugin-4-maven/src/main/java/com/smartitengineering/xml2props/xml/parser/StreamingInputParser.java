@@ -0,0 +1,46 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.xml.parser;
+
+import com.smartitengineering.xml2props.bundle.BundleEntrySink;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * InputParser that can push the entries of an input file to a sink while
+ * reading it, instead of returning all of them at the end.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public interface StreamingInputParser extends InputParser {
+
+  /**
+   * @param pInputFile The input File to parse
+   * @param pSink      The sink to push every entry of the input file to, in
+   *                   the order of the input file
+   *
+   * @throws IOException if there is an error in processing the input file or
+   *                     the sink fails
+   */
+  public void parseEntries(File pInputFile, BundleEntrySink pSink)
+      throws IOException;
+
+}
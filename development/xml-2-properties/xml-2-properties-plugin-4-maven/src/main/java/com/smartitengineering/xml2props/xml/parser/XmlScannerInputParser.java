@@ -0,0 +1,363 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.xml.parser;
+
+import com.smartitengineering.xml2props.bundle.BundleEntrySink;
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.maven.MojoReferenceHolder;
+import com.smartitengineering.xml2props.util.LocaleUtil;
+import com.smartitengineering.xml2props.util.LogUtil;
+import org.apache.maven.plugin.AbstractMojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * InputParser written for the fixed format of the input files only. It maps
+ * the input file into memory and reads it with a {@link MappedXmlScanner},
+ * which creates no node objects and decodes only the text of the keys and
+ * values from UTF-8, skipping the elements that are not read without
+ * decoding them. The produced bundles are the same as the ones produced by
+ * {@link XmlXomInputParser}.
+ * <p/>
+ * Input files declaring an encoding other than UTF-8 or US-ASCII, in UTF-16
+ * or larger than 2 GB are handed to {@link XmlStaxInputParser}.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class XmlScannerInputParser implements StreamingInputParser,
+    MojoReferenceHolder {
+
+  private static final byte[] NAME_ENTRIES =
+      MappedXmlScanner.bytes(XML_NAME_ENTRIES);
+
+  private static final byte[] NAME_ENTRY =
+      MappedXmlScanner.bytes(XML_NAME_ENTRY);
+
+  private static final byte[] NAME_KEY = MappedXmlScanner.bytes(XML_NAME_KEY);
+
+  private static final byte[] NAME_VALUE =
+      MappedXmlScanner.bytes(XML_NAME_VALUE);
+
+  private static final byte[] NAME_LANG =
+      MappedXmlScanner.bytes(XML_NAME_LANG);
+
+  private static final byte[] NAME_COUNTRY =
+      MappedXmlScanner.bytes(XML_NAME_COUNTRY);
+
+  /** The longest xml declaration looked at for the encoding */
+  private static final int DECLARATION_LENGTH = 256;
+
+  private static final Pattern ENCODING_PATTERN = Pattern.compile(
+      "^<\\?xml[^>]*\\sencoding\\s*=\\s*[\"']([^\"']*)[\"']");
+
+  private final XmlStaxInputParser mFallbackParser;
+
+  AbstractMojo mMojo;
+
+  public XmlScannerInputParser() {
+    super();
+    mFallbackParser = new XmlStaxInputParser();
+  }
+
+  /** @return the mojo */
+  public AbstractMojo getMojo() {
+    return mMojo;
+  }
+
+  /** @param pMojo the mojo to set */
+  public void setMojo(AbstractMojo pMojo) {
+    mMojo = pMojo;
+    mFallbackParser.setMojo(pMojo);
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.xml.parser.InputParser#parseInput(java.io.File)
+   */
+  public Map<Locale, Properties> parseInput(final File pInputFile)
+      throws IOException {
+    return parseBundles(pInputFile).toLocalePropertiesMap();
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.xml.parser.InputParser#parseBundles(java.io.File)
+   */
+  public LocaleBundleTable parseBundles(final File pInputFile)
+      throws IOException {
+    final LocaleBundleTable eBundles = new LocaleBundleTable();
+    parseEntries(pInputFile, eBundles);
+    return eBundles;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.xml.parser.StreamingInputParser#parseEntries(java.io.File, com.smartitengineering.xml2props.bundle.BundleEntrySink)
+   */
+  public void parseEntries(
+      final File pInputFile,
+      final BundleEntrySink pSink)
+      throws IOException {
+    LogUtil.debug(this, "Parsing file: ", pInputFile);
+    final ByteBuffer eBuffer;
+    final RandomAccessFile eFile = new RandomAccessFile(pInputFile, "r");
+    try {
+      final FileChannel eChannel = eFile.getChannel();
+      if (eChannel.size() > Integer.MAX_VALUE) {
+        LogUtil.debug(this, "File too large to map, using ",
+            mFallbackParser);
+        mFallbackParser.parseEntries(pInputFile, pSink);
+        return;
+      }
+      eBuffer = eChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+          eChannel.size());
+    }
+    finally {
+      eFile.close();
+    }
+    if (!isUtf8(eBuffer)) {
+      LogUtil.debug(this, "File is not UTF-8 encoded, using ",
+          mFallbackParser);
+      mFallbackParser.parseEntries(pInputFile, pSink);
+      return;
+    }
+    try {
+      processDocument(new MappedXmlScanner(eBuffer), pSink);
+    }
+    catch (IOException ex) {
+      LogUtil.error(this, ex.getMessage());
+      throw ex;
+    }
+  }
+
+  /**
+   * @return whether the xml is written in UTF-8, or in US-ASCII which is a
+   *         subset of it
+   */
+  private static boolean isUtf8(final ByteBuffer pBuffer) {
+    if (pBuffer.limit() >= 2) {
+      final int eFirst = pBuffer.get(0) & 0xff;
+      final int eSecond = pBuffer.get(1) & 0xff;
+      if (eFirst == 0 || eSecond == 0 || eFirst == 0xfe || eFirst == 0xff) {
+        return false;
+      }
+    }
+    final int eStart = pBuffer.limit() >= 3
+        && (pBuffer.get(0) & 0xff) == 0xef ? 3 : 0;
+    final int eEnd = Math.min(pBuffer.limit(), eStart + DECLARATION_LENGTH);
+    final StringBuilder eDeclaration = new StringBuilder(eEnd - eStart);
+    for (int i = eStart; i < eEnd; i++) {
+      eDeclaration.append((char) (pBuffer.get(i) & 0xff));
+    }
+    final Matcher eMatcher = ENCODING_PATTERN.matcher(eDeclaration);
+    if (!eMatcher.find()) {
+      return true;
+    }
+    final String eEncoding = eMatcher.group(1);
+    return "UTF-8".equalsIgnoreCase(eEncoding)
+        || "UTF8".equalsIgnoreCase(eEncoding)
+        || "US-ASCII".equalsIgnoreCase(eEncoding)
+        || "ASCII".equalsIgnoreCase(eEncoding);
+  }
+
+  private void processDocument(
+      final MappedXmlScanner pScanner,
+      final BundleEntrySink pSink)
+      throws IOException {
+    int eEventType = pScanner.next();
+    while (eEventType != MappedXmlScanner.EVENT_START_ELEMENT) {
+      if (eEventType == MappedXmlScanner.EVENT_END_DOCUMENT) {
+        throw new IOException("Expected root node: " + XML_NAME_ENTRIES
+            + ", found none");
+      }
+      eEventType = pScanner.next();
+    }
+    if (!pScanner.isLocalName(NAME_ENTRIES)) {
+      LogUtil.debug(this, "Expected root node not found");
+      throw new IOException("Expected root node: " + XML_NAME_ENTRIES
+          + ", found: " + pScanner.getLocalName());
+    }
+    processRootElement(pScanner, pSink);
+  }
+
+  private void processRootElement(
+      final MappedXmlScanner pScanner,
+      final BundleEntrySink pSink)
+      throws IOException {
+    LogUtil.debug(this, "Found expected root node: ", XML_NAME_ENTRIES);
+    final List<Locale> eLocales = new ArrayList<Locale>();
+    final List<String> eValues = new ArrayList<String>();
+    final StringBuilder eText = new StringBuilder();
+
+    int eEventType = pScanner.next();
+    while (eEventType != MappedXmlScanner.EVENT_END_ELEMENT) {
+      if (eEventType == MappedXmlScanner.EVENT_START_ELEMENT) {
+        if (pScanner.isLocalName(NAME_ENTRY)) {
+          eLocales.clear();
+          eValues.clear();
+          processEntryElement(pScanner, pSink, eLocales, eValues, eText);
+        }
+        else {
+          skipElement(pScanner);
+        }
+      }
+      eEventType = pScanner.next();
+    }
+  }
+
+  /**
+   * Reads a single &lt;entry&gt; up to its end tag. The values are held until
+   * the end of the entry since the key may appear after the values.
+   */
+  private void processEntryElement(
+      final MappedXmlScanner pScanner,
+      final BundleEntrySink pSink,
+      final List<Locale> pLocales,
+      final List<String> pValues,
+      final StringBuilder pText)
+      throws IOException {
+    String eKeyValue = pScanner.getAttributeValue(NAME_KEY);
+    boolean eKeyFound = eKeyValue != null;
+
+    int eEventType = pScanner.next();
+    while (eEventType != MappedXmlScanner.EVENT_END_ELEMENT) {
+      if (eEventType == MappedXmlScanner.EVENT_START_ELEMENT) {
+        if (pScanner.isLocalName(NAME_VALUE)) {
+          pText.setLength(0);
+          processValueElement(pScanner, pLocales, pValues, pText);
+        }
+        else if (pScanner.isLocalName(NAME_KEY) && !eKeyFound) {
+          pText.setLength(0);
+          eKeyValue = readElementValue(pScanner, pText);
+          eKeyFound = true;
+        }
+        else {
+          skipElement(pScanner);
+        }
+      }
+      eEventType = pScanner.next();
+    }
+
+    // save the entry in the Locale bundles
+    for (int i = 0; i < pLocales.size(); i++) {
+      pSink.put(eKeyValue, pLocales.get(i), pValues.get(i));
+    }
+  }
+
+  private void processValueElement(
+      final MappedXmlScanner pScanner,
+      final List<Locale> pLocales,
+      final List<String> pValues,
+      final StringBuilder pText)
+      throws IOException {
+    String eLangValue = pScanner.getAttributeValue(NAME_LANG);
+    String eCountryValue = pScanner.getAttributeValue(NAME_COUNTRY);
+    final String eValueAttribute = pScanner.getAttributeValue(NAME_VALUE);
+    final boolean eLangFound = eLangValue != null;
+    final boolean eCountryFound = eCountryValue != null;
+    boolean eLangChildFound = false;
+    boolean eCountryChildFound = false;
+
+    int eEventType = pScanner.next();
+    while (eEventType != MappedXmlScanner.EVENT_END_ELEMENT) {
+      if (eEventType == MappedXmlScanner.EVENT_START_ELEMENT) {
+        final boolean eLang = pScanner.isLocalName(NAME_LANG);
+        final boolean eCountry = pScanner.isLocalName(NAME_COUNTRY);
+        final String eChildValue = readElementValue(pScanner, pText);
+        if (eLang && !eLangFound && !eLangChildFound) {
+          eLangValue = eChildValue;
+          eLangChildFound = true;
+        }
+        else if (eCountry && !eCountryFound && !eCountryChildFound) {
+          eCountryValue = eChildValue;
+          eCountryChildFound = true;
+        }
+      }
+      else if (eEventType == MappedXmlScanner.EVENT_TEXT) {
+        pScanner.appendText(pText);
+      }
+      eEventType = pScanner.next();
+    }
+
+    pLocales.add(LocaleUtil.getLocale(eLangValue, eCountryValue));
+    pValues.add(pText.length() == 0 ? eValueAttribute : pText.toString());
+  }
+
+  /**
+   * Consumes the current element up to its end tag, appending its text to
+   * the text of the enclosing element.
+   *
+   * @param pScanner       The scanner positioned at the start of the element
+   * @param pEnclosingText The text of the enclosing element
+   *
+   * @return The text value of the element or the value of the 'value'
+   *         attribute in the element
+   */
+  private String readElementValue(
+      final MappedXmlScanner pScanner,
+      final StringBuilder pEnclosingText)
+      throws IOException {
+    final String eValueAttribute = pScanner.getAttributeValue(NAME_VALUE);
+    final int eStart = pEnclosingText.length();
+
+    int eDepth = 1;
+    while (eDepth > 0) {
+      final int eEventType = pScanner.next();
+      if (eEventType == MappedXmlScanner.EVENT_START_ELEMENT) {
+        eDepth++;
+      }
+      else if (eEventType == MappedXmlScanner.EVENT_END_ELEMENT) {
+        eDepth--;
+      }
+      else if (eEventType == MappedXmlScanner.EVENT_TEXT) {
+        pScanner.appendText(pEnclosingText);
+      }
+    }
+
+    return pEnclosingText.length() == eStart
+        ? eValueAttribute : pEnclosingText.substring(eStart);
+  }
+
+  /**
+   * Consumes the current element up to its end tag without decoding it.
+   */
+  private void skipElement(final MappedXmlScanner pScanner)
+      throws IOException {
+    int eDepth = 1;
+    while (eDepth > 0) {
+      final int eEventType = pScanner.next();
+      if (eEventType == MappedXmlScanner.EVENT_START_ELEMENT) {
+        eDepth++;
+      }
+      else if (eEventType == MappedXmlScanner.EVENT_END_ELEMENT) {
+        eDepth--;
+      }
+    }
+  }
+
+}
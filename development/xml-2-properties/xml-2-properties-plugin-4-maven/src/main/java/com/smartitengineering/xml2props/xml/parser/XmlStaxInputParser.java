@@ -0,0 +1,313 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.xml.parser;
+
+import com.smartitengineering.xml2props.bundle.BundleEntrySink;
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.maven.MojoReferenceHolder;
+import com.smartitengineering.xml2props.util.LocaleUtil;
+import com.smartitengineering.xml2props.util.LogUtil;
+import org.apache.maven.plugin.AbstractMojo;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * InputParser that pulls the input file through a StAX XMLStreamReader
+ * instead of building a document tree. Apart from the resulting bundles only
+ * the &lt;entry&gt; currently being read is held in memory, which keeps the
+ * heap usage independent of the size of the input file. The produced bundles
+ * are the same as the ones produced by {@link XmlXomInputParser}. As a
+ * {@link StreamingInputParser} every entry is pushed to the sink as soon as
+ * its end tag is read.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class XmlStaxInputParser implements StreamingInputParser,
+    MojoReferenceHolder {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  AbstractMojo mMojo;
+
+  public XmlStaxInputParser() {
+    super();
+  }
+
+  /** @return the mojo */
+  public AbstractMojo getMojo() {
+    return mMojo;
+  }
+
+  /** @param pMojo the mojo to set */
+  public void setMojo(AbstractMojo pMojo) {
+    mMojo = pMojo;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.xml.parser.InputParser#parseInput(java.io.File)
+   */
+  public Map<Locale, Properties> parseInput(final File pInputFile)
+      throws IOException {
+    return parseBundles(pInputFile).toLocalePropertiesMap();
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.xml.parser.InputParser#parseBundles(java.io.File)
+   */
+  public LocaleBundleTable parseBundles(final File pInputFile)
+      throws IOException {
+    final LocaleBundleTable eBundles = new LocaleBundleTable();
+    parseEntries(pInputFile, eBundles);
+    return eBundles;
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.xml.parser.StreamingInputParser#parseEntries(java.io.File, com.smartitengineering.xml2props.bundle.BundleEntrySink)
+   */
+  public void parseEntries(
+      final File pInputFile,
+      final BundleEntrySink pSink)
+      throws IOException {
+    LogUtil.debug(this, "Parsing file: ", pInputFile);
+    final InputStream eInputStream = new BufferedInputStream(
+        new FileInputStream(pInputFile), BUFFER_SIZE);
+    try {
+      parseEntries(eInputStream, pSink);
+    }
+    finally {
+      eInputStream.close();
+    }
+  }
+
+  /**
+   * @param pInputStream The xml to parse, it is not closed
+   *
+   * @return the compact table of all the properties mapped in the xml for all
+   *         the Locale
+   *
+   * @throws IOException if there is an error in processing the xml
+   */
+  LocaleBundleTable parseBundles(final InputStream pInputStream)
+      throws IOException {
+    final LocaleBundleTable eBundles = new LocaleBundleTable();
+    parseEntries(pInputStream, eBundles);
+    return eBundles;
+  }
+
+  private void parseEntries(
+      final InputStream pInputStream,
+      final BundleEntrySink pSink)
+      throws IOException {
+    XMLStreamReader eReader = null;
+    try {
+      eReader = XMLInputFactory.newInstance().createXMLStreamReader(
+          pInputStream);
+      moveToRootElement(eReader);
+      if (XML_NAME_ENTRIES.equals(eReader.getLocalName())) {
+        processRootElement(eReader, pSink);
+      }
+      else {
+        LogUtil.debug(this, "Expected root node not found");
+        throw new IOException("Expected root node: " + XML_NAME_ENTRIES
+            + ", found: " + eReader.getLocalName());
+      }
+    }
+    catch (XMLStreamException ex) {
+      LogUtil.error(this, ex.getMessage());
+      throw new IOException(ex.getMessage());
+    }
+    finally {
+      if (eReader != null) {
+        try {
+          eReader.close();
+        }
+        catch (XMLStreamException ex) {
+          LogUtil.warn(this, ex.getMessage());
+        }
+      }
+    }
+  }
+
+  private void moveToRootElement(final XMLStreamReader pReader)
+      throws XMLStreamException, IOException {
+    while (pReader.hasNext()) {
+      if (pReader.next() == XMLStreamConstants.START_ELEMENT) {
+        return;
+      }
+    }
+    throw new IOException("Expected root node: " + XML_NAME_ENTRIES
+        + ", found none");
+  }
+
+  private void processRootElement(
+      final XMLStreamReader pReader,
+      final BundleEntrySink pSink)
+      throws XMLStreamException, IOException {
+    LogUtil.debug(this, "Found expected root node: ", XML_NAME_ENTRIES);
+
+    int eEventType = pReader.next();
+    while (eEventType != XMLStreamConstants.END_ELEMENT) {
+      if (eEventType == XMLStreamConstants.START_ELEMENT) {
+        if (XML_NAME_ENTRY.equals(pReader.getLocalName())) {
+          processEntryElement(pReader, pSink);
+        }
+        else {
+          readElementValue(pReader, null);
+        }
+      }
+      eEventType = pReader.next();
+    }
+  }
+
+  /**
+   * Reads a single &lt;entry&gt; up to its end tag. The values are held until
+   * the end of the entry since the key may appear after the values.
+   */
+  private void processEntryElement(
+      final XMLStreamReader pReader,
+      final BundleEntrySink pSink)
+      throws XMLStreamException, IOException {
+    String eKeyValue = pReader.getAttributeValue(null, XML_NAME_KEY);
+    boolean eKeyFound = eKeyValue != null;
+    final List<Locale> eLocales = new ArrayList<Locale>();
+    final List<String> eValues = new ArrayList<String>();
+
+    int eEventType = pReader.next();
+    while (eEventType != XMLStreamConstants.END_ELEMENT) {
+      if (eEventType == XMLStreamConstants.START_ELEMENT) {
+        final String eChildName = pReader.getLocalName();
+        if (XML_NAME_VALUE.equals(eChildName)) {
+          processValueElement(pReader, eLocales, eValues);
+        }
+        else if (XML_NAME_KEY.equals(eChildName) && !eKeyFound) {
+          eKeyValue = readElementValue(pReader, null);
+          eKeyFound = true;
+        }
+        else {
+          readElementValue(pReader, null);
+        }
+      }
+      eEventType = pReader.next();
+    }
+
+    // save the entry in the Locale bundles
+    for (int i = 0; i < eLocales.size(); i++) {
+      pSink.put(eKeyValue, eLocales.get(i), eValues.get(i));
+    }
+  }
+
+  private void processValueElement(
+      final XMLStreamReader pReader,
+      final List<Locale> pLocales,
+      final List<String> pValues)
+      throws XMLStreamException {
+    String eLangValue = pReader.getAttributeValue(null, XML_NAME_LANG);
+    String eCountryValue = pReader.getAttributeValue(null, XML_NAME_COUNTRY);
+    final String eValueAttribute = pReader.getAttributeValue(null,
+        XML_NAME_VALUE);
+    final boolean eLangFound = eLangValue != null;
+    final boolean eCountryFound = eCountryValue != null;
+    boolean eLangChildFound = false;
+    boolean eCountryChildFound = false;
+    final StringBuilder eText = new StringBuilder();
+
+    int eEventType = pReader.next();
+    while (eEventType != XMLStreamConstants.END_ELEMENT) {
+      if (eEventType == XMLStreamConstants.START_ELEMENT) {
+        final String eChildName = pReader.getLocalName();
+        final String eChildValue = readElementValue(pReader, eText);
+        if (XML_NAME_LANG.equals(eChildName) && !eLangFound
+            && !eLangChildFound) {
+          eLangValue = eChildValue;
+          eLangChildFound = true;
+        }
+        else if (XML_NAME_COUNTRY.equals(eChildName) && !eCountryFound
+            && !eCountryChildFound) {
+          eCountryValue = eChildValue;
+          eCountryChildFound = true;
+        }
+      }
+      else if (isText(eEventType)) {
+        eText.append(pReader.getTextCharacters(), pReader.getTextStart(),
+            pReader.getTextLength());
+      }
+      eEventType = pReader.next();
+    }
+
+    pLocales.add(LocaleUtil.getLocale(eLangValue, eCountryValue));
+    pValues.add(eText.length() == 0 ? eValueAttribute : eText.toString());
+  }
+
+  /**
+   * Consumes the current element up to its end tag.
+   *
+   * @param pReader        The reader positioned at the start of the element
+   * @param pEnclosingText If not null the text of the element is also appended
+   *                       to it
+   *
+   * @return The text value of the element or the value of the 'value'
+   *         attribute in the element
+   */
+  private String readElementValue(
+      final XMLStreamReader pReader,
+      final StringBuilder pEnclosingText)
+      throws XMLStreamException {
+    final String eValueAttribute = pReader.getAttributeValue(null,
+        XML_NAME_VALUE);
+    final StringBuilder eText = new StringBuilder();
+
+    int eEventType = pReader.next();
+    while (eEventType != XMLStreamConstants.END_ELEMENT) {
+      if (eEventType == XMLStreamConstants.START_ELEMENT) {
+        readElementValue(pReader, eText);
+      }
+      else if (isText(eEventType)) {
+        eText.append(pReader.getTextCharacters(), pReader.getTextStart(),
+            pReader.getTextLength());
+      }
+      eEventType = pReader.next();
+    }
+
+    if (pEnclosingText != null) {
+      pEnclosingText.append(eText);
+    }
+    return eText.length() == 0 ? eValueAttribute : eText.toString();
+  }
+
+  private boolean isText(final int pEventType) {
+    return pEventType == XMLStreamConstants.CHARACTERS
+        || pEventType == XMLStreamConstants.CDATA
+        || pEventType == XMLStreamConstants.SPACE;
+  }
+
+}
@@ -18,7 +18,9 @@
  */
 package com.smartitengineering.xml2props.xml.parser;
 
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
 import com.smartitengineering.xml2props.maven.MojoReferenceHolder;
+import com.smartitengineering.xml2props.util.LocaleUtil;
 import com.smartitengineering.xml2props.util.LogUtil;
 import com.smartitengineering.xml2props.util.XmlXomUtil;
 import nu.xom.*;
@@ -26,7 +28,8 @@ import org.apache.maven.plugin.AbstractMojo;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
@@ -38,18 +41,6 @@ import java.util.Properties;
 
 public final class XmlXomInputParser implements InputParser,
     MojoReferenceHolder {
-  
-  public static final String XML_NAME_ENTRIES = "entries";
-
-  public static final String XML_NAME_ENTRY = "entry";
-
-  public static final String XML_NAME_KEY = "key";
-
-  public static final String XML_NAME_LANG = "lang";
-
-  public static final String XML_NAME_COUNTRY = "country";
-
-  public static final String XML_NAME_VALUE = "value";
 
   AbstractMojo mMojo;
 
@@ -75,10 +66,18 @@ public final class XmlXomInputParser implements InputParser,
    */
   public Map<Locale, Properties> parseInput(final File pInputFile)
       throws IOException {
+    return parseBundles(pInputFile).toLocalePropertiesMap();
+  }
+
+  /**
+   * @see com.smartitengineering.xml2props.xml.parser.InputParser#parseBundles(java.io.File)
+   */
+  public LocaleBundleTable parseBundles(final File pInputFile)
+      throws IOException {
     final Builder eBuilder = new Builder();
     Document eParsedDocument = null;
     try {
-      LogUtil.debug(this, "Parsing file: " + pInputFile);
+      LogUtil.debug(this, "Parsing file: ", pInputFile);
       eParsedDocument = eBuilder.build(pInputFile);
     }
     catch (ValidityException ex) {
@@ -91,7 +90,20 @@ public final class XmlXomInputParser implements InputParser,
     }
     
     // process the nodes once document has been parsed successfully
-    final Element eRootElement = eParsedDocument.getRootElement();
+    return parseBundles(eParsedDocument);
+  }
+
+  /**
+   * @param pDocument The parsed input xml
+   *
+   * @return the compact table of all the properties mapped in the document
+   *         for all the Locale
+   *
+   * @throws IOException if the document does not have the expected root
+   */
+  public LocaleBundleTable parseBundles(final Document pDocument)
+      throws IOException {
+    final Element eRootElement = pDocument.getRootElement();
     if (XmlXomUtil.isNodeName(eRootElement, XML_NAME_ENTRIES)) {
       return processRootNode(eRootElement);
     }
@@ -102,107 +114,110 @@ public final class XmlXomInputParser implements InputParser,
     }
   }
 
-  private Map<Locale, Properties> processRootNode(final Node pCurrentNode) {
+  private LocaleBundleTable processRootNode(final Node pCurrentNode) {
     LogUtil.debug(this, "Processing root node");
     if (pCurrentNode instanceof Element) {
       final Element eElement = (Element) pCurrentNode;
       if (XmlXomUtil.isNodeName(eElement, XML_NAME_ENTRIES)) {
-        LogUtil.debug(this, "Found expected root node: "
-            + XML_NAME_ENTRIES);
-        final Map<Locale, Properties> eLocaleProperties =
-            new HashMap<Locale, Properties>();
+        LogUtil.debug(this, "Found expected root node: ",
+            XML_NAME_ENTRIES);
+        final LocaleBundleTable eBundles = new LocaleBundleTable();
 
         // Extract child nodes and process them
+        final List<Locale> eLocales = new ArrayList<Locale>();
+        final List<String> eValues = new ArrayList<String>();
         for (int i = 0; i < eElement.getChildCount(); i++) {
           final Node eChildNode = eElement.getChild(i);
-          processEntryNodes(eChildNode, eLocaleProperties);
+          processEntryNodes(eChildNode, eBundles, eLocales, eValues);
         }
 
-        return eLocaleProperties;
+        return eBundles;
       }
     }
     return null;
   }
 
+  /**
+   * Decodes an &lt;entry&gt; in a single pass over its children. The values
+   * are held until the end of the entry since the key may appear after the
+   * values.
+   */
   private void processEntryNodes(
       final Node pCurrentNode,
-      final Map<Locale, Properties> pLocaleProperties) {
+      final LocaleBundleTable pBundles,
+      final List<Locale> pLocales,
+      final List<String> pValues) {
     if (pCurrentNode instanceof Element) {
       final Element eElement = (Element) pCurrentNode;
-      if (XmlXomUtil.isNodeName(eElement, XML_NAME_ENTRY)) {
-        final String eKeyValue = XmlXomUtil
-            .getValueFromAttributeOrChildNode(eElement,
-                XML_NAME_KEY);
+      if (XML_NAME_ENTRY.equals(eElement.getLocalName())) {
+        String eKeyValue = eElement.getAttributeValue(XML_NAME_KEY);
+        boolean eKeyFound = eKeyValue != null;
+        pLocales.clear();
+        pValues.clear();
 
         for (int i = 0; i < eElement.getChildCount(); i++) {
           final Node eChildNode = eElement.getChild(i);
           if (eChildNode instanceof Element) {
             final Element eChildElement = (Element) eChildNode;
-
-            // if the attribute name matches, retrieve the value of
-            // this Element and insert it into the
-            // Locale-Properties Map
-            if (XmlXomUtil
-                .isNodeName(eChildElement, XML_NAME_VALUE)) {
-              final Locale eLocale =
-                  getLocaleFromElementLangValue(eChildElement);
-
-              final String eValue = XmlXomUtil
-                  .getValueFromAttributeOrElement(eChildElement);
-
-              // save the entry in the Locale-Properties Map
-
-              final Properties eProperties =
-                  getNonNullPropertiesForLocaleFromMap(
-                      pLocaleProperties, eLocale);
-
-              eProperties.put(eKeyValue, eValue);
-
+            final String eChildName = eChildElement.getLocalName();
+            if (XML_NAME_VALUE.equals(eChildName)) {
+              pLocales.add(getLocaleFromElementLangValue(eChildElement));
+              pValues.add(getElementValue(eChildElement));
+            }
+            else if (XML_NAME_KEY.equals(eChildName) && !eKeyFound) {
+              eKeyValue = getElementValue(eChildElement);
+              eKeyFound = true;
             }
           }
         }
-      }
-    }
-  }
 
-  private Properties getNonNullPropertiesForLocaleFromMap(
-      final Map<Locale, Properties> pLocaleProperties,
-      final Locale pLangLocale) {
-    Properties eProperties = pLocaleProperties.get(pLangLocale);
-    if (eProperties == null) {
-      eProperties = new Properties();
-      pLocaleProperties.put(pLangLocale, eProperties);
+        // save the entry in the Locale bundles
+        for (int i = 0; i < pLocales.size(); i++) {
+          pBundles.put(eKeyValue, pLocales.get(i), pValues.get(i));
+        }
+      }
     }
-    return eProperties;
   }
 
+  /**
+   * The lang and country are taken from the attributes of the value, or else
+   * from its first child elements of the same name, found in a single pass
+   * over the children.
+   */
   protected Locale getLocaleFromElementLangValue(final Element pChildElement) {
-    final String eLangValue = XmlXomUtil.getValueFromAttributeOrChildNode(
-        pChildElement, XML_NAME_LANG);
-
-    final String eCountryValue = XmlXomUtil
-        .getValueFromAttributeOrChildNode(pChildElement,
-            XML_NAME_COUNTRY);
-
-    final Locale eLangLocale;
-    if (eLangValue == null) {
-      if (eCountryValue == null) {
-        eLangLocale = null;
-      }
-      else {
-        eLangLocale = new Locale("", eCountryValue.trim());
-      }
-    }
-    else {
-      if (eCountryValue == null) {
-        eLangLocale = new Locale(eLangValue.trim());
-      }
-      else {
-        eLangLocale = new Locale(eLangValue.trim(), eCountryValue
-            .trim());
+    String eLangValue = pChildElement.getAttributeValue(XML_NAME_LANG);
+    String eCountryValue = pChildElement.getAttributeValue(XML_NAME_COUNTRY);
+    boolean eLangFound = eLangValue != null;
+    boolean eCountryFound = eCountryValue != null;
+
+    for (int i = 0; i < pChildElement.getChildCount()
+        && !(eLangFound && eCountryFound); i++) {
+      final Node eChildNode = pChildElement.getChild(i);
+      if (eChildNode instanceof Element) {
+        final Element eGrandChildElement = (Element) eChildNode;
+        final String eChildName = eGrandChildElement.getLocalName();
+        if (XML_NAME_LANG.equals(eChildName) && !eLangFound) {
+          eLangValue = getElementValue(eGrandChildElement);
+          eLangFound = true;
+        }
+        else if (XML_NAME_COUNTRY.equals(eChildName) && !eCountryFound) {
+          eCountryValue = getElementValue(eGrandChildElement);
+          eCountryFound = true;
+        }
       }
     }
-    return eLangLocale;
+
+    return LocaleUtil.getLocale(eLangValue, eCountryValue);
+  }
+
+  /**
+   * @return The text value of the element or the value of the 'value'
+   *         attribute in the element
+   */
+  private static String getElementValue(final Element pElement) {
+    final String eText = pElement.getValue();
+    return eText.length() == 0
+        ? pElement.getAttributeValue(XML_NAME_VALUE) : eText;
   }
 
 }
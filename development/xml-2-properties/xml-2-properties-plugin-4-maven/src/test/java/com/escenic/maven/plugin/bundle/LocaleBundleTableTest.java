@@ -0,0 +1,102 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.bundle;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.xml.parser.XmlStaxInputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlXomInputParser;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class LocaleBundleTableTest
+    extends TestCase {
+
+  public void testPutAndGet() {
+    final Locale eBnLocale = new Locale("bn");
+    final LocaleBundleTable eTable = new LocaleBundleTable();
+    eTable.put("first", null, "one");
+    eTable.put("second", null, "two");
+    eTable.put("second", eBnLocale, new String("two"));
+    eTable.put("first", null, "uno");
+
+    assertEquals(2, eTable.getKeyCount());
+    assertEquals("first", eTable.getKey(0));
+    assertEquals(1, eTable.getKeyIndex("second"));
+    assertEquals(-1, eTable.getKeyIndex("third"));
+    assertEquals(2, eTable.getLocales().size());
+    assertEquals(2, eTable.getEntryCount(null));
+    assertEquals(1, eTable.getEntryCount(eBnLocale));
+    assertEquals("uno", eTable.getValue("first", null));
+    assertNull(eTable.getValue("first", eBnLocale));
+    assertNull(eTable.getValue("first", Locale.FRENCH));
+    // equal values share a single instance
+    assertSame(eTable.getValue("second", null),
+        eTable.getValue("second", eBnLocale));
+
+    final Properties eBnProperties = eTable.toProperties(eBnLocale);
+    assertEquals(1, eBnProperties.size());
+    assertEquals("two", eBnProperties.getProperty("second"));
+  }
+
+  public void testManyKeys() {
+    final LocaleBundleTable eTable = new LocaleBundleTable();
+    for (int i = 0; i < 1000; i++) {
+      eTable.put("key-" + i, null, "value-" + i);
+      if (i % 2 == 0) {
+        eTable.put("key-" + i, Locale.FRENCH, "valeur-" + i);
+      }
+    }
+    assertEquals(1000, eTable.getEntryCount(null));
+    assertEquals(500, eTable.getEntryCount(Locale.FRENCH));
+    assertEquals("valeur-998", eTable.getValue("key-998", Locale.FRENCH));
+    assertNull(eTable.getValue("key-999", Locale.FRENCH));
+  }
+
+  public void testNullValue() {
+    try {
+      new LocaleBundleTable().put("key", null, null);
+      fail("Expected IllegalArgumentException for null value");
+    }
+    catch (IllegalArgumentException ex) {
+      assertTrue(ex.getMessage().indexOf("key") >= 0);
+    }
+  }
+
+  public void testSameAsLocalePropertiesMap()
+      throws IOException {
+    final File eInputFile = new File("target/test-classes", "input-1.xml");
+    final Map<Locale, Properties> eXomParsedInput =
+        new XmlXomInputParser().parseInput(eInputFile);
+
+    assertEquals(eXomParsedInput, new XmlStaxInputParser()
+        .parseBundles(eInputFile).toLocalePropertiesMap());
+    assertEquals(eXomParsedInput, LocaleBundleTable
+        .fromLocaleProperties(eXomParsedInput).toLocalePropertiesMap());
+  }
+
+}
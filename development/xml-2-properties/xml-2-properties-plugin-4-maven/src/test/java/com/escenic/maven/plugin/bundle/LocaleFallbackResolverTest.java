@@ -0,0 +1,120 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.bundle;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.bundle.LocaleFallbackResolver;
+import com.smartitengineering.xml2props.bundle.LocaleFallbackResolver.FallbackMode;
+import junit.framework.TestCase;
+
+import java.util.Locale;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class LocaleFallbackResolverTest
+    extends TestCase {
+
+  private static final Locale BN = new Locale("bn");
+
+  private static final Locale BN_BD = new Locale("bn", "BD");
+
+  private static final Locale BN_BD_VARIANT = new Locale("bn", "BD", "dhaka");
+
+  private LocaleBundleTable mBundles;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mBundles = new LocaleBundleTable();
+    mBundles.put("title", null, "Title");
+    mBundles.put("ok", null, "OK");
+    mBundles.put("cancel", null, "Cancel");
+    mBundles.put("title", BN, "bn title");
+    mBundles.put("ok", BN, "OK");
+    mBundles.put("title", BN_BD, "bn title");
+    mBundles.put("cancel", BN_BD, "bn_BD cancel");
+    // fr_FR has no bundle for its parent fr
+    mBundles.put("cancel", new Locale("fr", "FR"), "Annuler");
+  }
+
+  public void testParentLocale() {
+    assertEquals(BN_BD, LocaleFallbackResolver.getParentLocale(
+        BN_BD_VARIANT));
+    assertEquals(BN, LocaleFallbackResolver.getParentLocale(BN_BD));
+    assertNull(LocaleFallbackResolver.getParentLocale(BN));
+    assertNull(LocaleFallbackResolver.getParentLocale(new Locale("", "BD")));
+    assertNull(LocaleFallbackResolver.getParentLocale(null));
+  }
+
+  public void testFlatten() {
+    final LocaleBundleTable eFlattened = LocaleFallbackResolver.resolve(
+        mBundles, new FallbackMode("flatten"));
+    assertEquals(mBundles.getLocales(), eFlattened.getLocales());
+    assertEquals(3, eFlattened.getEntryCount(null));
+    assertEquals(3, eFlattened.getEntryCount(BN));
+    assertEquals("Cancel", eFlattened.getValue("cancel", BN));
+    assertEquals(3, eFlattened.getEntryCount(BN_BD));
+    assertEquals("bn title", eFlattened.getValue("title", BN_BD));
+    assertEquals("OK", eFlattened.getValue("ok", BN_BD));
+    assertEquals("bn_BD cancel", eFlattened.getValue("cancel", BN_BD));
+    // skips the missing fr bundle in the chain
+    final Locale eFrLocale = new Locale("fr", "FR");
+    assertEquals("Annuler", eFlattened.getValue("cancel", eFrLocale));
+    assertEquals("Title", eFlattened.getValue("title", eFrLocale));
+  }
+
+  public void testMinimize() {
+    final LocaleBundleTable eMinimized = LocaleFallbackResolver.resolve(
+        mBundles, FallbackMode.MINIMAL);
+    assertEquals(3, eMinimized.getEntryCount(null));
+    assertEquals(1, eMinimized.getEntryCount(BN));
+    assertEquals("bn title", eMinimized.getValue("title", BN));
+    assertNull(eMinimized.getValue("ok", BN));
+    assertEquals(1, eMinimized.getEntryCount(BN_BD));
+    assertEquals("bn_BD cancel", eMinimized.getValue("cancel", BN_BD));
+
+    // the runtime lookups are unchanged
+    final LocaleBundleTable eFlattened = LocaleFallbackResolver.flatten(
+        mBundles);
+    final LocaleBundleTable eReflattened = LocaleFallbackResolver.flatten(
+        eMinimized);
+    for (int i = 0; i < mBundles.getLocales().size(); i++) {
+      final Locale eLocale = mBundles.getLocales().get(i);
+      assertEquals(eFlattened.toProperties(eLocale),
+          eReflattened.toProperties(eLocale));
+    }
+  }
+
+  public void testNone() {
+    assertSame(mBundles, LocaleFallbackResolver.resolve(mBundles,
+        FallbackMode.NONE));
+    try {
+      new FallbackMode("deep");
+      fail("Expected IllegalArgumentException for unknown mode");
+    }
+    catch (IllegalArgumentException ex) {
+      assertTrue(ex.getMessage().indexOf("deep") >= 0);
+    }
+  }
+
+}
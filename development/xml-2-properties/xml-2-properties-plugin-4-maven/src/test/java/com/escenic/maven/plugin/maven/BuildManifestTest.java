@@ -0,0 +1,120 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.maven;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.maven.BuildManifest;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class BuildManifestTest
+    extends TestCase {
+
+  private File mOutputDirectory;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mOutputDirectory = new File("target/test-classes/manifest");
+    mOutputDirectory.mkdirs();
+  }
+
+  public void testUpToDate()
+      throws IOException {
+    final File eGeneratedFile = new File(mOutputDirectory,
+        "TestManifest_en.properties");
+    new FileOutputStream(eGeneratedFile).close();
+
+    final BuildManifest eManifest = new BuildManifest(mOutputDirectory,
+        "TestManifest");
+    eManifest.load();
+    assertFalse(eManifest.isUpToDate("input", "configuration"));
+    eManifest.store("input", "configuration",
+        Collections.singletonList(eGeneratedFile.getName()));
+
+    final BuildManifest eLoadedManifest = new BuildManifest(
+        mOutputDirectory, "TestManifest");
+    eLoadedManifest.load();
+    assertTrue(eLoadedManifest.isUpToDate("input", "configuration"));
+    assertFalse(eLoadedManifest.isUpToDate("changed", "configuration"));
+    assertFalse(eLoadedManifest.isUpToDate("input", "changed"));
+
+    assertTrue(eGeneratedFile.delete());
+    assertFalse(eLoadedManifest.isUpToDate("input", "configuration"));
+
+    eLoadedManifest.invalidate();
+    assertFalse(eLoadedManifest.getManifestFile().exists());
+  }
+
+  public void testHashValues() {
+    assertEquals(BuildManifest.hashValues(Arrays.asList("a", "b")),
+        BuildManifest.hashValues(Arrays.asList("a", "b")));
+    assertFalse(BuildManifest.hashValues(Arrays.asList("ab", "c")).equals(
+        BuildManifest.hashValues(Arrays.asList("a", "bc"))));
+  }
+
+  public void testLocaleFingerprints()
+      throws IOException {
+    final Locale eBnLocale = new Locale("bn");
+    final LocaleBundleTable eBundles = new LocaleBundleTable();
+    eBundles.put("first", null, "one");
+    eBundles.put("second", null, "two");
+    eBundles.put("first", eBnLocale, "ek");
+    final LocaleBundleTable eReorderedBundles = new LocaleBundleTable();
+    eReorderedBundles.put("second", null, "two");
+    eReorderedBundles.put("first", null, "one");
+    eReorderedBundles.put("first", eBnLocale, "dui");
+
+    final String eFingerprint = BuildManifest.fingerprintLocale(eBundles,
+        null);
+    assertEquals(eFingerprint, BuildManifest.fingerprintLocale(
+        eReorderedBundles, null));
+    assertFalse(BuildManifest.fingerprintLocale(eBundles, eBnLocale).equals(
+        BuildManifest.fingerprintLocale(eReorderedBundles, eBnLocale)));
+
+    final BuildManifest eManifest = new BuildManifest(mOutputDirectory,
+        "FingerprintManifest");
+    eManifest.store("input", "configuration",
+        Collections.<String>emptyList(), Collections.singletonMap(
+            BuildManifest.getLocaleName(null), eFingerprint));
+    final BuildManifest eLoadedManifest = new BuildManifest(
+        mOutputDirectory, "FingerprintManifest");
+    eLoadedManifest.load();
+    assertTrue(eLoadedManifest.isConfigurationUnchanged("configuration"));
+    assertFalse(eLoadedManifest.isConfigurationUnchanged("changed"));
+    final Map<String, String> eFingerprints =
+        eLoadedManifest.getLocaleFingerprints();
+    assertEquals(1, eFingerprints.size());
+    assertEquals(eFingerprint, eFingerprints.get("default"));
+  }
+
+}
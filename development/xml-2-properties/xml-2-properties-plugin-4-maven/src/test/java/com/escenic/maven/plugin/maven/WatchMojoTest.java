@@ -0,0 +1,269 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.maven;
+
+import com.smartitengineering.xml2props.maven.WatchListener;
+import com.smartitengineering.xml2props.maven.WatchMojo;
+import com.smartitengineering.xml2props.writer.PropertiesWriterImpl;
+import com.smartitengineering.xml2props.xml.parser.XmlStaxInputParser;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class WatchMojoTest
+    extends TestCase {
+
+  private static final long TIMEOUT = 10000;
+
+  private File mInputFile;
+
+  private File mOutputDirectory;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    final File eInputDirectory = new File("target/test-classes/watch-input");
+    eInputDirectory.mkdirs();
+    mInputFile = new File(eInputDirectory, "watched.xml");
+    mOutputDirectory = new File("target/test-classes/watch-output");
+    mOutputDirectory.mkdirs();
+  }
+
+  /**
+   * @param pNoValue The value of Norwegian, null to leave the Locale out
+   */
+  private void writeInputFile(
+      final String pBnValue,
+      final String pNoValue)
+      throws IOException {
+    writeEntries("<entry><key>title</key><value>Title</value>"
+        + "<value lang=\"bn\">" + pBnValue + "</value>"
+        + (pNoValue == null ? "" : "<value lang=\"no\">" + pNoValue
+        + "</value>") + "</entry>");
+  }
+
+  private void writeEntries(final String pEntries)
+      throws IOException {
+    final OutputStream eOutputStream = new FileOutputStream(mInputFile);
+    try {
+      eOutputStream.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>"
+          + "<entries>" + pEntries + "</entries>").getBytes("UTF-8"));
+    }
+    finally {
+      eOutputStream.close();
+    }
+  }
+
+  private static Properties loadProperties(final File pFile)
+      throws IOException {
+    final Properties eProperties = new Properties();
+    final InputStream eInputStream = new FileInputStream(pFile);
+    try {
+      eProperties.load(eInputStream);
+    }
+    finally {
+      eInputStream.close();
+    }
+    return eProperties;
+  }
+
+  private WatchMojo newMojo(final String pBundleName) {
+    final WatchMojo eMojo = new WatchMojo();
+    eMojo.setInputFile(mInputFile);
+    eMojo.setOutputDirectory(mOutputDirectory);
+    eMojo.setOutputMode("PROPERTIES");
+    eMojo.setBundleName(pBundleName);
+    eMojo.setInputParser(new XmlStaxInputParser());
+    eMojo.setPropertiesWriter(new PropertiesWriterImpl());
+    eMojo.setWriteIfChanged(true);
+    eMojo.setSortedOutput(true);
+    eMojo.setWatchDelay(20);
+    return eMojo;
+  }
+
+  /**
+   * Counts down its latches when watching starts and after the first
+   * processed change, remembering the Locales of that change.
+   */
+  private static final class LatchWatchListener implements WatchListener {
+
+    private final CountDownLatch mWatching = new CountDownLatch(1);
+
+    private final CountDownLatch mRegenerated = new CountDownLatch(1);
+
+    private volatile List<Locale> mChangedLocales;
+
+    private volatile List<Locale> mRemovedLocales;
+
+    public void watching() {
+      mWatching.countDown();
+    }
+
+    public void regenerated(
+        final List<Locale> pChangedLocales,
+        final List<Locale> pRemovedLocales) {
+      if (mRegenerated.getCount() > 0) {
+        mChangedLocales = pChangedLocales;
+        mRemovedLocales = pRemovedLocales;
+        mRegenerated.countDown();
+      }
+    }
+
+    void awaitWatching()
+        throws InterruptedException {
+      assertTrue("Timed out waiting for the first run",
+          mWatching.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    void awaitRegenerated()
+        throws InterruptedException {
+      assertTrue("Timed out waiting for the regeneration",
+          mRegenerated.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+  }
+
+  /**
+   * Runs the mojo on a thread of its own until interrupted.
+   */
+  private static final class WatchThread extends Thread {
+
+    private final WatchMojo mMojo;
+
+    private volatile Exception mFailure;
+
+    WatchThread(final WatchMojo pMojo) {
+      mMojo = pMojo;
+    }
+
+    public void run() {
+      try {
+        mMojo.execute();
+      }
+      catch (Exception ex) {
+        mFailure = ex;
+      }
+    }
+
+    void stopWatching()
+        throws InterruptedException {
+      interrupt();
+      join(TIMEOUT);
+      assertFalse(isAlive());
+      assertNull(mFailure);
+    }
+
+  }
+
+  public void testRegenerateChangedLocales()
+      throws Exception {
+    writeInputFile("first", "f\u00f8rste");
+    final WatchMojo eMojo = newMojo("Watched");
+    final LatchWatchListener eListener = new LatchWatchListener();
+    eMojo.setWatchListener(eListener);
+    final WatchThread eWatchThread = new WatchThread(eMojo);
+    eWatchThread.start();
+    try {
+      eListener.awaitWatching();
+      final File eDefaultFile = new File(mOutputDirectory,
+          "Watched.properties");
+      final File eBnFile = new File(mOutputDirectory, "Watched_bn.properties");
+      final File eNoFile = new File(mOutputDirectory, "Watched_no.properties");
+      assertEquals("first", loadProperties(eBnFile).getProperty("title"));
+      assertTrue(eNoFile.exists());
+      assertTrue(eDefaultFile.setLastModified(1000));
+
+      writeInputFile("second", null);
+      eListener.awaitRegenerated();
+      assertEquals(Arrays.asList(new Locale[] {new Locale("bn")}),
+          eListener.mChangedLocales);
+      assertEquals(Arrays.asList(new Locale[] {new Locale("no")}),
+          eListener.mRemovedLocales);
+      assertEquals("second", loadProperties(eBnFile).getProperty("title"));
+      // the stale file of the removed Locale was deleted
+      assertFalse(eNoFile.exists());
+      // the default Locale did not change and was not written again
+      assertEquals(1000, eDefaultFile.lastModified());
+    }
+    finally {
+      eWatchThread.stopWatching();
+    }
+  }
+
+  public void testRemovedKeys()
+      throws Exception {
+    // a file of an earlier build is replaced, not merged into
+    final File eBnFile = new File(mOutputDirectory, "Removal_bn.properties");
+    final Properties eEarlierProperties = new Properties();
+    eEarlierProperties.put("earlier", "from an earlier build");
+    final OutputStream eOutputStream = new FileOutputStream(eBnFile);
+    try {
+      eEarlierProperties.store(eOutputStream, null);
+    }
+    finally {
+      eOutputStream.close();
+    }
+    writeEntries("<entry><key>title</key><value lang=\"bn\">Title</value>"
+        + "</entry><entry><key>subtitle</key>"
+        + "<value lang=\"bn\">Subtitle</value></entry>");
+    final WatchMojo eMojo = newMojo("Removal");
+    final LatchWatchListener eListener = new LatchWatchListener();
+    eMojo.setWatchListener(eListener);
+    final WatchThread eWatchThread = new WatchThread(eMojo);
+    eWatchThread.start();
+    try {
+      eListener.awaitWatching();
+      final Properties eFirstProperties = new Properties();
+      eFirstProperties.put("title", "Title");
+      eFirstProperties.put("subtitle", "Subtitle");
+      assertEquals(eFirstProperties, loadProperties(eBnFile));
+
+      writeEntries("<entry><key>title</key><value lang=\"bn\">Title</value>"
+          + "</entry>");
+      eListener.awaitRegenerated();
+      assertEquals(Arrays.asList(new Locale[] {new Locale("bn")}),
+          eListener.mChangedLocales);
+      // the removed key is removed from the file as well
+      assertEquals(Collections.singletonMap("title", "Title"),
+          loadProperties(eBnFile));
+    }
+    finally {
+      eWatchThread.stopWatching();
+    }
+  }
+
+}
@@ -0,0 +1,348 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.maven;
+
+import com.smartitengineering.xml2props.maven.XmlToPropertiesMojo;
+import com.smartitengineering.xml2props.runtime.PrecompiledMessageFormat;
+import com.smartitengineering.xml2props.writer.PropertiesWriterImpl;
+import com.smartitengineering.xml2props.xml.parser.XmlStaxInputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlXomInputParser;
+import junit.framework.TestCase;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class XmlToPropertiesMojoTest
+    extends TestCase {
+
+  private File mInputFile;
+
+  private File mOutputDirectory;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    final File eInputDirectory = new File("target/test-classes/mojo-input");
+    eInputDirectory.mkdirs();
+    mInputFile = new File(eInputDirectory, "entries.xml");
+    mOutputDirectory = new File("target/test-classes/mojo-output");
+    mOutputDirectory.mkdirs();
+    // the files and manifests of a previous run would make the runs up to date
+    final File[] eOutputFiles = mOutputDirectory.listFiles();
+    for (int i = 0; i < eOutputFiles.length; i++) {
+      eOutputFiles[i].delete();
+    }
+  }
+
+  private void writeInputFile(final String pBnValue)
+      throws IOException {
+    final OutputStream eOutputStream = new FileOutputStream(mInputFile);
+    try {
+      eOutputStream.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>"
+          + "<entries><entry><key>title</key><value>Title</value>"
+          + "<value lang=\"bn\">" + pBnValue + "</value>"
+          + "<value lang=\"no\">Tittel</value></entry></entries>")
+          .getBytes("UTF-8"));
+    }
+    finally {
+      eOutputStream.close();
+    }
+  }
+
+  private XmlToPropertiesMojo newMojo() {
+    final XmlToPropertiesMojo eMojo = new XmlToPropertiesMojo();
+    eMojo.setInputFile(mInputFile);
+    eMojo.setOutputDirectory(mOutputDirectory);
+    eMojo.setOutputMode("PROPERTIES");
+    eMojo.setBundleName("Incremental");
+    eMojo.setInputParser(new XmlStaxInputParser());
+    eMojo.setPropertiesWriter(new PropertiesWriterImpl());
+    eMojo.setIncremental(true);
+    // every file is written when it is to be written
+    eMojo.setWriteIfChanged(false);
+    eMojo.setSortedOutput(true);
+    return eMojo;
+  }
+
+  public void testRewriteChangedLocalesOnly()
+      throws Exception {
+    writeInputFile("first");
+    newMojo().execute();
+    final File eDefaultFile = new File(mOutputDirectory,
+        "Incremental.properties");
+    final File eBnFile = new File(mOutputDirectory,
+        "Incremental_bn.properties");
+    final File eNoFile = new File(mOutputDirectory,
+        "Incremental_no.properties");
+    assertTrue(eDefaultFile.setLastModified(1000));
+    assertTrue(eBnFile.setLastModified(1000));
+    assertTrue(eNoFile.setLastModified(1000));
+
+    writeInputFile("second");
+    newMojo().execute();
+    assertEquals(1000, eDefaultFile.lastModified());
+    assertTrue(eBnFile.lastModified() != 1000);
+    assertEquals(1000, eNoFile.lastModified());
+
+    // a deleted file is written again
+    assertTrue(eNoFile.delete());
+    writeInputFile("third");
+    newMojo().execute();
+    assertTrue(eNoFile.isFile());
+    assertEquals(1000, eDefaultFile.lastModified());
+  }
+
+  public void testRewriteForNewPluginVersion()
+      throws Exception {
+    writeInputFile("version");
+    final XmlToPropertiesMojo eMojo = newMojo();
+    eMojo.setPluginVersion("1.0");
+    eMojo.execute();
+    final File eBnFile = new File(mOutputDirectory,
+        "Incremental_bn.properties");
+    assertTrue(eBnFile.setLastModified(1000));
+
+    eMojo.execute();
+    assertEquals(1000, eBnFile.lastModified());
+    // the same input and configuration, built by another version
+    eMojo.setPluginVersion("1.1");
+    eMojo.execute();
+    assertTrue(eBnFile.lastModified() != 1000);
+  }
+
+  public void testJavaSourceRoot()
+      throws Exception {
+    writeInputFile("java");
+    final File eBuildDirectory = new File("target/test-classes/mojo-build");
+    final XmlToPropertiesMojo eMojo = newMojo();
+    eMojo.setOutputMode("JAVA");
+    eMojo.setBundleName("test.mojo.Messages");
+    eMojo.setIncremental(false);
+    eMojo.setOutputDirectory(eBuildDirectory);
+    eMojo.setBuildDirectory(eBuildDirectory);
+    final MavenProject eProject = new MavenProject(new Model());
+    eMojo.setProject(eProject);
+    eMojo.execute();
+
+    // the build directory itself is never a source root
+    final File eSourceDirectory = new File(eBuildDirectory,
+        "generated-sources/xml2props");
+    assertEquals(Collections.singletonList(
+        eSourceDirectory.getAbsolutePath()),
+        eProject.getCompileSourceRoots());
+    assertTrue(new File(eSourceDirectory, "test/mojo/Messages_bn.java")
+        .isFile());
+    assertFalse(new File(eBuildDirectory, "test").exists());
+
+    // an output directory of its own is used as it is
+    final File eOutputDirectory = new File(mOutputDirectory, "java");
+    final XmlToPropertiesMojo eOwnMojo = newMojo();
+    eOwnMojo.setOutputMode("JAVA");
+    eOwnMojo.setBundleName("test.mojo.Messages");
+    eOwnMojo.setIncremental(false);
+    eOwnMojo.setOutputDirectory(eOutputDirectory);
+    eOwnMojo.setBuildDirectory(eBuildDirectory);
+    final MavenProject eOwnProject = new MavenProject(new Model());
+    eOwnMojo.setProject(eOwnProject);
+    eOwnMojo.execute();
+    assertEquals(Collections.singletonList(
+        eOutputDirectory.getAbsolutePath()),
+        eOwnProject.getCompileSourceRoots());
+    assertTrue(new File(eOutputDirectory, "test/mojo/Messages_bn.java")
+        .isFile());
+  }
+
+  public void testParallelWriteFailures()
+      throws Exception {
+    writeInputFile("parallel");
+    // a directory in place of the file fails the Locale
+    assertTrue(new File(mOutputDirectory, "Parallel_bn.properties")
+        .mkdir());
+    assertTrue(new File(mOutputDirectory, "Parallel_no.properties")
+        .mkdir());
+    final XmlToPropertiesMojo eMojo = newMojo();
+    eMojo.setBundleName("Parallel");
+    eMojo.setThreads(2);
+    try {
+      eMojo.execute();
+      fail("Expected MojoExecutionException for the failed Locales");
+    }
+    catch (MojoExecutionException ex) {
+      final Throwable eCause = ex.getCause();
+      assertTrue(eCause instanceof IOException);
+      final String eMessage = eCause.getMessage();
+      assertTrue(eMessage, eMessage.indexOf("2 of 3 Locales") >= 0);
+      assertTrue(eMessage, eMessage.indexOf("\n  bn: ") >= 0);
+      assertTrue(eMessage, eMessage.indexOf("\n  no: ") >= 0);
+      assertNotNull(eCause.getCause());
+    }
+    // the other Locales are written all the same
+    assertTrue(new File(mOutputDirectory, "Parallel.properties").isFile());
+  }
+
+  public void testMetricsReport()
+      throws Exception {
+    writeInputFile("metrics");
+    final File eMetricsDirectory = new File("target/test-classes/metrics");
+    final XmlToPropertiesMojo eMojo = newMojo();
+    eMojo.setBundleName("Metrics");
+    eMojo.setMetricsDirectory(eMetricsDirectory);
+    eMojo.execute();
+
+    final String eReport = readFile(new File(eMetricsDirectory,
+        "Metrics-properties.json"));
+    assertTrue(eReport, eReport.indexOf("\"upToDate\": false") >= 0);
+    assertTrue(eReport, eReport.indexOf("\"parse\": {\"wallTimeMillis\": ")
+        >= 0);
+    assertTrue(eReport, eReport.indexOf("\"peakEntries\": 3") >= 0);
+    assertTrue(eReport, eReport.indexOf("\"rewrittenFiles\": 3") >= 0);
+    assertTrue(eReport, eReport.indexOf("\"bn\": {\"bytesRead\": 0, "
+        + "\"bytesWritten\": ") >= 0);
+
+    eMojo.execute();
+    assertTrue(readFile(new File(eMetricsDirectory,
+        "Metrics-properties.json")).indexOf("\"upToDate\": true") >= 0);
+  }
+
+  public void testStreaming()
+      throws Exception {
+    writeInputFile("streamed");
+    final XmlToPropertiesMojo eBufferedMojo = newMojo();
+    eBufferedMojo.setBundleName("Buffered");
+    eBufferedMojo.execute();
+    final XmlToPropertiesMojo eStreamingMojo = newMojo();
+    eStreamingMojo.setBundleName("Streamed");
+    eStreamingMojo.setStreamingBufferSize(1);
+    eStreamingMojo.execute();
+
+    final String[] eSuffixes = {"", "_bn", "_no"};
+    for (int i = 0; i < eSuffixes.length; i++) {
+      assertEquals(readFile(new File(mOutputDirectory, "Buffered"
+          + eSuffixes[i] + ".properties")), readFile(new File(
+          mOutputDirectory, "Streamed" + eSuffixes[i] + ".properties")));
+    }
+
+    eStreamingMojo.setInputParser(new XmlXomInputParser());
+    try {
+      eStreamingMojo.execute();
+      fail("Expected MojoExecutionException for a parser not streaming");
+    }
+    catch (MojoExecutionException ex) {
+      assertTrue(ex.getMessage().indexOf("stream") >= 0);
+    }
+  }
+
+  public void testPrecompiledFormats()
+      throws Exception {
+    writeInputFile("{0} ''{1}''");
+    final XmlToPropertiesMojo eMojo = newMojo();
+    eMojo.setBundleName("Formatted");
+    eMojo.setPrecompiledFormats(true);
+    eMojo.execute();
+
+    final Properties eFormats = new Properties();
+    final InputStream eInputStream = new FileInputStream(new File(
+        mOutputDirectory, "FormattedFormats_bn.properties"));
+    try {
+      eFormats.load(eInputStream);
+    }
+    finally {
+      eInputStream.close();
+    }
+    assertEquals("a 'b'", PrecompiledMessageFormat.format(
+        eFormats.getProperty("title"), new Locale("bn"), "a", "b"));
+    assertTrue(new File(mOutputDirectory, "Formatted_bn.properties")
+        .isFile());
+    assertTrue(new File(mOutputDirectory, "FormattedFormats.properties")
+        .isFile());
+
+    // a deleted formats file is written again, its Locale is unchanged
+    final File eNoFormatsFile = new File(mOutputDirectory,
+        "FormattedFormats_no.properties");
+    assertTrue(eNoFormatsFile.delete());
+    writeInputFile("{0}");
+    eMojo.execute();
+    assertTrue(eNoFormatsFile.isFile());
+  }
+
+  public void testMinimalFallbackReplacesFiles()
+      throws Exception {
+    // the bn value is the inherited one
+    writeInputFile("Title");
+    final XmlToPropertiesMojo eMojo = newMojo();
+    eMojo.setBundleName("Minimal");
+    eMojo.execute();
+    final File eBnFile = new File(mOutputDirectory,
+        "Minimal_bn.properties");
+    assertNotNull(loadProperties(eBnFile).getProperty("title"));
+
+    eMojo.setLocaleFallback("minimal");
+    eMojo.execute();
+    assertNull(loadProperties(eBnFile).getProperty("title"));
+    assertEquals("Tittel", loadProperties(new File(mOutputDirectory,
+        "Minimal_no.properties")).getProperty("title"));
+  }
+
+  private static Properties loadProperties(final File pFile)
+      throws IOException {
+    final Properties eProperties = new Properties();
+    final InputStream eInputStream = new FileInputStream(pFile);
+    try {
+      eProperties.load(eInputStream);
+    }
+    finally {
+      eInputStream.close();
+    }
+    return eProperties;
+  }
+
+  private static String readFile(final File pFile)
+      throws IOException {
+    final InputStream eInputStream = new FileInputStream(pFile);
+    try {
+      final byte[] eContent = new byte[(int) pFile.length()];
+      int eOffset = 0;
+      while (eOffset < eContent.length) {
+        eOffset += eInputStream.read(eContent, eOffset,
+            eContent.length - eOffset);
+      }
+      return new String(eContent, "UTF-8");
+    }
+    finally {
+      eInputStream.close();
+    }
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.util;
+
+import com.smartitengineering.xml2props.maven.MojoReferenceHolder;
+import com.smartitengineering.xml2props.util.LogUtil;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class LogUtilTest
+    extends TestCase {
+
+  private RecordingLog mLog;
+
+  private MojoReferenceHolder mReferenceHolder;
+
+  private int mSupplierCalls;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mLog = new RecordingLog();
+    final AbstractMojo eMojo = new AbstractMojo() {
+      public void execute() {
+      }
+    };
+    eMojo.setLog(mLog);
+    mReferenceHolder = new MojoReferenceHolder() {
+      public AbstractMojo getMojo() {
+        return eMojo;
+      }
+
+      public void setMojo(final AbstractMojo pMojo) {
+      }
+    };
+    mSupplierCalls = 0;
+  }
+
+  private LogUtil.LogMessageSupplier newSupplier(final String pMessage) {
+    return new LogUtil.LogMessageSupplier() {
+      public String getMessage() {
+        mSupplierCalls++;
+        return pMessage;
+      }
+    };
+  }
+
+  public void testDisabledDebugBuildsNoMessage() {
+    final Object eArgument = new Object() {
+      public String toString() {
+        fail("Argument of a disabled level was converted to a String");
+        return null;
+      }
+    };
+    LogUtil.debug(mReferenceHolder, "Writing properties: ", eArgument);
+    LogUtil.debug(mReferenceHolder, newSupplier("supplied"));
+
+    assertFalse(LogUtil.isDebugEnabled(mReferenceHolder));
+    assertEquals(0, mSupplierCalls);
+    assertTrue(mLog.getMessages().isEmpty());
+  }
+
+  public void testEnabledLevels() {
+    mLog.mDebugEnabled = true;
+    LogUtil.debug(mReferenceHolder, "Parsing file: ", "input.xml");
+    LogUtil.debug(mReferenceHolder, newSupplier("supplied"));
+    LogUtil.info(mReferenceHolder, "info");
+    LogUtil.warn(mReferenceHolder, "Found ", Integer.valueOf(2));
+    LogUtil.error(mReferenceHolder, newSupplier("failed"));
+
+    assertEquals(2, mSupplierCalls);
+    final List<String> eExpected = new ArrayList<String>();
+    eExpected.add("debug: Parsing file: input.xml");
+    eExpected.add("debug: supplied");
+    eExpected.add("info: info");
+    eExpected.add("warn: Found 2");
+    eExpected.add("error: failed");
+    assertEquals(eExpected, mLog.getMessages());
+  }
+
+  public void testFallbackWithoutMojo() {
+    assertTrue(LogUtil.getLog(null) instanceof SystemStreamLog);
+    assertFalse(LogUtil.isDebugEnabled(null));
+    LogUtil.debug(null, newSupplier("not logged"));
+    assertEquals(0, mSupplierCalls);
+  }
+
+  /**
+   * Records the messages of the enabled levels, debug is disabled unless
+   * set.
+   */
+  private static final class RecordingLog extends SystemStreamLog {
+
+    private final List<String> mMessages = new ArrayList<String>();
+
+    boolean mDebugEnabled;
+
+    List<String> getMessages() {
+      return mMessages;
+    }
+
+    public boolean isDebugEnabled() {
+      return mDebugEnabled;
+    }
+
+    public void debug(final CharSequence pContent) {
+      mMessages.add("debug: " + pContent);
+    }
+
+    public void info(final CharSequence pContent) {
+      mMessages.add("info: " + pContent);
+    }
+
+    public void warn(final CharSequence pContent) {
+      mMessages.add("warn: " + pContent);
+    }
+
+    public void error(final CharSequence pContent) {
+      mMessages.add("error: " + pContent);
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.util;
+
+import com.smartitengineering.xml2props.util.WriterUtil;
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class WriterUtilTest
+    extends TestCase {
+
+  public void testAppendUtf8() {
+    // 2, 3 and 4 byte sequences
+    assertDecoded("\u00e9", new int[]{0xC3, 0xA9});
+    assertDecoded("\u099f", new int[]{0xE0, 0xA6, 0x9F});
+    assertDecoded("\ud83d\ude00", new int[]{0xF0, 0x9F, 0x98, 0x80});
+    assertDecoded("\udbff\udfff", new int[]{0xF4, 0x8F, 0xBF, 0xBF});
+  }
+
+  public void testMalformedUtf8() {
+    // overlong encodings of '/'
+    assertDecoded("\u00c0\u00af", new int[]{0xC0, 0xAF});
+    assertDecoded("\u00e0\u0080\u00af", new int[]{0xE0, 0x80, 0xAF});
+    assertDecoded("\u00f0\u0080\u0080\u00af",
+        new int[]{0xF0, 0x80, 0x80, 0xAF});
+    // an encoded surrogate
+    assertDecoded("\u00ed\u00a0\u0080", new int[]{0xED, 0xA0, 0x80});
+    // above U+10FFFF
+    assertDecoded("\u00f4\u0090\u0080\u0080",
+        new int[]{0xF4, 0x90, 0x80, 0x80});
+    assertDecoded("\u00f8\u0088\u0080\u0080",
+        new int[]{0xF8, 0x88, 0x80, 0x80});
+    // a lone continuation byte and a truncated sequence
+    assertDecoded("\u0080", new int[]{0x80});
+    assertDecoded("\u00e0\u00a6", new int[]{0xE0, 0xA6});
+  }
+
+  /**
+   * Decodes the bytes like the mergers do, the bytes below 0x80 and the
+   * lead bytes of malformed sequences as ISO 8859-1.
+   */
+  private static void assertDecoded(
+      final String pExpected,
+      final int[] pBytes) {
+    final byte[] eBytes = new byte[pBytes.length];
+    for (int i = 0; i < pBytes.length; i++) {
+      eBytes[i] = (byte) pBytes[i];
+    }
+    final StringBuilder eFromArray = new StringBuilder();
+    final StringBuilder eFromBuffer = new StringBuilder();
+    int ePosition = 0;
+    while (ePosition < eBytes.length) {
+      if ((eBytes[ePosition] & 0xFF) < 0x80) {
+        eFromArray.append((char) eBytes[ePosition]);
+        eFromBuffer.append((char) eBytes[ePosition]);
+        ePosition++;
+        continue;
+      }
+      final int eNext = WriterUtil.appendUtf8(eBytes, ePosition,
+          eBytes.length, eFromArray);
+      assertEquals(eNext, WriterUtil.appendUtf8(ByteBuffer.wrap(eBytes),
+          ePosition, eBytes.length, eFromBuffer));
+      assertTrue(eNext > ePosition);
+      ePosition = eNext;
+    }
+    assertEquals(pExpected, eFromArray.toString());
+    assertEquals(pExpected, eFromBuffer.toString());
+  }
+
+}
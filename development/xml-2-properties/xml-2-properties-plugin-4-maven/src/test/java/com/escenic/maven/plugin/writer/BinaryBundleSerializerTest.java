@@ -0,0 +1,133 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.writer;
+
+import com.smartitengineering.xml2props.runtime.BinaryBundleFormat;
+import com.smartitengineering.xml2props.runtime.BinaryResourceBundle;
+import com.smartitengineering.xml2props.writer.BinaryBundleSerializer;
+import com.smartitengineering.xml2props.writer.PropertiesWriter;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+import com.smartitengineering.xml2props.writer.PropertiesWriterImpl;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.ResourceBundle;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class BinaryBundleSerializerTest
+    extends TestCase {
+
+  private File mOutputDirectory;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mOutputDirectory = new File("target/test-classes/binary-bundles");
+    mOutputDirectory.mkdirs();
+  }
+
+  public void testBinaryBundles()
+      throws IOException {
+    final Properties eDefaultProperties = new Properties();
+    eDefaultProperties.put("title", "Title");
+    eDefaultProperties.put("only.default", "Default");
+    eDefaultProperties.put("\u00e9t\u00e9", "summer \ud83d\ude00");
+    for (int i = 0; i < 20000; i++) {
+      eDefaultProperties.put("key." + i, "value." + (i % 100));
+    }
+    final Properties eBnProperties = new Properties();
+    eBnProperties.put("title", "\u099f\u09be\u0987\u099f\u09c7\u09b2");
+
+    final PropertiesWriter eWriter = new PropertiesWriterImpl();
+    eWriter.writePropertiesToFile(null, eDefaultProperties,
+        PropertiesMode.BINARY, mOutputDirectory, "BinaryMessages");
+    eWriter.writePropertiesToFile(new Locale("bn"), eBnProperties,
+        PropertiesMode.BINARY, mOutputDirectory, "BinaryMessages");
+    assertTrue(new File(mOutputDirectory, "BinaryMessages_bn.binary")
+        .exists());
+
+    assertEquals("\u099f\u09be\u0987\u099f\u09c7\u09b2", load(
+        "BinaryMessages_bn").getString("title"));
+    final ResourceBundle eBundle = load("BinaryMessages");
+    assertEquals(eDefaultProperties.size(), Collections.list(
+        eBundle.getKeys()).size());
+    assertEquals("summer \ud83d\ude00", eBundle.getString("\u00e9t\u00e9"));
+    for (int i = 0; i < 20000; i++) {
+      assertEquals("value." + (i % 100), eBundle.getString("key." + i));
+    }
+  }
+
+  private ResourceBundle load(final String pName)
+      throws IOException {
+    return BinaryResourceBundle.load(new File(mOutputDirectory,
+        pName + ".binary").toURI().toURL());
+  }
+
+  public void testMergeWithExistingFile()
+      throws IOException {
+    final Properties eOldProperties = new Properties();
+    eOldProperties.put("old", "Old");
+    eOldProperties.put("title", "Old title");
+    final Properties eNewProperties = new Properties();
+    eNewProperties.put("title", "New title");
+
+    final PropertiesWriter eWriter = new PropertiesWriterImpl();
+    eWriter.writePropertiesToFile(null, eOldProperties,
+        PropertiesMode.BINARY, mOutputDirectory, "MergedMessages");
+    eWriter.writePropertiesToFile(null, eNewProperties,
+        PropertiesMode.BINARY, mOutputDirectory, "MergedMessages");
+
+    final ResourceBundle eBundle = load("MergedMessages");
+    assertEquals("Old", eBundle.getString("old"));
+    assertEquals("New title", eBundle.getString("title"));
+  }
+
+  public void testStableOutput()
+      throws IOException {
+    final Properties eProperties = new Properties();
+    for (int i = 0; i < 1000; i++) {
+      eProperties.put("key." + i, "value." + i);
+    }
+    final byte[] eContent = new BinaryBundleSerializer().serialize(
+        eProperties);
+    assertTrue(Arrays.equals(eContent,
+        new BinaryBundleSerializer().serialize(eProperties)));
+
+    // the header and the seed of the single bucket
+    final ByteBuffer eEmptyContent = ByteBuffer.wrap(
+        new BinaryBundleSerializer().serialize(new Properties()));
+    assertEquals(BinaryBundleFormat.HEADER_LENGTH + 4,
+        eEmptyContent.limit());
+    assertEquals(BinaryBundleFormat.MAGIC, eEmptyContent.getInt(0));
+    assertEquals(0, eEmptyContent.getInt(8));
+    assertEquals(1, eEmptyContent.getInt(12));
+  }
+
+}
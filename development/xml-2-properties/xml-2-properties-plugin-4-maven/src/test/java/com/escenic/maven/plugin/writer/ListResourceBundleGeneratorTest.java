@@ -0,0 +1,281 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.writer;
+
+import com.smartitengineering.xml2props.maven.BuildMetrics;
+import com.smartitengineering.xml2props.runtime.IndexedResourceBundle;
+import com.smartitengineering.xml2props.writer.PropertiesWriter;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+import com.smartitengineering.xml2props.writer.PropertiesWriterImpl;
+import junit.framework.TestCase;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.ResourceBundle;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class ListResourceBundleGeneratorTest
+    extends TestCase {
+
+  private File mOutputDirectory;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mOutputDirectory = new File("target/test-classes/java-bundles");
+    mOutputDirectory.mkdirs();
+  }
+
+  public void testGeneratedBundles()
+      throws Exception {
+    final Properties eDefaultProperties = new Properties();
+    eDefaultProperties.put("title", "Title");
+    eDefaultProperties.put("special", "quote \" backslash \\ \\u0041"
+        + " line\nend\r tab\t \u00e9\u09ac\u0982 \ud83d\ude00");
+    final StringBuilder eLongValue = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      eLongValue.append((char) ('a' + i % 26));
+    }
+    eDefaultProperties.put("long", eLongValue.toString());
+    // more keys than fit in the constants of a single class
+    for (int i = 0; i < 20000; i++) {
+      eDefaultProperties.put("key." + i, "value." + i);
+    }
+    final Properties eBnProperties = new Properties();
+    eBnProperties.put("title", "\u099f\u09be\u0987\u099f\u09c7\u09b2");
+
+    final PropertiesWriter eWriter = new PropertiesWriterImpl();
+    eWriter.writePropertiesToFile(null, eDefaultProperties,
+        PropertiesMode.JAVA, mOutputDirectory, "test.bundle.Messages");
+    eWriter.writePropertiesToFile(new Locale("bn"), eBnProperties,
+        PropertiesMode.JAVA, mOutputDirectory, "test.bundle.Messages");
+    final File eSourceFile = new File(mOutputDirectory,
+        "test/bundle/Messages_bn.java");
+    assertTrue(eSourceFile.exists());
+
+    final JavaCompiler eCompiler = ToolProvider.getSystemJavaCompiler();
+    if (eCompiler == null) {
+      // running on a JRE
+      return;
+    }
+    assertEquals(0, eCompiler.run(null, null, null, "-d",
+        mOutputDirectory.getPath(), eSourceFile.getPath(),
+        new File(mOutputDirectory, "test/bundle/Messages.java").getPath()));
+
+    final ClassLoader eClassLoader = new URLClassLoader(
+        new URL[]{mOutputDirectory.toURI().toURL()});
+    final ResourceBundle eBnBundle = ResourceBundle.getBundle(
+        "test.bundle.Messages", new Locale("bn"), eClassLoader);
+    assertEquals(eBnProperties.get("title"), eBnBundle.getString("title"));
+    // from the parent bundle
+    assertEquals(eDefaultProperties.get("special"),
+        eBnBundle.getString("special"));
+    assertEquals(eLongValue.toString(), eBnBundle.getString("long"));
+    assertEquals("value.19999", eBnBundle.getString("key.19999"));
+  }
+
+  public void testIndexedBundles()
+      throws Exception {
+    final Properties eDefaultProperties = new Properties();
+    eDefaultProperties.put("page.title", "Title");
+    eDefaultProperties.put("pageTitle", "Camel");
+    eDefaultProperties.put("keys", "Reserved");
+    eDefaultProperties.put("1st", "First");
+    final Properties eBnProperties = new Properties();
+    eBnProperties.put("page.title", "\u099f\u09be\u0987\u099f\u09c7\u09b2");
+
+    final PropertiesWriter eWriter = new PropertiesWriterImpl();
+    eWriter.setIndexedBundles(true);
+    eWriter.writePropertiesToFile(null, eDefaultProperties,
+        PropertiesMode.JAVA, mOutputDirectory, "test.indexed.Messages");
+    eWriter.writePropertiesToFile(new Locale("bn"), eBnProperties,
+        PropertiesMode.JAVA, mOutputDirectory, "test.indexed.Messages");
+    new File(mOutputDirectory, "test/indexed/MessagesKeys.java").delete();
+    assertTrue(eWriter.writeKeysToFile(Arrays.asList("pageTitle", "keys",
+        "page.title", "1st"), mOutputDirectory, "test.indexed.Messages"));
+    // the same keys, only left untouched with 'writeIfChanged'
+    final List<String> eKeys = Arrays.asList("1st", "keys", "page.title",
+        "pageTitle");
+    final BuildMetrics eMetrics = new BuildMetrics();
+    eWriter.setWriteListener(eMetrics);
+    assertTrue(eWriter.writeKeysToFile(eKeys, mOutputDirectory,
+        "test.indexed.Messages"));
+    eWriter.setWriteIfChanged(true);
+    assertFalse(eWriter.writeKeysToFile(eKeys, mOutputDirectory,
+        "test.indexed.Messages"));
+    assertEquals(1, eMetrics.getSkippedFileCount());
+
+    final JavaCompiler eCompiler = ToolProvider.getSystemJavaCompiler();
+    if (eCompiler == null) {
+      // running on a JRE
+      return;
+    }
+    final File eSourceDirectory = new File(mOutputDirectory, "test/indexed");
+    assertEquals(0, eCompiler.run(null, null, null, "-d",
+        mOutputDirectory.getPath(), "-cp",
+        System.getProperty("java.class.path"),
+        new File(eSourceDirectory, "MessagesKeys.java").getPath(),
+        new File(eSourceDirectory, "Messages.java").getPath(),
+        new File(eSourceDirectory, "Messages_bn.java").getPath()));
+
+    final ClassLoader eClassLoader = new URLClassLoader(
+        new URL[]{mOutputDirectory.toURI().toURL()},
+        getClass().getClassLoader());
+    final Class<?> eKeysClass = Class.forName("test.indexed.MessagesKeys",
+        true, eClassLoader);
+    // the keys sorted: 1st, keys, page.title, pageTitle
+    assertEquals(0, eKeysClass.getField("KEY_1ST").getInt(null));
+    assertEquals(1, eKeysClass.getField("KEYS_" + hash("keys"))
+        .getInt(null));
+    assertEquals(2, eKeysClass.getField("PAGE_TITLE_" + hash("page.title"))
+        .getInt(null));
+    assertEquals(3, eKeysClass.getField("PAGE_TITLE_" + hash("pageTitle"))
+        .getInt(null));
+
+    final IndexedResourceBundle eBnBundle = (IndexedResourceBundle)
+        ResourceBundle.getBundle("test.indexed.Messages", new Locale("bn"),
+            eClassLoader);
+    assertEquals(4, eBnBundle.getKeyCount());
+    assertEquals(eBnProperties.get("page.title"), eBnBundle.getString(2));
+    // from the parent bundle
+    assertEquals("Camel", eBnBundle.getString(3));
+    assertEquals("Reserved", eBnBundle.getString("keys"));
+    assertEquals(4, Collections.list(eBnBundle.getKeys()).size());
+
+    // a class compiled against the keys reads the indexes of a later build
+    final File eCallerFile = new File(eSourceDirectory, "Caller.java");
+    final Writer eCallerWriter = new OutputStreamWriter(
+        new FileOutputStream(eCallerFile), "UTF-8");
+    try {
+      eCallerWriter.write("package test.indexed;\n"
+          + "public class Caller {\n"
+          + "  public static int first() {\n"
+          + "    return MessagesKeys.KEY_1ST;\n"
+          + "  }\n"
+          + "}\n");
+    }
+    finally {
+      eCallerWriter.close();
+    }
+    assertEquals(0, eCompiler.run(null, null, null, "-d",
+        mOutputDirectory.getPath(), "-cp", mOutputDirectory.getPath(),
+        eCallerFile.getPath()));
+    assertTrue(eWriter.writeKeysToFile(Arrays.asList("0th", "1st", "keys",
+        "page.title", "pageTitle"), mOutputDirectory,
+        "test.indexed.Messages"));
+    assertEquals(0, eCompiler.run(null, null, null, "-d",
+        mOutputDirectory.getPath(), "-cp", mOutputDirectory.getPath(),
+        new File(eSourceDirectory, "MessagesKeys.java").getPath()));
+    final ClassLoader eLaterClassLoader = new URLClassLoader(
+        new URL[]{mOutputDirectory.toURI().toURL()},
+        getClass().getClassLoader());
+    assertEquals(Integer.valueOf(1), Class.forName("test.indexed.Caller",
+        true, eLaterClassLoader).getMethod("first").invoke(null));
+  }
+
+  public void testLargeKeyTable()
+      throws Exception {
+    final List<String> eKeys = new ArrayList<String>();
+    for (int i = 0; i < 12000; i++) {
+      eKeys.add("key." + (100000 + i));
+    }
+    final PropertiesWriter eWriter = new PropertiesWriterImpl();
+    eWriter.setIndexedBundles(true);
+    eWriter.writeKeysToFile(eKeys, mOutputDirectory, "test.large.Messages");
+
+    final JavaCompiler eCompiler = ToolProvider.getSystemJavaCompiler();
+    if (eCompiler == null) {
+      // running on a JRE
+      return;
+    }
+    // a class of another package reads the fields of every chunk
+    final File eCallerFile = new File(mOutputDirectory,
+        "test/large/caller/Caller.java");
+    eCallerFile.getParentFile().mkdirs();
+    final Writer eCallerWriter = new OutputStreamWriter(
+        new FileOutputStream(eCallerFile), "UTF-8");
+    try {
+      eCallerWriter.write("package test.large.caller;\n"
+          + "import test.large.MessagesKeys;\n"
+          + "public class Caller {\n"
+          + "  public static int[] indexes() {\n"
+          + "    return new int[] {MessagesKeys.KEY_100000,\n"
+          + "        MessagesKeys.KEY_105000, MessagesKeys.KEY_111999};\n"
+          + "  }\n"
+          + "}\n");
+    }
+    finally {
+      eCallerWriter.close();
+    }
+    assertEquals(0, eCompiler.run(null, null, null, "-d",
+        mOutputDirectory.getPath(), "-cp", mOutputDirectory.getPath(),
+        new File(mOutputDirectory, "test/large/MessagesKeys.java").getPath(),
+        eCallerFile.getPath()));
+
+    final ClassLoader eClassLoader = new URLClassLoader(
+        new URL[]{mOutputDirectory.toURI().toURL()},
+        getClass().getClassLoader());
+    final int[] eIndexes = (int[]) Class.forName("test.large.caller.Caller",
+        true, eClassLoader).getMethod("indexes").invoke(null);
+    assertTrue(Arrays.equals(new int[] {0, 5000, 11999}, eIndexes));
+    final Class<?> eKeysClass = Class.forName("test.large.MessagesKeys",
+        true, eClassLoader);
+    for (int i = 0; i < eKeys.size(); i++) {
+      final Field eField = eKeysClass.getField("KEY_"
+          + (100000 + i));
+      // declared in a package private chunk class
+      eField.setAccessible(true);
+      assertEquals(i, eField.getInt(null));
+    }
+  }
+
+  private static String hash(final String pKey) {
+    return Integer.toHexString(pKey.hashCode()).toUpperCase();
+  }
+
+  public void testInvalidMode() {
+    try {
+      new PropertiesMode("CLASS");
+      fail("Expected IllegalArgumentException for unknown mode");
+    }
+    catch (IllegalArgumentException ex) {
+      assertTrue(ex.getMessage().indexOf("JAVA") >= 0);
+    }
+  }
+
+}
@@ -0,0 +1,189 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.writer;
+
+import com.smartitengineering.xml2props.writer.MappedPropertiesMerger;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class MappedPropertiesMergerTest
+    extends TestCase {
+
+  private File mOutputDirectory;
+
+  private Properties mExistingProperties;
+
+  private Properties mNewProperties;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mOutputDirectory = new File("target/test-classes/merge");
+    mOutputDirectory.mkdirs();
+    if (mExistingProperties == null) {
+      mExistingProperties = new Properties();
+      mExistingProperties.put("kept", "kept value");
+      mExistingProperties.put("replaced", "old value");
+      mExistingProperties.put(" key = with : specials ",
+          " \\ # ! \t\n\r\f <&\"'> \u00e9\u09ac\u09be");
+      mExistingProperties.put("empty", "");
+    }
+    if (mNewProperties == null) {
+      mNewProperties = new Properties();
+      mNewProperties.put("replaced", "new value");
+      mNewProperties.put("added", "added value");
+    }
+  }
+
+  public void testMergeStoredProperties()
+      throws IOException {
+    final File eFile = new File(mOutputDirectory, "stored.properties");
+    final OutputStream eOutputStream = new FileOutputStream(eFile);
+    try {
+      mExistingProperties.store(eOutputStream, "comment");
+    }
+    finally {
+      eOutputStream.close();
+    }
+    assertMerged(eFile, PropertiesMode.PROPERTIES);
+  }
+
+  public void testMergeStoredXml()
+      throws IOException {
+    final File eFile = new File(mOutputDirectory, "stored.xml");
+    final OutputStream eOutputStream = new FileOutputStream(eFile);
+    try {
+      mExistingProperties.storeToXML(eOutputStream, "comment");
+    }
+    finally {
+      eOutputStream.close();
+    }
+    assertMerged(eFile, PropertiesMode.XML);
+  }
+
+  private void assertMerged(final File pFile, final PropertiesMode pMode)
+      throws IOException {
+    final MappedPropertiesMerger eMerger = new MappedPropertiesMerger(pFile,
+        pMode);
+    // the same as merging into the properties loaded from the file
+    final Properties eExpected = new Properties();
+    final InputStream eInputStream = new FileInputStream(pFile);
+    try {
+      if (PropertiesMode.PROPERTIES.equals(pMode)) {
+        eExpected.load(eInputStream);
+      }
+      else {
+        eExpected.loadFromXML(eInputStream);
+      }
+    }
+    finally {
+      eInputStream.close();
+    }
+    eExpected.putAll(mNewProperties);
+    assertEquals(eExpected, eMerger.merge(mNewProperties));
+    assertEquals(1, eMerger.getOverwrittenCount());
+  }
+
+  public void testHandWrittenProperties()
+      throws IOException {
+    final File eFile = writeFile("hand-written.properties",
+        "# comment = ignored\r\n"
+            + "  ! another comment\n"
+            + "\n"
+            + "separator-space   value\n"
+            + "separator-colon:value\n"
+            + "no-value\n"
+            + "continued = first \\\n"
+            + "     second\\\r\n"
+            + "\tthird\n"
+            + "escaped\\ key\\=x = \\u0041\\tB\\\\\n"
+            + "last=at end of file\\");
+    final Properties eMerged = new MappedPropertiesMerger(eFile,
+        PropertiesMode.PROPERTIES).merge(new Properties());
+    final Properties eLoaded = new Properties();
+    final InputStream eInputStream = new FileInputStream(eFile);
+    try {
+      eLoaded.load(eInputStream);
+    }
+    finally {
+      eInputStream.close();
+    }
+    assertEquals(eLoaded, eMerged);
+    assertEquals("first secondthird", eMerged.getProperty("continued"));
+  }
+
+  public void testXmlFallback()
+      throws IOException {
+    final File eFile = writeFile("cdata.xml",
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!DOCTYPE properties SYSTEM"
+            + " \"http://java.sun.com/dtd/properties.dtd\">\n"
+            + "<properties>\n"
+            + "<entry key='single'>a &amp; b&#x21;</entry>\n"
+            + "<entry key=\"empty\"/>\n"
+            + "<entry key=\"cdata\"><![CDATA[<x>]]></entry>\n"
+            + "</properties>\n");
+    final Properties eMerged = new MappedPropertiesMerger(eFile,
+        PropertiesMode.XML).merge(new Properties());
+    assertEquals("a & b!", eMerged.getProperty("single"));
+    assertEquals("", eMerged.getProperty("empty"));
+    assertEquals("<x>", eMerged.getProperty("cdata"));
+  }
+
+  public void testInvalidEscape()
+      throws IOException {
+    final File eFile = writeFile("invalid.properties", "key=\\u12");
+    try {
+      new MappedPropertiesMerger(eFile, PropertiesMode.PROPERTIES)
+          .merge(new Properties());
+      fail("Expected IOException for malformed escape");
+    }
+    catch (IOException ex) {
+      assertTrue(ex.getMessage().indexOf("Malformed") >= 0);
+    }
+  }
+
+  private File writeFile(final String pName, final String pContent)
+      throws IOException {
+    final File eFile = new File(mOutputDirectory, pName);
+    final OutputStream eOutputStream = new FileOutputStream(eFile);
+    try {
+      eOutputStream.write(pContent.getBytes("UTF-8"));
+    }
+    finally {
+      eOutputStream.close();
+    }
+    return eFile;
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.writer;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.runtime.PrecompiledMessageFormat;
+import com.smartitengineering.xml2props.writer.MessageFormatCompiler;
+import junit.framework.TestCase;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class MessageFormatCompilerTest
+    extends TestCase {
+
+  private static final String[] PATTERNS = {
+      "",
+      "Plain text",
+      "Hello {0}, you have {1} new messages",
+      "It''s {0}''s turn, '{quoted}' ''{1}''",
+      "{1}{0}{1}",
+      "{0,number} {0,number,integer} {0,number,percent} {0,number,currency}",
+      "{2,date} {2,date,short} {2,date,LONG} {2, time , full} {2}",
+      "{0,} missing {5}",
+      "{0,number,#.##} custom",
+      "{1,choice,0#no files|1#one file|1<{1,number,integer} files}",
+      "{2,date,yyyy-MM-dd}",
+  };
+
+  private MessageFormatCompiler mCompiler;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+    mCompiler = new MessageFormatCompiler();
+  }
+
+  public void testTokens() {
+    assertEquals("", mCompiler.compile(""));
+    assertEquals("\"6:It's {{0}\"3:!}'", mCompiler.compile(
+        "It''s '{'{0}!}''"));
+    assertEquals("{0,n-}\"1: {12,ds}", mCompiler.compile(
+        "{0,number} {12,date,short}"));
+    assertTrue(MessageFormatCompiler.isPrecompiled(mCompiler.compile(
+        PATTERNS[6])));
+
+    assertFalse(MessageFormatCompiler.isPrecompiled(mCompiler.compile(
+        PATTERNS[8])));
+    assertEquals("!" + PATTERNS[9], mCompiler.compile(PATTERNS[9]));
+    // not a valid pattern, fails at runtime like MessageFormat
+    assertEquals("!{0", mCompiler.compile("{0"));
+  }
+
+  public void testFormatLikeMessageFormat() {
+    final Locale[] eLocales = {Locale.US, Locale.GERMANY, new Locale("bn")};
+    final Object[][] eArguments = {
+        {"World", Integer.valueOf(3), new Date(1234567890000L)},
+        {Double.valueOf(1234.567), Integer.valueOf(0), new Date(0)},
+        {null, Long.valueOf(42), new Date()},
+    };
+    for (int i = 0; i < PATTERNS.length; i++) {
+      final String eTokens = mCompiler.compile(PATTERNS[i]);
+      for (int j = 0; j < eLocales.length; j++) {
+        for (int k = 0; k < eArguments.length; k++) {
+          // a number format throws for the other arguments either way
+          if (!(eArguments[k][0] instanceof Number)
+              && PATTERNS[i].indexOf("{0,number") >= 0) {
+            continue;
+          }
+          assertEquals(PATTERNS[i], new MessageFormat(PATTERNS[i],
+              eLocales[j]).format(eArguments[k]),
+              PrecompiledMessageFormat.format(eTokens, eLocales[j],
+                  eArguments[k]));
+        }
+      }
+    }
+  }
+
+  public void testCompileBundles() {
+    final LocaleBundleTable eBundles = new LocaleBundleTable();
+    eBundles.put("greeting", null, "Hello {0}");
+    eBundles.put("greeting", new Locale("bn"), "\u09b9\u09cd\u09af\u09be"
+        + "\u09b2\u09cb {0}");
+    eBundles.put("count", new Locale("bn"), "{0,number,integer}");
+
+    final LocaleBundleTable eFormats = mCompiler.compile(eBundles);
+    assertEquals(eBundles.getLocales(), eFormats.getLocales());
+    assertEquals("\"6:Hello {0}", eFormats.getValue("greeting", null));
+    assertNull(eFormats.getValue("count", null));
+    assertEquals("{0,ni}", eFormats.getValue("count", new Locale("bn")));
+  }
+
+}
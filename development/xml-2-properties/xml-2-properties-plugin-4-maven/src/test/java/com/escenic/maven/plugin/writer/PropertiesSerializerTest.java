@@ -0,0 +1,212 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.writer;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.writer.PropertiesSerializer;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class PropertiesSerializerTest
+    extends TestCase {
+
+  private Properties mProperties;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    if (mProperties == null) {
+      mProperties = new Properties();
+      mProperties.put("zeta", "last");
+      mProperties.put("alpha", "first");
+      mProperties.put(" key with = spaces: ", " value with # and !");
+      mProperties.put("escapes", "tab\tnew\nline\rfeed\fback\\slash");
+      mProperties.put("unicode-\u00e9",
+          "\u09ac\u09be\u0982\u09b2\u09be <&\"'>");
+      mProperties.put("empty", "");
+    }
+  }
+
+  public void testPropertiesRoundTrip()
+      throws IOException {
+    final byte[] eContent = PropertiesSerializer.newSerializer(
+        PropertiesMode.PROPERTIES).serialize(mProperties, "comment");
+    final Properties eLoaded = new Properties();
+    eLoaded.load(new ByteArrayInputStream(eContent));
+    assertEquals(mProperties, eLoaded);
+
+    final Properties eSupplementary = new Properties();
+    eSupplementary.put("emoji", "\ud83d\ude00");
+    final Properties eLoadedSupplementary = new Properties();
+    eLoadedSupplementary.load(new ByteArrayInputStream(PropertiesSerializer
+        .newSerializer(PropertiesMode.PROPERTIES).serialize(eSupplementary,
+            null)));
+    assertEquals(eSupplementary, eLoadedSupplementary);
+
+    final String eText = new String(eContent, "ISO-8859-1");
+    assertTrue(eText.startsWith("#comment\n"));
+    assertTrue(eText.indexOf("alpha=first\n") < eText.indexOf("zeta=last\n"));
+  }
+
+  public void testUtf8RoundTrip()
+      throws IOException {
+    final PropertiesSerializer eSerializer = PropertiesSerializer
+        .newSerializer(PropertiesMode.PROPERTIES, true);
+    final byte[] eContent = eSerializer.serialize(mProperties, "comment");
+    final Properties eLoaded = new Properties();
+    eLoaded.load(new InputStreamReader(new ByteArrayInputStream(eContent),
+        "UTF-8"));
+    assertEquals(mProperties, eLoaded);
+
+    final String eText = new String(eContent, "UTF-8");
+    assertTrue(eText.indexOf("unicode-\u00e9=\u09ac\u09be") >= 0);
+    assertEquals(-1, eText.indexOf("\\u"));
+    assertTrue(eContent.length < PropertiesSerializer.newSerializer(
+        PropertiesMode.PROPERTIES).serialize(mProperties, "comment").length);
+
+    final Properties eSupplementary = new Properties();
+    eSupplementary.put("emoji", "\ud83d\ude00");
+    eSupplementary.put("unpaired", "\ud83d-");
+    final Properties eLoadedSupplementary = new Properties();
+    eLoadedSupplementary.load(new InputStreamReader(new ByteArrayInputStream(
+        eSerializer.serialize(eSupplementary, null)), "UTF-8"));
+    assertEquals(eSupplementary, eLoadedSupplementary);
+  }
+
+  public void testXmlRoundTrip()
+      throws IOException {
+    // XML 1.0 allows no control character but tab, line feed and return
+    final Properties eXmlProperties = new Properties();
+    eXmlProperties.putAll(mProperties);
+    eXmlProperties.put("escapes", "tab\tnew\nline\rreturn\\back");
+    final byte[] eContent = PropertiesSerializer.newSerializer(
+        PropertiesMode.XML).serialize(eXmlProperties, "comment");
+    final Properties eLoaded = new Properties();
+    eLoaded.loadFromXML(new ByteArrayInputStream(eContent));
+    assertEquals(eXmlProperties, eLoaded);
+
+    final String eText = new String(eContent, "UTF-8");
+    assertTrue(eText.indexOf("<entry key=\"alpha\">first</entry>")
+        < eText.indexOf("<entry key=\"zeta\">last</entry>"));
+    assertTrue(eText.indexOf("tab&#9;new&#10;line&#13;return") >= 0);
+
+    try {
+      PropertiesSerializer.newSerializer(PropertiesMode.XML).serialize(
+          mProperties, "comment");
+      fail("Expected IOException for a form feed");
+    }
+    catch (IOException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().indexOf("'escapes'") >= 0);
+      assertTrue(ex.getMessage(), ex.getMessage().indexOf("U+000C") >= 0);
+    }
+    final String[] eInvalidValues = {"lone \ud800 high", "lone \udc00 low",
+        "\ufffe", "\uffff", "reversed \udc00\ud800"};
+    for (int i = 0; i < eInvalidValues.length; i++) {
+      final Properties eInvalid = new Properties();
+      eInvalid.put("invalid", eInvalidValues[i]);
+      try {
+        PropertiesSerializer.newSerializer(PropertiesMode.XML).serialize(
+            eInvalid, null);
+        fail("Expected IOException for " + eInvalidValues[i]);
+      }
+      catch (IOException ex) {
+        assertTrue(ex.getMessage(), ex.getMessage().startsWith(
+            "The value of the key 'invalid' contains the character U+"));
+      }
+    }
+    // a surrogate pair is a valid supplementary character
+    final Properties eSupplementary = new Properties();
+    eSupplementary.put("pair", "\ud835\udc00");
+    // not loaded back: the parser of loadFromXML reads no 4 byte UTF-8
+    assertTrue(new String(PropertiesSerializer.newSerializer(
+        PropertiesMode.XML).serialize(eSupplementary, null), "UTF-8")
+        .indexOf("<entry key=\"pair\">\ud835\udc00</entry>") >= 0);
+  }
+
+  public void testSerializeTable()
+      throws IOException {
+    final Locale eLocale = new Locale("bn");
+    final Properties eOtherProperties = new Properties();
+    eOtherProperties.put("other", "only in the default bundle");
+    eOtherProperties.put("alpha", "default");
+    final Map<Locale, Properties> eLocaleProperties =
+        new LinkedHashMap<Locale, Properties>();
+    eLocaleProperties.put(null, eOtherProperties);
+    eLocaleProperties.put(eLocale, mProperties);
+    final LocaleBundleTable eBundles = LocaleBundleTable.fromLocaleProperties(
+        eLocaleProperties);
+
+    final PropertiesSerializer eSerializer =
+        PropertiesSerializer.newSerializer(PropertiesMode.PROPERTIES, true);
+    assertTrue(Arrays.equals(eSerializer.serialize(mProperties, "comment"),
+        eSerializer.serialize(eBundles, eLocale, "comment")));
+    assertTrue(Arrays.equals(eSerializer.serialize(eOtherProperties, null),
+        eSerializer.serialize(eBundles, null, null)));
+
+    // a key added after serializing is sorted too
+    final Properties eXmlProperties = new Properties();
+    eXmlProperties.putAll(mProperties);
+    eXmlProperties.remove("escapes");
+    final LocaleBundleTable eXmlBundles =
+        LocaleBundleTable.fromLocaleProperties(
+            Collections.singletonMap(eLocale, eXmlProperties));
+    final PropertiesSerializer eXmlSerializer =
+        PropertiesSerializer.newSerializer(PropertiesMode.XML);
+    eXmlSerializer.serialize(eXmlBundles, eLocale, "comment");
+    eXmlBundles.put("beta", eLocale, "added");
+    eXmlProperties.put("beta", "added");
+    assertEquals(new String(eXmlSerializer.serialize(eXmlProperties,
+        "comment"), "UTF-8"), new String(eXmlSerializer.serialize(
+        eXmlBundles, eLocale, "comment"), "UTF-8"));
+  }
+
+  public void testByteStable()
+      throws IOException {
+    final Properties eReversed = new Properties();
+    final Object[] eKeys = mProperties.keySet().toArray();
+    Arrays.sort(eKeys);
+    for (int i = eKeys.length - 1; i >= 0; i--) {
+      eReversed.put(eKeys[i], mProperties.get(eKeys[i]));
+    }
+    final PropertiesSerializer eSerializer =
+        PropertiesSerializer.newSerializer(PropertiesMode.PROPERTIES);
+    final byte[] eContent = eSerializer.serialize(mProperties, "comment");
+    // the reused buffer does not leak content of the previous call
+    eSerializer.serialize(new Properties(), null);
+    assertTrue(Arrays.equals(eContent, eSerializer.serialize(eReversed,
+        "comment")));
+  }
+
+}
@@ -25,8 +25,12 @@ import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
 import com.smartitengineering.xml2props.writer.PropertiesWriterImpl;
 import junit.framework.TestCase;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.*;
 
 /**
@@ -106,6 +110,115 @@ public class PropertiesWriterImplTest
     LogUtil.debug(null, "PropertiesWriterImplTest.testWriteProperties() ends.");
   }
 
+  public void testWriteIfChanged()
+      throws IOException {
+    writeIfChanged(PropertiesMode.PROPERTIES);
+
+    writeIfChanged(PropertiesMode.XML);
+  }
+
+  public void testTimestampComment()
+      throws IOException {
+    final File eOutputDirectory = new File(mOutputDirectory, "timestamp");
+    eOutputDirectory.mkdirs();
+    final File ePropertiesFile = new File(eOutputDirectory,
+        WriterUtil.getLocalizedFileName(null, mBundleName,
+            PropertiesMode.PROPERTIES));
+    final Properties eProperties = (Properties) mLocaleProperties.get(null);
+    final PropertiesWriter eWriter = new PropertiesWriterImpl();
+    for (int i = 0; i < 2; i++) {
+      final boolean eWriteIfChanged = i > 0;
+      eWriter.setWriteIfChanged(eWriteIfChanged);
+      ePropertiesFile.delete();
+      assertTrue(eWriter.writePropertiesToFile(null, eProperties,
+          PropertiesMode.PROPERTIES, eOutputDirectory, mBundleName));
+      final BufferedReader eReader = new BufferedReader(
+          new InputStreamReader(new FileInputStream(ePropertiesFile),
+              "ISO-8859-1"));
+      try {
+        assertTrue(eReader.readLine().startsWith("#"));
+        // the timestamp is only removed to compare the content
+        assertEquals(!eWriteIfChanged, eReader.readLine().startsWith("#"));
+      }
+      finally {
+        eReader.close();
+      }
+    }
+  }
+
+  public void testUtf8Properties()
+      throws IOException {
+    writeUtf8Properties(false);
+
+    writeUtf8Properties(true);
+  }
+
+  private void writeUtf8Properties(final boolean pStreamingMerge)
+      throws IOException {
+    final PropertiesWriter eWriter = new PropertiesWriterImpl();
+    eWriter.setUtf8Properties(true);
+    eWriter.setStreamingMerge(pStreamingMerge);
+    final File eOutputDirectory = new File(mOutputDirectory, "utf8");
+    eOutputDirectory.mkdirs();
+    final Locale eLocale = new Locale("bn");
+    final File ePropertiesFile = new File(eOutputDirectory, WriterUtil
+        .getLocalizedFileName(eLocale, mBundleName,
+            PropertiesMode.PROPERTIES));
+    ePropertiesFile.delete();
+
+    final Properties eProperties = new Properties();
+    eProperties.put("title", "\u09b6\u09bf\u09b0\u09cb\u09a8\u09be\u09ae");
+    assertTrue(eWriter.writePropertiesToFile(eLocale, eProperties,
+        PropertiesMode.PROPERTIES, eOutputDirectory, mBundleName));
+
+    // the existing UTF-8 values are decoded when merged with
+    final Properties eAddedProperties = new Properties();
+    eAddedProperties.put("article",
+        "\u09aa\u09cd\u09b0\u09ac\u09a8\u09cd\u09a7");
+    assertTrue(eWriter.writePropertiesToFile(eLocale, eAddedProperties,
+        PropertiesMode.PROPERTIES, eOutputDirectory, mBundleName));
+
+    final Properties eExpected = new Properties();
+    eExpected.putAll(eProperties);
+    eExpected.putAll(eAddedProperties);
+    final Properties eLoaded = new Properties();
+    final Reader eReader = new InputStreamReader(
+        new FileInputStream(ePropertiesFile), "UTF-8");
+    try {
+      eLoaded.load(eReader);
+    }
+    finally {
+      eReader.close();
+    }
+    assertEquals(eExpected, eLoaded);
+  }
+
+  private void writeIfChanged(final PropertiesMode pPropertiesMode)
+      throws IOException {
+    final PropertiesWriter eWriter = new PropertiesWriterImpl();
+    eWriter.setWriteIfChanged(true);
+    final File eOutputDirectory = new File(mOutputDirectory, "unchanged");
+    eOutputDirectory.mkdirs();
+    final File ePropertiesFile = new File(eOutputDirectory,
+        WriterUtil.getLocalizedFileName(null, mBundleName, pPropertiesMode));
+    ePropertiesFile.delete();
+
+    final Properties eProperties = (Properties) mLocaleProperties.get(null);
+    assertTrue(eWriter.writePropertiesToFile(null, eProperties,
+        pPropertiesMode, eOutputDirectory, mBundleName));
+    assertTrue(ePropertiesFile.setLastModified(1000L));
+
+    assertFalse(eWriter.writePropertiesToFile(null, eProperties,
+        pPropertiesMode, eOutputDirectory, mBundleName));
+    assertEquals(1000L, ePropertiesFile.lastModified());
+
+    final Properties eChangedProperties = new Properties();
+    eChangedProperties.put("key-1-df", "changed");
+    assertTrue(eWriter.writePropertiesToFile(null, eChangedProperties,
+        pPropertiesMode, eOutputDirectory, mBundleName));
+    assertTrue(ePropertiesFile.lastModified() != 1000L);
+  }
+
   private void writeProperties(final PropertiesMode pPropertiesMode)
       throws IOException {
     LogUtil.debug(null, "Writing properties in mode: " + pPropertiesMode);
@@ -0,0 +1,211 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.writer;
+
+import com.smartitengineering.xml2props.maven.BuildMetrics;
+import com.smartitengineering.xml2props.util.WriterUtil;
+import com.smartitengineering.xml2props.writer.PropertiesSerializer;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+import com.smartitengineering.xml2props.writer.SpillingBundleWriter;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class SpillingBundleWriterTest
+    extends TestCase {
+
+  private static final Locale[] LOCALES = {
+      null, new Locale("bn"), new Locale("fr", "CA")};
+
+  private File mOutputDirectory;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mOutputDirectory = new File("target/test-classes/spilling");
+    mOutputDirectory.mkdirs();
+  }
+
+  private static byte[] readFile(final File pFile)
+      throws IOException {
+    final RandomAccessFile eFile = new RandomAccessFile(pFile, "r");
+    try {
+      final byte[] eContent = new byte[(int) eFile.length()];
+      eFile.readFully(eContent);
+      return eContent;
+    }
+    finally {
+      eFile.close();
+    }
+  }
+
+  /**
+   * Pushes entries with keys pushed more than once, returning the properties
+   * expected for every Locale.
+   */
+  private static Map<Locale, Properties> pushEntries(
+      final SpillingBundleWriter pWriter)
+      throws IOException {
+    final Map<Locale, Properties> eExpected =
+        new HashMap<Locale, Properties>();
+    for (int i = 0; i < LOCALES.length; i++) {
+      eExpected.put(LOCALES[i], new Properties());
+    }
+    for (int i = 0; i < 200; i++) {
+      final Locale eLocale = LOCALES[i % LOCALES.length];
+      final String eKey = "key-" + (i * 7 % 50);
+      final String eValue = "value-" + i + " \u09ac\u09be <&>";
+      pWriter.put(eKey, eLocale, eValue);
+      eExpected.get(eLocale).put(eKey, eValue);
+    }
+    return eExpected;
+  }
+
+  public void testSameBytesAsSerializer()
+      throws IOException {
+    assertSameBytesAsSerializer(PropertiesMode.PROPERTIES, 1);
+    assertSameBytesAsSerializer(PropertiesMode.PROPERTIES, 16);
+    assertSameBytesAsSerializer(PropertiesMode.XML, 16);
+    assertSameBytesAsSerializer(PropertiesMode.PROPERTIES, 1000);
+  }
+
+  public void testBoundedMergeFanIn()
+      throws IOException {
+    // a run per entry, some 67 runs per Locale merged 3 at a time
+    final SpillingBundleWriter eWriter = newWriter(PropertiesMode.XML, 1);
+    eWriter.setMergeFanIn(3);
+    assertSameBytesAsSerializer(eWriter, PropertiesMode.XML, 1);
+    assertTrue(eWriter.getPeakOpenRunCount() > 0);
+    assertTrue(String.valueOf(eWriter.getPeakOpenRunCount()),
+        eWriter.getPeakOpenRunCount() <= 3);
+  }
+
+  private SpillingBundleWriter newWriter(
+      final PropertiesMode pMode,
+      final int pBufferSize) {
+    return new SpillingBundleWriter(mOutputDirectory, "Spilled", pMode,
+        PropertiesSerializer.newSerializer(pMode), "comment", pBufferSize);
+  }
+
+  private void assertSameBytesAsSerializer(
+      final PropertiesMode pMode,
+      final int pBufferSize)
+      throws IOException {
+    assertSameBytesAsSerializer(newWriter(pMode, pBufferSize), pMode,
+        pBufferSize);
+  }
+
+  private void assertSameBytesAsSerializer(
+      final SpillingBundleWriter pWriter,
+      final PropertiesMode pMode,
+      final int pBufferSize)
+      throws IOException {
+    final Map<Locale, Properties> eExpected = pushEntries(pWriter);
+    assertEquals(200, pWriter.getEntryCount());
+    assertEquals(pBufferSize < 200, pWriter.getSpillCount() > 0);
+
+    final List<String> eFileNames = pWriter.finish();
+    assertEquals(LOCALES.length, eFileNames.size());
+    final PropertiesSerializer eSerializer =
+        PropertiesSerializer.newSerializer(pMode);
+    for (int i = 0; i < LOCALES.length; i++) {
+      final String eFileName = WriterUtil.getLocalizedFileName(LOCALES[i],
+          "Spilled", pMode);
+      assertEquals(eFileName, eFileNames.get(i));
+      assertTrue(Arrays.equals(eSerializer.serialize(
+          eExpected.get(LOCALES[i]), "comment"),
+          readFile(new File(mOutputDirectory, eFileName))));
+    }
+  }
+
+  public void testWriteIfChanged()
+      throws IOException {
+    final File eDirectory = new File("target/test-classes/spilling-changed");
+    eDirectory.mkdirs();
+    final File eBnFile = new File(eDirectory, "Changed_bn.properties");
+    for (int i = 0; i < 3; i++) {
+      final SpillingBundleWriter eWriter = new SpillingBundleWriter(
+          eDirectory, "Changed", PropertiesMode.PROPERTIES,
+          PropertiesSerializer.newSerializer(PropertiesMode.PROPERTIES), null,
+          16);
+      final BuildMetrics eMetrics = new BuildMetrics();
+      eWriter.setWriteListener(eMetrics);
+      eWriter.setWriteIfChanged(i > 0);
+      pushEntries(eWriter);
+      if (i == 2) {
+        eWriter.put("added", LOCALES[1], "value");
+      }
+      eWriter.finish();
+      if (i == 0) {
+        assertTrue(eBnFile.setLastModified(1000));
+      }
+      else if (i == 1) {
+        assertEquals(LOCALES.length, eMetrics.getSkippedFileCount());
+        assertEquals(1000, eBnFile.lastModified());
+      }
+      else {
+        assertEquals(LOCALES.length - 1, eMetrics.getSkippedFileCount());
+        assertTrue(eBnFile.lastModified() != 1000);
+      }
+    }
+    final String[] eFileNames = eDirectory.list();
+    for (int i = 0; i < eFileNames.length; i++) {
+      assertFalse(eFileNames[i], eFileNames[i].endsWith(".tmp"));
+    }
+  }
+
+  public void testCloseDiscardsEntries()
+      throws IOException {
+    final SpillingBundleWriter eWriter = new SpillingBundleWriter(
+        mOutputDirectory, "Discarded", PropertiesMode.PROPERTIES,
+        PropertiesSerializer.newSerializer(PropertiesMode.PROPERTIES), null,
+        4);
+    pushEntries(eWriter);
+    eWriter.close();
+    assertTrue(eWriter.finish().isEmpty());
+  }
+
+  public void testInvalidBufferSize() {
+    try {
+      new SpillingBundleWriter(mOutputDirectory, "Invalid",
+          PropertiesMode.PROPERTIES,
+          PropertiesSerializer.newSerializer(PropertiesMode.PROPERTIES),
+          null, 0);
+      fail("Expected IllegalArgumentException for buffer size 0");
+    }
+    catch (IllegalArgumentException ex) {
+      assertTrue(ex.getMessage().indexOf("0") >= 0);
+    }
+  }
+
+}
@@ -0,0 +1,170 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.writer;
+
+import com.smartitengineering.xml2props.writer.PropertiesSerializer;
+import com.smartitengineering.xml2props.writer.PropertiesWriter.PropertiesMode;
+import com.smartitengineering.xml2props.writer.StreamingPropertiesMerger;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class StreamingPropertiesMergerTest
+    extends TestCase {
+
+  private static final String EXISTING_CONTENT = "# comment = kept\r\n"
+      + "  ! another comment\n"
+      + "\n"
+      + "separator-space   value\n"
+      + "continued = first \\\n"
+      + "     second\\\r\n"
+      + "\tthird\n"
+      + "escaped\\ key\\=x = \\u00e9\\tB\\\\\n"
+      + "last=at end of file";
+
+  private File mOutputDirectory;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mOutputDirectory = new File("target/test-classes/streaming-merge");
+    mOutputDirectory.mkdirs();
+  }
+
+  private File writeFile(final String pName, final String pContent)
+      throws IOException {
+    final File eFile = new File(mOutputDirectory, pName);
+    final OutputStream eOutputStream = new FileOutputStream(eFile);
+    try {
+      eOutputStream.write(pContent.getBytes("ISO-8859-1"));
+    }
+    finally {
+      eOutputStream.close();
+    }
+    return eFile;
+  }
+
+  private static String readFile(final File pFile)
+      throws IOException {
+    final InputStream eInputStream = new FileInputStream(pFile);
+    try {
+      final byte[] eContent = new byte[(int) pFile.length()];
+      int eOffset = 0;
+      while (eOffset < eContent.length) {
+        eOffset += eInputStream.read(eContent, eOffset,
+            eContent.length - eOffset);
+      }
+      return new String(eContent, "ISO-8859-1");
+    }
+    finally {
+      eInputStream.close();
+    }
+  }
+
+  private static Properties load(final String pContent)
+      throws IOException {
+    final Properties eProperties = new Properties();
+    eProperties.load(new ByteArrayInputStream(
+        pContent.getBytes("ISO-8859-1")));
+    return eProperties;
+  }
+
+  private static StreamingPropertiesMerger newMerger(final File pFile) {
+    return new StreamingPropertiesMerger(pFile,
+        PropertiesSerializer.newSerializer(PropertiesMode.PROPERTIES));
+  }
+
+  public void testReplaceInPlaceAndAppend()
+      throws IOException {
+    final File eFile = writeFile("inline.properties", EXISTING_CONTENT);
+    final Properties eNewProperties = new Properties();
+    eNewProperties.put("continued", "replaced");
+    eNewProperties.put("escaped key=x", "\u00e9\tB\\");
+    eNewProperties.put("b-added", "second added");
+    eNewProperties.put("a-added", "first added");
+
+    final StreamingPropertiesMerger eMerger = newMerger(eFile);
+    assertTrue(eMerger.merge(eNewProperties));
+    assertEquals(1, eMerger.getReplacedCount());
+    assertEquals(2, eMerger.getAppendedCount());
+
+    final String eMerged = readFile(eFile);
+    assertEquals("# comment = kept\r\n"
+        + "  ! another comment\n"
+        + "\n"
+        + "separator-space   value\n"
+        + "continued=replaced\n"
+        + "escaped\\ key\\=x = \\u00e9\\tB\\\\\n"
+        + "last=at end of file\n"
+        + "a-added=first added\n"
+        + "b-added=second added\n", eMerged);
+
+    final Properties eExpected = load(EXISTING_CONTENT);
+    eExpected.putAll(eNewProperties);
+    assertEquals(eExpected, load(eMerged));
+    // no temporary file is left behind
+    final String[] eFileNames = mOutputDirectory.list();
+    for (int i = 0; i < eFileNames.length; i++) {
+      assertFalse(eFileNames[i], eFileNames[i].endsWith(".tmp"));
+    }
+  }
+
+  public void testUnchangedFileIsUntouched()
+      throws IOException {
+    final File eFile = writeFile("unchanged.properties", EXISTING_CONTENT);
+    assertTrue(eFile.setLastModified(1000));
+    final Properties eNewProperties = new Properties();
+    eNewProperties.put("continued", "first secondthird");
+    eNewProperties.put("last", "at end of file");
+
+    final StreamingPropertiesMerger eMerger = newMerger(eFile);
+    assertFalse(eMerger.merge(eNewProperties));
+    assertEquals(0, eMerger.getReplacedCount());
+    assertEquals(1000, eFile.lastModified());
+    assertEquals(EXISTING_CONTENT, readFile(eFile));
+  }
+
+  public void testMalformedFile()
+      throws IOException {
+    final File eFile = writeFile("malformed.properties", "key=\\u00\n");
+    final Properties eNewProperties = new Properties();
+    eNewProperties.put("key", "value");
+    try {
+      newMerger(eFile).merge(eNewProperties);
+      fail("Expected IOException for malformed escape");
+    }
+    catch (IOException ex) {
+      assertTrue(ex.getMessage().indexOf("Malformed") >= 0);
+    }
+  }
+
+}
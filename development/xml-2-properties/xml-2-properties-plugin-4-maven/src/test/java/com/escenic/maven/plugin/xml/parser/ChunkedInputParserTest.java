@@ -0,0 +1,139 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.xml.parser;
+
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.xml.parser.ChunkedInputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlStaxInputParser;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class ChunkedInputParserTest
+    extends TestCase {
+
+  private File mInputDirectory;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mInputDirectory = new File("target/test-classes/chunked");
+    mInputDirectory.mkdirs();
+  }
+
+  private File writeInputFile(final String pName, final String pEntries)
+      throws IOException {
+    final File eInputFile = new File(mInputDirectory, pName);
+    final OutputStream eOutputStream = new FileOutputStream(eInputFile);
+    try {
+      eOutputStream.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+          + "<!-- <entry><key>commented</key></entry> -->\n"
+          + "<entries xmlns:x=\"urn:x\">" + pEntries + "</entries>\n")
+          .getBytes("UTF-8"));
+    }
+    finally {
+      eOutputStream.close();
+    }
+    return eInputFile;
+  }
+
+  private ChunkedInputParser newParser() {
+    final ChunkedInputParser eParser = new ChunkedInputParser();
+    eParser.setParallelism(3);
+    eParser.setMinChunkSize(64);
+    return eParser;
+  }
+
+  public void testSameBundlesAsSequentialParse()
+      throws IOException {
+    final StringBuilder eEntries = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      eEntries.append("<entry key=\"key-").append(i % 150).append("\">")
+          .append("<value>value-").append(i).append("</value>")
+          .append("<value lang=\"bn\"><![CDATA[<entry>")
+          .append(i).append("</entry>]]></value>")
+          .append("<!-- </entries> -->")
+          .append("<value lang=\"fr\" country=\"CA\" x:note=\"a > b\">")
+          .append("fr-\u00e9-").append(i).append("</value></entry>\n");
+      if (i % 50 == 0) {
+        eEntries.append("<entry><key>empty-").append(i)
+            .append("</key></entry><other/>\n");
+      }
+    }
+    final File eInputFile = writeInputFile("entries.xml",
+        eEntries.toString());
+
+    final LocaleBundleTable eExpected = new XmlStaxInputParser()
+        .parseBundles(eInputFile);
+    final LocaleBundleTable eActual = newParser().parseBundles(eInputFile);
+
+    assertEquals(150, eActual.getKeyCount());
+    assertEquals(eExpected.getKeys(), eActual.getKeys());
+    assertEquals(eExpected.getLocales(), eActual.getLocales());
+    assertEquals(eExpected.toLocalePropertiesMap(),
+        eActual.toLocalePropertiesMap());
+    // the later entry of a key wins
+    assertEquals("value-199", eActual.getValue("key-49", null));
+    assertEquals("<entry>199</entry>",
+        eActual.getValue("key-49", new Locale("bn")));
+    assertEquals("fr-\u00e9-150",
+        eActual.getValue("key-0", new Locale("fr", "CA")));
+  }
+
+  public void testSmallFileParsedSequentially()
+      throws IOException {
+    final File eInputFile = writeInputFile("small.xml",
+        "<entry><key>title</key><value>Title</value></entry>");
+    final ChunkedInputParser eParser = new ChunkedInputParser();
+    eParser.setParallelism(4);
+    final LocaleBundleTable eBundles = eParser.parseBundles(eInputFile);
+    assertEquals(1, eBundles.getKeyCount());
+    assertEquals("Title", eBundles.getValue("title", null));
+  }
+
+  public void testParseFailure()
+      throws IOException {
+    final StringBuilder eEntries = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      eEntries.append("<entry><key>key-").append(i).append("</key>")
+          .append(i == 80 ? "<value>broken</valu>" : "<value>ok</value>")
+          .append("</entry>\n");
+    }
+    final File eInputFile = writeInputFile("broken.xml",
+        eEntries.toString());
+    try {
+      newParser().parseBundles(eInputFile);
+      fail("Expected IOException for invalid input file");
+    }
+    catch (IOException ex) {
+      assertTrue(ex.getMessage().indexOf("broken.xml") >= 0);
+    }
+  }
+
+}
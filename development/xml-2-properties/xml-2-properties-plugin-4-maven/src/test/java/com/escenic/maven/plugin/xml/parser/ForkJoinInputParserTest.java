@@ -0,0 +1,130 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.xml.parser;
+
+import com.smartitengineering.xml2props.xml.parser.ForkJoinInputParser;
+import com.smartitengineering.xml2props.xml.parser.MergedLocaleProperties;
+import com.smartitengineering.xml2props.xml.parser.XmlStaxInputParser;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class ForkJoinInputParserTest
+    extends TestCase {
+
+  private List<File> mInputFiles;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    if (mInputFiles == null) {
+      final File eInputDirectory = new File("target/test-classes/multi");
+      eInputDirectory.mkdirs();
+      mInputFiles = new ArrayList<File>();
+      for (int i = 0; i < 5; i++) {
+        final File eInputFile = new File(eInputDirectory, "input-" + i
+            + ".xml");
+        writeInputFile(eInputFile, "<entry><key>key-" + i + "</key>"
+            + "<value>value-" + i + "</value>"
+            + "<value lang=\"bn\">value-bn-" + i + "</value></entry>"
+            + "<entry><key>shared</key><value>shared-" + (i / 2)
+            + "</value></entry>");
+        mInputFiles.add(eInputFile);
+      }
+    }
+  }
+
+  private void writeInputFile(final File pInputFile, final String pEntries)
+      throws IOException {
+    final OutputStream eOutputStream = new FileOutputStream(pInputFile);
+    try {
+      eOutputStream.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>"
+          + "<entries>" + pEntries + "</entries>").getBytes("UTF-8"));
+    }
+    finally {
+      eOutputStream.close();
+    }
+  }
+
+  public void testMergedProperties()
+      throws IOException {
+    final MergedLocaleProperties eMerged = new ForkJoinInputParser(
+        new XmlStaxInputParser(), 3).parseInputs(mInputFiles);
+
+    final Properties eDefaultProperties =
+        eMerged.getLocaleProperties().get(null);
+    assertEquals(6, eDefaultProperties.size());
+    assertEquals("value-3", eDefaultProperties.getProperty("key-3"));
+    // the last file wins
+    assertEquals("shared-2", eDefaultProperties.getProperty("shared"));
+
+    final Properties eBnProperties =
+        eMerged.getLocaleProperties().get(new Locale("bn"));
+    assertEquals(5, eBnProperties.size());
+
+    // a single report for the key, listing every file defining it
+    assertEquals(1, eMerged.getConflicts().size());
+    final String eConflict = eMerged.getConflicts().get(0);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(eConflict.indexOf("input-" + i + ".xml") >= 0);
+    }
+  }
+
+  public void testDeterministicConflicts()
+      throws IOException {
+    final List<String> eConflicts = new ForkJoinInputParser(
+        new XmlStaxInputParser(), 1).parseInputs(mInputFiles).getConflicts();
+    for (int i = 0; i < 5; i++) {
+      assertEquals(eConflicts, new ForkJoinInputParser(
+          new XmlStaxInputParser(), 4).parseInputs(mInputFiles)
+          .getConflicts());
+    }
+  }
+
+  public void testParseFailure()
+      throws IOException {
+    final File eInvalidFile = new File("target/test-classes/multi",
+        "invalid.xml");
+    writeInputFile(eInvalidFile, "<entry>");
+    final List<File> eInputFiles = new ArrayList<File>(mInputFiles);
+    eInputFiles.add(eInvalidFile);
+    try {
+      new ForkJoinInputParser(new XmlStaxInputParser(), 2)
+          .parseInputs(eInputFiles);
+      fail("Expected IOException for invalid input file");
+    }
+    catch (IOException ex) {
+      assertTrue(ex.getMessage().indexOf("invalid.xml") >= 0);
+    }
+  }
+
+}
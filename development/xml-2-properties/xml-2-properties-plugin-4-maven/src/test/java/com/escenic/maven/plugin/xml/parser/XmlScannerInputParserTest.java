@@ -0,0 +1,209 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.xml.parser;
+
+import com.smartitengineering.xml2props.util.LogUtil;
+import com.smartitengineering.xml2props.xml.parser.InputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlScannerInputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlStaxInputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlXomInputParser;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class XmlScannerInputParserTest
+    extends TestCase {
+
+  private InputParser mInputParser;
+
+  private File mInputFile;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    if (mInputParser == null) {
+      mInputParser = new XmlScannerInputParser();
+      LogUtil.debug(null, "Using Parser: " + mInputParser);
+    }
+    if (mInputFile == null) {
+      mInputFile = new File("target/test-classes", "input-1.xml");
+    }
+  }
+
+  private File writeInputFile(
+      final String pName,
+      final String pXml,
+      final String pEncoding)
+      throws IOException {
+    final File eInputFile = new File("target/test-classes", pName);
+    final OutputStream eOutputStream = new FileOutputStream(eInputFile);
+    try {
+      eOutputStream.write(pXml.getBytes(pEncoding));
+    }
+    finally {
+      eOutputStream.close();
+    }
+    return eInputFile;
+  }
+
+  public void testSameResultAsXomParser()
+      throws IOException {
+    final Map<Locale, Properties> eParsedInput =
+        mInputParser.parseInput(mInputFile);
+    final Map<Locale, Properties> eXomParsedInput =
+        new XmlXomInputParser().parseInput(mInputFile);
+
+    assertNotNull(eParsedInput);
+    assertEquals(eXomParsedInput, eParsedInput);
+  }
+
+  public void testChildElementsAndKeyAfterValues()
+      throws IOException {
+    final File eInputFile = writeInputFile("input-scanner.xml",
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>"
+            + "<entries><!-- comment --><ignored><entry/></ignored>"
+            + "<entry><value><lang>bn</lang><country value=\"BD\"/>"
+            + "<![CDATA[x<y]]></value><key>first</key><key>second</key>"
+            + "</entry></entries>", "UTF-8");
+
+    final Map<Locale, Properties> eParsedInput =
+        mInputParser.parseInput(eInputFile);
+    assertEquals(new XmlXomInputParser().parseInput(eInputFile),
+        eParsedInput);
+    assertEquals(1, eParsedInput.size());
+    final Properties eBnBdProperties =
+        eParsedInput.get(new Locale("bn", "BD"));
+    assertNotNull(eBnBdProperties);
+    assertEquals("bnx<y", eBnBdProperties.getProperty("first"));
+  }
+
+  public void testReferencesAndMultiByteCharacters()
+      throws IOException {
+    final File eInputFile = writeInputFile("input-scanner-text.xml",
+        "\ufeff<?xml version='1.0'?>\r\n"
+            + "<!DOCTYPE entries [ <!ELEMENT entries ANY> ]>\r\n"
+            + "<?pi data?><x:entries xmlns:x=\"urn:entries\">\r\n"
+            + "<x:entry key = 'a&amp;b&#x41;' x:key=\"ignored\">"
+            + "<value lang=\"bn\">\u09ac\u09be\u0982\u09b2\u09be "
+            + "&lt;&#2437;&gt; \ud83d\ude00</value>"
+            + "<value value=\"tab\there &quot;q&quot;\"/>"
+            + "<value country='DE'>line 1\r\nline 2\rline 3</value>"
+            + "</x:entry>\r\n</x:entries>\r\n", "UTF-8");
+
+    final Map<Locale, Properties> eParsedInput =
+        mInputParser.parseInput(eInputFile);
+    assertEquals(new XmlStaxInputParser().parseInput(eInputFile),
+        eParsedInput);
+    assertEquals("\u09ac\u09be\u0982\u09b2\u09be <\u0985> \ud83d\ude00",
+        eParsedInput.get(new Locale("bn")).getProperty("a&bA"));
+    assertEquals("tab here \"q\"",
+        eParsedInput.get(null).getProperty("a&bA"));
+    assertEquals("line 1\nline 2\nline 3",
+        eParsedInput.get(new Locale("", "DE")).getProperty("a&bA"));
+  }
+
+  public void testOtherEncoding()
+      throws IOException {
+    final File eInputFile = writeInputFile("input-scanner-latin1.xml",
+        "<?xml version=\"1.0\" encoding=\"ISO-8859-1\" ?>"
+            + "<entries><entry key=\"caf\u00e9\">"
+            + "<value>\u00e0 la carte</value></entry></entries>",
+        "ISO-8859-1");
+
+    final Map<Locale, Properties> eParsedInput =
+        mInputParser.parseInput(eInputFile);
+    assertEquals("\u00e0 la carte",
+        eParsedInput.get(null).getProperty("caf\u00e9"));
+  }
+
+  public void testMismatchedEndTag()
+      throws IOException {
+    final File eInputFile = writeInputFile("input-scanner-broken.xml",
+        "<entries><entry key=\"k\"><value>v</valeu></entry></entries>",
+        "UTF-8");
+
+    try {
+      mInputParser.parseInput(eInputFile);
+      fail("Expected IOException for mismatched end tag");
+    }
+    catch (IOException ex) {
+      assertTrue(ex.getMessage().indexOf("valeu") >= 0);
+    }
+  }
+
+  public void testMalformedUtf8()
+      throws IOException {
+    final String ePrefix = "<entries><entry key=\"k\"><value>";
+    final byte[][] eSequences = {
+        // above U+1FFFFF and above U+10FFFF
+        {(byte) 0xF7, (byte) 0xBF, (byte) 0xBF, (byte) 0xBF},
+        {(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80},
+        // overlong '/' and an encoded surrogate
+        {(byte) 0xC0, (byte) 0xAF},
+        {(byte) 0xED, (byte) 0xA0, (byte) 0x80}};
+    for (int i = 0; i < eSequences.length; i++) {
+      final File eInputFile = new File("target/test-classes",
+          "input-scanner-utf8.xml");
+      final OutputStream eOutputStream = new FileOutputStream(eInputFile);
+      try {
+        eOutputStream.write(ePrefix.getBytes("UTF-8"));
+        eOutputStream.write(eSequences[i]);
+        eOutputStream.write("</value></entry></entries>".getBytes("UTF-8"));
+      }
+      finally {
+        eOutputStream.close();
+      }
+      try {
+        mInputParser.parseInput(eInputFile);
+        fail("Expected IOException for sequence " + i);
+      }
+      catch (IOException ex) {
+        assertTrue(ex.getMessage(), ex.getMessage().endsWith(
+            "at byte offset " + ePrefix.length()));
+      }
+    }
+  }
+
+  public void testInvalidRootNode()
+      throws IOException {
+    final File eInputFile = writeInputFile("input-scanner-root.xml",
+        "<properties/>", "UTF-8");
+
+    try {
+      mInputParser.parseInput(eInputFile);
+      fail("Expected IOException for invalid root node");
+    }
+    catch (IOException ex) {
+      LogUtil.debug(null, "Expected exception: " + ex.getMessage());
+    }
+  }
+
+}
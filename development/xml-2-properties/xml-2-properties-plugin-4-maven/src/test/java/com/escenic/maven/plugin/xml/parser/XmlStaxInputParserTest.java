@@ -0,0 +1,158 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.escenic.maven.plugin.xml.parser;
+
+import com.smartitengineering.xml2props.bundle.BundleEntrySink;
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.util.LogUtil;
+import com.smartitengineering.xml2props.xml.parser.InputParser;
+import com.smartitengineering.xml2props.xml.parser.StreamingInputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlStaxInputParser;
+import com.smartitengineering.xml2props.xml.parser.XmlXomInputParser;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class XmlStaxInputParserTest
+    extends TestCase {
+
+  private InputParser mInputParser;
+
+  private File mInputFile;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    if (mInputParser == null) {
+      mInputParser = new XmlStaxInputParser();
+      LogUtil.debug(null, "Using Parser: " + mInputParser);
+    }
+    if (mInputFile == null) {
+      mInputFile = new File("target/test-classes", "input-1.xml");
+    }
+  }
+
+  public void testSameResultAsXomParser()
+      throws IOException {
+    final Map<Locale, Properties> eParsedInput =
+        mInputParser.parseInput(mInputFile);
+    final Map<Locale, Properties> eXomParsedInput =
+        new XmlXomInputParser().parseInput(mInputFile);
+
+    assertNotNull(eParsedInput);
+    assertEquals(eXomParsedInput, eParsedInput);
+  }
+
+  public void testParseEntries()
+      throws IOException {
+    final LocaleBundleTable eBundles = new LocaleBundleTable();
+    final int[] ePutCount = new int[1];
+    ((StreamingInputParser) mInputParser).parseEntries(mInputFile,
+        new BundleEntrySink() {
+          public void put(
+              final String pKey,
+              final Locale pLocale,
+              final String pValue) {
+            ePutCount[0]++;
+            eBundles.put(pKey, pLocale, pValue);
+          }
+        });
+    assertEquals(new XmlXomInputParser().parseInput(mInputFile),
+        eBundles.toLocalePropertiesMap());
+    assertTrue(ePutCount[0] > 0);
+
+    try {
+      ((StreamingInputParser) mInputParser).parseEntries(mInputFile,
+          new BundleEntrySink() {
+            public void put(
+                final String pKey,
+                final Locale pLocale,
+                final String pValue)
+                throws IOException {
+              throw new IOException("sink full");
+            }
+          });
+      fail("Expected IOException of the sink");
+    }
+    catch (IOException ex) {
+      assertEquals("sink full", ex.getMessage());
+    }
+  }
+
+  public void testChildElementsAndKeyAfterValues()
+      throws IOException {
+    final File eInputFile = new File("target/test-classes",
+        "input-stax.xml");
+    final OutputStream eOutputStream = new FileOutputStream(eInputFile);
+    try {
+      eOutputStream.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>"
+          + "<entries><!-- comment --><ignored><entry/></ignored>"
+          + "<entry><value><lang>bn</lang><country value=\"BD\"/>"
+          + "<![CDATA[x<y]]></value><key>first</key><key>second</key>"
+          + "</entry></entries>").getBytes("UTF-8"));
+    }
+    finally {
+      eOutputStream.close();
+    }
+
+    final Map<Locale, Properties> eParsedInput =
+        mInputParser.parseInput(eInputFile);
+    assertEquals(new XmlXomInputParser().parseInput(eInputFile),
+        eParsedInput);
+    assertEquals(1, eParsedInput.size());
+    final Properties eBnBdProperties =
+        eParsedInput.get(new Locale("bn", "BD"));
+    assertNotNull(eBnBdProperties);
+    assertEquals("bnx<y", eBnBdProperties.getProperty("first"));
+  }
+
+  public void testInvalidRootNode()
+      throws IOException {
+    final File eInputFile = new File("target/test-classes",
+        "input-stax-root.xml");
+    final OutputStream eOutputStream = new FileOutputStream(eInputFile);
+    try {
+      eOutputStream.write("<properties/>".getBytes("UTF-8"));
+    }
+    finally {
+      eOutputStream.close();
+    }
+
+    try {
+      mInputParser.parseInput(eInputFile);
+      fail("Expected IOException for invalid root node");
+    }
+    catch (IOException ex) {
+      LogUtil.debug(null, "Expected exception: " + ex.getMessage());
+    }
+  }
+
+}
@@ -18,6 +18,7 @@
  */
 package com.escenic.maven.plugin.xml.parser;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Iterator;
@@ -26,11 +27,18 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
+import com.smartitengineering.xml2props.bundle.LocaleBundleTable;
+import com.smartitengineering.xml2props.util.LocaleUtil;
 import com.smartitengineering.xml2props.util.LogUtil;
+import com.smartitengineering.xml2props.util.XmlXomUtil;
 import com.smartitengineering.xml2props.xml.parser.InputParser;
 import com.smartitengineering.xml2props.xml.parser.XmlXomInputParser;
 
 import junit.framework.TestCase;
+import nu.xom.Builder;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Node;
 
 /**
  * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
@@ -171,4 +179,58 @@ public class XmlXomInputParserTest
         LogUtil.debug( null, "XmlXomInputParserTest.testParsedContentProperties() ends." );
     }
 
+    public void testMixedContentValues()
+        throws Exception
+    {
+        final Document eDocument = new Builder().build( new ByteArrayInputStream( (
+            "<entries>"
+            + "<entry key=\"mixed\">"
+            + "<value>Fish &amp; chips, <b>bold <i>and</i> nested</b> &#x9a8;&lt;end&gt;</value>"
+            + "<value lang=\"bn\" country=\"BD\"><![CDATA[<raw>]]> text</value>"
+            + "<value><lang>en</lang>Lang <em>as a child</em></value>"
+            + "<value lang=\"sv\" country=\"SE\">a<!-- comment -->b<?pi x?>c</value>"
+            + "<value lang=\"sv\" value=\"from the attribute\"/>"
+            + "<key>ignored</key>"
+            + "</entry>"
+            + "<entry>"
+            + "<value lang=\"no\">before the key</value>"
+            + "<key>late<sup>key</sup></key>"
+            + "<value lang=\"no\" value=\"ignored\">after &quot;the&quot; key</value>"
+            + "</entry>"
+            + "</entries>" ).getBytes( "UTF-8" ) ) );
+
+        final LocaleBundleTable eBundles = ( (XmlXomInputParser) mInputParser ).parseBundles( eDocument );
+        assertEquals( "Fish & chips, bold and nested \u09a8<end>", eBundles.getValue( "mixed", null ) );
+        assertEquals( "<raw> text", eBundles.getValue( "mixed", new Locale( "bn", "BD" ) ) );
+        // the text of the lang child is part of the value
+        assertEquals( "enLang as a child", eBundles.getValue( "mixed", new Locale( "en" ) ) );
+        assertEquals( "abc", eBundles.getValue( "mixed", new Locale( "sv", "SE" ) ) );
+        assertEquals( "from the attribute", eBundles.getValue( "mixed", new Locale( "sv" ) ) );
+        assertEquals( "after \"the\" key", eBundles.getValue( "latekey", new Locale( "no" ) ) );
+        assertEquals( -1, eBundles.getKeyIndex( "ignored" ) );
+
+        // the same as the former decoding through XmlXomUtil
+        final LocaleBundleTable eExpected = new LocaleBundleTable();
+        final Element eRootElement = eDocument.getRootElement();
+        for ( int i = 0; i < eRootElement.getChildCount(); i++ )
+        {
+            final Element eEntry = (Element) eRootElement.getChild( i );
+            final String eKey = XmlXomUtil.getValueFromAttributeOrChildNode( eEntry, "key" );
+            for ( int j = 0; j < eEntry.getChildCount(); j++ )
+            {
+                final Node eChild = eEntry.getChild( j );
+                if ( !( eChild instanceof Element ) || !XmlXomUtil.isNodeName( (Element) eChild, "value" ) )
+                {
+                    continue;
+                }
+                final Element eValue = (Element) eChild;
+                eExpected.put( eKey, LocaleUtil.getLocale(
+                    XmlXomUtil.getValueFromAttributeOrChildNode( eValue, "lang" ),
+                    XmlXomUtil.getValueFromAttributeOrChildNode( eValue, "country" ) ),
+                    XmlXomUtil.getValueFromAttributeOrElement( eValue ) );
+            }
+        }
+        assertEquals( eExpected.toLocalePropertiesMap(), eBundles.toLocalePropertiesMap() );
+    }
+
 }
@@ -0,0 +1,79 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * Loads the binary bundles written by the BINARY output mode of the plugin,
+ * e.g.
+ * <pre>
+ * ResourceBundle.getBundle("Messages", locale, new BinaryBundleControl());
+ * </pre>
+ * finds <code>Messages_bn.binary</code> through the class loader. The
+ * candidate Locales and the parent chain are those of
+ * {@link ResourceBundle.Control}.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class BinaryBundleControl extends ResourceBundle.Control {
+
+  /** The only format supported by this Control */
+  public static final String FORMAT = "xml2props.binary";
+
+  private static final List<String> FORMATS =
+      Collections.singletonList(FORMAT);
+
+  /** @see java.util.ResourceBundle.Control#getFormats(java.lang.String) */
+  public List<String> getFormats(final String pBaseName) {
+    if (pBaseName == null) {
+      throw new NullPointerException();
+    }
+    return FORMATS;
+  }
+
+  /**
+   * @see java.util.ResourceBundle.Control#newBundle(java.lang.String, java.util.Locale, java.lang.String, java.lang.ClassLoader, boolean)
+   */
+  public ResourceBundle newBundle(
+      final String pBaseName,
+      final Locale pLocale,
+      final String pFormat,
+      final ClassLoader pLoader,
+      final boolean pReload)
+      throws IOException {
+    if (!FORMAT.equals(pFormat)) {
+      return null;
+    }
+    final String eResourceName = toResourceName(toBundleName(pBaseName,
+        pLocale), BinaryBundleFormat.EXTENSION);
+    final URL eUrl = pLoader.getResource(eResourceName);
+    if (eUrl == null) {
+      return null;
+    }
+    return BinaryResourceBundle.load(eUrl);
+  }
+
+}
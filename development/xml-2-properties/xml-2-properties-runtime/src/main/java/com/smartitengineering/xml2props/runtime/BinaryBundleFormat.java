@@ -0,0 +1,89 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+/**
+ * The layout of the binary bundle files, shared by the writer of the plugin
+ * and the runtime reader. All the ints are big-endian.
+ * <pre>
+ * int    magic
+ * int    version
+ * int    entry count n
+ * int    bucket count b
+ * int[b] seed of every bucket of the perfect hash
+ * n *    slot: key offset, key length, value offset, value length as ints,
+ *        offsets relative to the start of the string pool
+ * byte[] string pool, the UTF-8 bytes of all the distinct keys and values
+ * </pre>
+ * A key is found by hashing it with seed 0 to its bucket and hashing it again
+ * with the seed of the bucket to its slot. The seeds are chosen when writing
+ * so that every key gets a slot of its own, a lookup hence compares a single
+ * key.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class BinaryBundleFormat {
+
+  /** "X2PB" */
+  public static final int MAGIC = 0x58325042;
+
+  public static final int VERSION = 1;
+
+  /** The extension of the files, the same as the mode name in lower case */
+  public static final String EXTENSION = "binary";
+
+  public static final int HEADER_LENGTH = 16;
+
+  public static final int SLOT_LENGTH = 16;
+
+  private BinaryBundleFormat() {
+    super();
+  }
+
+  /**
+   * @param pKey  The key to hash
+   * @param pSeed The seed of the hash
+   *
+   * @return the hash of the chars of the key, FNV-1a finished with the mixer
+   *         of MurmurHash3
+   */
+  public static int hash(final CharSequence pKey, final int pSeed) {
+    int eHash = 0x811C9DC5 ^ (pSeed * 0x9E3779B9);
+    final int eLength = pKey.length();
+    for (int i = 0; i < eLength; i++) {
+      eHash ^= pKey.charAt(i);
+      eHash *= 0x01000193;
+    }
+    eHash ^= eHash >>> 16;
+    eHash *= 0x85EBCA6B;
+    eHash ^= eHash >>> 13;
+    eHash *= 0xC2B2AE35;
+    eHash ^= eHash >>> 16;
+    return eHash;
+  }
+
+  /**
+   * @return the index of the hash in a table of the size
+   */
+  public static int index(final int pHash, final int pSize) {
+    return (pHash & 0x7FFFFFFF) % pSize;
+  }
+
+}
@@ -0,0 +1,235 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * A ResourceBundle reading its values straight from a binary bundle file,
+ * see {@link BinaryBundleFormat}. The file is memory-mapped when it is a file
+ * of the file system, so the bundle is not copied into the heap; a value is
+ * decoded on every lookup. A file in a jar is read into the heap instead.
+ * <p/>
+ * The bundle only does absolute reads of its buffer and is thread-safe.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class BinaryResourceBundle extends ResourceBundle {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final ByteBuffer mBuffer;
+
+  private final int mEntryCount;
+
+  private final int mBucketCount;
+
+  private final int mSlotsStart;
+
+  private final int mPoolStart;
+
+  /**
+   * @param pBuffer The content of a binary bundle file
+   *
+   * @throws IOException if the content is not a binary bundle
+   */
+  public BinaryResourceBundle(final ByteBuffer pBuffer)
+      throws IOException {
+    if (pBuffer.limit() < BinaryBundleFormat.HEADER_LENGTH
+        || pBuffer.getInt(0) != BinaryBundleFormat.MAGIC) {
+      throw new IOException("Not a binary bundle");
+    }
+    if (pBuffer.getInt(4) != BinaryBundleFormat.VERSION) {
+      throw new IOException("Unsupported binary bundle version: "
+          + pBuffer.getInt(4));
+    }
+    mBuffer = pBuffer;
+    mEntryCount = pBuffer.getInt(8);
+    mBucketCount = pBuffer.getInt(12);
+    mSlotsStart = BinaryBundleFormat.HEADER_LENGTH + 4 * mBucketCount;
+    mPoolStart = mSlotsStart + BinaryBundleFormat.SLOT_LENGTH * mEntryCount;
+    if (mEntryCount < 0 || mBucketCount < 1 || mPoolStart > pBuffer.limit()) {
+      throw new IOException("Corrupt binary bundle");
+    }
+  }
+
+  /**
+   * @param pUrl The location of the binary bundle file
+   *
+   * @return the bundle, mapping the file if it is in the file system
+   *
+   * @throws IOException if the file could not be read
+   */
+  public static BinaryResourceBundle load(final URL pUrl)
+      throws IOException {
+    if ("file".equals(pUrl.getProtocol())) {
+      try {
+        return new BinaryResourceBundle(map(new File(pUrl.toURI())));
+      }
+      catch (URISyntaxException ex) {
+        // not a valid file name, read it through the URL below
+      }
+    }
+    final InputStream eInputStream = pUrl.openStream();
+    try {
+      final ByteArrayOutputStream eContent = new ByteArrayOutputStream();
+      final byte[] eBuffer = new byte[8192];
+      int eRead;
+      while ((eRead = eInputStream.read(eBuffer)) >= 0) {
+        eContent.write(eBuffer, 0, eRead);
+      }
+      return new BinaryResourceBundle(ByteBuffer.wrap(eContent.toByteArray()));
+    }
+    finally {
+      eInputStream.close();
+    }
+  }
+
+  private static ByteBuffer map(final File pFile)
+      throws IOException {
+    final RandomAccessFile eFile = new RandomAccessFile(pFile, "r");
+    try {
+      final FileChannel eChannel = eFile.getChannel();
+      return eChannel.map(FileChannel.MapMode.READ_ONLY, 0, eChannel.size());
+    }
+    finally {
+      eFile.close();
+    }
+  }
+
+  /** @return the number of keys of this bundle, without the parent */
+  public int getEntryCount() {
+    return mEntryCount;
+  }
+
+  /** @see java.util.ResourceBundle#handleGetObject(java.lang.String) */
+  protected Object handleGetObject(final String pKey) {
+    if (pKey == null) {
+      throw new NullPointerException();
+    }
+    if (mEntryCount == 0) {
+      return null;
+    }
+    final int eBucket = BinaryBundleFormat.index(
+        BinaryBundleFormat.hash(pKey, 0), mBucketCount);
+    final int eSeed = mBuffer.getInt(BinaryBundleFormat.HEADER_LENGTH
+        + 4 * eBucket);
+    final int eSlot = mSlotsStart + BinaryBundleFormat.SLOT_LENGTH
+        * BinaryBundleFormat.index(BinaryBundleFormat.hash(pKey, eSeed),
+        mEntryCount);
+    if (!equalsKey(pKey, mPoolStart + mBuffer.getInt(eSlot),
+        mBuffer.getInt(eSlot + 4))) {
+      return null;
+    }
+    return decode(mPoolStart + mBuffer.getInt(eSlot + 8),
+        mBuffer.getInt(eSlot + 12));
+  }
+
+  /** @see java.util.ResourceBundle#handleKeySet() */
+  protected Set<String> handleKeySet() {
+    final Set<String> eKeys = new HashSet<String>();
+    for (int i = 0; i < mEntryCount; i++) {
+      final int eSlot = mSlotsStart + BinaryBundleFormat.SLOT_LENGTH * i;
+      eKeys.add(decode(mPoolStart + mBuffer.getInt(eSlot),
+          mBuffer.getInt(eSlot + 4)));
+    }
+    return eKeys;
+  }
+
+  /** @see java.util.ResourceBundle#getKeys() */
+  public Enumeration<String> getKeys() {
+    final Set<String> eKeys = handleKeySet();
+    if (parent != null) {
+      eKeys.addAll(Collections.list(parent.getKeys()));
+    }
+    return Collections.enumeration(eKeys);
+  }
+
+  private String decode(final int pOffset, final int pLength) {
+    final byte[] eBytes = new byte[pLength];
+    for (int i = 0; i < pLength; i++) {
+      eBytes[i] = mBuffer.get(pOffset + i);
+    }
+    return new String(eBytes, UTF_8);
+  }
+
+  /**
+   * Compares the key with the UTF-8 bytes without decoding them into a
+   * String.
+   */
+  private boolean equalsKey(
+      final String pKey,
+      final int pOffset,
+      final int pLength) {
+    final int eKeyLength = pKey.length();
+    final int eEnd = pOffset + pLength;
+    int ePosition = pOffset;
+    int eIndex = 0;
+    while (ePosition < eEnd) {
+      final int eByte = mBuffer.get(ePosition) & 0xFF;
+      final int eCodePoint;
+      if (eByte < 0x80) {
+        eCodePoint = eByte;
+        ePosition += 1;
+      }
+      else if (eByte < 0xE0) {
+        eCodePoint = ((eByte & 0x1F) << 6) | continuation(ePosition + 1);
+        ePosition += 2;
+      }
+      else if (eByte < 0xF0) {
+        eCodePoint = ((eByte & 0x0F) << 12)
+            | (continuation(ePosition + 1) << 6)
+            | continuation(ePosition + 2);
+        ePosition += 3;
+      }
+      else {
+        eCodePoint = ((eByte & 0x07) << 18)
+            | (continuation(ePosition + 1) << 12)
+            | (continuation(ePosition + 2) << 6)
+            | continuation(ePosition + 3);
+        ePosition += 4;
+      }
+      if (eIndex >= eKeyLength || pKey.codePointAt(eIndex) != eCodePoint) {
+        return false;
+      }
+      eIndex += Character.charCount(eCodePoint);
+    }
+    return eIndex == eKeyLength;
+  }
+
+  private int continuation(final int pPosition) {
+    return mBuffer.get(pPosition) & 0x3F;
+  }
+
+}
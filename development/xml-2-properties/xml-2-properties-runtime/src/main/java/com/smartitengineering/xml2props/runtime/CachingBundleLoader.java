@@ -0,0 +1,397 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads the bundles of a base name on first use and keeps them in a cache
+ * bounded to the most recently used Locales. The bundles of the Locales
+ * evicted from it are only softly referenced, so the garbage collector
+ * reclaims the rarely used Locales when memory runs low; a bundle looked up
+ * again before that is not loaded again. With the default
+ * {@link GeneratedBundleControl} the bundles of every output mode of the
+ * plugin are loaded, e.g.
+ * <pre>
+ * CachingBundleLoader eMessages = new CachingBundleLoader("Messages", 8);
+ * String eTitle = eMessages.getBundle(locale).getString("title");
+ * </pre>
+ * The bundles of a Locale, its parents included, are cached and evicted
+ * together. They are not kept in the cache of {@link ResourceBundle} as
+ * well, but a bundle already loaded for a Locale is reused for the others
+ * as long as one of them references it, e.g. the bundles of 'bn' and 'sv'
+ * share one instance of their default bundle.
+ * <p/>
+ * The loader is thread-safe. A bundle is loaded outside the lock of the
+ * cache, two threads missing the same Locale at once may both load it.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class CachingBundleLoader {
+
+  private final String mBaseName;
+
+  private final int mMaxSize;
+
+  private final ClassLoader mClassLoader;
+
+  private final UncachedControl mControl;
+
+  /** The most recently used bundles, in access order */
+  private final Map<Locale, ResourceBundle> mBundles;
+
+  /** The bundles evicted from the most recently used ones */
+  private final Map<Locale, BundleReference> mEvictedBundles;
+
+  private final ReferenceQueue<ResourceBundle> mReclaimedBundles;
+
+  private final AtomicLong mHitCount;
+
+  private final AtomicLong mMissCount;
+
+  private final AtomicLong mEvictionCount;
+
+  /**
+   * @param pBaseName The base name of the bundles
+   * @param pMaxSize  The number of Locales whose bundles are kept, 0 to only
+   *                  softly reference all of them
+   */
+  public CachingBundleLoader(
+      final String pBaseName,
+      final int pMaxSize) {
+    this(pBaseName, pMaxSize, getDefaultClassLoader(),
+        new GeneratedBundleControl());
+  }
+
+  /**
+   * @param pBaseName    The base name of the bundles
+   * @param pMaxSize     The number of Locales whose bundles are kept, 0 to
+   *                     only softly reference all of them
+   * @param pClassLoader The class loader of the bundles
+   * @param pControl     The Control loading the bundles
+   */
+  public CachingBundleLoader(
+      final String pBaseName,
+      final int pMaxSize,
+      final ClassLoader pClassLoader,
+      final ResourceBundle.Control pControl) {
+    if (pBaseName == null) {
+      throw new IllegalArgumentException(
+          "Base name was null, expected non-null value");
+    }
+    if (pClassLoader == null) {
+      throw new IllegalArgumentException(
+          "Class loader was null, expected non-null value");
+    }
+    if (pControl == null) {
+      throw new IllegalArgumentException(
+          "Control was null, expected non-null value");
+    }
+    if (pMaxSize < 0) {
+      throw new IllegalArgumentException("Max size was " + pMaxSize
+          + ", expected a non-negative value");
+    }
+    mBaseName = pBaseName;
+    mMaxSize = pMaxSize;
+    mClassLoader = pClassLoader;
+    mControl = new UncachedControl(pControl);
+    mBundles = new LinkedHashMap<Locale, ResourceBundle>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      protected boolean removeEldestEntry(
+          final Map.Entry<Locale, ResourceBundle> pEldest) {
+        if (size() <= mMaxSize) {
+          return false;
+        }
+        evict(pEldest.getKey(), pEldest.getValue());
+        return true;
+      }
+    };
+    mEvictedBundles = new HashMap<Locale, BundleReference>();
+    mReclaimedBundles = new ReferenceQueue<ResourceBundle>();
+    mHitCount = new AtomicLong();
+    mMissCount = new AtomicLong();
+    mEvictionCount = new AtomicLong();
+  }
+
+  private static ClassLoader getDefaultClassLoader() {
+    final ClassLoader eClassLoader =
+        Thread.currentThread().getContextClassLoader();
+    return eClassLoader == null
+        ? CachingBundleLoader.class.getClassLoader() : eClassLoader;
+  }
+
+  /**
+   * @param pLocale The Locale
+   *
+   * @return the bundle of the Locale, loaded if it is not cached
+   *
+   * @throws java.util.MissingResourceException if no bundle is found for
+   *                                            the base name
+   */
+  public ResourceBundle getBundle(final Locale pLocale) {
+    if (pLocale == null) {
+      throw new IllegalArgumentException(
+          "Locale was null, expected non-null value");
+    }
+    ResourceBundle eBundle;
+    synchronized (this) {
+      purgeReclaimed();
+      eBundle = mBundles.get(pLocale);
+      if (eBundle == null) {
+        final BundleReference eReference = mEvictedBundles.remove(pLocale);
+        eBundle = eReference == null ? null : eReference.get();
+        if (eBundle != null) {
+          mBundles.put(pLocale, eBundle);
+        }
+      }
+    }
+    if (eBundle != null) {
+      mHitCount.incrementAndGet();
+      return eBundle;
+    }
+
+    mMissCount.incrementAndGet();
+    final ResourceBundle eLoadedBundle = ResourceBundle.getBundle(mBaseName,
+        pLocale, mClassLoader, mControl);
+    synchronized (this) {
+      // another thread may have loaded the Locale meanwhile
+      final ResourceBundle eCachedBundle = mBundles.get(pLocale);
+      if (eCachedBundle != null) {
+        return eCachedBundle;
+      }
+      mEvictedBundles.remove(pLocale);
+      mBundles.put(pLocale, eLoadedBundle);
+    }
+    return eLoadedBundle;
+  }
+
+  /**
+   * Drops all the cached bundles, the counters are kept.
+   */
+  public synchronized void clear() {
+    mBundles.clear();
+    mEvictedBundles.clear();
+    purgeReclaimed();
+    mControl.clear();
+  }
+
+  /** @return the number of Locales whose bundles are kept */
+  public synchronized int getSize() {
+    return mBundles.size();
+  }
+
+  /** @return the number of lookups of a cached or softly referenced bundle */
+  public long getHitCount() {
+    return mHitCount.get();
+  }
+
+  /** @return the number of lookups that loaded the bundle */
+  public long getMissCount() {
+    return mMissCount.get();
+  }
+
+  /**
+   * @return the number of bundles evicted from the most recently used ones
+   *         to be softly referenced
+   */
+  public long getEvictionCount() {
+    return mEvictionCount.get();
+  }
+
+  /** @see java.lang.Object#toString() */
+  public String toString() {
+    return "CachingBundleLoader[" + mBaseName + ", size " + getSize()
+        + ", hits " + getHitCount() + ", misses " + getMissCount()
+        + ", evictions " + getEvictionCount() + "]";
+  }
+
+  private void evict(
+      final Locale pLocale,
+      final ResourceBundle pBundle) {
+    mEvictedBundles.put(pLocale, new BundleReference(pLocale, pBundle,
+        mReclaimedBundles));
+    mEvictionCount.incrementAndGet();
+  }
+
+  /**
+   * Removes the Locales whose bundles the garbage collector reclaimed.
+   */
+  private void purgeReclaimed() {
+    Reference<? extends ResourceBundle> eReference;
+    while ((eReference = mReclaimedBundles.poll()) != null) {
+      final Locale eLocale = ((BundleReference) eReference).mLocale;
+      if (mEvictedBundles.get(eLocale) == eReference) {
+        mEvictedBundles.remove(eLocale);
+      }
+    }
+  }
+
+  /**
+   * A soft reference remembering the Locale of its bundle.
+   */
+  private static final class BundleReference
+      extends SoftReference<ResourceBundle> {
+
+    private final Locale mLocale;
+
+    BundleReference(
+        final Locale pLocale,
+        final ResourceBundle pBundle,
+        final ReferenceQueue<ResourceBundle> pQueue) {
+      super(pBundle, pQueue);
+      mLocale = pLocale;
+    }
+  }
+
+  /**
+   * A weak reference remembering the Locale of its bundle.
+   */
+  private static final class LoadedBundleReference
+      extends WeakReference<ResourceBundle> {
+
+    private final Locale mLocale;
+
+    LoadedBundleReference(
+        final Locale pLocale,
+        final ResourceBundle pBundle,
+        final ReferenceQueue<ResourceBundle> pQueue) {
+      super(pBundle, pQueue);
+      mLocale = pLocale;
+    }
+  }
+
+  /**
+   * Delegates to a Control, without the cache of ResourceBundle. The
+   * bundles it loaded are weakly referenced and returned again for their
+   * Locale, so the parent bundles of the cached Locales are shared.
+   */
+  private static final class UncachedControl extends ResourceBundle.Control {
+
+    private final ResourceBundle.Control mControl;
+
+    private final Map<Locale, LoadedBundleReference> mLoadedBundles;
+
+    private final ReferenceQueue<ResourceBundle> mReclaimedBundles;
+
+    UncachedControl(final ResourceBundle.Control pControl) {
+      mControl = pControl;
+      mLoadedBundles = new HashMap<Locale, LoadedBundleReference>();
+      mReclaimedBundles = new ReferenceQueue<ResourceBundle>();
+    }
+
+    synchronized void clear() {
+      mLoadedBundles.clear();
+      purgeReclaimed();
+    }
+
+    private synchronized ResourceBundle getLoadedBundle(
+        final Locale pLocale) {
+      purgeReclaimed();
+      final LoadedBundleReference eReference = mLoadedBundles.get(pLocale);
+      return eReference == null ? null : eReference.get();
+    }
+
+    private synchronized void putLoadedBundle(
+        final Locale pLocale,
+        final ResourceBundle pBundle) {
+      mLoadedBundles.put(pLocale, new LoadedBundleReference(pLocale,
+          pBundle, mReclaimedBundles));
+    }
+
+    private void purgeReclaimed() {
+      Reference<? extends ResourceBundle> eReference;
+      while ((eReference = mReclaimedBundles.poll()) != null) {
+        final Locale eLocale = ((LoadedBundleReference) eReference).mLocale;
+        if (mLoadedBundles.get(eLocale) == eReference) {
+          mLoadedBundles.remove(eLocale);
+        }
+      }
+    }
+
+    /** @see java.util.ResourceBundle.Control#getFormats(java.lang.String) */
+    public List<String> getFormats(final String pBaseName) {
+      return mControl.getFormats(pBaseName);
+    }
+
+    /**
+     * @see java.util.ResourceBundle.Control#getCandidateLocales(java.lang.String, java.util.Locale)
+     */
+    public List<Locale> getCandidateLocales(
+        final String pBaseName,
+        final Locale pLocale) {
+      return mControl.getCandidateLocales(pBaseName, pLocale);
+    }
+
+    /**
+     * @see java.util.ResourceBundle.Control#getFallbackLocale(java.lang.String, java.util.Locale)
+     */
+    public Locale getFallbackLocale(
+        final String pBaseName,
+        final Locale pLocale) {
+      return mControl.getFallbackLocale(pBaseName, pLocale);
+    }
+
+    /**
+     * @see java.util.ResourceBundle.Control#newBundle(java.lang.String, java.util.Locale, java.lang.String, java.lang.ClassLoader, boolean)
+     */
+    public ResourceBundle newBundle(
+        final String pBaseName,
+        final Locale pLocale,
+        final String pFormat,
+        final ClassLoader pLoader,
+        final boolean pReload)
+        throws IllegalAccessException, InstantiationException,
+        IOException {
+      // ResourceBundle keeps the parent of a bundle that already has one
+      final ResourceBundle eLoadedBundle = getLoadedBundle(pLocale);
+      if (eLoadedBundle != null) {
+        return eLoadedBundle;
+      }
+      final ResourceBundle eBundle = mControl.newBundle(pBaseName, pLocale,
+          pFormat, pLoader, pReload);
+      if (eBundle != null) {
+        putLoadedBundle(pLocale, eBundle);
+      }
+      return eBundle;
+    }
+
+    /**
+     * @see java.util.ResourceBundle.Control#getTimeToLive(java.lang.String, java.util.Locale)
+     */
+    public long getTimeToLive(
+        final String pBaseName,
+        final Locale pLocale) {
+      return TTL_DONT_CACHE;
+    }
+  }
+
+}
@@ -0,0 +1,209 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * Loads the bundles of every output mode of the plugin: the classes of the
+ * JAVA mode, the .properties files of the PROPERTIES mode, the .xml files
+ * of the XML mode and the .binary files of the BINARY mode, tried in this
+ * order for every candidate Locale, e.g.
+ * <pre>
+ * ResourceBundle.getBundle("Messages", locale, new GeneratedBundleControl());
+ * </pre>
+ * The candidate Locales and the parent chain are those of
+ * {@link ResourceBundle.Control}. The .properties files are read in UTF-8,
+ * or in ISO-8859-1 when they are not valid UTF-8, as on Java 9 and later.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class GeneratedBundleControl extends ResourceBundle.Control {
+
+  /** The format of the properties files of the XML mode */
+  public static final String XML_FORMAT = "xml2props.xml";
+
+  private static final String XML_EXTENSION = "xml";
+
+  private static final String PROPERTIES_EXTENSION = "properties";
+
+  private static final String PROPERTIES_FORMAT =
+      ResourceBundle.Control.FORMAT_PROPERTIES.get(0);
+
+  private static final List<String> FORMATS = Collections.unmodifiableList(
+      Arrays.asList(ResourceBundle.Control.FORMAT_CLASS.get(0),
+          PROPERTIES_FORMAT, XML_FORMAT,
+          BinaryBundleControl.FORMAT));
+
+  /** @see java.util.ResourceBundle.Control#getFormats(java.lang.String) */
+  public List<String> getFormats(final String pBaseName) {
+    if (pBaseName == null) {
+      throw new NullPointerException();
+    }
+    return FORMATS;
+  }
+
+  /**
+   * @see java.util.ResourceBundle.Control#newBundle(java.lang.String, java.util.Locale, java.lang.String, java.lang.ClassLoader, boolean)
+   */
+  public ResourceBundle newBundle(
+      final String pBaseName,
+      final Locale pLocale,
+      final String pFormat,
+      final ClassLoader pLoader,
+      final boolean pReload)
+      throws IllegalAccessException, InstantiationException, IOException {
+    final String eBundleName = toBundleName(pBaseName, pLocale);
+    if (BinaryBundleControl.FORMAT.equals(pFormat)) {
+      final URL eUrl = pLoader.getResource(toResourceName(eBundleName,
+          BinaryBundleFormat.EXTENSION));
+      return eUrl == null ? null : BinaryResourceBundle.load(eUrl);
+    }
+    else if (XML_FORMAT.equals(pFormat)) {
+      final URL eUrl = pLoader.getResource(toResourceName(eBundleName,
+          XML_EXTENSION));
+      return eUrl == null ? null : loadXmlBundle(eUrl, pReload);
+    }
+    else if (PROPERTIES_FORMAT.equals(pFormat)) {
+      final URL eUrl = pLoader.getResource(toResourceName(eBundleName,
+          PROPERTIES_EXTENSION));
+      return eUrl == null ? null : loadPropertiesBundle(eUrl, pReload);
+    }
+    return super.newBundle(pBaseName, pLocale, pFormat, pLoader, pReload);
+  }
+
+  private static InputStream openStream(
+      final URL pUrl,
+      final boolean pReload)
+      throws IOException {
+    final URLConnection eConnection = pUrl.openConnection();
+    if (pReload) {
+      eConnection.setUseCaches(false);
+    }
+    return eConnection.getInputStream();
+  }
+
+  private static ResourceBundle loadPropertiesBundle(
+      final URL pUrl,
+      final boolean pReload)
+      throws IOException {
+    final ByteArrayOutputStream eBytes = new ByteArrayOutputStream();
+    final InputStream eInputStream = openStream(pUrl, pReload);
+    try {
+      final byte[] eBuffer = new byte[8192];
+      int eRead;
+      while ((eRead = eInputStream.read(eBuffer)) != -1) {
+        eBytes.write(eBuffer, 0, eRead);
+      }
+    }
+    finally {
+      eInputStream.close();
+    }
+    return new PropertyResourceBundle(
+        new StringReader(decode(eBytes.toByteArray())));
+  }
+
+  /**
+   * @param pBytes The content of a .properties file
+   *
+   * @return the content decoded as UTF-8, or as ISO-8859-1 when it is not
+   *         valid UTF-8
+   */
+  private static String decode(final byte[] pBytes) {
+    try {
+      return Charset.forName("UTF-8").newDecoder()
+          .onMalformedInput(CodingErrorAction.REPORT)
+          .onUnmappableCharacter(CodingErrorAction.REPORT)
+          .decode(ByteBuffer.wrap(pBytes)).toString();
+    }
+    catch (CharacterCodingException ex) {
+      return new String(pBytes, Charset.forName("ISO-8859-1"));
+    }
+  }
+
+  private static ResourceBundle loadXmlBundle(
+      final URL pUrl,
+      final boolean pReload)
+      throws IOException {
+    final Properties eProperties = new Properties();
+    final InputStream eInputStream = openStream(pUrl, pReload);
+    try {
+      eProperties.loadFromXML(eInputStream);
+    }
+    finally {
+      eInputStream.close();
+    }
+    return new XmlResourceBundle(eProperties);
+  }
+
+  /**
+   * The properties of a file of the XML mode.
+   */
+  private static final class XmlResourceBundle extends ResourceBundle {
+
+    private final Properties mProperties;
+
+    XmlResourceBundle(final Properties pProperties) {
+      mProperties = pProperties;
+    }
+
+    /** @see java.util.ResourceBundle#handleGetObject(java.lang.String) */
+    protected Object handleGetObject(final String pKey) {
+      if (pKey == null) {
+        throw new NullPointerException();
+      }
+      return mProperties.getProperty(pKey);
+    }
+
+    /** @see java.util.ResourceBundle#handleKeySet() */
+    protected Set<String> handleKeySet() {
+      return new HashSet<String>(mProperties.stringPropertyNames());
+    }
+
+    /** @see java.util.ResourceBundle#getKeys() */
+    public Enumeration<String> getKeys() {
+      final Set<String> eKeys = handleKeySet();
+      if (parent != null) {
+        eKeys.addAll(Collections.list(parent.getKeys()));
+      }
+      return Collections.enumeration(eKeys);
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * A ResourceBundle holding its values in an array indexed like the sorted
+ * keys of all the Locales of the bundle, the key table. The JAVA output mode
+ * generates a subclass per Locale together with a class of int fields for
+ * the indexes of the keys, so that {@link #getString(int)} looks a value
+ * up without hashing the key and a misspelled key does not compile:
+ * <pre>
+ * IndexedResourceBundle eBundle = (IndexedResourceBundle)
+ *     ResourceBundle.getBundle("com.example.Messages", eLocale);
+ * String eTitle = eBundle.getString(MessagesKeys.TITLE);
+ * </pre>
+ * A Locale without a value for a key falls back to the parent bundle, by
+ * index if the parent is indexed by the same key table. Looking a value up
+ * by key is a binary search of the key table.
+ * <p/>
+ * The bundle is immutable and thread-safe.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public abstract class IndexedResourceBundle extends ResourceBundle {
+
+  private final String[] mKeys;
+
+  /** The values of this bundle by index, null where it has none */
+  private final String[] mValues;
+
+  /**
+   * @param pKeys    The key table, the sorted keys of all the Locales
+   * @param pEntries The keys and values of this bundle, alternating and
+   *                 sorted by key
+   */
+  protected IndexedResourceBundle(
+      final String[] pKeys,
+      final String[] pEntries) {
+    mKeys = pKeys;
+    mValues = new String[pKeys.length];
+    int eIndex = 0;
+    for (int i = 0; i < pEntries.length; i += 2) {
+      while (eIndex < pKeys.length
+          && pKeys[eIndex].compareTo(pEntries[i]) < 0) {
+        eIndex++;
+      }
+      if (eIndex == pKeys.length || !pKeys[eIndex].equals(pEntries[i])) {
+        throw new IllegalArgumentException("Key '" + pEntries[i]
+            + "' of " + getClass().getName()
+            + " is not in the key table, generate the bundles again");
+      }
+      mValues[eIndex] = pEntries[i + 1];
+    }
+  }
+
+  /** @return the number of keys of the key table */
+  public int getKeyCount() {
+    return mKeys.length;
+  }
+
+  /**
+   * @param pIndex The index of a key of the key table
+   *
+   * @return the key
+   */
+  public String getKey(final int pIndex) {
+    return mKeys[pIndex];
+  }
+
+  /**
+   * @param pIndex The index of a key of the key table
+   *
+   * @return the value of the key in this bundle or its parents
+   *
+   * @throws MissingResourceException if no bundle has a value for the key
+   */
+  public String getString(final int pIndex) {
+    final String eValue = mValues[pIndex];
+    if (eValue != null) {
+      return eValue;
+    }
+    if (parent instanceof IndexedResourceBundle
+        && ((IndexedResourceBundle) parent).mKeys == mKeys) {
+      return ((IndexedResourceBundle) parent).getString(pIndex);
+    }
+    if (parent != null) {
+      return parent.getString(mKeys[pIndex]);
+    }
+    throw new MissingResourceException("Can't find resource for bundle "
+        + getClass().getName() + ", key " + mKeys[pIndex],
+        getClass().getName(), mKeys[pIndex]);
+  }
+
+  /** @see java.util.ResourceBundle#handleGetObject(java.lang.String) */
+  protected Object handleGetObject(final String pKey) {
+    if (pKey == null) {
+      throw new NullPointerException();
+    }
+    final int eIndex = Arrays.binarySearch(mKeys, pKey);
+    return eIndex < 0 ? null : mValues[eIndex];
+  }
+
+  /** @see java.util.ResourceBundle#handleKeySet() */
+  protected Set<String> handleKeySet() {
+    final Set<String> eKeys = new HashSet<String>();
+    for (int i = 0; i < mKeys.length; i++) {
+      if (mValues[i] != null) {
+        eKeys.add(mKeys[i]);
+      }
+    }
+    return eKeys;
+  }
+
+  /** @see java.util.ResourceBundle#getKeys() */
+  public Enumeration<String> getKeys() {
+    final Set<String> eKeys = handleKeySet();
+    if (parent != null) {
+      eKeys.addAll(Collections.list(parent.getKeys()));
+    }
+    return Collections.enumeration(eKeys);
+  }
+
+}
@@ -0,0 +1,322 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+import java.text.DateFormat;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Formats the values of a bundle the way {@link MessageFormat} does, from
+ * the tokens the plugin compiled them into at build time. The plugin writes
+ * the tokens of every value of a bundle to a second bundle named like the
+ * bundle with the suffix "Formats", in the same output mode:
+ * <pre>
+ * ResourceBundle eFormats =
+ *     ResourceBundle.getBundle("MessagesFormats", eLocale);
+ * String eGreeting = PrecompiledMessageFormat.format(
+ *     eFormats.getString("greeting"), eLocale, eName, eCount);
+ * </pre>
+ * The tokens are read in a single pass while formatting, the pattern is not
+ * parsed again and no MessageFormat is created. The number and date formats
+ * of the arguments are kept per thread and Locale. The tokens of a value
+ * are a sequence of:
+ * <pre>
+ * "&lt;length&gt;:&lt;text&gt;         literal text of length chars
+ * {&lt;index&gt;}                  argument without a format type
+ * {&lt;index&gt;,&lt;type&gt;&lt;style&gt;}   argument with a format type and style,
+ *                              one char each, e.g. {0,ni}
+ * </pre>
+ * A pattern with a subformat the tokens can not describe, a choice or a
+ * custom number or date pattern, is kept whole after a leading '!' and is
+ * formatted by a MessageFormat.
+ * <p/>
+ * The class is thread-safe.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public final class PrecompiledMessageFormat {
+
+  public static final char LITERAL = '"';
+
+  public static final char LENGTH_END = ':';
+
+  public static final char ARGUMENT_START = '{';
+
+  public static final char ARGUMENT_END = '}';
+
+  public static final char TYPE_SEPARATOR = ',';
+
+  /** Starts the tokens of a pattern that is formatted by a MessageFormat */
+  public static final char PATTERN = '!';
+
+  public static final char TYPE_NUMBER = 'n';
+
+  public static final char TYPE_DATE = 'd';
+
+  public static final char TYPE_TIME = 't';
+
+  public static final char STYLE_DEFAULT = '-';
+
+  public static final char STYLE_INTEGER = 'i';
+
+  public static final char STYLE_CURRENCY = 'c';
+
+  public static final char STYLE_PERCENT = 'p';
+
+  public static final char STYLE_SHORT = 's';
+
+  public static final char STYLE_MEDIUM = 'm';
+
+  public static final char STYLE_LONG = 'l';
+
+  public static final char STYLE_FULL = 'f';
+
+  /** The number formats, then the date and the time formats by style */
+  private static final int DATE_SLOT = 4;
+
+  private static final int TIME_SLOT = 9;
+
+  /** The format of a date argument without a format type */
+  private static final int DATE_TIME_SLOT = 14;
+
+  private static final int SLOT_COUNT = 15;
+
+  private static final ThreadLocal<Map<Locale, Format[]>> FORMATS =
+      new ThreadLocal<Map<Locale, Format[]>>() {
+        protected Map<Locale, Format[]> initialValue() {
+          return new HashMap<Locale, Format[]>();
+        }
+      };
+
+  private PrecompiledMessageFormat() {
+    super();
+  }
+
+  /**
+   * @param pTokens    The precompiled tokens of the pattern
+   * @param pLocale    The Locale of the number and date formats, null for
+   *                   the default Locale
+   * @param pArguments The arguments of the pattern
+   *
+   * @return the formatted pattern
+   */
+  public static String format(
+      final String pTokens,
+      final Locale pLocale,
+      final Object... pArguments) {
+    return format(pTokens, pLocale, pArguments, new StringBuilder())
+        .toString();
+  }
+
+  /**
+   * @param pTokens    The precompiled tokens of the pattern
+   * @param pLocale    The Locale of the number and date formats, null for
+   *                   the default Locale
+   * @param pArguments The arguments of the pattern
+   * @param pResult    The builder to append the formatted pattern to
+   *
+   * @return the builder
+   *
+   * @throws IllegalArgumentException if the tokens are malformed or an
+   *                                  argument can not be formatted with the
+   *                                  format type of the pattern
+   */
+  public static StringBuilder format(
+      final String pTokens,
+      final Locale pLocale,
+      final Object[] pArguments,
+      final StringBuilder pResult) {
+    if (pTokens == null) {
+      throw new IllegalArgumentException(
+          "Tokens were null, expected non-null value");
+    }
+    final Locale eLocale = pLocale == null ? Locale.getDefault() : pLocale;
+    final int eLength = pTokens.length();
+    if (eLength > 0 && pTokens.charAt(0) == PATTERN) {
+      return pResult.append(new MessageFormat(pTokens.substring(1), eLocale)
+          .format(pArguments));
+    }
+    try {
+      int eIndex = 0;
+      while (eIndex < eLength) {
+        final char eToken = pTokens.charAt(eIndex++);
+        int eNumber = 0;
+        char eDigit;
+        while ((eDigit = pTokens.charAt(eIndex)) >= '0' && eDigit <= '9') {
+          eNumber = eNumber * 10 + eDigit - '0';
+          eIndex++;
+        }
+        if (eToken == LITERAL && eDigit == LENGTH_END) {
+          eIndex++;
+          pResult.append(pTokens, eIndex, eIndex + eNumber);
+          eIndex += eNumber;
+        }
+        else if (eToken == ARGUMENT_START && eDigit == ARGUMENT_END) {
+          eIndex++;
+          appendArgument(pArguments, eNumber, (char) 0, (char) 0, eLocale,
+              pResult);
+        }
+        else if (eToken == ARGUMENT_START && eDigit == TYPE_SEPARATOR
+            && pTokens.charAt(eIndex + 3) == ARGUMENT_END) {
+          appendArgument(pArguments, eNumber, pTokens.charAt(eIndex + 1),
+              pTokens.charAt(eIndex + 2), eLocale, pResult);
+          eIndex += 4;
+        }
+        else {
+          throw new IllegalArgumentException("Malformed tokens at "
+              + eIndex + ": " + pTokens);
+        }
+      }
+    }
+    catch (IndexOutOfBoundsException ex) {
+      throw new IllegalArgumentException("Truncated tokens: " + pTokens, ex);
+    }
+    return pResult;
+  }
+
+  private static void appendArgument(
+      final Object[] pArguments,
+      final int pIndex,
+      final char pType,
+      final char pStyle,
+      final Locale pLocale,
+      final StringBuilder pResult) {
+    if (pArguments == null || pIndex >= pArguments.length) {
+      pResult.append(ARGUMENT_START).append(pIndex).append(ARGUMENT_END);
+      return;
+    }
+    final Object eArgument = pArguments[pIndex];
+    if (eArgument == null) {
+      pResult.append("null");
+    }
+    else if (pType != 0) {
+      pResult.append(getFormat(getSlot(pType, pStyle), pLocale)
+          .format(eArgument));
+    }
+    else if (eArgument instanceof Number) {
+      pResult.append(getFormat(0, pLocale).format(eArgument));
+    }
+    else if (eArgument instanceof Date) {
+      pResult.append(getFormat(DATE_TIME_SLOT, pLocale).format(eArgument));
+    }
+    else {
+      pResult.append(eArgument);
+    }
+  }
+
+  private static int getSlot(
+      final char pType,
+      final char pStyle) {
+    if (pType == TYPE_NUMBER) {
+      switch (pStyle) {
+        case STYLE_DEFAULT:
+          return 0;
+        case STYLE_INTEGER:
+          return 1;
+        case STYLE_CURRENCY:
+          return 2;
+        case STYLE_PERCENT:
+          return 3;
+        default:
+          break;
+      }
+    }
+    else if (pType == TYPE_DATE || pType == TYPE_TIME) {
+      final int eSlot = pType == TYPE_DATE ? DATE_SLOT : TIME_SLOT;
+      switch (pStyle) {
+        case STYLE_DEFAULT:
+          return eSlot;
+        case STYLE_SHORT:
+          return eSlot + 1;
+        case STYLE_MEDIUM:
+          return eSlot + 2;
+        case STYLE_LONG:
+          return eSlot + 3;
+        case STYLE_FULL:
+          return eSlot + 4;
+        default:
+          break;
+      }
+    }
+    throw new IllegalArgumentException("Unknown format type '" + pType
+        + "' with style '" + pStyle + "'");
+  }
+
+  private static Format getFormat(
+      final int pSlot,
+      final Locale pLocale) {
+    final Map<Locale, Format[]> eLocaleFormats = FORMATS.get();
+    Format[] eFormats = eLocaleFormats.get(pLocale);
+    if (eFormats == null) {
+      eFormats = new Format[SLOT_COUNT];
+      eLocaleFormats.put(pLocale, eFormats);
+    }
+    if (eFormats[pSlot] == null) {
+      eFormats[pSlot] = newFormat(pSlot, pLocale);
+    }
+    return eFormats[pSlot];
+  }
+
+  private static Format newFormat(
+      final int pSlot,
+      final Locale pLocale) {
+    switch (pSlot) {
+      case 0:
+        return NumberFormat.getInstance(pLocale);
+      case 1:
+        return NumberFormat.getIntegerInstance(pLocale);
+      case 2:
+        return NumberFormat.getCurrencyInstance(pLocale);
+      case 3:
+        return NumberFormat.getPercentInstance(pLocale);
+      case DATE_TIME_SLOT:
+        return DateFormat.getDateTimeInstance(DateFormat.SHORT,
+            DateFormat.SHORT, pLocale);
+      default:
+        break;
+    }
+    final int eStyle = getDateStyle(pSlot < TIME_SLOT
+        ? pSlot - DATE_SLOT : pSlot - TIME_SLOT);
+    return pSlot < TIME_SLOT ? DateFormat.getDateInstance(eStyle, pLocale)
+        : DateFormat.getTimeInstance(eStyle, pLocale);
+  }
+
+  private static int getDateStyle(final int pStyleIndex) {
+    switch (pStyleIndex) {
+      case 1:
+        return DateFormat.SHORT;
+      case 2:
+        return DateFormat.MEDIUM;
+      case 3:
+        return DateFormat.LONG;
+      case 4:
+        return DateFormat.FULL;
+      default:
+        return DateFormat.DEFAULT;
+    }
+  }
+
+}
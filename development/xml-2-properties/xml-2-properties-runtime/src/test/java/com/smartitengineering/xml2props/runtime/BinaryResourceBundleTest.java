@@ -0,0 +1,156 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.Properties;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class BinaryResourceBundleTest
+    extends TestCase {
+
+  private File mOutputDirectory;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mOutputDirectory = new File("target/test-classes/binary-bundles");
+    mOutputDirectory.mkdirs();
+  }
+
+  public void testBinaryBundles()
+      throws IOException {
+    final Properties eDefaultProperties = new Properties();
+    eDefaultProperties.put("title", "Title");
+    eDefaultProperties.put("only.default", "Default");
+    eDefaultProperties.put("\u00e9t\u00e9", "summer \ud83d\ude00");
+    eDefaultProperties.put("\ud83d\ude00", "smile");
+    final Properties eBnProperties = new Properties();
+    eBnProperties.put("title", "\u099f\u09be\u0987\u099f\u09c7\u09b2");
+    BundleFiles.writeBundle(mOutputDirectory, "BinaryMessages", null,
+        eDefaultProperties, BinaryBundleFormat.EXTENSION);
+    BundleFiles.writeBundle(mOutputDirectory, "BinaryMessages",
+        new Locale("bn"), eBnProperties, BinaryBundleFormat.EXTENSION);
+
+    final ClassLoader eClassLoader = new URLClassLoader(
+        new URL[]{mOutputDirectory.toURI().toURL()}, null);
+    final ResourceBundle eBundle = ResourceBundle.getBundle("BinaryMessages",
+        new Locale("bn"), eClassLoader, new BinaryBundleControl());
+    assertEquals("\u099f\u09be\u0987\u099f\u09c7\u09b2",
+        eBundle.getString("title"));
+    // from the parent bundle
+    assertEquals("Default", eBundle.getString("only.default"));
+    assertEquals("summer \ud83d\ude00", eBundle.getString("\u00e9t\u00e9"));
+    assertEquals("smile", eBundle.getString("\ud83d\ude00"));
+    final Set<String> eKeys = new HashSet<String>(Collections.list(
+        eBundle.getKeys()));
+    assertEquals(eDefaultProperties.stringPropertyNames(), eKeys);
+    try {
+      eBundle.getString("missing");
+      fail("Expected MissingResourceException for missing key");
+    }
+    catch (MissingResourceException ex) {
+      assertEquals("missing", ex.getKey());
+    }
+  }
+
+  public void testLoadFromJar()
+      throws IOException {
+    final Properties eProperties = new Properties();
+    eProperties.put("title", "Title");
+    final byte[] eContent = BundleFiles.toBinary(eProperties);
+    final File eJarFile = new File(mOutputDirectory, "bundles.jar");
+    final JarOutputStream eJarOutputStream = new JarOutputStream(
+        new FileOutputStream(eJarFile));
+    try {
+      eJarOutputStream.putNextEntry(new JarEntry("JarMessages.binary"));
+      eJarOutputStream.write(eContent);
+      eJarOutputStream.closeEntry();
+    }
+    finally {
+      eJarOutputStream.close();
+    }
+
+    // not a file of the file system, read into the heap
+    final BinaryResourceBundle eBundle = BinaryResourceBundle.load(new URL(
+        "jar:" + eJarFile.toURI().toURL() + "!/JarMessages.binary"));
+    assertEquals(1, eBundle.getEntryCount());
+    assertEquals("Title", eBundle.getString("title"));
+  }
+
+  public void testEmptyBundle()
+      throws IOException {
+    final BinaryResourceBundle eBundle = new BinaryResourceBundle(
+        ByteBuffer.wrap(BundleFiles.toBinary(new Properties())));
+    assertEquals(0, eBundle.getEntryCount());
+    assertFalse(eBundle.getKeys().hasMoreElements());
+    assertNull(eBundle.handleGetObject("missing"));
+  }
+
+  public void testCorruptBundles()
+      throws IOException {
+    final Properties eProperties = new Properties();
+    eProperties.put("title", "Title");
+    final byte[] eContent = BundleFiles.toBinary(eProperties);
+
+    final byte[] eWrongMagic = eContent.clone();
+    eWrongMagic[0] = 0;
+    assertCorrupt(eWrongMagic, "Not a binary bundle");
+    final byte[] eWrongVersion = eContent.clone();
+    eWrongVersion[7] = 2;
+    assertCorrupt(eWrongVersion, "Unsupported binary bundle version: 2");
+    final byte[] eTruncated = new byte[BinaryBundleFormat.HEADER_LENGTH + 4];
+    System.arraycopy(eContent, 0, eTruncated, 0, eTruncated.length);
+    assertCorrupt(eTruncated, "Corrupt binary bundle");
+    assertCorrupt(new byte[4], "Not a binary bundle");
+  }
+
+  private static void assertCorrupt(
+      final byte[] pContent,
+      final String pMessage) {
+    try {
+      new BinaryResourceBundle(ByteBuffer.wrap(pContent));
+      fail("Expected IOException for " + pMessage);
+    }
+    catch (IOException ex) {
+      assertEquals(pMessage, ex.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Writes the bundle files of the output modes of the plugin for the tests,
+ * without the plugin. The binary bundles are written with a single bucket,
+ * which is only fast enough for a few keys.
+ *
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+final class BundleFiles {
+
+  private static final int MAX_SEED = 1 << 24;
+
+  private BundleFiles() {
+    super();
+  }
+
+  /**
+   * @param pExtension The extension of the file, "properties", "xml" or
+   *                   "binary"
+   */
+  static void writeBundle(
+      final File pDirectory,
+      final String pBundleName,
+      final Locale pLocale,
+      final Properties pProperties,
+      final String pExtension)
+      throws IOException {
+    final String eName = pLocale == null ? pBundleName
+        : pBundleName + "_" + pLocale;
+    final ByteArrayOutputStream eContent = new ByteArrayOutputStream();
+    if ("properties".equals(pExtension)) {
+      pProperties.store(eContent, null);
+    }
+    else if ("xml".equals(pExtension)) {
+      pProperties.storeToXML(eContent, null);
+    }
+    else if (BinaryBundleFormat.EXTENSION.equals(pExtension)) {
+      eContent.write(toBinary(pProperties));
+    }
+    else {
+      throw new IllegalArgumentException("Unknown extension: " + pExtension);
+    }
+    writeFile(new File(pDirectory, eName + "." + pExtension),
+        eContent.toByteArray());
+  }
+
+  static void writeFile(
+      final File pFile,
+      final byte[] pContent)
+      throws IOException {
+    pFile.getParentFile().mkdirs();
+    final OutputStream eOutputStream = new FileOutputStream(pFile);
+    try {
+      eOutputStream.write(pContent);
+    }
+    finally {
+      eOutputStream.close();
+    }
+  }
+
+  /**
+   * @return the properties as a binary bundle of a single bucket, see
+   *         {@link BinaryBundleFormat}
+   */
+  static byte[] toBinary(final Properties pProperties)
+      throws IOException {
+    final String[] eKeys = pProperties.stringPropertyNames().toArray(
+        new String[pProperties.size()]);
+    Arrays.sort(eKeys);
+    final String[] eSlotKeys = new String[eKeys.length];
+    int eSeed = 0;
+    while (!placeKeys(eKeys, eSeed, eSlotKeys)) {
+      if (++eSeed > MAX_SEED) {
+        throw new IOException("No perfect hash found for " + eKeys.length
+            + " keys");
+      }
+    }
+
+    final ByteArrayOutputStream ePool = new ByteArrayOutputStream();
+    final ByteArrayOutputStream eContent = new ByteArrayOutputStream();
+    final DataOutputStream eOutput = new DataOutputStream(eContent);
+    eOutput.writeInt(BinaryBundleFormat.MAGIC);
+    eOutput.writeInt(BinaryBundleFormat.VERSION);
+    eOutput.writeInt(eKeys.length);
+    eOutput.writeInt(1);
+    eOutput.writeInt(eSeed);
+    for (int i = 0; i < eSlotKeys.length; i++) {
+      final byte[] eKey = eSlotKeys[i].getBytes("UTF-8");
+      final byte[] eValue = pProperties.getProperty(eSlotKeys[i])
+          .getBytes("UTF-8");
+      eOutput.writeInt(ePool.size());
+      eOutput.writeInt(eKey.length);
+      ePool.write(eKey);
+      eOutput.writeInt(ePool.size());
+      eOutput.writeInt(eValue.length);
+      ePool.write(eValue);
+    }
+    ePool.writeTo(eOutput);
+    eOutput.flush();
+    return eContent.toByteArray();
+  }
+
+  private static boolean placeKeys(
+      final String[] pKeys,
+      final int pSeed,
+      final String[] pSlotKeys) {
+    Arrays.fill(pSlotKeys, null);
+    for (int i = 0; i < pKeys.length; i++) {
+      final int eSlot = BinaryBundleFormat.index(BinaryBundleFormat.hash(
+          pKeys[i], pSeed), pSlotKeys.length);
+      if (pSlotKeys[eSlot] != null) {
+        return false;
+      }
+      pSlotKeys[eSlot] = pKeys[i];
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+import junit.framework.TestCase;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.Properties;
+import java.util.ResourceBundle;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class CachingBundleLoaderTest
+    extends TestCase {
+
+  private static final Locale[] LOCALES = {
+      new Locale("bn"), new Locale("no"), new Locale("sv")};
+
+  private File mOutputDirectory;
+
+  private ClassLoader mClassLoader;
+
+  /** @see junit.framework.TestCase#setUp() */
+  protected void setUp()
+      throws Exception {
+    super.setUp();
+
+    mOutputDirectory = new File("target/test-classes/cached-bundles");
+    mOutputDirectory.mkdirs();
+    mClassLoader = new URLClassLoader(
+        new URL[]{mOutputDirectory.toURI().toURL()}, null);
+  }
+
+  private void writeBundles(
+      final String pExtension,
+      final String pBundleName)
+      throws IOException {
+    final Properties eDefaultProperties = new Properties();
+    eDefaultProperties.put("title", "Title");
+    eDefaultProperties.put("only.default", "Default");
+    BundleFiles.writeBundle(mOutputDirectory, pBundleName, null,
+        eDefaultProperties, pExtension);
+    for (int i = 0; i < LOCALES.length; i++) {
+      final Properties eProperties = new Properties();
+      eProperties.put("title", "Title-" + LOCALES[i]);
+      BundleFiles.writeBundle(mOutputDirectory, pBundleName, LOCALES[i],
+          eProperties, pExtension);
+    }
+  }
+
+  public void testOutputModes()
+      throws IOException {
+    final String[] eExtensions = {"properties", "xml",
+        BinaryBundleFormat.EXTENSION};
+    for (int i = 0; i < eExtensions.length; i++) {
+      final String eBundleName = "Cached" + eExtensions[i];
+      writeBundles(eExtensions[i], eBundleName);
+      assertLoads(new CachingBundleLoader(eBundleName, 2, mClassLoader,
+          new GeneratedBundleControl()));
+    }
+  }
+
+  public void testJavaMode()
+      throws IOException {
+    final JavaCompiler eCompiler = ToolProvider.getSystemJavaCompiler();
+    if (eCompiler == null) {
+      // running on a JRE
+      return;
+    }
+    final String[] eClassNames = {"Messages", "Messages_bn", "Messages_no",
+        "Messages_sv"};
+    final String[] eArguments = new String[eClassNames.length + 2];
+    eArguments[0] = "-d";
+    eArguments[1] = mOutputDirectory.getPath();
+    for (int i = 0; i < eClassNames.length; i++) {
+      final String eContents = i == 0
+          ? "{\"title\", \"Title\"}, {\"only.default\", \"Default\"}"
+          : "{\"title\", \"Title-" + LOCALES[i - 1] + "\"}";
+      final File eSourceFile = new File(mOutputDirectory,
+          "test/cached/" + eClassNames[i] + ".java");
+      BundleFiles.writeFile(eSourceFile, ("package test.cached;\n"
+          + "public class " + eClassNames[i]
+          + " extends java.util.ListResourceBundle {\n"
+          + "  protected Object[][] getContents() {\n"
+          + "    return new Object[][]{" + eContents + "};\n"
+          + "  }\n"
+          + "}\n").getBytes("UTF-8"));
+      eArguments[i + 2] = eSourceFile.getPath();
+    }
+    assertEquals(0, eCompiler.run(null, null, null, eArguments));
+    assertLoads(new CachingBundleLoader("test.cached.Messages", 2,
+        mClassLoader, new GeneratedBundleControl()));
+  }
+
+  private void assertLoads(final CachingBundleLoader pLoader) {
+    final ResourceBundle eBnBundle = pLoader.getBundle(LOCALES[0]);
+    assertEquals("Title-bn", eBnBundle.getString("title"));
+    // from the parent bundle
+    assertEquals("Default", eBnBundle.getString("only.default"));
+    assertEquals(1, pLoader.getMissCount());
+    assertSame(eBnBundle, pLoader.getBundle(LOCALES[0]));
+    assertEquals(1, pLoader.getHitCount());
+
+    assertEquals("Title-no", pLoader.getBundle(LOCALES[1])
+        .getString("title"));
+    assertEquals("Title-sv", pLoader.getBundle(LOCALES[2])
+        .getString("title"));
+    assertEquals(3, pLoader.getMissCount());
+    assertEquals(2, pLoader.getSize());
+    // the least recently used Locale is only softly referenced
+    assertEquals(1, pLoader.getEvictionCount());
+    assertSame(eBnBundle, pLoader.getBundle(LOCALES[0]));
+    assertEquals(2, pLoader.getHitCount());
+    assertEquals(2, pLoader.getEvictionCount());
+
+    pLoader.clear();
+    assertEquals(0, pLoader.getSize());
+    assertNotSame(eBnBundle, pLoader.getBundle(LOCALES[0]));
+    assertEquals(4, pLoader.getMissCount());
+  }
+
+  public void testSharedParents()
+      throws IOException {
+    writeBundles("properties", "CachedShared");
+    final List<Locale> eLoadedLocales = new ArrayList<Locale>();
+    final CachingBundleLoader eLoader = new CachingBundleLoader(
+        "CachedShared", 2, mClassLoader, new GeneratedBundleControl() {
+          public ResourceBundle newBundle(
+              final String pBaseName,
+              final Locale pLocale,
+              final String pFormat,
+              final ClassLoader pLoader,
+              final boolean pReload)
+              throws IllegalAccessException, InstantiationException,
+              IOException {
+            final ResourceBundle eBundle = super.newBundle(pBaseName,
+                pLocale, pFormat, pLoader, pReload);
+            if (eBundle != null) {
+              eLoadedLocales.add(pLocale);
+            }
+            return eBundle;
+          }
+        });
+    final ResourceBundle eBnBundle = eLoader.getBundle(LOCALES[0]);
+    assertEquals("Default", eLoader.getBundle(LOCALES[1])
+        .getString("only.default"));
+    // the default bundle is loaded once for both Locales
+    assertEquals(3, eLoadedLocales.size());
+    assertEquals(Locale.ROOT, eLoadedLocales.get(0));
+    assertSame(eBnBundle, eLoader.getBundle(new Locale("bn", "BD")));
+    assertEquals(3, eLoadedLocales.size());
+  }
+
+  public void testPropertiesEncodings()
+      throws IOException {
+    final String eValue = "\u099f\u09be\u0987\u099f\u09c7\u09b2 caf\u00e9";
+    BundleFiles.writeFile(new File(mOutputDirectory,
+        "Utf8Encoded.properties"), ("title=" + eValue).getBytes("UTF-8"));
+    BundleFiles.writeFile(new File(mOutputDirectory,
+        "Latin1Encoded.properties"), "title=caf\u00e9"
+        .getBytes("ISO-8859-1"));
+    assertEquals(eValue, ResourceBundle.getBundle("Utf8Encoded",
+        Locale.ROOT, mClassLoader, new GeneratedBundleControl())
+        .getString("title"));
+    // not valid UTF-8
+    assertEquals("caf\u00e9", ResourceBundle.getBundle("Latin1Encoded",
+        Locale.ROOT, mClassLoader, new GeneratedBundleControl())
+        .getString("title"));
+  }
+
+  public void testMissingBundle() {
+    final CachingBundleLoader eLoader = new CachingBundleLoader("Missing", 2,
+        mClassLoader, new GeneratedBundleControl());
+    try {
+      eLoader.getBundle(LOCALES[0]);
+      fail("Expected MissingResourceException for a missing bundle");
+    }
+    catch (MissingResourceException ex) {
+      assertEquals(1, eLoader.getMissCount());
+      assertEquals(0, eLoader.getSize());
+    }
+  }
+
+}
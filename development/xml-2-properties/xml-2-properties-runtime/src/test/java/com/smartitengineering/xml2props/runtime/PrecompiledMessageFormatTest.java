@@ -0,0 +1,105 @@
+/*
+    This Module is a Maven plugin to convert an xml to a java resource bundle
+    Copyright (C) 2008  Shams Mahmood
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.smartitengineering.xml2props.runtime;
+
+import junit.framework.TestCase;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * @author <a href="mailto:shams.mahmood@gmail.com">Shams Mahmood</a>
+ */
+
+public class PrecompiledMessageFormatTest
+    extends TestCase {
+
+  /** The patterns and the tokens the plugin compiles them into */
+  private static final String[][] PATTERNS = {
+      {"", ""},
+      {"Plain text", "\"10:Plain text"},
+      {"Hello {0}, you have {1} new messages",
+          "\"6:Hello {0}\"11:, you have {1}\"13: new messages"},
+      {"It''s '{'{0}!}''", "\"6:It's {{0}\"3:!}'"},
+      {"{1}{0}{1}", "{1}{0}{1}"},
+      {"{0,number} {0,number,integer} {0,number,percent}",
+          "{0,n-}\"1: {0,ni}\"1: {0,np}"},
+      {"{2,date} {2,date,short} {2,date,long} {2,time,full} {2}",
+          "{2,d-}\"1: {2,ds}\"1: {2,dl}\"1: {2,tf}\"1: {2}"},
+      {"{0} missing {5}", "{0}\"9: missing {5}"},
+      {"{1,choice,0#no files|1#one file|1<{1,number,integer} files}",
+          "!{1,choice,0#no files|1#one file|1<{1,number,integer} files}"},
+  };
+
+  public void testFormatLikeMessageFormat() {
+    final Locale[] eLocales = {Locale.US, Locale.GERMANY, new Locale("bn")};
+    final Object[][] eArguments = {
+        {Double.valueOf(1234.567), Integer.valueOf(0), new Date(0)},
+        {Long.valueOf(42), Integer.valueOf(3), new Date(1234567890000L)},
+        {null, Integer.valueOf(1), new Date()},
+    };
+    for (int i = 0; i < PATTERNS.length; i++) {
+      for (int j = 0; j < eLocales.length; j++) {
+        for (int k = 0; k < eArguments.length; k++) {
+          // a number format throws for a null argument either way
+          if (eArguments[k][0] == null
+              && PATTERNS[i][0].indexOf("{0,number") >= 0) {
+            continue;
+          }
+          assertEquals(PATTERNS[i][0], new MessageFormat(PATTERNS[i][0],
+              eLocales[j]).format(eArguments[k]),
+              PrecompiledMessageFormat.format(PATTERNS[i][1], eLocales[j],
+                  eArguments[k]));
+        }
+      }
+    }
+  }
+
+  public void testAppendToBuilder() {
+    final StringBuilder eResult = new StringBuilder("> ");
+    assertSame(eResult, PrecompiledMessageFormat.format("\"6:Hello {0}",
+        Locale.US, new Object[]{"World"}, eResult));
+    assertEquals("> Hello World", eResult.toString());
+    // no arguments at all
+    assertEquals("Hello {0}", PrecompiledMessageFormat.format(
+        "\"6:Hello {0}", null, (Object[]) null));
+  }
+
+  public void testMalformedTokens() {
+    final String[] eTokens = {"\"9:short", "{0,xy}", "{0", "x", "\"3"};
+    for (int i = 0; i < eTokens.length; i++) {
+      try {
+        PrecompiledMessageFormat.format(eTokens[i], Locale.US, "x");
+        fail("Expected IllegalArgumentException for " + eTokens[i]);
+      }
+      catch (IllegalArgumentException ex) {
+        // expected
+      }
+    }
+    try {
+      PrecompiledMessageFormat.format(null, Locale.US);
+      fail("Expected IllegalArgumentException for null tokens");
+    }
+    catch (IllegalArgumentException ex) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,6 @@
+package test.cached;
+public class Messages_bn extends java.util.ListResourceBundle {
+  protected Object[][] getContents() {
+    return new Object[][]{{"title", "Title-bn"}};
+  }
+}